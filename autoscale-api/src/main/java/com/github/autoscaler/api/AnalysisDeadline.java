@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.api;
+
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deadline of the analysis run that is in progress on the current thread, if the service being analysed has one. A run that
+ * reaches its deadline is cancelled by interrupting its thread, which does not stop blocking network I/O, so WorkloadAnalysers and
+ * ServiceScalers use the time remaining to limit the timeouts of the requests they make during the run.
+ */
+public final class AnalysisDeadline
+{
+    /**
+     * The deadline of the current run, as a value of System.nanoTime, or null if the run has no deadline.
+     */
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private AnalysisDeadline()
+    {
+    }
+
+    /**
+     * Set the deadline of the analysis run that is starting on the current thread.
+     * @param deadlineNanos the time the run must complete by, as a value of System.nanoTime
+     */
+    public static void set(final long deadlineNanos)
+    {
+        DEADLINE.set(deadlineNanos);
+    }
+
+    /**
+     * Clear the deadline of the current thread, once its analysis run has completed.
+     */
+    public static void clear()
+    {
+        DEADLINE.remove();
+    }
+
+    /**
+     * @return the number of milliseconds remaining until the deadline of the current analysis run, which is not positive if the
+     * deadline has passed, or empty if the current thread has no deadline
+     */
+    public static OptionalLong getRemainingMillis()
+    {
+        final Long deadline = DEADLINE.get();
+        return deadline == null
+            ? OptionalLong.empty()
+            : OptionalLong.of(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Wrap a task so that it runs with the deadline of the current thread, for a task that is run on another thread on behalf of the
+     * current analysis run.
+     * @param task the task to run
+     * @return the task, run with the deadline of the current thread
+     */
+    public static <T> Callable<T> propagate(final Callable<T> task)
+    {
+        final Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            final Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    DEADLINE.remove();
+                } else {
+                    DEADLINE.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.api;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+
+import org.glassfish.jersey.client.ClientProperties;
+
+/**
+ * Limits the connect and read timeouts of each request made by a Jersey client to the time remaining until the
+ * {@link AnalysisDeadline} of the current thread, so that a request made during an analysis run fails once the run reaches its
+ * deadline rather than continuing to hold the thread. Requests made outside of an analysis run with a deadline keep the timeouts of
+ * the client, and a request made after the deadline has passed fails without being sent.
+ */
+public final class AnalysisDeadlineFilter implements ClientRequestFilter
+{
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException
+    {
+        final OptionalLong remainingMillis = AnalysisDeadline.getRemainingMillis();
+        if (remainingMillis.isEmpty()) {
+            return;
+        }
+        if (remainingMillis.getAsLong() <= 0) {
+            throw new IOException("The analysis run has reached its deadline, request to " + requestContext.getUri() + " not sent");
+        }
+        limitTimeout(requestContext, ClientProperties.CONNECT_TIMEOUT, remainingMillis.getAsLong());
+        limitTimeout(requestContext, ClientProperties.READ_TIMEOUT, remainingMillis.getAsLong());
+    }
+
+    private static void limitTimeout(final ClientRequestContext requestContext, final String property, final long remainingMillis)
+    {
+        // A timeout of 0 means that the client waits indefinitely
+        final int clientTimeout = ClientProperties.getValue(requestContext.getConfiguration().getProperties(), property, 0);
+        final long timeout = clientTimeout > 0 ? Math.min(clientTimeout, remainingMillis) : remainingMillis;
+        requestContext.setProperty(property, (int) Math.min(timeout, Integer.MAX_VALUE));
+    }
+}
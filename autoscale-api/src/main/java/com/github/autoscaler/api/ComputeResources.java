@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.api;
+
+/**
+ * An amount of the compute resources of a platform, such as the resources requested by one instance of a service, or the capacity
+ * of a platform that is available to services.
+ */
+public final class ComputeResources
+{
+    public static final ComputeResources NONE = new ComputeResources(0, 0);
+
+    private final long cpuMillis;
+
+    private final long memoryBytes;
+
+    public ComputeResources(final long cpuMillis, final long memoryBytes)
+    {
+        this.cpuMillis = cpuMillis;
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * @return the amount of CPU, in thousandths of a CPU
+     */
+    public long getCpuMillis()
+    {
+        return cpuMillis;
+    }
+
+    /**
+     * @return the amount of memory, in bytes
+     */
+    public long getMemoryBytes()
+    {
+        return memoryBytes;
+    }
+
+    public ComputeResources plus(final ComputeResources other)
+    {
+        return new ComputeResources(cpuMillis + other.cpuMillis, memoryBytes + other.memoryBytes);
+    }
+
+    public ComputeResources minus(final ComputeResources other)
+    {
+        return new ComputeResources(cpuMillis - other.cpuMillis, memoryBytes - other.memoryBytes);
+    }
+
+    public ComputeResources times(final int multiplier)
+    {
+        return new ComputeResources(cpuMillis * multiplier, memoryBytes * multiplier);
+    }
+
+    /**
+     * @param other the resources to compare against
+     * @return whether this amount is no greater than the other in every resource
+     */
+    public boolean fitsWithin(final ComputeResources other)
+    {
+        return cpuMillis <= other.cpuMillis && memoryBytes <= other.memoryBytes;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ComputeResources that = (ComputeResources) o;
+        return cpuMillis == that.cpuMillis && memoryBytes == that.memoryBytes;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Long.hashCode(cpuMillis) + Long.hashCode(memoryBytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ComputeResources{" +
+                "cpuMillis=" + cpuMillis +
+                ", memoryBytes=" + memoryBytes +
+                '}';
+    }
+}
@@ -16,6 +16,7 @@
 package com.github.autoscaler.api;
 
 
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -30,6 +31,8 @@ public final class ScalingConfiguration
 {
     public static final String KEY_WORKLOAD_METRIC = "autoscale.metric";
     public static final String KEY_INTERVAL = "autoscale.interval";
+    public static final String KEY_MIN_INTERVAL = "autoscale.mininterval";
+    public static final String KEY_MAX_INTERVAL = "autoscale.maxinterval";
     public static final String KEY_SCALING_TARGET = "autoscale.scalingtarget";
     public static final String KEY_MIN_INSTANCES = "autoscale.mininstances";
     public static final String KEY_MAX_INSTANCES = "autoscale.maxinstances";
@@ -37,8 +40,10 @@ public final class ScalingConfiguration
     public static final String KEY_BACKOFF_AMOUNT = "autoscale.backoff";
     public static final String KEY_SCALE_DOWN_BACKOFF_AMOUNT = "autoscale.scaledownbackoff";
     public static final String KEY_SCALE_UP_BACKOFF_AMOUNT = "autoscale.scaleupbackoff";
+    public static final String KEY_ANALYSIS_DEADLINE = "autoscale.analysisdeadline";
     public static final String KEY_SHUTDOWN_PRIORITY = "autoscale.shutdownpriority";
     public static final String KEY_GROUP_ID = "autoscale.groupid";
+    public static final String KEY_WEIGHT = "autoscale.weight";
     /**
      * The unique id of the service
      */
@@ -50,6 +55,18 @@ public final class ScalingConfiguration
      */
     @Min(1)
     private int interval = 10;
+    /**
+     * The shortest interval period (in seconds) between measuring the workload of the service, when the interval adapts to how quickly
+     * the workload is changing, or 0 if the interval is fixed
+     */
+    @Min(0)
+    private int minInterval = 0;
+    /**
+     * The longest interval period (in seconds) between measuring the workload of the service, when the interval adapts to how quickly
+     * the workload is changing, or 0 if the interval is fixed
+     */
+    @Min(0)
+    private int maxInterval = 0;
     /**
      * The minimum number of instances of this service that are allowed
      */
@@ -75,6 +92,16 @@ public final class ScalingConfiguration
      */
     @Min(-1)
     private int scaleUpBackoffAmount = -1;
+    /**
+     * The maximum period (in seconds) an analysis run of the service may take before it is cancelled, or 0 for no limit
+     */
+    @Min(0)
+    private int analysisDeadline = 0;
+    /**
+     * The weight of the service relative to other services when a governor that shares contended capacity by weight is in use
+     */
+    @Min(1)
+    private int weight = 1;
     /**
      * The key/name of the WorkloadAnalyser to use for scaling this service
      */
@@ -118,6 +145,63 @@ public final class ScalingConfiguration
     }
 
 
+    /**
+     * @return the shortest number of seconds between analysis runs when the interval is adaptive, or 0 if it is fixed.
+     */
+    public int getMinInterval()
+    {
+        return minInterval;
+    }
+
+
+    /**
+     * @param minInterval the shortest number of seconds between analysis runs when the interval is adaptive, or 0 if it is fixed.
+     */
+    public void setMinInterval(final int minInterval)
+    {
+        this.minInterval = minInterval;
+    }
+
+
+    /**
+     * @return the longest number of seconds between analysis runs when the interval is adaptive, or 0 if it is fixed.
+     */
+    public int getMaxInterval()
+    {
+        return maxInterval;
+    }
+
+
+    /**
+     * @param maxInterval the longest number of seconds between analysis runs when the interval is adaptive, or 0 if it is fixed.
+     */
+    public void setMaxInterval(final int maxInterval)
+    {
+        this.maxInterval = maxInterval;
+    }
+
+
+    /**
+     * @return whether the interval between analysis runs adapts, between the minimum and maximum intervals, to how quickly the
+     * workload of the service is changing.
+     */
+    public boolean isAdaptiveInterval()
+    {
+        return minInterval > 0 && maxInterval > minInterval;
+    }
+
+
+    /**
+     * A service either sets neither interval, or sets both with the minimum shorter than the maximum, so that a service whose
+     * intervals could not be used is rejected rather than silently given a fixed interval.
+     */
+    @AssertTrue(message = "minInterval and maxInterval must either both be 0, or minInterval must be positive and less than maxInterval")
+    private boolean isIntervalRangeValid()
+    {
+        return (minInterval == 0 && maxInterval == 0) || isAdaptiveInterval();
+    }
+
+
     public String getWorkloadMetric()
     {
         return workloadMetric;
@@ -230,6 +314,44 @@ public final class ScalingConfiguration
     }
 
 
+    /**
+     * @return the number of seconds an analysis run may take before it is cancelled, or 0 if analysis runs are not limited.
+     */
+    public int getAnalysisDeadline()
+    {
+        return analysisDeadline;
+    }
+
+
+    /**
+     * @param analysisDeadline the number of seconds an analysis run may take before it is cancelled, or 0 if analysis runs are not
+     * limited.
+     */
+    public void setAnalysisDeadline(final int analysisDeadline)
+    {
+        this.analysisDeadline = analysisDeadline;
+    }
+
+
+    /**
+     * @return the weight of the service relative to other services, used by a governor that shares contended capacity by weight.
+     */
+    public int getWeight()
+    {
+        return weight;
+    }
+
+
+    /**
+     * @param weight the weight of the service relative to other services, used by a governor that shares contended capacity by
+     * weight.
+     */
+    public void setWeight(final int weight)
+    {
+        this.weight = weight;
+    }
+
+
     @Override
     public String toString()
     {
@@ -252,11 +374,15 @@ public final class ScalingConfiguration
         }
         ScalingConfiguration that = (ScalingConfiguration) o;
         return interval == that.interval &&
+               minInterval == that.minInterval &&
+               maxInterval == that.maxInterval &&
                minInstances == that.minInstances &&
                maxInstances == that.maxInstances &&
                backoffAmount == that.backoffAmount &&
                scaleDownBackoffAmount == that.scaleDownBackoffAmount &&
                scaleUpBackoffAmount == that.scaleUpBackoffAmount &&
+               analysisDeadline == that.analysisDeadline &&
+               weight == that.weight &&
                Objects.equals(id, that.id) &&
                Objects.equals(scalingProfile, that.scalingProfile) &&
                Objects.equals(workloadMetric, that.workloadMetric) &&
@@ -268,6 +394,6 @@ public final class ScalingConfiguration
     public int hashCode()
     {
         return Objects.hash(id, interval, minInstances, maxInstances, workloadMetric, scalingTarget, scalingProfile, backoffAmount,
-                            scaleDownBackoffAmount, scaleUpBackoffAmount);
+                            scaleDownBackoffAmount, scaleUpBackoffAmount, analysisDeadline, minInterval, maxInterval, weight);
     }
 }
@@ -17,6 +17,7 @@ package com.github.autoscaler.api;
 
 
 import com.hpe.caf.api.HealthReporter;
+import java.util.Optional;
 
 
 /**
@@ -53,4 +54,30 @@ public interface ServiceScaler extends HealthReporter
      */
     InstanceInfo getInstanceInfo(String service)
         throws ScalerException;
+
+
+    /**
+     * Get the compute resources requested by each instance of a service, for use when deciding how many instances of each service
+     * fit on the platform.
+     * @param service the service to retrieve the requested resources of, by reference
+     * @return the resources requested by one instance, or empty if this is not known
+     * @throws ScalerException if the information could not be retrieved
+     */
+    default Optional<ComputeResources> getInstanceResources(final String service)
+        throws ScalerException
+    {
+        return Optional.empty();
+    }
+
+
+    /**
+     * Get the compute resources of the platform that have not been requested by any instance of any service.
+     * @return the unrequested resources, or empty if this is not known
+     * @throws ScalerException if the information could not be retrieved
+     */
+    default Optional<ComputeResources> getAvailableCapacity()
+        throws ScalerException
+    {
+        return Optional.empty();
+    }
 }
@@ -16,6 +16,9 @@
 package com.github.autoscaler.api;
 
 
+import java.util.OptionalDouble;
+
+
 /**
  * A WorkloadAnalyser examines the workload of a service and makes
  * recommendations upon how to scale it at a given time.
@@ -32,6 +35,28 @@ public interface WorkloadAnalyser
     ScalingAction analyseWorkload(InstanceInfo instanceInfo)
         throws ScalerException;
 
+    /**
+     * Determine whether the next analysis run is only to gather information on the workload, because it cannot result in a
+     * recommendation to scale. When this is the case, collectWorkload is called in place of analyseWorkload, and the instances of the
+     * service are only fetched when a resource limit needs them or on a slower periodic refresh. A run that fetches them takes no
+     * scaling action other than keeping the service within its minimum and maximum instances.
+     * @return true if the next run should only call collectWorkload, false if it should call analyseWorkload
+     */
+    default boolean isDecisionDeferred()
+    {
+        return false;
+    }
+
+    /**
+     * Gather information on the workload of a service for use in later analysis, without making a recommendation. This is called in
+     * place of analyseWorkload for a run in which isDecisionDeferred returned true.
+     * @throws ScalerException if gathering information on the workload fails
+     */
+    default void collectWorkload()
+        throws ScalerException
+    {
+    }
+
     /**
      * This method will determine and return the current resource utilisation of RabbitMQ
      *
@@ -41,6 +66,17 @@ public interface WorkloadAnalyser
      */
     ResourceUtilisation getCurrentResourceUtilisation() throws ScalerException;
 
+    /**
+     * Report how quickly the workload of the service was changing at the last analysis, which is used to adapt the interval between
+     * analysis runs for services that have an adaptive interval.
+     * @return a value from 0, meaning the workload is stable or idle, to 1, meaning it is changing rapidly, or empty if this is not
+     * known, in which case the interval is left as it is
+     */
+    default OptionalDouble getWorkloadVolatility()
+    {
+        return OptionalDouble.empty();
+    }
+
     /**
      * This method will return the content to send in an email when reporting a memory overload issue with the messaging platform.
      * @param percentageMem The percentage of the messaging platform's allowed memory that has been used. This is passed as a string so
@@ -31,4 +31,30 @@ public interface WorkloadAnalyserFactory extends HealthReporter
      * @return a new WorkloadAnalyser instance for the given scaling target and profile
      */
     WorkloadAnalyser getAnalyser(String scalingTarget, String scalingProfile);
+
+
+    /**
+     * Apply a different scaling profile to an analyser previously created by this factory for the same scaling target, keeping
+     * any history the analyser has gathered where possible. The default implementation creates a new analyser.
+     * @param analyser the analyser currently used for the scaling target
+     * @param scalingTarget the reference to the target used for analysing workloads
+     * @param scalingProfile the name of the profile to use for scaling
+     * @return the analyser to use from now on, which may be the same instance
+     */
+    default WorkloadAnalyser reconfigureAnalyser(WorkloadAnalyser analyser, String scalingTarget, String scalingProfile)
+    {
+        return getAnalyser(scalingTarget, scalingProfile);
+    }
+
+
+    /**
+     * Called at the start of each batched analysis tick, before the analysers created by this factory are run, so that the
+     * statistics for all of their scaling targets can be acquired at once and shared between them. The default implementation
+     * does nothing, and each analyser acquires its own statistics.
+     * @throws ScalerException if the shared statistics cannot be acquired, in which case the analysers acquire their own
+     */
+    default void prepareBatchAnalysis()
+        throws ScalerException
+    {
+    }
 }
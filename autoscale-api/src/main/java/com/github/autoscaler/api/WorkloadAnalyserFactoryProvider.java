@@ -18,6 +18,9 @@ package com.github.autoscaler.api;
 
 import com.hpe.caf.api.ConfigurationSource;
 
+import java.util.Collections;
+import java.util.Map;
+
 
 /**
  * Boilerplate for acquiring a WorkloadAnalyserFactory. It is holds the unique name for the WorkloadAnalyser.
@@ -38,4 +41,19 @@ public interface WorkloadAnalyserFactoryProvider
      * @return a unique key name for this sort of WorkloadAnalyser the factory produces
      */
     String getWorkloadAnalyserName();
+
+
+    /**
+     * Return the WorkloadAnalyserFactory of every sort of WorkloadAnalyser this provider offers, keyed by their unique names. A
+     * provider that offers several sorts of WorkloadAnalyser can override this so that their factories share resources, such as
+     * connections to the system they analyse. By default this is the single factory returned by getWorkloadAnalyserFactory.
+     * @param configurationSource the configuration, used to setup the WorkloadAnalyserFactory instances
+     * @return the factories, keyed by the unique key name of the sort of WorkloadAnalyser each produces
+     * @throws ScalerException if a factory cannot be created
+     */
+    default Map<String, WorkloadAnalyserFactory> getWorkloadAnalyserFactories(final ConfigurationSource configurationSource)
+            throws ScalerException
+    {
+        return Collections.singletonMap(getWorkloadAnalyserName(), getWorkloadAnalyserFactory(configurationSource));
+    }
 }
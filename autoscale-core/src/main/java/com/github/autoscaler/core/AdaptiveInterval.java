@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+/**
+ * The interval between the analysis runs of a service whose interval adapts to how quickly its workload is changing. After each run
+ * the interval shrinks towards the minimum in proportion to the volatility reported by the WorkloadAnalyser, so that a sudden burst
+ * brings it straight down, and while the workload is stable or idle it grows gradually back towards the maximum.
+ */
+final class AdaptiveInterval
+{
+    /**
+     * The volatility at or below which the workload is treated as stable.
+     */
+    static final double STABLE_VOLATILITY = 0.05;
+    /**
+     * The factor the interval grows by after each run in which the workload was stable.
+     */
+    static final double GROWTH_FACTOR = 1.25;
+
+    private final int minInterval;
+    private final int maxInterval;
+    private double interval;
+
+
+    /**
+     * @param initialInterval the interval to start with, which is brought within the limits if necessary
+     * @param minInterval the shortest interval in seconds
+     * @param maxInterval the longest interval in seconds
+     */
+    AdaptiveInterval(final int initialInterval, final int minInterval, final int maxInterval)
+    {
+        if (minInterval < 1 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Interval limits invalid");
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.interval = Math.max(minInterval, Math.min(maxInterval, initialInterval));
+    }
+
+
+    /**
+     * Adjust the interval following an analysis run.
+     * @param volatility how quickly the workload was changing, from 0 for stable to 1 for changing rapidly
+     */
+    synchronized void update(final double volatility)
+    {
+        final double clamped = Double.isNaN(volatility) ? 0.0 : Math.max(0.0, Math.min(1.0, volatility));
+        if (clamped <= STABLE_VOLATILITY) {
+            interval = Math.min(maxInterval, interval * GROWTH_FACTOR);
+        } else {
+            interval = Math.max(minInterval, interval * (1.0 - clamped));
+        }
+    }
+
+
+    /**
+     * @return the number of seconds until the next analysis run
+     */
+    synchronized int getInterval()
+    {
+        return (int) Math.round(interval);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.WorkloadAnalyserFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+
+/**
+ * A group of services that share a workload metric and interval, and are analysed together on a single schedule. On each run
+ * the WorkloadAnalyserFactory is given the chance to acquire statistics for all of the services at once, and then the ScalerThread
+ * of each service is submitted to the executor, so that the services are analysed concurrently. A service whose previous analysis
+ * is still running when the batch runs again is skipped until that analysis completes. As with a service that is scheduled on its
+ * own, a service whose analysis fails with an Error is no longer analysed, and is reported as failed to the health check.
+ */
+final class AnalysisBatch implements Runnable
+{
+    private final String workloadMetric;
+    private final WorkloadAnalyserFactory analyserFactory;
+    private final ExecutorService executor;
+    private final Map<String, ScalerThread> scalerThreads = new ConcurrentHashMap<>();
+    private final Set<String> runningAnalyses = ConcurrentHashMap.newKeySet();
+    private final Set<String> failedAnalyses = ConcurrentHashMap.newKeySet();
+    private volatile ScheduledFuture<?> schedule;
+    private static final Logger LOG = LoggerFactory.getLogger(AnalysisBatch.class);
+
+
+    AnalysisBatch(final String workloadMetric, final WorkloadAnalyserFactory analyserFactory, final ExecutorService executor)
+    {
+        this.workloadMetric = Objects.requireNonNull(workloadMetric);
+        this.analyserFactory = Objects.requireNonNull(analyserFactory);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+
+    @Override
+    public void run()
+    {
+        try {
+            analyserFactory.prepareBatchAnalysis();
+        } catch (final ScalerException e) {
+            LOG.warn("Failed to get statistics for all services with workload metric {}, they will be retrieved individually",
+                     workloadMetric, e);
+        }
+        for (final Map.Entry<String, ScalerThread> entry : scalerThreads.entrySet()) {
+            submit(entry.getKey(), entry.getValue());
+        }
+    }
+
+
+    private void submit(final String serviceRef, final ScalerThread scalerThread)
+    {
+        if ( failedAnalyses.contains(serviceRef) ) {
+            return;
+        }
+        if ( !runningAnalyses.add(serviceRef) ) {
+            LOG.debug("Previous analysis of service {} is still running, skipping it in this batch", serviceRef);
+            return;
+        }
+        try {
+            executor.execute(() -> analyse(serviceRef, scalerThread));
+        } catch (final RejectedExecutionException e) {
+            runningAnalyses.remove(serviceRef);
+            LOG.warn("Unable to submit analysis of service {}", serviceRef, e);
+        }
+    }
+
+
+    private void analyse(final String serviceRef, final ScalerThread scalerThread)
+    {
+        try {
+            scalerThread.run();
+        } catch (final RuntimeException e) {
+            LOG.error("Unexpected failure analysing service {}", serviceRef, e);
+        } catch (final Throwable t) {
+            LOG.error("Analysis of service {} has failed and will not be run again", serviceRef, t);
+            failedAnalyses.add(serviceRef);
+        } finally {
+            runningAnalyses.remove(serviceRef);
+        }
+    }
+
+
+    void add(final String serviceRef, final ScalerThread scalerThread)
+    {
+        scalerThreads.put(serviceRef, scalerThread);
+    }
+
+
+    void remove(final String serviceRef)
+    {
+        scalerThreads.remove(serviceRef);
+        runningAnalyses.remove(serviceRef);
+        failedAnalyses.remove(serviceRef);
+    }
+
+
+    /**
+     * @param serviceRef the service to check
+     * @return whether the analysis of the service has failed, so that it is no longer analysed with this batch
+     */
+    boolean isFailed(final String serviceRef)
+    {
+        return failedAnalyses.contains(serviceRef);
+    }
+
+
+    boolean isEmpty()
+    {
+        return scalerThreads.isEmpty();
+    }
+
+
+    ScheduledFuture<?> getSchedule()
+    {
+        return schedule;
+    }
+
+
+    void setSchedule(final ScheduledFuture<?> schedule)
+    {
+        this.schedule = schedule;
+    }
+}
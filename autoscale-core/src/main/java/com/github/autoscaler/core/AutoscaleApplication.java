@@ -53,8 +53,10 @@ import io.dropwizard.logging.common.LoggingUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -86,7 +88,9 @@ public class AutoscaleApplication extends Application<AutoscaleConfiguration>
      * Called upon startup. Determine required components from the classpath.
      * AutoscaleApplication requires the following advertised services on the classpath: a ConfigurationSourceProvider,
      * a ServiceSourceProvider, a ServiceScalerProvider, a Codec, an ElectionFactoryProvider, and at least one instance of a
-     * WorkloadAnalyserFactoryProvider (but there can be more). This will create an instance of AutoscaleCore and set up health checks.
+     * WorkloadAnalyserFactoryProvider (but there can be more). The GovernorProvider named by the GovernorConfiguration is used to
+     * create the Governor; the providers in this module are always available. This will create an instance of AutoscaleCore and set
+     * up health checks.
      * @param autoscaleConfiguration AutoscaleApplication configuration
      * @param environment to access health checks and metrics
      */
@@ -108,9 +112,13 @@ public class AutoscaleApplication extends Application<AutoscaleConfiguration>
         ElectionFactory electionFactory = ModuleLoader.getService(ElectionFactoryProvider.class, NullElectionFactoryProvider.class).getElectionManager( config);
         Collection<WorkloadAnalyserFactoryProvider> workloadProviders = ModuleLoader.getServices(WorkloadAnalyserFactoryProvider.class);
         Collection<AlertDispatcherFactory> alertDispatcherFactories = ModuleLoader.getServices(AlertDispatcherFactory.class);
-        ScheduledExecutorService scheduler = getDefaultScheduledExecutorService(autoscaleConfiguration.getExecutorThreads());
-        AutoscaleCore core = new AutoscaleCore(config, source, scaler, workloadProviders, electionFactory, scheduler, servicePath,
-                                               alertDispatcherFactories);
+        Collection<GovernorProvider> governorProviders = ModuleLoader.getServices(GovernorProvider.class);
+        ScheduledExecutorService scheduler = getScheduledExecutorService(autoscaleConfiguration.getExecutionMode(),
+                                                                         autoscaleConfiguration.getExecutorThreads());
+        AutoscaleCore core = new AutoscaleCore(config, source, scaler, workloadProviders, governorProviders, electionFactory, scheduler, servicePath,
+                                               alertDispatcherFactories, autoscaleConfiguration.isBatchedAnalysis(),
+                                               autoscaleConfiguration.getSchedulingMode(),
+                                               autoscaleConfiguration.getAllocationInterval(), environment.metrics());
 
         registerHealthChecks(environment, source, scaler, core);
         core.start(autoscaleConfiguration.getSourceRefreshPeriod());
@@ -145,6 +153,42 @@ public class AutoscaleApplication extends Application<AutoscaleConfiguration>
     }
 
 
+    /**
+     * Get the ScheduledExecutorService used by the autoscaler for the requested execution mode. In the virtual mode the thread
+     * pool is only used to time analysis runs, and each run is performed on its own virtual thread.
+     * @param executionMode the threads that analysis runs should be performed on
+     * @param nThreads the number of threads to make available in the thread pool
+     * @return the ScheduledExecutorService for the requested execution mode
+     * @throws ScalerException if the execution mode is not supported by the running Java version
+     */
+    public static ScheduledExecutorService getScheduledExecutorService(final ExecutionMode executionMode, final int nThreads)
+        throws ScalerException
+    {
+        switch (executionMode) {
+            case VIRTUAL:
+                return new DispatchingScheduledExecutorService(getDefaultScheduledExecutorService(nThreads),
+                                                               newVirtualThreadPerTaskExecutor());
+            case PLATFORM:
+            default:
+                return getDefaultScheduledExecutorService(nThreads);
+        }
+    }
+
+
+    /**
+     * Looked up reflectively so that the autoscaler still builds and runs in the platform mode on Java versions before 21.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor()
+        throws ScalerException
+    {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new ScalerException("The " + ExecutionMode.VIRTUAL + " execution mode requires Java 21 or later", e);
+        }
+    }
+
+
     private void registerHealthChecks(final Environment environment, final ServiceSource source, final ServiceScaler scaler, final AutoscaleCore core)
     {
         environment.healthChecks().register("source", new ScalerHealthCheck(source));
@@ -20,6 +20,7 @@ import io.dropwizard.core.Configuration;
 
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 
 
 public class AutoscaleConfiguration extends Configuration
@@ -36,6 +37,29 @@ public class AutoscaleConfiguration extends Configuration
     @Min(1)
     @Max(20)
     private int executorThreads = 1;
+    /**
+     * Whether analysis runs are performed on the scheduled executor's threads, or the scheduled executor is only used for timing
+     * and each run is performed on a virtual thread.
+     */
+    @NotNull
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    /**
+     * Whether services that share a workload metric and interval are analysed together on a single schedule, so that their
+     * statistics can be acquired in one go.
+     */
+    private boolean batchedAnalysis = false;
+    /**
+     * Whether the start times of services are staggered by an increasing initial delay, or spread across their interval by a
+     * timing wheel.
+     */
+    @NotNull
+    private SchedulingMode schedulingMode = SchedulingMode.STAGGERED;
+    /**
+     * The time in seconds between allocations of instances to services that have asked to be scaled, taking into account the
+     * capacity of the platform, or 0 if services are scaled directly.
+     */
+    @Min(0)
+    private int allocationInterval = 0;
 
 
     public int getSourceRefreshPeriod()
@@ -60,4 +84,52 @@ public class AutoscaleConfiguration extends Configuration
     {
         this.executorThreads = executorThreads;
     }
+
+
+    public ExecutionMode getExecutionMode()
+    {
+        return executionMode;
+    }
+
+
+    public void setExecutionMode(final ExecutionMode executionMode)
+    {
+        this.executionMode = executionMode;
+    }
+
+
+    public boolean isBatchedAnalysis()
+    {
+        return batchedAnalysis;
+    }
+
+
+    public void setBatchedAnalysis(final boolean batchedAnalysis)
+    {
+        this.batchedAnalysis = batchedAnalysis;
+    }
+
+
+    public SchedulingMode getSchedulingMode()
+    {
+        return schedulingMode;
+    }
+
+
+    public void setSchedulingMode(final SchedulingMode schedulingMode)
+    {
+        this.schedulingMode = schedulingMode;
+    }
+
+
+    public int getAllocationInterval()
+    {
+        return allocationInterval;
+    }
+
+
+    public void setAllocationInterval(final int allocationInterval)
+    {
+        this.allocationInterval = allocationInterval;
+    }
 }
@@ -16,6 +16,7 @@
 package com.github.autoscaler.core;
 
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.autoscaler.api.AlertDispatcher;
 import com.github.autoscaler.api.AlertDispatcherFactory;
 import com.github.autoscaler.api.ScalerException;
@@ -74,30 +75,43 @@ public class AutoscaleCore
     private static final Logger LOG = LoggerFactory.getLogger(AutoscaleCore.class);
 
     public AutoscaleCore(final ConfigurationSource configSource, final ServiceSource serviceSource, final ServiceScaler serviceScaler,
-                         final Collection<WorkloadAnalyserFactoryProvider> workloadProviders, final ElectionFactory electionFactory,
+                         final Collection<WorkloadAnalyserFactoryProvider> workloadProviders,
+                         final Collection<GovernorProvider> governorProviders, final ElectionFactory electionFactory,
                          final ScheduledExecutorService scheduler, final ServicePath servicePath,
-                         final Collection<AlertDispatcherFactory> alertDispatcherFactories)
+                         final Collection<AlertDispatcherFactory> alertDispatcherFactories, final boolean batchedAnalysis,
+                         final SchedulingMode schedulingMode, final int allocationInterval, final MetricRegistry metrics)
         throws ScalerException
     {
         if (workloadProviders.isEmpty()) {
             throw new ScalerException("No instances of WorkloadAnalyserFactory found");
         }
         for (WorkloadAnalyserFactoryProvider provider : workloadProviders) {
-            LOG.debug("Registering workload analyser: {}", provider.getWorkloadAnalyserName());
-            analyserFactoryMap.put(provider.getWorkloadAnalyserName(), provider.getWorkloadAnalyserFactory(configSource));
+            final Map<String, WorkloadAnalyserFactory> factories = provider.getWorkloadAnalyserFactories(configSource);
+            for (final Map.Entry<String, WorkloadAnalyserFactory> factory : factories.entrySet()) {
+                LOG.debug("Registering workload analyser: {}", factory.getKey());
+                analyserFactoryMap.put(factory.getKey(), factory.getValue());
+            }
         }
         for (final AlertDispatcherFactory factory : alertDispatcherFactories) {
             LOG.debug("Registering workload analyser: {}", factory.getAlertDispatcherName());
             alertDispatcherMap.put(factory.getAlertDispatcherName(), factory.getAlertDispatcher(configSource));
         }
+        final GovernorConfiguration governorConfig = getGovernorConfiguration(configSource);
+        final GovernorProvider governorProvider = governorProviders.stream()
+            .filter(p -> p.getGovernorName().equals(governorConfig.getGovernor()))
+            .findFirst()
+            .orElseThrow(() -> new ScalerException("No GovernorProvider found named " + governorConfig.getGovernor()));
+        final ResourceMonitoringConfiguration resourceConfig = getConfiguration(configSource, ResourceMonitoringConfiguration.class);
+        final Governor governor = governorProvider.getGovernor(configSource, governorConfig, resourceConfig);
+        LOG.debug("Using governor: {}", governorProvider.getGovernorName());
         this.scaler = new ScalerDecorator(serviceScaler, false);
         this.scheduler = scheduler;
         this.source = serviceSource;
         ServiceValidator validator = new ServiceValidator(Collections.unmodifiableCollection(analyserFactoryMap.keySet()));
         this.autoscaleScheduler = new AutoscaleScheduler(Collections.unmodifiableMap(analyserFactoryMap), scaler, scheduler, validator,
-                                                         alertDispatcherMap,
-                                                         getConfiguration(configSource, ResourceMonitoringConfiguration.class),
-                                                         getConfiguration(configSource, AlertDispatchConfiguration.class));
+                                                         alertDispatcherMap, resourceConfig,
+                                                         getConfiguration(configSource, AlertDispatchConfiguration.class),
+                                                         batchedAnalysis, schedulingMode, allocationInterval, governor, metrics);
         this.election = electionFactory.getElection(servicePath.getGroup() + "-" + AUTOSCALE_SERVICE_NAME,
                                                     new AutoscaleElectionCallback());
     }
@@ -191,6 +205,21 @@ public class AutoscaleCore
         }
     }
 
+    /**
+     * The governor configuration is optional, as the defaults reproduce the behaviour from before the governor could be chosen.
+     */
+    private static GovernorConfiguration getGovernorConfiguration(final ConfigurationSource configSource)
+    {
+        try {
+            final GovernorConfiguration configuration = configSource.getConfiguration(GovernorConfiguration.class);
+            LOG.info("Loaded configuration: {}", configuration);
+            return configuration;
+        } catch (final ConfigurationException ex) {
+            LOG.info("No governor configuration loaded, using the defaults", ex);
+            return new GovernorConfiguration();
+        }
+    }
+
     private static <T extends Object> T getConfiguration(final ConfigurationSource configSource, final Class<T> type)
         throws ScalerException
     {
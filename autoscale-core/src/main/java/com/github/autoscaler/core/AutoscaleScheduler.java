@@ -16,6 +16,8 @@
 package com.github.autoscaler.core;
 
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.github.autoscaler.api.AlertDispatcher;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ScalingConfiguration;
@@ -36,8 +38,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -53,8 +57,24 @@ import static java.util.stream.Collectors.toSet;
  * is created with its appropriate dependencies for the service, and is scheduled to run
  * periodically with a ScheduledExecutorService. Services that are no longer present will be
  * removed from monitoring and have its ScalerThread cancelled. Services that change in configuration
- * will have their ScalerThread cancelled and a new one created with the new configuration to
- * replace it.
+ * but still use the same workload metric and scaling target have the new configuration applied to their
+ * existing ScalerThread, so that the history gathered by its WorkloadAnalyser and its backoff state are kept.
+ * Services whose workload metric or scaling target change have their ScalerThread cancelled and a new one
+ * created with the new configuration to replace it.
+ *
+ * In batched mode, services that share a workload metric and interval are instead grouped into a single AnalysisBatch which is
+ * scheduled once, so that the statistics for all of them can be acquired together on each run, before the services themselves
+ * are analysed concurrently on the executor.
+ *
+ * With the TIMING_WHEEL scheduling mode, services (or batches) are run from a TimingWheel, which spreads them evenly across their
+ * interval, instead of being staggered by an increasing initial delay. The wheel ticks on a dedicated timer thread owned by the
+ * scheduler, so that its ticks are not held up behind analysis runs on the executor, and only the runs themselves are handed to
+ * the executor.
+ *
+ * Outside of batched mode, each run of a service is scheduled once the previous run has completed, after the delay decided by its
+ * ScalerThread, which is longer while the service is backing off after a scaling operation. Services with an adaptive interval are
+ * always scheduled directly with the executor in this way. In batched mode the interval of every service is fixed, since the
+ * statistics of the services in a batch are acquired together, and a service that is backing off skips the runs of its batch.
  */
 public class AutoscaleScheduler implements HealthReporter
 {
@@ -76,11 +96,74 @@ public class AutoscaleScheduler implements HealthReporter
     private final Map<String, AlertDispatcher> alertDispatchers;
     private final ResourceMonitoringConfiguration resourceConfig;
     private final AlertDispatchConfiguration alertConfig;
+    private final boolean batchedAnalysis;
+    /**
+     * In batched mode, the batches that services are analysed in, keyed by workload metric and interval.
+     */
+    private final Map<String, AnalysisBatch> analysisBatches = new HashMap<>();
+    /**
+     * The timing wheel that services are run from, or null if they are scheduled directly with the executor.
+     */
+    private final TimingWheel timingWheel;
+    /**
+     * A single thread for short timer tasks, such as the ticks of the timing wheel and the analysis deadlines of services, that must
+     * not wait behind analysis runs.
+     */
+    private final ScheduledThreadPoolExecutor timer;
+    private final MetricRegistry metrics;
+    /**
+     * The allocator that services submit their scaling actions to, or null if services are scaled directly.
+     */
+    private final ReplicaAllocator allocator;
+    private final ScheduledFuture<?> allocatorSchedule;
 
     public AutoscaleScheduler(final Map<String, WorkloadAnalyserFactory> analyserFactories, final ServiceScaler scaler,
                               final ScheduledExecutorService scheduler, final ServiceValidator serviceValidator,
                               final Map<String, AlertDispatcher> alertDispatchers, final ResourceMonitoringConfiguration resourceConfig,
                               final AlertDispatchConfiguration alertConfig)
+    {
+        this(analyserFactories, scaler, scheduler, serviceValidator, alertDispatchers, resourceConfig, alertConfig, false);
+    }
+
+    public AutoscaleScheduler(final Map<String, WorkloadAnalyserFactory> analyserFactories, final ServiceScaler scaler,
+                              final ScheduledExecutorService scheduler, final ServiceValidator serviceValidator,
+                              final Map<String, AlertDispatcher> alertDispatchers, final ResourceMonitoringConfiguration resourceConfig,
+                              final AlertDispatchConfiguration alertConfig, final boolean batchedAnalysis)
+    {
+        this(analyserFactories, scaler, scheduler, serviceValidator, alertDispatchers, resourceConfig, alertConfig, batchedAnalysis,
+             SchedulingMode.STAGGERED, new MetricRegistry());
+    }
+
+    public AutoscaleScheduler(final Map<String, WorkloadAnalyserFactory> analyserFactories, final ServiceScaler scaler,
+                              final ScheduledExecutorService scheduler, final ServiceValidator serviceValidator,
+                              final Map<String, AlertDispatcher> alertDispatchers, final ResourceMonitoringConfiguration resourceConfig,
+                              final AlertDispatchConfiguration alertConfig, final boolean batchedAnalysis,
+                              final SchedulingMode schedulingMode, final MetricRegistry metrics)
+    {
+        this(analyserFactories, scaler, scheduler, serviceValidator, alertDispatchers, resourceConfig, alertConfig, batchedAnalysis,
+             schedulingMode, 0, metrics);
+    }
+
+    public AutoscaleScheduler(final Map<String, WorkloadAnalyserFactory> analyserFactories, final ServiceScaler scaler,
+                              final ScheduledExecutorService scheduler, final ServiceValidator serviceValidator,
+                              final Map<String, AlertDispatcher> alertDispatchers, final ResourceMonitoringConfiguration resourceConfig,
+                              final AlertDispatchConfiguration alertConfig, final boolean batchedAnalysis,
+                              final SchedulingMode schedulingMode, final int allocationInterval, final MetricRegistry metrics)
+    {
+        this(analyserFactories, scaler, scheduler, serviceValidator, alertDispatchers, resourceConfig, alertConfig, batchedAnalysis,
+             schedulingMode, allocationInterval,
+             new GovernorImpl(resourceConfig.getResourceLimitOneShutdownThreshold(),
+                              resourceConfig.getResourceLimitTwoShutdownThreshold(),
+                              resourceConfig.getResourceLimitThreeShutdownThreshold()),
+             metrics);
+    }
+
+    public AutoscaleScheduler(final Map<String, WorkloadAnalyserFactory> analyserFactories, final ServiceScaler scaler,
+                              final ScheduledExecutorService scheduler, final ServiceValidator serviceValidator,
+                              final Map<String, AlertDispatcher> alertDispatchers, final ResourceMonitoringConfiguration resourceConfig,
+                              final AlertDispatchConfiguration alertConfig, final boolean batchedAnalysis,
+                              final SchedulingMode schedulingMode, final int allocationInterval, final Governor governor,
+                              final MetricRegistry metrics)
     {
         this.validator = Objects.requireNonNull(serviceValidator);
         this.analyserFactories = Objects.requireNonNull(analyserFactories);
@@ -89,17 +172,40 @@ public class AutoscaleScheduler implements HealthReporter
         this.alertDispatchers = alertDispatchers;
         this.resourceConfig = resourceConfig;
         this.alertConfig = alertConfig;
-        this.governor = new GovernorImpl(resourceConfig.getResourceLimitOneShutdownThreshold(),
-                                         resourceConfig.getResourceLimitTwoShutdownThreshold(),
-                                         resourceConfig.getResourceLimitThreeShutdownThreshold());
+        this.batchedAnalysis = batchedAnalysis;
+        this.metrics = Objects.requireNonNull(metrics);
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("autoscale-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most deadlines are cancelled once their run completes, so they should not be kept until they would have fired
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.timingWheel = schedulingMode == SchedulingMode.TIMING_WHEEL ? new TimingWheel(timer, scheduler, metrics) : null;
+        this.governor = Objects.requireNonNull(governor);
+        if ( governor instanceof GovernorImpl ) {
+            final GovernorImpl governorImpl = (GovernorImpl) governor;
+            metrics.gauge(MetricRegistry.name(GovernorImpl.class, "servicesBelowMinimum"),
+                          () -> (Gauge<Integer>) governorImpl::getServicesBelowMinimum);
+        }
+        if ( allocationInterval > 0 ) {
+            this.allocator = new ReplicaAllocator(scaler);
+            this.allocatorSchedule = scheduler.scheduleWithFixedDelay(allocator, allocationInterval, allocationInterval,
+                                                                      TimeUnit.SECONDS);
+        } else {
+            this.allocator = null;
+            this.allocatorSchedule = null;
+        }
     }
 
     /**
      * Reload available services to monitor.
      * Firstly, get all available services from the ServiceSource, pass them to a ServiceValidator to determine the ones to track,
-     * and then determine changes. Ones that are no longer present are cancelled from the scheduler. New ones or updated ones
-     * are scheduled or rescheduled as appropriate. There is an initial scaling delay that increases, so that we don't try and
-     * perform all the workload analysis and scaling calls at the same time.
+     * and then determine changes. Ones that are no longer present are cancelled from the scheduler. New ones are scheduled,
+     * and updated ones are either reconfigured in place or rescheduled as appropriate. There is an initial scaling delay that
+     * increases for each newly scheduled service, so that we don't try and perform all the workload analysis and scaling calls at
+     * the same time.
      */
     public void updateServices(final Set<ScalingConfiguration> sourceServices)
     {
@@ -114,6 +220,11 @@ public class AutoscaleScheduler implements HealthReporter
             final Alerter diskSpaceLowAlerter = new Alerter(alertDispatchers, alertConfig);
             for ( ScalingConfiguration s : getServicesToSchedule(scheduledServices, acquiredMap) ) {
                 try {
+                    final ScheduledScalingService current = scheduledServices.get(s.getId());
+                    if ( current != null && canReconfigure(current.getConfig(), s) ) {
+                        reconfigure(current, s);
+                        continue;
+                    }
                     scheduleOrReschedule(s, getAnalyser(s), INITIAL_SCALING_DELAY + delay++, memoryOverloadAlerter, diskSpaceLowAlerter);
                 } catch (ScalerException e) {
                     LOG.error("Failed to schedule service {}", s.getId(), e);
@@ -137,6 +248,13 @@ public class AutoscaleScheduler implements HealthReporter
         servicesLock.lock();
         try {
             scheduledServices.keySet().stream().collect(toSet()).forEach(this::cancel);
+            if ( timingWheel != null ) {
+                timingWheel.stop();
+            }
+            if ( allocatorSchedule != null ) {
+                allocatorSchedule.cancel(false);
+            }
+            timer.shutdownNow();
         } finally {
             servicesLock.unlock();
         }
@@ -183,6 +301,60 @@ public class AutoscaleScheduler implements HealthReporter
     }
 
 
+    /**
+     * A changed service can keep its ScalerThread and WorkloadAnalyser as long as it is still analysed with the same workload
+     * metric against the same scaling target.
+     * @param current the configuration the service is currently scheduled with
+     * @param updated the new configuration of the service
+     * @return whether the new configuration can be applied to the existing ScalerThread
+     */
+    private static boolean canReconfigure(final ScalingConfiguration current, final ScalingConfiguration updated)
+    {
+        return Objects.equals(current.getWorkloadMetric(), updated.getWorkloadMetric())
+            && Objects.equals(current.getScalingTarget(), updated.getScalingTarget());
+    }
+
+
+    /**
+     * Apply a changed configuration to a service that is already scheduled, keeping its ScalerThread, the history gathered by its
+     * WorkloadAnalyser, and its backoff state. The service is only rescheduled if its interval or the limits of its adaptive interval
+     * have changed, and it is not staggered again.
+     * @param current the service as it is currently scheduled
+     * @param config the new configuration of the service
+     */
+    private void reconfigure(final ScheduledScalingService current, final ScalingConfiguration config)
+    {
+        LOG.debug("Reconfiguring service {}", config.getId());
+        final ScalingConfiguration previous = current.getConfig();
+        final ScalerThread scalerThread = current.getScalerThread();
+        final WorkloadAnalyser analyser = Objects.equals(previous.getScalingProfile(), config.getScalingProfile())
+            ? scalerThread.getAnalyser()
+            : analyserFactories.get(config.getWorkloadMetric())
+                .reconfigureAnalyser(scalerThread.getAnalyser(), config.getScalingTarget(), config.getScalingProfile());
+        governor.register(config);
+        scalerThread.reconfigure(analyser, config.getMinInstances(), config.getMaxInstances(), config.getBackoffAmount(),
+                                 config.getScaleUpBackoffAmount(), config.getScaleDownBackoffAmount());
+        scalerThread.setAnalysisDeadline(config.getAnalysisDeadline(), timer);
+        scalerThread.setInterval(config.getInterval());
+        ScheduledFuture<?> future = current.getSchedule();
+        if ( previous.getInterval() != config.getInterval() ) {
+            if ( batchedAnalysis ) {
+                removeFromBatch(previous);
+                future = addToBatch(config, scalerThread);
+            } else {
+                // Don't interrupt a run that is in progress, the thread carries on under its new schedule
+                future.cancel(false);
+                future = schedule(config, scalerThread, config.getInterval());
+            }
+        } else if ( !batchedAnalysis && (previous.getMinInterval() != config.getMinInterval()
+                                         || previous.getMaxInterval() != config.getMaxInterval()) ) {
+            future.cancel(false);
+            future = schedule(config, scalerThread, config.getInterval());
+        }
+        scheduledServices.put(config.getId(), new ScheduledScalingService(config, scalerThread, future));
+    }
+
+
     /**
      * Schedule or reschedule a service for workload analysis and scaling.
      * @param config the ScalingConfiguration that describes a service to monitor and scale
@@ -198,18 +370,119 @@ public class AutoscaleScheduler implements HealthReporter
             cancel(config.getId());
         }
         governor.register(config);
-        final ScalerThread scalerThread = new ScalerThread(governor, analyser, scaler, config.getId(),
+        final ScalerThread scalerThread = new ScalerThread(governor, scheduler, analyser, scaler, config.getId(),
                                                                                    config.getMinInstances(), config.getMaxInstances(),
                                                                                    config.getBackoffAmount(),
                                                                                    config.getScaleUpBackoffAmount(),
                                                                                    config.getScaleDownBackoffAmount(),
                                                                                    memoryOverloadAlerter,
                                                                                    diskSpaceLowAlerter,
-                                                                                   resourceConfig);
+                                                                                   resourceConfig,
+                                                                                   metrics);
+        scalerThread.setAnalysisDeadline(config.getAnalysisDeadline(), timer);
+        scalerThread.setInterval(config.getInterval());
+        scalerThread.setAllocator(allocator);
         governor.registerListener(config.getId(), scalerThread);
-        final ScheduledFuture future = scheduler.scheduleWithFixedDelay(scalerThread, initialDelay, config.getInterval(),
-                                                                        TimeUnit.SECONDS);
-        scheduledServices.put(config.getId(), new ScheduledScalingService(config, future));
+        final ScheduledFuture future = batchedAnalysis
+            ? addToBatch(config, scalerThread)
+            : schedule(config, scalerThread, initialDelay);
+        scheduledServices.put(config.getId(), new ScheduledScalingService(config, scalerThread, future));
+    }
+
+
+    /**
+     * Schedule a service to run periodically, at an adaptive interval if it has one, or otherwise at its fixed interval. Each run is
+     * scheduled once the previous run has completed, after the delay decided by the ScalerThread, so that a service that is backing
+     * off is not run again until its backoff has ended. On the timing wheel, the service keeps its slot and the slots within its
+     * backoff are passed over.
+     * @param config the ScalingConfiguration of the service
+     * @param scalerThread the thread of the service
+     * @param initialDelay the initial delay before the thread first runs, which the timing wheel does not use
+     * @return the schedule of the service
+     */
+    private ScheduledFuture<?> schedule(final ScalingConfiguration config, final ScalerThread scalerThread, final int initialDelay)
+    {
+        if ( config.isAdaptiveInterval() ) {
+            scalerThread.setAdaptiveInterval(new AdaptiveInterval(config.getInterval(), config.getMinInterval(),
+                                                                  config.getMaxInterval()));
+        } else {
+            scalerThread.setAdaptiveInterval(null);
+            if ( timingWheel != null ) {
+                return timingWheel.schedule(config.getId(), scalerThread, config.getInterval(), TimeUnit.SECONDS,
+                                            scalerThread::getBackoffDeferral);
+            }
+        }
+        return new VariableDelaySchedule(scheduler, scalerThread, scalerThread::getNextDelay).start(initialDelay);
+    }
+
+
+    /**
+     * Schedule a task to run periodically, either from the timing wheel or directly with the executor after an initial delay.
+     * @param key the id of the service or batch that the task is for
+     * @param task the task to run
+     * @param initialDelay the initial delay before the task first runs, which the timing wheel does not use
+     * @param interval the period in seconds between runs of the task
+     * @return the schedule of the task
+     */
+    private ScheduledFuture<?> schedule(final String key, final Runnable task, final int initialDelay, final int interval)
+    {
+        if ( timingWheel != null ) {
+            return timingWheel.schedule(key, task, interval, TimeUnit.SECONDS);
+        }
+        return scheduler.scheduleWithFixedDelay(task, initialDelay, interval, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Add a service to the batch for its workload metric and interval, scheduling the batch if it is new.
+     * @param config the ScalingConfiguration that describes a service to monitor and scale
+     * @param scalerThread the ScalerThread that monitors and scales the service
+     * @return the schedule of the batch the service was added to
+     */
+    private ScheduledFuture<?> addToBatch(final ScalingConfiguration config, final ScalerThread scalerThread)
+    {
+        final String batchKey = getBatchKey(config);
+        AnalysisBatch batch = analysisBatches.get(batchKey);
+        if ( batch == null ) {
+            LOG.debug("Scheduling analysis batch {}", batchKey);
+            batch = new AnalysisBatch(config.getWorkloadMetric(), analyserFactories.get(config.getWorkloadMetric()), scheduler);
+            batch.setSchedule(schedule(batchKey, batch, INITIAL_SCALING_DELAY, config.getInterval()));
+            analysisBatches.put(batchKey, batch);
+        }
+        batch.add(config.getId(), scalerThread);
+        return batch.getSchedule();
+    }
+
+
+    /**
+     * Remove a service from its batch, cancelling the batch if no services are left in it.
+     * @param config the ScalingConfiguration that describes the service to stop monitoring
+     */
+    private void removeFromBatch(final ScalingConfiguration config)
+    {
+        final String batchKey = getBatchKey(config);
+        final AnalysisBatch batch = analysisBatches.get(batchKey);
+        if ( batch != null ) {
+            batch.remove(config.getId());
+            if ( batch.isEmpty() ) {
+                LOG.debug("Cancelling analysis batch {}", batchKey);
+                analysisBatches.remove(batchKey);
+                batch.getSchedule().cancel(true);
+            }
+        }
+    }
+
+
+    private boolean isBatchedAnalysisFailed(final ScalingConfiguration config)
+    {
+        final AnalysisBatch batch = batchedAnalysis ? analysisBatches.get(getBatchKey(config)) : null;
+        return batch != null && batch.isFailed(config.getId());
+    }
+
+
+    private static String getBatchKey(final ScalingConfiguration config)
+    {
+        return config.getWorkloadMetric() + "/" + config.getInterval();
     }
 
 
@@ -221,9 +494,17 @@ public class AutoscaleScheduler implements HealthReporter
     {
         if ( scheduledServices.containsKey(id) ) {
             LOG.info("Cancelling service {}", id);
-            scheduledServices.get(id).getSchedule().cancel(true);
-            scheduledServices.remove(id);
+            final ScheduledScalingService service = scheduledServices.remove(id);
+            if ( batchedAnalysis ) {
+                removeFromBatch(service.getConfig());
+            } else {
+                service.getSchedule().cancel(true);
+            }
+            service.getScalerThread().cancel();
             governor.remove(id);
+            if ( allocator != null ) {
+                allocator.remove(id);
+            }
         }
     }
 
@@ -252,7 +533,7 @@ public class AutoscaleScheduler implements HealthReporter
     {
         final List<ScheduledScalingService> failedServices =
             scheduledServices.values().stream()
-                .filter(svc -> svc.getSchedule().isDone())
+                .filter(svc -> svc.getSchedule().isDone() || isBatchedAnalysisFailed(svc.getConfig()))
                 .collect(Collectors.toList());
 
         if (failedServices.isEmpty()) {
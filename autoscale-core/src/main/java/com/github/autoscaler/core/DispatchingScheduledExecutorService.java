@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A ScheduledExecutorService that only uses its underlying scheduled executor for timing. When a task becomes due it is handed
+ * to a separate worker executor to be run, so the scheduled executor's threads are never blocked by the tasks themselves.
+ *
+ * Periodic tasks are rescheduled once each run has completed on the worker, so a task never overlaps with itself, and a periodic
+ * task that throws is not run again, matching the behaviour of ScheduledThreadPoolExecutor.
+ */
+final class DispatchingScheduledExecutorService extends AbstractExecutorService implements ScheduledExecutorService
+{
+    private final ScheduledExecutorService timer;
+    private final ExecutorService worker;
+
+    DispatchingScheduledExecutorService(final ScheduledExecutorService timer, final ExecutorService worker)
+    {
+        this.timer = Objects.requireNonNull(timer);
+        this.worker = Objects.requireNonNull(worker);
+    }
+
+    @Override
+    public void execute(final Runnable command)
+    {
+        worker.execute(command);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit)
+    {
+        return schedule(Executors.callable(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit)
+    {
+        final DispatchedFuture<V> future = new DispatchedFuture<>(callable, 0);
+        future.scheduleRun(unit.toNanos(delay));
+        return future;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period,
+                                                  final TimeUnit unit)
+    {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        final DispatchedFuture<Object> future = new DispatchedFuture<>(Executors.callable(command), unit.toNanos(period));
+        future.scheduleRun(unit.toNanos(initialDelay));
+        return future;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay,
+                                                     final TimeUnit unit)
+    {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Delay must be positive");
+        }
+        final DispatchedFuture<Object> future = new DispatchedFuture<>(Executors.callable(command), -unit.toNanos(delay));
+        future.scheduleRun(unit.toNanos(initialDelay));
+        return future;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        timer.shutdown();
+        worker.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        final List<Runnable> pending = new ArrayList<>(timer.shutdownNow());
+        pending.addAll(worker.shutdownNow());
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return timer.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return timer.isTerminated() && worker.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+        throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return timer.awaitTermination(timeout, unit)
+            && worker.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A task that is timed by the scheduled executor and run on the worker executor.
+     * A positive period means a fixed rate, a negative period a fixed delay and zero a one-shot task.
+     */
+    private final class DispatchedFuture<V> implements ScheduledFuture<V>
+    {
+        private final Callable<V> task;
+        private final long period;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timerFuture;
+        private volatile Thread runner;
+        private volatile long nextRunTime;
+
+        private DispatchedFuture(final Callable<V> task, final long period)
+        {
+            this.task = Objects.requireNonNull(task);
+            this.period = period;
+        }
+
+        private void scheduleRun(final long delayNanos)
+        {
+            if (result.isDone()) {
+                return;
+            }
+            nextRunTime = System.nanoTime() + delayNanos;
+            try {
+                timerFuture = timer.schedule(this::dispatch, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+            if (result.isCancelled()) {
+                timerFuture.cancel(false);
+            }
+        }
+
+        private void dispatch()
+        {
+            try {
+                worker.execute(this::run);
+            } catch (final RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void run()
+        {
+            if (result.isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+            try {
+                final V value = task.call();
+                if (period == 0) {
+                    result.complete(value);
+                }
+            } catch (final Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                runner = null;
+            }
+            try {
+                if (period > 0) {
+                    scheduleRun(Math.max(0, nextRunTime + period - System.nanoTime()));
+                } else if (period < 0) {
+                    scheduleRun(-period);
+                }
+            } catch (final RejectedExecutionException e) {
+                // The executor is shutting down, the task has been completed exceptionally
+            }
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning)
+        {
+            final boolean cancelled = result.cancel(false);
+            final ScheduledFuture<?> current = timerFuture;
+            if (current != null) {
+                current.cancel(false);
+            }
+            final Thread currentRunner = runner;
+            if (mayInterruptIfRunning && currentRunner != null) {
+                currentRunner.interrupt();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return result.isDone();
+        }
+
+        @Override
+        public V get()
+            throws InterruptedException, ExecutionException
+        {
+            return result.get();
+        }
+
+        @Override
+        public V get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return result.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit)
+        {
+            return unit.convert(nextRunTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other)
+        {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
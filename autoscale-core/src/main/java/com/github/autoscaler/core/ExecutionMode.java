@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+/**
+ * Determines which threads the scheduled analysis runs of the autoscaler are performed on.
+ */
+public enum ExecutionMode
+{
+    /**
+     * Analysis runs are performed on the threads of the scheduled thread pool, which is sized by executorThreads.
+     */
+    PLATFORM,
+    /**
+     * The scheduled thread pool is only used to time analysis runs, and each run is performed on its own virtual thread.
+     * Requires Java 21 or later.
+     */
+    VIRTUAL
+}
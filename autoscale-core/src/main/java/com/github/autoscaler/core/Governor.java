@@ -31,8 +31,11 @@ import com.github.autoscaler.api.ScalingConfiguration;
  * If the ScalingTread is unable to scale up another instance of its service that was approved by the governor due to lack of resources
  * the scaling thread can request that the governor make room for the new service by requesting that another service reduces its 
  * instances.
+ *
+ * The Governor used by the application is created by the GovernorProvider named in the GovernorConfiguration, so that other
+ * implementations can be added to the classpath.
  */
-interface Governor {
+public interface Governor {
     /**
      *
      * @param serviceRef the named reference to the service the instances refers to
@@ -54,12 +57,14 @@ interface Governor {
      * When called the Governor will attempt to reduce the resources being consumed by other applications to free them up for the 
      * increased number of the supplied service. The Governor will determine which applications have the lowest relative difference 
      * between the number of instances the service would like to have based on workload and the current number of running instances. 
-     * The service with the lowest relative difference will be scaled down to make room for the new service to start.
+     * Instances are taken from the services with the lowest relative difference, in a single pass over as many of them as needed, to
+     * make room for the required number of instances of the new service to start. No service is scaled below its minimum instances.
      * 
      * @param serviceRef the named reference to the service
+     * @param instancesRequired the number of instances of the service that are waiting for room to start
      * @return True or False based on if the governor was able to make room for the service
      */
-    boolean freeUpResourcesForService(String serviceRef);
+    boolean freeUpResourcesForService(String serviceRef, int instancesRequired);
 
     /**
      *
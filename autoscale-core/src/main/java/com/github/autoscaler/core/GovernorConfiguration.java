@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.hpe.caf.api.Configuration;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+@Configuration
+public final class GovernorConfiguration
+{
+    /**
+     * The name of the GovernorProvider to use.
+     * Defaults to "default".
+     */
+    @NotNull
+    @Size(min = 1)
+    private String governor = DefaultGovernorProvider.NAME;
+
+    /**
+     * The fraction of its instances that a service running more than its minimum is reduced to on each scaling run, while other
+     * services have not reached their minimum.
+     * Defaults to 0.9.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double reduceToPercentage = GovernorImpl.DEFAULT_REDUCE_TO_PERCENTAGE;
+
+    /**
+     * @return the governor
+     */
+    public String getGovernor()
+    {
+        return governor;
+    }
+
+    /**
+     * @return the reduceToPercentage
+     */
+    public double getReduceToPercentage()
+    {
+        return reduceToPercentage;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GovernorConfiguration{" +
+                "governor=" + governor +
+                ", reduceToPercentage=" + reduceToPercentage +
+                '}';
+    }
+}
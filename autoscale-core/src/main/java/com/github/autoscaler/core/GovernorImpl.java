@@ -20,73 +20,152 @@ import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ScalingAction;
 import com.github.autoscaler.api.ScalingConfiguration;
 import com.github.autoscaler.api.ScalingOperation;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
-
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This object implements a cautious approach to governing the scaling requests for a service.
-
+ *
+ * The governor may be called concurrently for different services. Updates to the state of a service are serialised by a lock that is
+ * striped by service identifier, and the recorded instances of a service are replaced rather than modified, so that a reader always
+ * sees a consistent record. Decisions that involve other services read from the preemption index and the minimum instances tracker,
+ * each of which gives a consistent view of every service.
  */
 public class GovernorImpl implements Governor {
 
-    private static final double reduceToPercentage = 0.90;
+    static final double DEFAULT_REDUCE_TO_PERCENTAGE = 0.90;
+    private final double reduceToPercentage;
+    private static final int SERVICE_LOCK_STRIPES = 64;
     private final Map<String, ScalerThread> scalerThreads;
     private final Map<String, AdvancedInstanceInfo> instanceInfoMap;
     private final Map<String, ScalingConfiguration> scalingConfigurationMap;
-    private final int stageOneShutdownPriorityLimit;
-    private final int stageTwoShutdownPriorityLimit;
-    private final int stageThreeShutdownPriorityLimit;
+    private final PreemptionIndex preemptionIndex;
+    private final MinimumInstancesTracker minimumInstancesTracker;
+    private final Object[] serviceLocks;
     private static final Logger LOG = LoggerFactory.getLogger(GovernorImpl.class);
 
     public GovernorImpl(final int stageOneLimit, final int stageTwoLimit, final int stageThreeLimit)
     {
+        this(stageOneLimit, stageTwoLimit, stageThreeLimit, DEFAULT_REDUCE_TO_PERCENTAGE);
+    }
+
+    /**
+     * @param stageOneLimit the highest shutdown priority of the services that are shut down at resource limit stage 1
+     * @param stageTwoLimit the highest shutdown priority of the services that are shut down at resource limit stage 2
+     * @param stageThreeLimit the highest shutdown priority of the services that are shut down at resource limit stage 3
+     * @param reduceToPercentage the fraction of its instances a service above its minimum is reduced to on each scaling run while
+     * other services have not reached their minimum
+     */
+    public GovernorImpl(final int stageOneLimit, final int stageTwoLimit, final int stageThreeLimit, final double reduceToPercentage)
+    {
+        this.reduceToPercentage = reduceToPercentage;
         this.instanceInfoMap = new ConcurrentHashMap<>();
         this.scalingConfigurationMap = new ConcurrentHashMap<>();
-        this.stageOneShutdownPriorityLimit = stageOneLimit;
-        this.stageTwoShutdownPriorityLimit = stageTwoLimit;
-        this.stageThreeShutdownPriorityLimit = stageThreeLimit;
-        this.scalerThreads = new HashMap<>();
+        this.scalerThreads = new ConcurrentHashMap<>();
+        this.preemptionIndex = new PreemptionIndex();
+        this.minimumInstancesTracker = new MinimumInstancesTracker(stageOneLimit, stageTwoLimit, stageThreeLimit);
+        this.serviceLocks = new Object[SERVICE_LOCK_STRIPES];
+        for (int i = 0; i < serviceLocks.length; i++) {
+            serviceLocks[i] = new Object();
+        }
     }
 
     @Override
-    public boolean freeUpResourcesForService(final String serviceRef)
+    public boolean freeUpResourcesForService(final String serviceRef, final int instancesRequired)
     {
         final AdvancedInstanceInfo lastInstanceInfo = instanceInfoMap.get(serviceRef);
         if (lastInstanceInfo == null) {
             LOG.error("Failed to retrieve service information for {} from internal map", serviceRef);
             return false;
         }
-        final double relativeDifference = lastInstanceInfo.getRelativeDifference();
-        final String candidate = instanceInfoMap.entrySet().stream()
-            .filter(e -> e.getValue().getRelativeDifference() < relativeDifference
-                && scalingConfigurationMap.get(e.getKey()).getMinInstances() < e.getValue().getTotalRunningAndStageInstances())
-            .sorted(Comparator.comparingDouble(e -> e.getValue().getRelativeDifference()))
-            .map(e -> e.getKey())
-            .findFirst()
-            .orElse(null);
-        if (candidate == null) {
+        final ScalingConfiguration scalingConfiguration = scalingConfigurationMap.get(serviceRef);
+        final double relativeDifference = scalingConfiguration == null
+            ? lastInstanceInfo.getRelativeDifference()
+            : getWeight(scalingConfiguration) * lastInstanceInfo.getRelativeDifference();
+        final List<PreemptionCandidate> candidates = new ArrayList<>();
+        for (final String candidate : preemptionIndex.getCandidates(relativeDifference)) {
+            final AdvancedInstanceInfo candidateInstanceInfo = instanceInfoMap.get(candidate);
+            final ScalingConfiguration candidateConfiguration = scalingConfigurationMap.get(candidate);
+            if (candidateInstanceInfo != null && candidateConfiguration != null) {
+                candidates.add(new PreemptionCandidate(candidate, candidateInstanceInfo.getDesiredInstances(),
+                                                       candidateInstanceInfo.getTotalRunningAndStageInstances(),
+                                                       candidateConfiguration.getMinInstances(), getWeight(candidateConfiguration)));
+            }
+        }
+        final Map<String, Integer> plan = planPreemption(candidates, relativeDifference, instancesRequired);
+        if (plan.isEmpty()) {
             LOG.info("Unable to make room for application {} as all other applications have a higher percentage difference of current "
                 + "instances to their desired instances", serviceRef);
             return false;
         }
-        LOG.info("Attempting to scale down service {} to make room for service {}...", candidate, serviceRef);
-        try {
-            scalerThreads.get(candidate).scaleDownNow();
-        } catch (final ScalerException ex) {
-            LOG.error("Unable to scale down {} to make room for {} due to exception.", candidate, serviceRef, ex);
-            return false;
+        boolean freedUp = false;
+        for (final Map.Entry<String, Integer> entry : plan.entrySet()) {
+            final String candidate = entry.getKey();
+            final ScalerThread candidateThread = scalerThreads.get(candidate);
+            if (candidateThread == null) {
+                LOG.info("Unable to scale down service {} to make room for service {} as it is no longer being scaled", candidate,
+                         serviceRef);
+                continue;
+            }
+            LOG.info("Attempting to scale down service {} by {} instances to make room for service {}...", candidate, entry.getValue(),
+                     serviceRef);
+            try {
+                candidateThread.scaleDownNow(entry.getValue());
+                freedUp = true;
+            } catch (final ScalerException ex) {
+                LOG.error("Unable to scale down {} to make room for {} due to exception.", candidate, serviceRef, ex);
+            }
         }
-        return true;
+        return freedUp;
+    }
+
+    /**
+     * Decide how many instances to take from each of the candidates to make room for a service. Instances are taken one at a time from
+     * the candidate with the lowest weighted relative difference, taking into account the instances already taken from it, for as long as that
+     * is lower than the relative difference of the service that needs room and the candidate remains above its minimum instances.
+     *
+     * @param candidates the services that may be scaled down
+     * @param relativeDifference the weighted relative difference of the service that needs room
+     * @param instancesRequired the number of instances to make room for
+     * @return the number of instances to take from each candidate, in the order the candidates were first chosen
+     */
+    static Map<String, Integer> planPreemption(
+        final List<PreemptionCandidate> candidates,
+        final double relativeDifference,
+        final int instancesRequired
+    )
+    {
+        final Map<String, Integer> plan = new LinkedHashMap<>();
+        final PriorityQueue<PreemptionCandidate> queue = new PriorityQueue<>(
+            Comparator.comparingDouble(PreemptionCandidate::getRelativeDifference).thenComparing(c -> c.serviceRef));
+        queue.addAll(candidates);
+        int remaining = instancesRequired;
+        while (remaining > 0 && !queue.isEmpty()) {
+            final PreemptionCandidate candidate = queue.poll();
+            if (candidate.getRelativeDifference() >= relativeDifference || candidate.instances <= candidate.minInstances) {
+                continue;
+            }
+            candidate.instances--;
+            plan.merge(candidate.serviceRef, 1, Integer::sum);
+            remaining--;
+            queue.add(candidate);
+        }
+        return plan;
     }
 
     @Override
     public void register(ScalingConfiguration scalingConfiguration) {
-        scalingConfigurationMap.put(scalingConfiguration.getId(), scalingConfiguration);
+        synchronized (getServiceLock(scalingConfiguration.getId())) {
+            scalingConfigurationMap.put(scalingConfiguration.getId(), scalingConfiguration);
+            updateServiceState(scalingConfiguration.getId());
+        }
     }
 
     @Override
@@ -97,28 +176,40 @@ public class GovernorImpl implements Governor {
 
     @Override
     public void recordInstances(String serviceRef, InstanceInfo instances) {
-        instanceInfoMap.put(serviceRef, new AdvancedInstanceInfo(instances));
+        synchronized (getServiceLock(serviceRef)) {
+            instanceInfoMap.put(serviceRef, new AdvancedInstanceInfo(instances, 0));
+            updateServiceState(serviceRef);
+        }
     }
 
     @Override
     public void remove(String serviceRef) {
-        instanceInfoMap.remove(serviceRef);
-        scalingConfigurationMap.remove(serviceRef);
+        synchronized (getServiceLock(serviceRef)) {
+            instanceInfoMap.remove(serviceRef);
+            scalingConfigurationMap.remove(serviceRef);
+            preemptionIndex.remove(serviceRef);
+            minimumInstancesTracker.remove(serviceRef);
+        }
     }
 
     @Override
     public ScalingAction govern(String serviceRef, ScalingAction action, final ResourceLimitStagesReached resourceLimitStagesReached) {
 
         ScalingConfiguration scalingConfiguration = scalingConfigurationMap.getOrDefault(serviceRef, null);
-        final AdvancedInstanceInfo lastInstanceInfo = instanceInfoMap.getOrDefault(serviceRef, null);
 
         if(scalingConfiguration==null){
             throw new RuntimeException(String.format("Scaling configuration not found for {%s}", serviceRef));
         }
-        if (lastInstanceInfo == null) {
-            return action;
+        final AdvancedInstanceInfo lastInstanceInfo;
+        synchronized (getServiceLock(serviceRef)) {
+            final AdvancedInstanceInfo recordedInstanceInfo = instanceInfoMap.get(serviceRef);
+            if (recordedInstanceInfo == null) {
+                return action;
+            }
+            lastInstanceInfo = recordedInstanceInfo.withDesiredInstances(action);
+            instanceInfoMap.put(serviceRef, lastInstanceInfo);
+            updateServiceState(serviceRef);
         }
-        lastInstanceInfo.setDesiredInstances(action);
         final boolean otherServicesMinimumInstancesMet = otherServicesMinimumInstancesMet(serviceRef, resourceLimitStagesReached);
 
         switch(action.getOperation()){
@@ -162,8 +253,7 @@ public class GovernorImpl implements Governor {
                         return new ScalingAction(ScalingOperation.NONE, 0);
                     } else if (lastInstanceInfo.getTotalRunningAndStageInstances() > scalingConfiguration.getMinInstances()) {
                         //Gradually reduce the totalInstances by a percentage until Minimums are met.
-                        //This should be configurable, however there should be a Governor specific configuration
-                        //to allow different Governor implementations to be added without polluting the AutoscaleConfiguration
+                        //The percentage is set by the GovernorConfiguration
 
                         int target = Math.max(scalingConfiguration.getMinInstances(),
                                               (int) Math.floor(lastInstanceInfo.getTotalRunningAndStageInstances() * reduceToPercentage));
@@ -210,68 +300,115 @@ public class GovernorImpl implements Governor {
         return action;
     }
 
+    /**
+     * @return the number of services whose last recorded instances are below their minimum
+     */
+    public int getServicesBelowMinimum()
+    {
+        return minimumInstancesTracker.getBelowMinimumCount();
+    }
+
+    /**
+     * Get the weight by which the relative difference of a service is multiplied when choosing which services give up instances to
+     * make room for others. Services with the same weighted relative difference are considered to be equally in need of their
+     * instances.
+     *
+     * @param scalingConfiguration the configuration of the service
+     * @return the weight of the service, which is 1 for every service unless overridden
+     */
+    protected double getWeight(final ScalingConfiguration scalingConfiguration)
+    {
+        return 1.0;
+    }
+
+    private Object getServiceLock(final String serviceRef)
+    {
+        return serviceLocks[Math.floorMod(serviceRef.hashCode(), serviceLocks.length)];
+    }
+
+    /**
+     * Bring the preemption index and minimum instances tracker up to date with the last recorded instances and configuration of a
+     * service. Must be called while holding the lock for the service.
+     */
+    private void updateServiceState(final String serviceRef)
+    {
+        final ScalingConfiguration scalingConfiguration = scalingConfigurationMap.get(serviceRef);
+        final AdvancedInstanceInfo lastInstanceInfo = instanceInfoMap.get(serviceRef);
+        if (scalingConfiguration == null) {
+            preemptionIndex.remove(serviceRef);
+            minimumInstancesTracker.remove(serviceRef);
+            return;
+        }
+        if (lastInstanceInfo == null) {
+            preemptionIndex.remove(serviceRef);
+            minimumInstancesTracker.update(serviceRef, false, false, -1);
+            return;
+        }
+        final int totalInstances = lastInstanceInfo.getTotalRunningAndStageInstances();
+        preemptionIndex.update(serviceRef, getWeight(scalingConfiguration) * lastInstanceInfo.getRelativeDifference(),
+                               scalingConfiguration.getMinInstances() < totalInstances);
+        minimumInstancesTracker.update(serviceRef, true, totalInstances < scalingConfiguration.getMinInstances(),
+                                       lastInstanceInfo.getShutdownPriority());
+    }
+
     /**
      * Determine if the other services have met their minimum instances.
      * @param serviceRef the service identifier to exclude from the evaluation
      * @return True if other services have met their minimum instance requirement
      */
     private boolean otherServicesMinimumInstancesMet(String serviceRef, final ResourceLimitStagesReached resourceLimitStagesReached){
-        for(String key:scalingConfigurationMap.keySet()){
-            if(key.equals(serviceRef)){
-                continue;
-            }
-            ScalingConfiguration scalingConfiguration = scalingConfigurationMap.getOrDefault(key, null);
-            final AdvancedInstanceInfo lastInstanceInfo = instanceInfoMap.getOrDefault(key, null);
-
-            //If there are no instance info be cautious and assume minimum instances have not been met.
-            if (lastInstanceInfo == null) {
-                return false;
-            }
-            if(lastInstanceInfo.getTotalRunningAndStageInstances() < scalingConfiguration.getMinInstances()){
-                if(shouldBeScaledDown(resourceLimitStagesReached, lastInstanceInfo.getShutdownPriority())){
-                   continue;
-                }
-                return false;
-            }
-        }
-        return true;
+        return minimumInstancesTracker.isMinimumMetByOthers(serviceRef, ResourceLimitStage.max(
+            resourceLimitStagesReached.getMemoryLimitStageReached(),
+            resourceLimitStagesReached.getDiskLimitStageReached()));
     }
 
-    private boolean shouldBeScaledDown(final ResourceLimitStagesReached resourceLimitStagesReached, final int shutdownPriority)
+    /**
+     * A service that may be scaled down to make room for another, with the number of instances it would have after the instances
+     * planned to be taken from it.
+     */
+    static final class PreemptionCandidate
     {
-        if (shutdownPriority == -1) {
-            return false;
+        private final String serviceRef;
+        private final int desiredInstances;
+        private final int minInstances;
+        private final double weight;
+        private int instances;
+
+        PreemptionCandidate(final String serviceRef, final int desiredInstances, final int instances, final int minInstances)
+        {
+            this(serviceRef, desiredInstances, instances, minInstances, 1.0);
         }
 
-        final ResourceLimitStage highestResourceLimitStageReached = ResourceLimitStage.max(
-                resourceLimitStagesReached.getMemoryLimitStageReached(),
-                resourceLimitStagesReached.getDiskLimitStageReached());
+        PreemptionCandidate(
+            final String serviceRef,
+            final int desiredInstances,
+            final int instances,
+            final int minInstances,
+            final double weight
+        )
+        {
+            this.serviceRef = serviceRef;
+            this.desiredInstances = desiredInstances;
+            this.instances = instances;
+            this.minInstances = minInstances;
+            this.weight = weight;
+        }
 
-        switch (highestResourceLimitStageReached) {
-            case STAGE_1: {
-                return shutdownPriority <= stageOneShutdownPriorityLimit;
-            }
-            case STAGE_2: {
-                return shutdownPriority <= stageTwoShutdownPriorityLimit;
-            }
-            case STAGE_3: {
-                return shutdownPriority <= stageThreeShutdownPriorityLimit;
-            }
-            default: {
-                return false;
-            }
+        private double getRelativeDifference()
+        {
+            return instances == 0 ? Double.POSITIVE_INFINITY : weight * desiredInstances / instances;
         }
     }
 
     private static final class AdvancedInstanceInfo extends InstanceInfo
     {
-        private int desiredInstances;
+        private final int desiredInstances;
 
-        private AdvancedInstanceInfo(final InstanceInfo instanceInfo)
+        private AdvancedInstanceInfo(final InstanceInfo instanceInfo, final int desiredInstances)
         {
             super(instanceInfo.getInstancesRunning(), instanceInfo.getInstancesStaging(), instanceInfo.getHosts(),
                   instanceInfo.getShutdownPriority(), instanceInfo.getInstances());
-            this.desiredInstances = 0;
+            this.desiredInstances = desiredInstances;
         }
 
         public int getDesiredInstances()
@@ -279,18 +416,19 @@ public class GovernorImpl implements Governor {
             return desiredInstances;
         }
 
-        public void setDesiredInstances(final ScalingAction action)
+        /**
+         * @return a copy of this record with the number of instances desired by the given action
+         */
+        public AdvancedInstanceInfo withDesiredInstances(final ScalingAction action)
         {
             switch (action.getOperation()) {
-                case NONE:
-                    this.desiredInstances = getTotalRunningAndStageInstances();
-                    break;
                 case SCALE_UP:
-                    this.desiredInstances = getInstancesRunning() + action.getAmount();
-                    break;
+                    return new AdvancedInstanceInfo(this, getInstancesRunning() + action.getAmount());
                 case SCALE_DOWN:
-                    this.desiredInstances = getInstancesRunning() - action.getAmount();
-                    break;
+                    return new AdvancedInstanceInfo(this, getInstancesRunning() - action.getAmount());
+                case NONE:
+                default:
+                    return new AdvancedInstanceInfo(this, getTotalRunningAndStageInstances());
             }
         }
 
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.github.autoscaler.api.ScalerException;
+import com.hpe.caf.api.ConfigurationSource;
+
+/**
+ * Boilerplate for acquiring a Governor. It holds the unique name for the Governor, which is selected by the GovernorConfiguration.
+ */
+public interface GovernorProvider
+{
+    /**
+     * Return a Governor.
+     * @param configurationSource the configuration, which may be used to read configuration specific to the Governor
+     * @param governorConfig the configuration common to all Governors
+     * @param resourceConfig the resource monitoring configuration, which sets the shutdown priorities of the resource limit stages
+     * @return an implementation of a Governor
+     * @throws ScalerException if the Governor cannot be created
+     */
+    Governor getGovernor(ConfigurationSource configurationSource, GovernorConfiguration governorConfig,
+                         ResourceMonitoringConfiguration resourceConfig)
+        throws ScalerException;
+
+    /**
+     * @return a unique key name for the Governor this provider creates
+     */
+    String getGovernorName();
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracks which services are below their minimum number of instances, so that whether the other services of a given service have
+ * met their minimums can be answered without examining every service.
+ *
+ * A service whose instances have not been recorded yet is assumed not to have met its minimum. A service that is below its minimum
+ * is not counted at a resource limit stage at which its shutdown priority means it should be scaled down, so a count is kept for
+ * each stage.
+ */
+final class MinimumInstancesTracker
+{
+    private final int stageOneShutdownPriorityLimit;
+    private final int stageTwoShutdownPriorityLimit;
+    private final int stageThreeShutdownPriorityLimit;
+    private final Map<String, ServiceState> services = new HashMap<>();
+    /**
+     * The number of services that have not met their minimum at each resource limit stage, indexed by stage.
+     */
+    private final int[] minimumNotMetCounts = new int[ResourceLimitStage.values().length];
+    private int belowMinimumCount;
+
+    MinimumInstancesTracker(final int stageOneLimit, final int stageTwoLimit, final int stageThreeLimit)
+    {
+        this.stageOneShutdownPriorityLimit = stageOneLimit;
+        this.stageTwoShutdownPriorityLimit = stageTwoLimit;
+        this.stageThreeShutdownPriorityLimit = stageThreeLimit;
+    }
+
+    /**
+     * Record the current state of a service.
+     *
+     * @param serviceRef the service identifier
+     * @param recorded whether the instances of the service have been recorded
+     * @param belowMinimum whether the service is running fewer than its minimum number of instances
+     * @param shutdownPriority the shutdown priority of the service, or -1 if it has none
+     */
+    synchronized void update(final String serviceRef, final boolean recorded, final boolean belowMinimum, final int shutdownPriority)
+    {
+        remove(serviceRef);
+        final ServiceState state = new ServiceState(recorded, belowMinimum, shutdownPriority);
+        services.put(serviceRef, state);
+        adjust(state, 1);
+    }
+
+    synchronized void remove(final String serviceRef)
+    {
+        final ServiceState previous = services.remove(serviceRef);
+        if (previous != null) {
+            adjust(previous, -1);
+        }
+    }
+
+    /**
+     * Determine whether every service other than the given one has met its minimum number of instances.
+     *
+     * @param serviceRef the service to exclude
+     * @param stage the highest resource limit stage currently reached
+     * @return true if no other service is short of its minimum at the given stage
+     */
+    synchronized boolean isMinimumMetByOthers(final String serviceRef, final ResourceLimitStage stage)
+    {
+        final ServiceState own = services.get(serviceRef);
+        final int ownCount = own != null && !own.isMinimumMet(stage) ? 1 : 0;
+        return minimumNotMetCounts[stage.ordinal()] - ownCount == 0;
+    }
+
+    /**
+     * @return the number of services whose recorded instances are below their minimum
+     */
+    synchronized int getBelowMinimumCount()
+    {
+        return belowMinimumCount;
+    }
+
+    private void adjust(final ServiceState state, final int delta)
+    {
+        if (state.belowMinimum) {
+            belowMinimumCount += delta;
+        }
+        for (final ResourceLimitStage stage : ResourceLimitStage.values()) {
+            if (!state.isMinimumMet(stage)) {
+                minimumNotMetCounts[stage.ordinal()] += delta;
+            }
+        }
+    }
+
+    private boolean shouldBeScaledDown(final ResourceLimitStage stage, final int shutdownPriority)
+    {
+        if (shutdownPriority == -1) {
+            return false;
+        }
+        switch (stage) {
+            case STAGE_1:
+                return shutdownPriority <= stageOneShutdownPriorityLimit;
+            case STAGE_2:
+                return shutdownPriority <= stageTwoShutdownPriorityLimit;
+            case STAGE_3:
+                return shutdownPriority <= stageThreeShutdownPriorityLimit;
+            default:
+                return false;
+        }
+    }
+
+    private final class ServiceState
+    {
+        private final boolean recorded;
+        private final boolean belowMinimum;
+        private final int shutdownPriority;
+
+        private ServiceState(final boolean recorded, final boolean belowMinimum, final int shutdownPriority)
+        {
+            this.recorded = recorded;
+            this.belowMinimum = belowMinimum;
+            this.shutdownPriority = shutdownPriority;
+        }
+
+        private boolean isMinimumMet(final ResourceLimitStage stage)
+        {
+            if (!recorded) {
+                return false;
+            }
+            return !belowMinimum || shouldBeScaledDown(stage, shutdownPriority);
+        }
+    }
+}
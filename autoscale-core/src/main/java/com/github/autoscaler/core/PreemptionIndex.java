@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * An index of the services that may be scaled down to make room for another service, ordered by the relative difference between the
+ * number of instances each service desires and the number it has. This allows the services with the least need for their instances
+ * to be found without examining every service. Only services that are running more than their minimum number of instances are indexed.
+ */
+final class PreemptionIndex
+{
+    private static final Comparator<Candidate> ORDER = Comparator
+        .comparingDouble((Candidate c) -> c.relativeDifference)
+        .thenComparing(c -> c.serviceRef);
+
+    private final NavigableSet<Candidate> candidates = new TreeSet<>(ORDER);
+    private final Map<String, Candidate> candidatesByService = new HashMap<>();
+
+    /**
+     * Record the current state of a service, adding it to the index, moving it within the index or removing it from the index as
+     * required.
+     *
+     * @param serviceRef the service identifier
+     * @param relativeDifference the relative difference between the desired and current instances of the service
+     * @param eligible whether the service is running more than its minimum number of instances
+     */
+    synchronized void update(final String serviceRef, final double relativeDifference, final boolean eligible)
+    {
+        final Candidate previous = candidatesByService.get(serviceRef);
+        if (previous != null) {
+            if (eligible && Double.compare(previous.relativeDifference, relativeDifference) == 0) {
+                return;
+            }
+            candidates.remove(previous);
+            candidatesByService.remove(serviceRef);
+        }
+        if (eligible) {
+            final Candidate candidate = new Candidate(serviceRef, relativeDifference);
+            candidates.add(candidate);
+            candidatesByService.put(serviceRef, candidate);
+        }
+    }
+
+    synchronized void remove(final String serviceRef)
+    {
+        final Candidate previous = candidatesByService.remove(serviceRef);
+        if (previous != null) {
+            candidates.remove(previous);
+        }
+    }
+
+    /**
+     * Find the services that may be scaled down to make room for a service with the given relative difference.
+     *
+     * @param relativeDifference the relative difference between the desired and current instances of the service that needs room
+     * @return the indexed services with a relative difference lower than the given relative difference, lowest first
+     */
+    synchronized List<String> getCandidates(final double relativeDifference)
+    {
+        final List<String> result = new ArrayList<>();
+        for (final Candidate candidate : candidates) {
+            if (candidate.relativeDifference >= relativeDifference) {
+                break;
+            }
+            result.add(candidate.serviceRef);
+        }
+        return result;
+    }
+
+    synchronized int size()
+    {
+        return candidates.size();
+    }
+
+    private static final class Candidate
+    {
+        private final String serviceRef;
+        private final double relativeDifference;
+
+        private Candidate(final String serviceRef, final double relativeDifference)
+        {
+            this.serviceRef = serviceRef;
+            this.relativeDifference = relativeDifference;
+        }
+    }
+}
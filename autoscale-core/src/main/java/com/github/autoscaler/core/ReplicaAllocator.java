@@ -0,0 +1,240 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.github.autoscaler.api.ComputeResources;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ServiceScaler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how many instances each service that has asked to be scaled should have, taking into account the compute resources
+ * requested by an instance of each service and the capacity available on the platform, and then scales those services together.
+ *
+ * When a ReplicaAllocator is in use, a ScalerThread submits the action approved by the Governor to the allocator rather than scaling
+ * its service itself, and the allocator runs once per allocation interval. Scale downs are applied in full, and first, as they
+ * release capacity. The capacity that remains is then shared between the scale ups one instance at a time, each instance going to
+ * the service with the largest outstanding fraction of its request for the share of the capacity that one of its instances takes.
+ * This means that services are not scaled up beyond what the platform can run, which would leave instances pending, only for room
+ * to be made for them afterwards by scaling down other services one instance at a time.
+ *
+ * If the ServiceScaler does not report the capacity of the platform, every action is applied as it was submitted. A service whose
+ * instance resources are not reported is treated as taking none.
+ */
+final class ReplicaAllocator implements Runnable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaAllocator.class);
+
+    private final ServiceScaler scaler;
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+
+    ReplicaAllocator(final ServiceScaler scaler)
+    {
+        this.scaler = Objects.requireNonNull(scaler);
+    }
+
+    /**
+     * Submit the number of instances a service should have, replacing any request for the service that has not been allocated yet.
+     *
+     * @param scalerThread the thread that scales the service
+     * @param currentInstances the number of instances the service has, running and staging
+     * @param desiredInstances the number of instances the service should have
+     * @param scaleCount the scale count of the thread when the request was decided upon, see ScalerThread.applyAllocation
+     */
+    void submit(final ScalerThread scalerThread, final int currentInstances, final int desiredInstances, final long scaleCount)
+    {
+        final Request request = new Request(scalerThread.getServiceRef(), currentInstances, desiredInstances);
+        request.scalerThread = scalerThread;
+        request.scaleCount = scaleCount;
+        requests.put(request.serviceRef, request);
+    }
+
+    void remove(final String serviceRef)
+    {
+        requests.remove(serviceRef);
+    }
+
+    @Override
+    public void run()
+    {
+        final List<Request> pending = new ArrayList<>();
+        for (final Request request : requests.values()) {
+            // a request that has been replaced since it was read is left for the next allocation
+            if (requests.remove(request.serviceRef, request)) {
+                pending.add(request);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            final Map<String, Integer> allocation = allocate(pending);
+            // scale downs are applied first, to release capacity for the scale ups
+            pending.sort(Comparator.comparingInt(r -> allocation.get(r.serviceRef) - r.currentInstances));
+            for (final Request request : pending) {
+                apply(request, allocation.get(request.serviceRef));
+            }
+        } catch (final ScalerException e) {
+            LOG.warn("Failed to allocate instances to {} services", pending.size(), e);
+        } catch (final RuntimeException e) {
+            // if the task throws, it will not be scheduled to run again
+            LOG.error("Unexpected error allocating instances to {} services", pending.size(), e);
+        }
+    }
+
+    private Map<String, Integer> allocate(final List<Request> pending)
+        throws ScalerException
+    {
+        final Optional<ComputeResources> available = scaler.getAvailableCapacity();
+        if (!available.isPresent()) {
+            final Map<String, Integer> allocation = new HashMap<>();
+            pending.forEach(r -> allocation.put(r.serviceRef, r.desiredInstances));
+            return allocation;
+        }
+        // the instances the services already have can be reallocated between them
+        ComputeResources budget = available.get();
+        for (final Request request : pending) {
+            request.instanceResources = scaler.getInstanceResources(request.serviceRef).orElse(ComputeResources.NONE);
+            budget = budget.plus(request.instanceResources.times(request.currentInstances));
+        }
+        LOG.debug("Allocating instances to {} services within {}", pending.size(), budget);
+        return allocate(pending, budget);
+    }
+
+    /**
+     * Decide how many instances each service should have within a budget of compute resources.
+     *
+     * @param pending the services to allocate instances to, with the resources of an instance of each
+     * @param budget the resources that may be allocated to the services
+     * @return the number of instances allocated to each service, by service reference
+     */
+    static Map<String, Integer> allocate(final Collection<Request> pending, final ComputeResources budget)
+    {
+        final Map<String, Integer> allocation = new HashMap<>();
+        ComputeResources remaining = budget;
+        final PriorityQueue<Request> queue = new PriorityQueue<>(
+            Comparator.comparingDouble((Request r) -> r.priority).reversed().thenComparing(r -> r.serviceRef));
+        for (final Request request : pending) {
+            final ComputeResources instanceResources = request.instanceResources;
+            if (instanceResources.equals(ComputeResources.NONE)) {
+                allocation.put(request.serviceRef, request.desiredInstances);
+                continue;
+            }
+            request.allocatedInstances = Math.min(request.currentInstances, request.desiredInstances);
+            remaining = remaining.minus(instanceResources.times(request.allocatedInstances));
+            if (request.allocatedInstances < request.desiredInstances) {
+                request.priority = getPriority(request, budget);
+                queue.add(request);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final Request request = queue.poll();
+            if (!request.instanceResources.fitsWithin(remaining)) {
+                continue;
+            }
+            request.allocatedInstances++;
+            remaining = remaining.minus(request.instanceResources);
+            if (request.allocatedInstances < request.desiredInstances) {
+                request.priority = getPriority(request, budget);
+                queue.add(request);
+            }
+        }
+        for (final Request request : pending) {
+            allocation.putIfAbsent(request.serviceRef, request.allocatedInstances);
+        }
+        return allocation;
+    }
+
+    /**
+     * The priority of the next instance of a service is the fraction of its requested instances that it is still short of, for each
+     * unit of the largest share of the budget that one of its instances takes.
+     */
+    private static double getPriority(final Request request, final ComputeResources budget)
+    {
+        final double shortfall = (double) (request.desiredInstances - request.allocatedInstances) / request.desiredInstances;
+        final double dominantShare = Math.max(
+            getShare(request.instanceResources.getCpuMillis(), budget.getCpuMillis()),
+            getShare(request.instanceResources.getMemoryBytes(), budget.getMemoryBytes()));
+        return shortfall / dominantShare;
+    }
+
+    private static double getShare(final long amount, final long total)
+    {
+        if (amount == 0) {
+            return 0;
+        }
+        return total > 0 ? (double) amount / total : Double.POSITIVE_INFINITY;
+    }
+
+    private static void apply(final Request request, final int allocatedInstances)
+    {
+        final int amount = allocatedInstances - request.currentInstances;
+        if (allocatedInstances < request.desiredInstances) {
+            LOG.info("Service {} requested {} instances but only {} fit within the available capacity", request.serviceRef,
+                     request.desiredInstances, allocatedInstances);
+        }
+        if (amount == 0) {
+            return;
+        }
+        try {
+            request.scalerThread.applyAllocation(amount, request.scaleCount);
+        } catch (final ScalerException e) {
+            LOG.warn("Failed to scale service {} by {} instances", request.serviceRef, amount, e);
+        } catch (final RuntimeException e) {
+            LOG.error("Unexpected error scaling service {} by {} instances", request.serviceRef, amount, e);
+        }
+    }
+
+    /**
+     * A request for a number of instances of a service.
+     */
+    static final class Request
+    {
+        private final String serviceRef;
+        private final int currentInstances;
+        private final int desiredInstances;
+        private ScalerThread scalerThread;
+        private long scaleCount;
+        private ComputeResources instanceResources = ComputeResources.NONE;
+        private int allocatedInstances;
+        private double priority;
+
+        Request(final String serviceRef, final int currentInstances, final int desiredInstances)
+        {
+            this.serviceRef = serviceRef;
+            this.currentInstances = currentInstances;
+            this.desiredInstances = desiredInstances;
+        }
+
+        Request withInstanceResources(final ComputeResources instanceResources)
+        {
+            this.instanceResources = instanceResources;
+            return this;
+        }
+    }
+}
@@ -16,12 +16,14 @@
 package com.github.autoscaler.core;
 
 
+import com.github.autoscaler.api.ComputeResources;
 import com.github.autoscaler.api.InstanceInfo;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ServiceScaler;
 import com.hpe.caf.api.HealthResult;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -84,6 +86,22 @@ public class ScalerDecorator implements ServiceScaler
     }
 
 
+    @Override
+    public Optional<ComputeResources> getInstanceResources(final String service)
+            throws ScalerException
+    {
+        return realScaler.getInstanceResources(service);
+    }
+
+
+    @Override
+    public Optional<ComputeResources> getAvailableCapacity()
+            throws ScalerException
+    {
+        return realScaler.getAvailableCapacity();
+    }
+
+
     /**
      * Update the active status of this instance.
      * @param active the new active status
@@ -15,6 +15,9 @@
  */
 package com.github.autoscaler.core;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.autoscaler.api.AnalysisDeadline;
 import com.github.autoscaler.api.InstanceInfo;
 import com.github.autoscaler.api.QueueNotFoundException;
 import com.github.autoscaler.api.ResourceUtilisation;
@@ -29,11 +32,38 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A ScalerThread is responsible for calling out to a WorkloadAnalyser, taking its recommendation and then acting appropriately,
  * potentially including a call out to a ServiceScaler. These threads are run periodically by a scheduled executor in the autoscaler
  * application, and there is one per service being scaled.
+ *
+ * After a scale up has been issued, the thread does not wait for the new instances to start. Instead each confirmation check is
+ * scheduled as its own task on the executor, and normal analysis runs are skipped until the scale up has been confirmed or abandoned.
+ * This means that no executor thread is held while instances are starting up. As the checks are not part of an analysis run, a scale
+ * up that is abandoned, because the Governor cannot make room for its instances or a check fails, does not fail a run. Instead it is
+ * logged as an error and counted by the scaleUpFailed metric of the service, and the service is analysed again on its next run.
+ *
+ * The duration of each phase of an analysis run, and the outcome of each run, are recorded as metrics for the service; see
+ * ScalerThreadMetrics.
+ *
+ * If the service has an analysis deadline, a run that has not reached its scaling decision by the deadline is cancelled by
+ * interrupting the thread it is running on. As an interrupt does not stop blocking network I/O, the deadline is also published
+ * through AnalysisDeadline, so that the WorkloadAnalyser and ServiceScaler limit the timeouts of their requests to the time that
+ * remains. The run is recorded as timed out, and the service is analysed again on its next scheduled run. Deadlines are fired from
+ * the timer thread of the AutoscaleScheduler, which is independent of the executor, so that they still fire when every thread of the
+ * executor is busy with the runs they are meant to cancel.
+ *
+ * If the service has an adaptive interval, the volatility reported by the WorkloadAnalyser after each analysis is used to adjust the
+ * interval before the next run; see AdaptiveInterval.
+ *
+ * After a scaling operation completes the service backs off for a number of intervals, which is kept as a deadline rather than a
+ * count of runs. The executor or timing wheel uses getNextDelay or getBackoffDeferral to push the next run of the service back to the
+ * end of the backoff, so that a backed off service is not woken just to skip its run.
  */
 public class ScalerThread implements Runnable
 {
@@ -41,25 +71,78 @@ public class ScalerThread implements Runnable
     private final DecimalFormat df = new DecimalFormat("##.00");
     private final Alerter memoryOverloadAlerter;
     private final Alerter diskSpaceLowAlerter;
-    private final WorkloadAnalyser analyser;
+    private volatile WorkloadAnalyser analyser;
     private final ServiceScaler scaler;
-    private final int backoffAmount;
-    private final int scaleDownBackoffAmount;
-    private final int scaleUpBackoffAmount;
+    private volatile int backoffAmount;
+    private volatile int scaleDownBackoffAmount;
+    private volatile int scaleUpBackoffAmount;
     private final String serviceRef;
-    private int backoffCount = 0;
-    private boolean backoff = false;
+    private volatile boolean backoff = false;
+    /**
+     * The System.nanoTime at which the backoff ends and the next analysis run is due.
+     */
+    private volatile long backoffEnd;
+    /**
+     * The fixed number of seconds between analysis runs.
+     */
+    private volatile int interval = 0;
     private static final Logger LOG = LoggerFactory.getLogger(ScalerThread.class);
+    /**
+     * The number of confirmation checks made, with an increasing delay between each, before the Governor is asked to make room.
+     */
+    private static final int SCALE_UP_CONFIRMATION_CHECKS = 6;
+    private static final int SCALE_UP_CONFIRMATION_DELAY_SECONDS = 10;
+    /**
+     * How often the instances of the service are fetched while its WorkloadAnalyser is deferring its scaling decisions, so that the
+     * Governor can keep the service within its minimum and maximum instances between decisions.
+     */
+    private static final long DEFERRED_INSTANCE_INFO_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(5);
 
     private final Governor governor;
+    private final ScheduledExecutorService scheduler;
     private final ResourceMonitoringConfiguration resourceConfig;
+    private final ScalerThreadMetrics metrics;
 
-    private ScalingOperation lastOperation;
+    private volatile ScalingOperation lastOperation;
+    private volatile ScaleUpConfirmation pendingScaleUp;
+    private volatile boolean cancelled = false;
+    /**
+     * The number of seconds an analysis run may take before it is cancelled, or 0 if analysis runs are not limited.
+     */
+    private volatile int analysisDeadline = 0;
+    /**
+     * The timer that fires the analysis deadline, or null if analysis runs are not limited.
+     */
+    private volatile ScheduledExecutorService deadlineTimer;
+    /**
+     * The analysis run that is in progress and may still be cancelled by its deadline. Guarded by deadlineLock.
+     */
+    private AnalysisRun deadlineRun;
+    private final Object deadlineLock = new Object();
+    /**
+     * The interval between analysis runs if the service has an adaptive interval, otherwise null.
+     */
+    private volatile AdaptiveInterval adaptiveInterval;
+    /**
+     * When the instances of the service were last fetched and recorded with the Governor, as a value of System.nanoTime, if
+     * instancesRecorded is set.
+     */
+    private volatile long instancesRecordedTime;
+    private volatile boolean instancesRecorded;
+    /**
+     * The allocator that scaling actions are submitted to, or null if the service is scaled directly.
+     */
+    private volatile ReplicaAllocator allocator;
+    /**
+     * The number of scaling operations started for the service, used to recognise allocator requests that are out of date.
+     */
+    private final AtomicLong scaleCount = new AtomicLong();
 
     /**
      * Create a new ScalerThread.
      *
      * @param governor a Governor instance to prevent one service from starving others
+     * @param scheduler the executor used to schedule the checks that confirm a scale up has completed
      * @param workloadAnalyser the method for this thread to analyse the workload of a service
      * @param serviceScaler the method for this thread to scale a service
      * @param serviceReference the named reference to the service this thread will analyse and scale
@@ -69,12 +152,12 @@ public class ScalerThread implements Runnable
      * @param memoryOverloadAlerter dispatcher to send memory overload alerts if required
      * @param diskSpaceLowAlerter dispatcher to send disk space low alerts if required
      */
-    public ScalerThread(final Governor governor, final WorkloadAnalyser workloadAnalyser, final ServiceScaler serviceScaler,
-                        final String serviceReference, final int minInstances, final int maxInstances, final int backoffAmount,
-                        final Alerter memoryOverloadAlerter, final Alerter diskSpaceLowAlerter,
-                        final ResourceMonitoringConfiguration resourceConfig)
+    public ScalerThread(final Governor governor, final ScheduledExecutorService scheduler, final WorkloadAnalyser workloadAnalyser,
+                        final ServiceScaler serviceScaler, final String serviceReference, final int minInstances,
+                        final int maxInstances, final int backoffAmount, final Alerter memoryOverloadAlerter,
+                        final Alerter diskSpaceLowAlerter, final ResourceMonitoringConfiguration resourceConfig)
     {
-        this(governor, workloadAnalyser, serviceScaler, serviceReference, minInstances, maxInstances, backoffAmount, -1, -1,
+        this(governor, scheduler, workloadAnalyser, serviceScaler, serviceReference, minInstances, maxInstances, backoffAmount, -1, -1,
                 memoryOverloadAlerter, diskSpaceLowAlerter, resourceConfig);
     }
 
@@ -82,6 +165,7 @@ public class ScalerThread implements Runnable
      * Create a new ScalerThread.
      *
      * @param governor a Governor instance to prevent one service from starving others
+     * @param scheduler the executor used to schedule the checks that confirm a scale up has completed
      * @param workloadAnalyser the method for this thread to analyse the workload of a service
      * @param serviceScaler the method for this thread to scale a service
      * @param serviceReference the named reference to the service this thread will analyse and scale
@@ -93,10 +177,39 @@ public class ScalerThread implements Runnable
      * @param memoryOverloadAlerter dispatcher to send memory overload alerts if required
      * @param diskSpaceLowAlerter dispatcher to send disk space low alerts if required
      */
-    public ScalerThread(final Governor governor, final WorkloadAnalyser workloadAnalyser, final ServiceScaler serviceScaler,
-                        final String serviceReference, final int minInstances, final int maxInstances, final int backoffAmount,
-                        final int scaleUpBackoffAmount, final int scaleDownBackoffAmount, final Alerter memoryOverloadAlerter,
-                        final Alerter diskSpaceLowAlerter, final ResourceMonitoringConfiguration resourceConfig)
+    public ScalerThread(final Governor governor, final ScheduledExecutorService scheduler, final WorkloadAnalyser workloadAnalyser,
+                        final ServiceScaler serviceScaler, final String serviceReference, final int minInstances,
+                        final int maxInstances, final int backoffAmount, final int scaleUpBackoffAmount,
+                        final int scaleDownBackoffAmount, final Alerter memoryOverloadAlerter, final Alerter diskSpaceLowAlerter,
+                        final ResourceMonitoringConfiguration resourceConfig)
+    {
+        this(governor, scheduler, workloadAnalyser, serviceScaler, serviceReference, minInstances, maxInstances, backoffAmount,
+             scaleUpBackoffAmount, scaleDownBackoffAmount, memoryOverloadAlerter, diskSpaceLowAlerter, resourceConfig,
+             new MetricRegistry());
+    }
+
+    /**
+     * Create a new ScalerThread.
+     *
+     * @param governor a Governor instance to prevent one service from starving others
+     * @param scheduler the executor used to schedule the checks that confirm a scale up has completed
+     * @param workloadAnalyser the method for this thread to analyse the workload of a service
+     * @param serviceScaler the method for this thread to scale a service
+     * @param serviceReference the named reference to the service this thread will analyse and scale
+     * @param minInstances the minimum number of instances of the service that must be instantiated
+     * @param maxInstances the maximum number of instances of the service that can be instantiated
+     * @param backoffAmount the number of analysis runs to skip after a scaling is triggered
+     * @param scaleUpBackoffAmount the number of analysis runs to skip after a scaling up is triggered
+     * @param scaleDownBackoffAmount the number of analysis runs to skip after a scaling down is triggered
+     * @param memoryOverloadAlerter dispatcher to send memory overload alerts if required
+     * @param diskSpaceLowAlerter dispatcher to send disk space low alerts if required
+     * @param metricRegistry the registry to record the metrics of this service's analysis runs in
+     */
+    public ScalerThread(final Governor governor, final ScheduledExecutorService scheduler, final WorkloadAnalyser workloadAnalyser,
+                        final ServiceScaler serviceScaler, final String serviceReference, final int minInstances,
+                        final int maxInstances, final int backoffAmount, final int scaleUpBackoffAmount,
+                        final int scaleDownBackoffAmount, final Alerter memoryOverloadAlerter, final Alerter diskSpaceLowAlerter,
+                        final ResourceMonitoringConfiguration resourceConfig, final MetricRegistry metricRegistry)
     {
         this.resourceConfig = resourceConfig;
         this.scaleUpBackoffAmount = scaleUpBackoffAmount;
@@ -104,6 +217,7 @@ public class ScalerThread implements Runnable
         this.memoryOverloadAlerter = memoryOverloadAlerter;
         this.diskSpaceLowAlerter = diskSpaceLowAlerter;
         this.governor = governor;
+        this.scheduler = Objects.requireNonNull(scheduler);
         this.analyser = Objects.requireNonNull(workloadAnalyser);
         this.scaler = Objects.requireNonNull(serviceScaler);
         this.serviceRef = Objects.requireNonNull(serviceReference);
@@ -111,6 +225,125 @@ public class ScalerThread implements Runnable
             throw new IllegalArgumentException("Instance count limits invalid");
         }
         this.backoffAmount = backoffAmount;
+        this.metrics = new ScalerThreadMetrics(metricRegistry, serviceReference);
+    }
+
+    /**
+     * Apply a changed configuration to this thread. The backoff state, and any scale up that is awaiting confirmation, are kept,
+     * so the service does not have to start its analysis again from scratch.
+     *
+     * @param workloadAnalyser the method for this thread to analyse the workload of a service, which may be the current analyser
+     * @param minInstances the minimum number of instances of the service that must be instantiated
+     * @param maxInstances the maximum number of instances of the service that can be instantiated
+     * @param backoffAmount the number of analysis runs to skip after a scaling is triggered
+     * @param scaleUpBackoffAmount the number of analysis runs to skip after a scaling up is triggered
+     * @param scaleDownBackoffAmount the number of analysis runs to skip after a scaling down is triggered
+     */
+    public void reconfigure(final WorkloadAnalyser workloadAnalyser, final int minInstances, final int maxInstances,
+                            final int backoffAmount, final int scaleUpBackoffAmount, final int scaleDownBackoffAmount)
+    {
+        if (minInstances < 0 || maxInstances < 1) {
+            throw new IllegalArgumentException("Instance count limits invalid");
+        }
+        this.analyser = Objects.requireNonNull(workloadAnalyser);
+        this.backoffAmount = backoffAmount;
+        this.scaleUpBackoffAmount = scaleUpBackoffAmount;
+        this.scaleDownBackoffAmount = scaleDownBackoffAmount;
+    }
+
+
+    /**
+     * Limit how long each analysis run may take. The deadline is also made available to the WorkloadAnalyser and ServiceScaler
+     * through {@link AnalysisDeadline}, so that they can limit the timeouts of the requests they make during the run.
+     *
+     * @param analysisDeadline the number of seconds an analysis run may take before it is cancelled, or 0 if runs are not limited
+     * @param deadlineTimer the timer that cancels runs that reach their deadline, which is not used if runs are not limited
+     */
+    public void setAnalysisDeadline(final int analysisDeadline, final ScheduledExecutorService deadlineTimer)
+    {
+        if (analysisDeadline < 0) {
+            throw new IllegalArgumentException("Analysis deadline invalid");
+        }
+        this.deadlineTimer = analysisDeadline == 0 ? null : Objects.requireNonNull(deadlineTimer);
+        this.analysisDeadline = analysisDeadline;
+    }
+
+
+    /**
+     * Set the fixed interval between analysis runs, which backoff windows are measured in.
+     *
+     * @param interval the number of seconds between analysis runs
+     */
+    void setInterval(final int interval)
+    {
+        this.interval = interval;
+    }
+
+
+    /**
+     * Set the interval that is adjusted after each analysis run, for a service with an adaptive interval.
+     *
+     * @param adaptiveInterval the interval, or null if the interval of the service is fixed
+     */
+    void setAdaptiveInterval(final AdaptiveInterval adaptiveInterval)
+    {
+        this.adaptiveInterval = adaptiveInterval;
+    }
+
+
+    /**
+     * Set the allocator that scaling actions are submitted to, rather than being applied by this thread.
+     *
+     * @param allocator the allocator, or null if the service is scaled directly
+     */
+    void setAllocator(final ReplicaAllocator allocator)
+    {
+        this.allocator = allocator;
+    }
+
+
+    String getServiceRef()
+    {
+        return serviceRef;
+    }
+
+
+    /**
+     * @return the number of seconds between analysis runs, which is the current adaptive interval if the service has one
+     */
+    private int getInterval()
+    {
+        final AdaptiveInterval adaptive = adaptiveInterval;
+        return adaptive != null ? adaptive.getInterval() : interval;
+    }
+
+
+    /**
+     * @return the number of seconds until the next analysis run, which is the interval unless the service is backing off
+     */
+    int getNextDelay()
+    {
+        final int delay = Math.max(getInterval(), (int) TimeUnit.NANOSECONDS.toSeconds(getRemainingBackoff() + 999_999_999L));
+        LOG.debug("Next analysis run of service {} in {} seconds", serviceRef, delay);
+        return delay;
+    }
+
+
+    /**
+     * For a service that runs in a fixed slot within each interval, the amount of time that its next run should be put off by. This is
+     * half an interval less than the remaining backoff, so that the service resumes in the slot nearest to the end of the backoff.
+     *
+     * @return the number of nanoseconds to put off the next run by, which is 0 if the service is not backing off
+     */
+    long getBackoffDeferral()
+    {
+        return Math.max(0, getRemainingBackoff() - TimeUnit.SECONDS.toNanos(getInterval()) / 2);
+    }
+
+
+    WorkloadAnalyser getAnalyser()
+    {
+        return analyser;
     }
 
     /**
@@ -119,7 +352,9 @@ public class ScalerThread implements Runnable
     @Override
     public void run()
     {
-        if (isShouldBackoff()) {
+        if (pendingScaleUp != null) {
+            LOG.debug("Not performing workload analysis for service {}, awaiting confirmation of scale up", serviceRef);
+        } else if (isShouldBackoff()) {
             LOG.debug("Not performing workload analysis for service {}, backing off", serviceRef);
         } else {
             LOG.debug("Workload analysis run for service {}", serviceRef);
@@ -135,60 +370,240 @@ public class ScalerThread implements Runnable
      */
     private void handleAnalysis()
     {
+        final long startTime = System.nanoTime();
+        final long startScaleCount = scaleCount.get();
+        final AnalysisRun run = startDeadline();
         try {
-            final ResourceUtilisation resourceUtilisation = analyser.getCurrentResourceUtilisation();
+            final ResourceUtilisation resourceUtilisation;
+            try (Timer.Context ignored = metrics.getResourceUtilisationTimer().time()) {
+                resourceUtilisation = analyser.getCurrentResourceUtilisation();
+            }
             LOG.debug("Resource utilisation for service {}: {}", serviceRef, resourceUtilisation);
             final ResourceLimitStagesReached resourceLimitStagesReached = establishResourceLimitStagesReached(resourceUtilisation);
             LOG.debug("Resource limit stages reached for service {}: {}", serviceRef, resourceLimitStagesReached);
-            InstanceInfo instances = scaler.getInstanceInfo(serviceRef);
+            final boolean decisionDeferred = analyser.isDecisionDeferred();
+            if (decisionDeferred && !isInstanceInfoNeeded(resourceUtilisation, resourceLimitStagesReached)) {
+                LOG.debug("No scaling decision is due for service {}, collecting workload only", serviceRef);
+                try (Timer.Context ignored = metrics.getAnalyseWorkloadTimer().time()) {
+                    analyser.collectWorkload();
+                }
+                updateAdaptiveInterval();
+                metrics.setLastAction(ScalingAction.NO_ACTION);
+                return;
+            }
+            final InstanceInfo instances;
+            try (Timer.Context ignored = metrics.getInstanceInfoTimer().time()) {
+                instances = scaler.getInstanceInfo(serviceRef);
+            }
             LOG.debug("Instance info for service {}: {}", serviceRef, instances);
             final int shutdownPriority = instances.getShutdownPriority();
             if (handleResourceLimitReached(instances, resourceUtilisation, resourceLimitStagesReached, shutdownPriority)) {
                 return;
             }
             governor.recordInstances(serviceRef, instances);
+            instancesRecordedTime = System.nanoTime();
+            instancesRecorded = true;
             ScalingAction action;
-            LOG.debug("Performing scaling checks for service {}", serviceRef);
-            action = analyser.analyseWorkload(instances);
+            try (Timer.Context ignored = metrics.getAnalyseWorkloadTimer().time()) {
+                if (decisionDeferred) {
+                    // The Governor still enforces the minimum and maximum instances against the instances that were fetched
+                    LOG.debug("No scaling decision is due for service {}, collecting workload only", serviceRef);
+                    analyser.collectWorkload();
+                    action = ScalingAction.NO_ACTION;
+                } else {
+                    LOG.debug("Performing scaling checks for service {}", serviceRef);
+                    action = analyser.analyseWorkload(instances);
+                }
+            }
+            updateAdaptiveInterval();
             LOG.debug("Workload Analyser determined that the autoscaler should {} {} by {} instances",
                      action.getOperation(), serviceRef, action.getAmount());
-            action = governor.govern(serviceRef, action, resourceLimitStagesReached);
+            try (Timer.Context ignored = metrics.getGovernTimer().time()) {
+                action = governor.govern(serviceRef, action, resourceLimitStagesReached);
+            }
             LOG.debug("Governor determined that the autoscaler should {} {} by {} instances",
                      action.getOperation(), serviceRef, action.getAmount());
-            if (action.getAmount() == 0) {
+            metrics.setLastAction(action);
+            // The scaling request itself is not cancelled part way through, but a run that has already timed out does not scale
+            if (endDeadline(run) || action.getAmount() == 0) {
+                return;
+            }
+            final ReplicaAllocator replicaAllocator = allocator;
+            if (replicaAllocator != null) {
+                final int currentInstances = instances.getTotalRunningAndStageInstances();
+                final int desiredInstances = action.getOperation() == ScalingOperation.SCALE_UP
+                    ? currentInstances + action.getAmount()
+                    : Math.max(0, currentInstances - action.getAmount());
+                LOG.debug("Submitting request for {} instances of service {} to the replica allocator", desiredInstances, serviceRef);
+                replicaAllocator.submit(this, currentInstances, desiredInstances, startScaleCount);
                 return;
             }
-            switch (action.getOperation()) {
-                case SCALE_UP:
-                    scaleUp(action.getAmount());
-                    break;
-                case SCALE_DOWN:
-                    scaleDown(action.getAmount());
-                    break;
-                case NONE:
-                default:
-                    break;
+            try (Timer.Context ignored = metrics.getScaleTimer().time()) {
+                switch (action.getOperation()) {
+                    case SCALE_UP:
+                        scaleUp(action.getAmount());
+                        break;
+                    case SCALE_DOWN:
+                        scaleDown(action.getAmount());
+                        break;
+                    case NONE:
+                    default:
+                        break;
+                }
             }
         } catch (final QueueNotFoundException e) {
-            LOG.warn("Queue not found {}", serviceRef);
+            // a failure caused by the run being cancelled is recorded as a time out instead
+            if (!endDeadline(run)) {
+                metrics.getQueueNotFoundCounter().inc();
+                LOG.warn("Queue not found {}", serviceRef);
+            }
         } catch (ScalerException e) {
-            LOG.warn("Failed analysis run for service {}", serviceRef, e);
+            if (!endDeadline(run)) {
+                metrics.getScalerExceptionCounter().inc();
+                LOG.warn("Failed analysis run for service {}", serviceRef, e);
+            }
         } catch (final RuntimeException e) {
             // library methods have been known to throw RuntimeException when there's no programming
             // error - but if we throw, we won't be scheduled to run again, so we must catch and
             // ignore
-            LOG.error("Unexpected error in analysis run for service {}", serviceRef, e);
+            if (!endDeadline(run)) {
+                metrics.getUnexpectedErrorCounter().inc();
+                LOG.error("Unexpected error in analysis run for service {}", serviceRef, e);
+            }
         } catch (final Throwable e) {
             // if the thread throws, the error isn't logged
+            metrics.getUnexpectedErrorCounter().inc();
             LOG.error("Unexpected error in analysis run for service {}.  The scheduler will now stop; the service must be restarted to continue scaling.", serviceRef, e);
             throw e;
+        } finally {
+            if (endDeadline(run)) {
+                metrics.getTimedOutCounter().inc();
+                LOG.warn("Analysis run for service {} did not complete within its deadline of {} seconds and was cancelled",
+                         serviceRef, run.deadline);
+            }
+            metrics.getTickLatency().update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+    }
+
+    /**
+     * Determine whether a run in which the scaling decision is deferred needs current information on the instances of the service. It
+     * is needed when a resource limit stage or alert threshold has been reached, as those are acted upon according to the shutdown
+     * priority of the service. It is also refreshed every few minutes, and on the first run, so that the Governor can bring a service
+     * that has been scaled outside of its minimum or maximum instances back within them without waiting for the next decision.
+     */
+    private boolean isInstanceInfoNeeded(
+            final ResourceUtilisation resourceUtilisation,
+            final ResourceLimitStagesReached resourceLimitStagesReached)
+    {
+        if (!instancesRecorded
+                || System.nanoTime() - instancesRecordedTime >= DEFERRED_INSTANCE_INFO_REFRESH_NANOS
+                || resourceLimitStagesReached.getMemoryLimitStageReached() != ResourceLimitStage.NO_STAGE
+                || resourceLimitStagesReached.getDiskLimitStageReached() != ResourceLimitStage.NO_STAGE) {
+            return true;
+        }
+        final Optional<Integer> diskFreeMbOpt = resourceUtilisation.getDiskFreeMbOpt();
+        return resourceUtilisation.getMemoryUsedPercent() >= resourceConfig.getMemoryUsedPercentAlertDispatchThreshold()
+            || (diskFreeMbOpt.isPresent() && diskFreeMbOpt.get() <= resourceConfig.getDiskFreeMbAlertDispatchThreshold());
+    }
+
+    private void updateAdaptiveInterval()
+    {
+        final AdaptiveInterval interval = adaptiveInterval;
+        if (interval != null) {
+            analyser.getWorkloadVolatility().ifPresent(interval::update);
         }
     }
 
     /**
-     * Perform a scale up
+     * Schedule the cancellation of the analysis run that is starting on the current thread, if the service has an analysis deadline.
+     *
+     * @return the run, or null if the run has no deadline
+     */
+    private AnalysisRun startDeadline()
+    {
+        final int deadline = analysisDeadline;
+        final ScheduledExecutorService timer = deadlineTimer;
+        if (deadline == 0 || timer == null) {
+            return null;
+        }
+        final AnalysisRun run = new AnalysisRun(Thread.currentThread(), deadline);
+        synchronized (deadlineLock) {
+            deadlineRun = run;
+        }
+        AnalysisDeadline.set(System.nanoTime() + TimeUnit.SECONDS.toNanos(deadline));
+        run.future = timer.schedule(() -> expireDeadline(run), deadline, TimeUnit.SECONDS);
+        return run;
+    }
+
+    /**
+     * Cancel an analysis run that has reached its deadline, by interrupting the thread it is running on, if it is still in progress.
+     */
+    private void expireDeadline(final AnalysisRun run)
+    {
+        synchronized (deadlineLock) {
+            if (deadlineRun == run) {
+                deadlineRun = null;
+                run.timedOut = true;
+                run.thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stop an analysis run from being cancelled by its deadline. If the run has already been cancelled, the interrupt that cancelled it
+     * is cleared so that it does not affect whatever the thread runs next. This may be called more than once for the same run.
+     *
+     * @param run the run, or null if the run has no deadline
+     * @return whether the run was cancelled by its deadline
+     */
+    private boolean endDeadline(final AnalysisRun run)
+    {
+        if (run == null) {
+            return false;
+        }
+        AnalysisDeadline.clear();
+        synchronized (deadlineLock) {
+            if (deadlineRun == run) {
+                deadlineRun = null;
+            }
+        }
+        if (run.future != null) {
+            run.future.cancel(false);
+        }
+        if (run.timedOut) {
+            Thread.interrupted();
+        }
+        return run.timedOut;
+    }
+
+    /**
+     * Scale the service by the number of instances decided upon by the replica allocator. The scaling is skipped if the service has
+     * been scaled since the analysis run that made the request started, as the request is then out of date.
+     *
+     * @param amount the number of instances to scale up by, or if negative, to scale down by
+     * @param requestScaleCount the scale count when the analysis run that made the request started
+     * @throws ScalerException if the scaling operation fails
+     */
+    void applyAllocation(final int amount, final long requestScaleCount)
+        throws ScalerException
+    {
+        if (cancelled || requestScaleCount != scaleCount.get()) {
+            LOG.debug("Not applying allocation of {} instances to service {}, the request is out of date", amount, serviceRef);
+            return;
+        }
+        try (Timer.Context ignored = metrics.getScaleTimer().time()) {
+            if (amount > 0) {
+                scaleUp(amount);
+            } else if (amount < 0) {
+                scaleDown(-amount);
+            }
+        }
+    }
+
+    /**
+     * Perform a scale up. The scale up is only complete once the orchestrator reports that all requested instances are running or
+     * staging; if that is not already the case a confirmation check is scheduled rather than waiting for the instances here.
      *
-     * @param instances information on the current number of instances of a service
      * @param amount the requested number of instances to scale up by
      * @throws ScalerException if the scaling operation fails
      */
@@ -196,38 +611,87 @@ public class ScalerThread implements Runnable
         throws ScalerException
     {
         LOG.debug("Attempting scale up of service {} by amount {}", serviceRef, amount);
+        scaleCount.incrementAndGet();
         scaler.scaleUp(serviceRef, amount);
         lastOperation = ScalingOperation.SCALE_UP;
+        final InstanceInfo refreshedInstanceInfo = scaler.getInstanceInfo(serviceRef);
+        if (refreshedInstanceInfo.getInstances() > refreshedInstanceInfo.getTotalRunningAndStageInstances()) {
+            pendingScaleUp = new ScaleUpConfirmation(amount);
+            scheduleScaleUpConfirmation(pendingScaleUp);
+        } else {
+            completeScaleUp(amount);
+        }
+    }
+
+    private void completeScaleUp(final int amount)
+    {
+        LOG.info("Service {} scaled up by {} instances", serviceRef, amount);
+        startBackoff();
+    }
+
+    private void scheduleScaleUpConfirmation(final ScaleUpConfirmation confirmation)
+    {
+        if (cancelled) {
+            return;
+        }
+        confirmation.attempt++;
+        final int delay = confirmation.attempt * SCALE_UP_CONFIRMATION_DELAY_SECONDS;
+        LOG.debug("Checking again in {} seconds to allow instances of service {} to come up.", delay, serviceRef);
+        confirmation.future = scheduler.schedule(() -> confirmScaleUp(confirmation), delay, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Check whether the instances requested by a scale up have come up. If they have not, another check is scheduled, until the
+     * number of checks is exhausted, at which point the Governor is asked to make room for the service and the checks start again.
+     */
+    private void confirmScaleUp(final ScaleUpConfirmation confirmation)
+    {
+        if (cancelled || pendingScaleUp != confirmation) {
+            return;
+        }
         try {
-            InstanceInfo refreshedInsanceInfo = scaler.getInstanceInfo(serviceRef);
-            while (refreshedInsanceInfo.getInstances() > refreshedInsanceInfo.getTotalRunningAndStageInstances()) {
-                boolean instanceMet = false;
-                for (int i = 1; i <= 6; i++) {
-                    final int sleep = i * 10 * 1000;
-                    LOG.debug("Sleeping for {} to allow instances to come up.", sleep);
-                    Thread.sleep(sleep);
-                    refreshedInsanceInfo = scaler.getInstanceInfo(serviceRef);
-                    if (refreshedInsanceInfo.getTotalRunningAndStageInstances() == refreshedInsanceInfo.getInstances()) {
-                        instanceMet = true;
-                        break;
-                    }
-                }
-                if (!instanceMet) {
-                    if (!governor.freeUpResourcesForService(serviceRef)) {
-                        throw new ScalerException(
-                            "Unable to scale service " + serviceRef + " due to an inability to make room for it on the orchestrator.");
-                    }
+            final InstanceInfo refreshedInstanceInfo = scaler.getInstanceInfo(serviceRef);
+            if (refreshedInstanceInfo.getTotalRunningAndStageInstances() == refreshedInstanceInfo.getInstances()) {
+                completeScaleUp(confirmation.amount);
+                pendingScaleUp = null;
+                return;
+            }
+            if (confirmation.attempt >= SCALE_UP_CONFIRMATION_CHECKS) {
+                final int instancesRequired = Math.max(1,
+                    refreshedInstanceInfo.getInstances() - refreshedInstanceInfo.getInstancesRunning());
+                if (!governor.freeUpResourcesForService(serviceRef, instancesRequired)) {
+                    LOG.error("Unable to scale service {} due to an inability to make room for it on the orchestrator.", serviceRef);
+                    metrics.getScaleUpFailedCounter().inc();
+                    pendingScaleUp = null;
+                    return;
                 }
+                confirmation.attempt = 0;
             }
-        } catch (final InterruptedException ex) {
-            // Set interupted flag
-            Thread.currentThread().interrupt();
-            // Throw exception to suppress further calls from current scaler thread until after scaler thread refresh
-            throw new ScalerException("An error occured during an attempt to have the main thread sleep before rechecking the number"
-                + " of instance present for the application.", ex);
+            scheduleScaleUpConfirmation(confirmation);
+        } catch (final ScalerException e) {
+            LOG.error("Failed to confirm scale up of service {}", serviceRef, e);
+            metrics.getScaleUpFailedCounter().inc();
+            pendingScaleUp = null;
+        } catch (final RuntimeException e) {
+            LOG.error("Unexpected error confirming scale up of service {}", serviceRef, e);
+            metrics.getScaleUpFailedCounter().inc();
+            pendingScaleUp = null;
         }
-        LOG.info("Service {} scaled up by {} instances", serviceRef, amount);
-        backoff = true;
+    }
+
+    /**
+     * Stop any outstanding scale up confirmation checks and remove the metrics of the service. Called when the service is no longer
+     * being scheduled.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        metrics.remove();
+        final ScaleUpConfirmation confirmation = pendingScaleUp;
+        if (confirmation != null && confirmation.future != null) {
+            confirmation.future.cancel(false);
+        }
+        pendingScaleUp = null;
     }
 
     /**
@@ -241,6 +705,7 @@ public class ScalerThread implements Runnable
         throws ScalerException
     {
         LOG.debug("Attempting scale down of service {} by {} instances", serviceRef, amount);
+        scaleCount.incrementAndGet();
         scaler.scaleDown(serviceRef, amount);
         lastOperation = ScalingOperation.SCALE_DOWN;
         try {
@@ -255,12 +720,18 @@ public class ScalerThread implements Runnable
         LOG.info("Service {} scaled down by {} instances.", serviceRef, amount);
         final InstanceInfo info = scaler.getInstanceInfo(serviceRef);
         governor.recordInstances(serviceRef, info);
-        backoff = true;
+        startBackoff();
     }
 
-    public void scaleDownNow() throws ScalerException
+    /**
+     * Scale the service down immediately, such as to make room for another service.
+     *
+     * @param amount the number of instances to scale down by
+     * @throws ScalerException if the scaling operation fails
+     */
+    public void scaleDownNow(final int amount) throws ScalerException
     {
-        scaleDown(1);
+        scaleDown(amount);
     }
 
     private boolean handleResourceLimitReached(
@@ -369,36 +840,96 @@ public class ScalerThread implements Runnable
         return new ResourceLimitStagesReached(memoryLimitStageReached, diskLimitStageReached);
     }
 
+    /**
+     * Start backing off after a scaling operation has completed. The backoff lasts for the number of intervals configured for the
+     * operation, measured from now, so the time the operation itself took does not shorten it.
+     */
+    private void startBackoff()
+    {
+        final int backoffLimit = getBackoffLimit();
+        if (backoffLimit <= 0) {
+            return;
+        }
+        // The run that would have been due one interval from now is the first to be skipped
+        final long backoffSeconds = (long) (backoffLimit + 1) * getInterval();
+        LOG.debug("Backing off service {} for {} intervals, next analysis run in {} seconds", serviceRef, backoffLimit, backoffSeconds);
+        backoffEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(backoffSeconds);
+        backoff = true;
+    }
+
+    private int getBackoffLimit()
+    {
+        switch (lastOperation) {
+            case SCALE_DOWN:
+                return scaleDownBackoffAmount == -1 ? backoffAmount : scaleDownBackoffAmount;
+            case SCALE_UP:
+                return scaleUpBackoffAmount == -1 ? backoffAmount : scaleUpBackoffAmount;
+            default:
+                return backoffAmount;
+        }
+    }
+
+    /**
+     * @return the number of nanoseconds until the backoff ends, which is 0 if the service is not backing off
+     */
+    private long getRemainingBackoff()
+    {
+        if (!backoff) {
+            return 0;
+        }
+        return Math.max(0, backoffEnd - System.nanoTime());
+    }
+
+    /**
+     * Determine whether a run should be skipped because the service is backing off. This only happens when the service has been run
+     * before the end of its backoff, such as by its batch; a run within half an interval of the end of the backoff is not skipped.
+     */
     private boolean isShouldBackoff()
     {
         if (!backoff) {
             return false;
         }
-        final int backoffLimit;
-        backoffCount++;
-        switch (lastOperation) {
-            case SCALE_DOWN: {
-                backoffLimit = scaleUpBackoffAmount == -1 ? backoffAmount : scaleDownBackoffAmount;
-                LOG.debug("Last Action was scale down, setting backoff amount to " + backoffLimit);
-                break;
-            }
-            case SCALE_UP: {
-                backoffLimit = scaleUpBackoffAmount == -1 ? backoffAmount : scaleUpBackoffAmount;
-                LOG.debug("Last Action was scale up, setting backoff amount to " + backoffLimit);
-                break;
-            }
-            default: {
-                backoffLimit = backoffAmount;
-                LOG.debug("Setting backoff amount to " + backoffLimit);
-                break;
-            }
+        if (getRemainingBackoff() > TimeUnit.SECONDS.toNanos(getInterval()) / 2) {
+            return true;
         }
+        backoff = false;
+        return false;
+    }
 
-        if (backoffCount > backoffLimit) {
-            backoff = false;
-            backoffCount = 0;
-            return false;
+    /**
+     * The state of a scale up that is waiting for its instances to come up.
+     */
+    private static final class ScaleUpConfirmation
+    {
+        private final int amount;
+        /**
+         * Updated by each check, which may run on a different thread of the executor to the last.
+         */
+        private volatile int attempt;
+        private volatile ScheduledFuture<?> future;
+
+        private ScaleUpConfirmation(final int amount)
+        {
+            this.amount = amount;
+            this.attempt = 0;
+        }
+    }
+
+    /**
+     * An analysis run that is cancelled if it does not complete within the deadline of the service.
+     */
+    private static final class AnalysisRun
+    {
+        private final Thread thread;
+        private final int deadline;
+        private volatile boolean timedOut;
+        private volatile ScheduledFuture<?> future;
+
+        private AnalysisRun(final Thread thread, final int deadline)
+        {
+            this.thread = thread;
+            this.deadline = deadline;
+            this.timedOut = false;
         }
-        return true;
     }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.autoscaler.api.ScalingAction;
+
+import java.util.Objects;
+
+
+/**
+ * The metrics recorded for the analysis runs of a single service, all named with the prefix ScalerThread.{serviceRef}:
+ * - resourceUtilisation, instanceInfo, analyseWorkload, govern and scale: timers for each phase of an analysis run
+ * - queueNotFound, scalerException and unexpectedError: counters for the runs that failed in each way
+ * - timedOut: a counter for the runs that were cancelled because they did not complete within the deadline of the service
+ * - scaleUpFailed: a counter for the scale ups that were abandoned because their instances did not come up
+ * - tickLatency: a histogram of the end to end duration of each analysis run in milliseconds
+ * - lastAction.operation and lastAction.amount: gauges for the action most recently decided upon by the Governor
+ */
+final class ScalerThreadMetrics
+{
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Timer resourceUtilisationTimer;
+    private final Timer instanceInfoTimer;
+    private final Timer analyseWorkloadTimer;
+    private final Timer governTimer;
+    private final Timer scaleTimer;
+    private final Counter queueNotFoundCounter;
+    private final Counter scalerExceptionCounter;
+    private final Counter unexpectedErrorCounter;
+    private final Counter timedOutCounter;
+    private final Counter scaleUpFailedCounter;
+    private final Histogram tickLatency;
+    private volatile ScalingAction lastAction = ScalingAction.NO_ACTION;
+
+
+    ScalerThreadMetrics(final MetricRegistry registry, final String serviceRef)
+    {
+        this.registry = Objects.requireNonNull(registry);
+        this.prefix = MetricRegistry.name(ScalerThread.class, serviceRef);
+        this.resourceUtilisationTimer = registry.timer(MetricRegistry.name(prefix, "resourceUtilisation"));
+        this.instanceInfoTimer = registry.timer(MetricRegistry.name(prefix, "instanceInfo"));
+        this.analyseWorkloadTimer = registry.timer(MetricRegistry.name(prefix, "analyseWorkload"));
+        this.governTimer = registry.timer(MetricRegistry.name(prefix, "govern"));
+        this.scaleTimer = registry.timer(MetricRegistry.name(prefix, "scale"));
+        this.queueNotFoundCounter = registry.counter(MetricRegistry.name(prefix, "queueNotFound"));
+        this.scalerExceptionCounter = registry.counter(MetricRegistry.name(prefix, "scalerException"));
+        this.unexpectedErrorCounter = registry.counter(MetricRegistry.name(prefix, "unexpectedError"));
+        this.timedOutCounter = registry.counter(MetricRegistry.name(prefix, "timedOut"));
+        this.scaleUpFailedCounter = registry.counter(MetricRegistry.name(prefix, "scaleUpFailed"));
+        this.tickLatency = registry.histogram(MetricRegistry.name(prefix, "tickLatency"));
+        registry.gauge(MetricRegistry.name(prefix, "lastAction", "operation"),
+                       () -> (Gauge<String>) () -> lastAction.getOperation().name());
+        registry.gauge(MetricRegistry.name(prefix, "lastAction", "amount"),
+                       () -> (Gauge<Integer>) () -> lastAction.getAmount());
+    }
+
+
+    Timer getResourceUtilisationTimer()
+    {
+        return resourceUtilisationTimer;
+    }
+
+
+    Timer getInstanceInfoTimer()
+    {
+        return instanceInfoTimer;
+    }
+
+
+    Timer getAnalyseWorkloadTimer()
+    {
+        return analyseWorkloadTimer;
+    }
+
+
+    Timer getGovernTimer()
+    {
+        return governTimer;
+    }
+
+
+    Timer getScaleTimer()
+    {
+        return scaleTimer;
+    }
+
+
+    Counter getQueueNotFoundCounter()
+    {
+        return queueNotFoundCounter;
+    }
+
+
+    Counter getScalerExceptionCounter()
+    {
+        return scalerExceptionCounter;
+    }
+
+
+    Counter getUnexpectedErrorCounter()
+    {
+        return unexpectedErrorCounter;
+    }
+
+
+    Counter getTimedOutCounter()
+    {
+        return timedOutCounter;
+    }
+
+
+    Counter getScaleUpFailedCounter()
+    {
+        return scaleUpFailedCounter;
+    }
+
+
+    Histogram getTickLatency()
+    {
+        return tickLatency;
+    }
+
+
+    void setLastAction(final ScalingAction action)
+    {
+        this.lastAction = Objects.requireNonNull(action);
+    }
+
+
+    /**
+     * Remove all of the metrics for the service from the registry, once it is no longer being scaled.
+     */
+    void remove()
+    {
+        registry.removeMatching((name, metric) -> name.startsWith(prefix + "."));
+    }
+}
@@ -22,17 +22,20 @@ import java.util.concurrent.ScheduledFuture;
 
 
 /**
- * Simple structure for associating a ScalingConfiguration with its scheduled scaling task.
+ * Simple structure for associating a ScalingConfiguration with its ScalerThread and scheduled scaling task.
  */
 public class ScheduledScalingService
 {
     private final ScalingConfiguration config;
+    private final ScalerThread scalerThread;
     private final ScheduledFuture<?> schedule;
 
 
-    public ScheduledScalingService(final ScalingConfiguration scalingConfiguration, final ScheduledFuture<?> scheduledFuture)
+    public ScheduledScalingService(final ScalingConfiguration scalingConfiguration, final ScalerThread scalerThread,
+                                   final ScheduledFuture<?> scheduledFuture)
     {
         this.config = Objects.requireNonNull(scalingConfiguration);
+        this.scalerThread = Objects.requireNonNull(scalerThread);
         this.schedule = Objects.requireNonNull(scheduledFuture);
     }
 
@@ -43,6 +46,12 @@ public class ScheduledScalingService
     }
 
 
+    public ScalerThread getScalerThread()
+    {
+        return scalerThread;
+    }
+
+
     public ScheduledFuture<?> getSchedule()
     {
         return schedule;
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+/**
+ * Determines when the scheduled analysis runs of each service start.
+ */
+public enum SchedulingMode
+{
+    /**
+     * Services start after an initial delay that increases by a second for each service, and then run at a fixed delay.
+     */
+    STAGGERED,
+    /**
+     * Services are run from a hashed timing wheel, which gives each service a phase within its interval derived from its id so
+     * that services are spread evenly across their interval, and every service first runs within one interval.
+     */
+    TIMING_WHEEL
+}
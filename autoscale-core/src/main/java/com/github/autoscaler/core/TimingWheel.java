@@ -0,0 +1,376 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+
+/**
+ * A hashed timing wheel that runs periodic tasks, such as the ScalerThread of each service, with their start times spread evenly
+ * across their interval rather than all starting together.
+ *
+ * Each task is given a phase within its interval that is derived from a hash of its key, so a service always runs at the same
+ * point in its interval, and services with the same interval are spread evenly over it instead of firing together. Every task
+ * first runs within one interval of being scheduled.
+ *
+ * The wheel advances one tick at a time on the supplied timer, and due tasks are handed to the executor to be run, so a tick is
+ * never held up behind the tasks themselves, and in the virtual execution mode they each run on their own virtual thread. A task is scheduled for its next slot
+ * once its current run has completed, so it never overlaps with itself; if a run overruns into its next slot then that slot is
+ * skipped and counted as a late run. A task that throws is not run again, matching ScheduledThreadPoolExecutor.
+ *
+ * The following metrics are recorded:
+ * - tickSkew: how many milliseconds after its expected time each tick of the wheel actually happened
+ * - lateRuns: the number of runs that started more than a tick after they were due, or that were skipped entirely because the
+ *   previous run of the same task was still in progress
+ */
+final class TimingWheel
+{
+    private static final long DEFAULT_TICK_MILLIS = 100;
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<WheelTimeout>[] buckets;
+    /**
+     * Timeouts waiting to be added to the buckets, which are only ever touched by the tick.
+     */
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Histogram tickSkew;
+    private final Counter lateRuns;
+    private volatile long startTime;
+    private volatile long currentTick;
+    private boolean started;
+    private ScheduledFuture<?> tickFuture;
+
+
+    /**
+     * @param timer the executor that the wheel ticks on, which should not be shared with long running tasks
+     * @param executor the executor that due tasks are run on
+     * @param metrics the registry to record the metrics of the wheel in
+     */
+    TimingWheel(final ScheduledExecutorService timer, final Executor executor, final MetricRegistry metrics)
+    {
+        this(timer, executor, metrics, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(final ScheduledExecutorService timer, final Executor executor, final MetricRegistry metrics, final long tickMillis,
+                final int wheelSize)
+    {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.timer = Objects.requireNonNull(timer);
+        this.executor = Objects.requireNonNull(executor);
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = wheelSize - 1;
+        this.buckets = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.tickSkew = metrics.histogram(MetricRegistry.name(TimingWheel.class, "tickSkew"));
+        this.lateRuns = metrics.counter(MetricRegistry.name(TimingWheel.class, "lateRuns"));
+    }
+
+
+    /**
+     * Schedule a task to be run periodically, at a point within its interval determined by its key.
+     * @param key identifies the task, such as the id of the service it scales, and determines its phase within the interval
+     * @param task the task to run
+     * @param interval the time between successive runs of the task
+     * @param unit the unit of the interval
+     * @return a future that can be used to cancel the task, and that completes if the task throws
+     */
+    ScheduledFuture<?> schedule(final String key, final Runnable task, final long interval, final TimeUnit unit)
+    {
+        return schedule(key, task, interval, unit, () -> 0);
+    }
+
+
+    /**
+     * Schedule a task to be run periodically, at a point within its interval determined by its key, passing over the slots that fall
+     * within a deferral requested by the task after each run.
+     * @param key identifies the task, such as the id of the service it scales, and determines its phase within the interval
+     * @param task the task to run
+     * @param interval the time between successive runs of the task
+     * @param unit the unit of the interval
+     * @param deferral supplies, after each run, the number of nanoseconds that the next run should be put off by
+     * @return a future that can be used to cancel the task, and that completes if the task throws
+     */
+    ScheduledFuture<?> schedule(final String key, final Runnable task, final long interval, final TimeUnit unit,
+                                final LongSupplier deferral)
+    {
+        final long intervalTicks = Math.max(1, unit.toNanos(interval) / tickNanos);
+        final WheelTimeout timeout = new WheelTimeout(key, task, intervalTicks, getPhase(key, intervalTicks), deferral);
+        start();
+        timeout.scheduleNext(currentTick + 1);
+        return timeout;
+    }
+
+
+    /**
+     * Stop the wheel. Scheduled tasks are no longer run, but a run that is already in progress is allowed to complete.
+     */
+    synchronized void stop()
+    {
+        if (tickFuture != null) {
+            tickFuture.cancel(false);
+            tickFuture = null;
+        }
+    }
+
+
+    /**
+     * Derive the phase of a task within its interval from its key, so that tasks with different keys are spread evenly across the
+     * interval and the same key always has the same phase.
+     * @param key the key of the task
+     * @param intervalTicks the number of ticks in the interval of the task
+     * @return the tick within the interval that the task should run on
+     */
+    static long getPhase(final String key, final long intervalTicks)
+    {
+        // String.hashCode is specified, so this is stable across restarts; mix it so that similar ids are spread apart
+        long hash = key.hashCode();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return Math.floorMod(hash, intervalTicks);
+    }
+
+
+    private synchronized void start()
+    {
+        if (!started) {
+            started = true;
+            startTime = System.nanoTime();
+            tickFuture = timer.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+
+    /**
+     * Advance the wheel by one tick and dispatch the tasks that are now due. Successive runs of a fixed rate task never overlap,
+     * so only one thread is ever working on the buckets.
+     */
+    private void tick()
+    {
+        final long tick = currentTick + 1;
+        tickSkew.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - (startTime + tick * tickNanos)));
+        currentTick = tick;
+
+        WheelTimeout pending;
+        while ((pending = pendingTimeouts.poll()) != null) {
+            if (pending.isDone()) {
+                continue;
+            }
+            if (pending.deadlineTick <= tick) {
+                // Missed while waiting to be added, so dispatch it straight away
+                pending.dispatch();
+            } else {
+                buckets[(int) (pending.deadlineTick & mask)].add(pending);
+            }
+        }
+
+        final Iterator<WheelTimeout> bucket = buckets[(int) (tick & mask)].iterator();
+        while (bucket.hasNext()) {
+            final WheelTimeout timeout = bucket.next();
+            if (timeout.isDone()) {
+                bucket.remove();
+            } else if (timeout.deadlineTick <= tick) {
+                bucket.remove();
+                timeout.dispatch();
+            }
+        }
+    }
+
+
+    private long getTickTime(final long tick)
+    {
+        return startTime + tick * tickNanos;
+    }
+
+
+    /**
+     * A periodic task on the wheel.
+     */
+    private final class WheelTimeout implements ScheduledFuture<Void>
+    {
+        private final String key;
+        private final Runnable task;
+        private final long intervalTicks;
+        private final long phase;
+        private final LongSupplier deferral;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private volatile long deadlineTick;
+        private volatile Thread runner;
+
+        private WheelTimeout(final String key, final Runnable task, final long intervalTicks, final long phase,
+                             final LongSupplier deferral)
+        {
+            this.key = Objects.requireNonNull(key);
+            this.task = Objects.requireNonNull(task);
+            this.intervalTicks = intervalTicks;
+            this.phase = phase;
+            this.deferral = Objects.requireNonNull(deferral);
+        }
+
+        /**
+         * Queue the task for the first slot in its phase at or after the specified tick.
+         */
+        private void scheduleNext(final long earliestTick)
+        {
+            if (result.isDone()) {
+                return;
+            }
+            deadlineTick = earliestTick + Math.floorMod(phase - earliestTick, intervalTicks);
+            pendingTimeouts.add(this);
+        }
+
+        private void dispatch()
+        {
+            try {
+                executor.execute(this::run);
+            } catch (final RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void run()
+        {
+            if (result.isDone()) {
+                return;
+            }
+            final long dueTick = deadlineTick;
+            if (System.nanoTime() - getTickTime(dueTick) > tickNanos) {
+                LOG.debug("Run of {} started late", key);
+                lateRuns.inc();
+            }
+            runner = Thread.currentThread();
+            try {
+                task.run();
+            } catch (final Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            } finally {
+                runner = null;
+            }
+            final long nextTick = dueTick + intervalTicks;
+            final long deferredTick = getDeferredTick();
+            if (deferredTick > nextTick) {
+                LOG.debug("Run of {} deferred until tick {}", key, deferredTick);
+                scheduleNext(deferredTick);
+            } else if (nextTick <= currentTick) {
+                LOG.debug("Run of {} overran its interval, skipping to its next slot", key);
+                lateRuns.inc();
+                scheduleNext(currentTick + 1);
+            } else {
+                scheduleNext(nextTick);
+            }
+        }
+
+        /**
+         * @return the first tick that is not within the deferral requested by the task, or 0 if it did not request one
+         */
+        private long getDeferredTick()
+        {
+            final long deferralNanos = deferral.getAsLong();
+            if (deferralNanos <= 0) {
+                return 0;
+            }
+            final long deferredTime = System.nanoTime() + deferralNanos - startTime;
+            return (deferredTime + tickNanos - 1) / tickNanos;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning)
+        {
+            final boolean cancelled = result.cancel(false);
+            final Thread currentRunner = runner;
+            if (mayInterruptIfRunning && currentRunner != null) {
+                currentRunner.interrupt();
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return result.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return result.isDone();
+        }
+
+        @Override
+        public Void get()
+            throws InterruptedException, ExecutionException
+        {
+            return result.get();
+        }
+
+        @Override
+        public Void get(final long timeout, final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return result.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit)
+        {
+            return unit.convert(getTickTime(deadlineTick) - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other)
+        {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
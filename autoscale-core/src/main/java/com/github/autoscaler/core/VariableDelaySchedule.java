@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+
+
+/**
+ * Runs a task repeatedly on a ScheduledExecutorService, with the delay before each run obtained once the previous run has completed,
+ * so that the period can change from one run to the next. The schedule stops if the task throws, as with scheduleWithFixedDelay.
+ */
+final class VariableDelaySchedule implements ScheduledFuture<Void>
+{
+    private final ScheduledExecutorService executor;
+    private final Runnable task;
+    private final IntSupplier nextDelay;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+    /**
+     * The scheduled next run of the task. Guarded by this.
+     */
+    private ScheduledFuture<?> next;
+
+
+    /**
+     * @param executor the executor to run the task on
+     * @param task the task to run
+     * @param nextDelay supplies the number of seconds to wait after a run before the next run
+     */
+    VariableDelaySchedule(final ScheduledExecutorService executor, final Runnable task, final IntSupplier nextDelay)
+    {
+        this.executor = Objects.requireNonNull(executor);
+        this.task = Objects.requireNonNull(task);
+        this.nextDelay = Objects.requireNonNull(nextDelay);
+    }
+
+
+    /**
+     * Start running the task.
+     * @param initialDelay the number of seconds before the first run
+     * @return this schedule
+     */
+    VariableDelaySchedule start(final int initialDelay)
+    {
+        scheduleNext(initialDelay);
+        return this;
+    }
+
+
+    private synchronized void scheduleNext(final int delay)
+    {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            next = executor.schedule(this::run, delay, TimeUnit.SECONDS);
+        } catch (final RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+
+    private void run()
+    {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            task.run();
+        } catch (final Throwable e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        scheduleNext(nextDelay.getAsInt());
+    }
+
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning)
+    {
+        final boolean cancelled = result.cancel(false);
+        final ScheduledFuture<?> scheduled;
+        synchronized (this) {
+            scheduled = next;
+        }
+        if (scheduled != null) {
+            scheduled.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+    }
+
+
+    @Override
+    public boolean isCancelled()
+    {
+        return result.isCancelled();
+    }
+
+
+    @Override
+    public boolean isDone()
+    {
+        return result.isDone();
+    }
+
+
+    @Override
+    public Void get()
+        throws InterruptedException, ExecutionException
+    {
+        return result.get();
+    }
+
+
+    @Override
+    public Void get(final long timeout, final TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        return result.get(timeout, unit);
+    }
+
+
+    @Override
+    public long getDelay(final TimeUnit unit)
+    {
+        final ScheduledFuture<?> scheduled;
+        synchronized (this) {
+            scheduled = next;
+        }
+        return scheduled == null ? 0 : scheduled.getDelay(unit);
+    }
+
+
+    @Override
+    public int compareTo(final Delayed other)
+    {
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.github.autoscaler.api.ScalingConfiguration;
+
+/**
+ * A Governor that shares contended capacity between services in proportion to their weight and their workload.
+ *
+ * Each service declares a weight with the autoscale.weight label, which defaults to 1. When room has to be made for a service,
+ * instances are taken from the services with the lowest relative difference multiplied by their weight, until that is equal to the
+ * weighted relative difference of the service that needs room. As the relative difference of a service is the number of instances
+ * its workload calls for over the number it has, this evens out the number of instances each service has in proportion to its weight
+ * times the number of instances its workload calls for. A service with twice the weight of another keeps twice the share of the
+ * capacity for the same workload when the platform is saturated.
+ */
+public class WeightedFairShareGovernor extends GovernorImpl
+{
+    public WeightedFairShareGovernor(final int stageOneLimit, final int stageTwoLimit, final int stageThreeLimit,
+                                     final double reduceToPercentage)
+    {
+        super(stageOneLimit, stageTwoLimit, stageThreeLimit, reduceToPercentage);
+    }
+
+    @Override
+    protected double getWeight(final ScalingConfiguration scalingConfiguration)
+    {
+        return scalingConfiguration.getWeight();
+    }
+}
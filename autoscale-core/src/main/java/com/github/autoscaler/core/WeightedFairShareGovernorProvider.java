@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.hpe.caf.api.ConfigurationSource;
+
+/**
+ * Provides the WeightedFairShareGovernor.
+ */
+public final class WeightedFairShareGovernorProvider implements GovernorProvider
+{
+    static final String NAME = "weightedfairshare";
+
+    @Override
+    public Governor getGovernor(final ConfigurationSource configurationSource, final GovernorConfiguration governorConfig,
+                                final ResourceMonitoringConfiguration resourceConfig)
+    {
+        return new WeightedFairShareGovernor(resourceConfig.getResourceLimitOneShutdownThreshold(),
+                                             resourceConfig.getResourceLimitTwoShutdownThreshold(),
+                                             resourceConfig.getResourceLimitThreeShutdownThreshold(),
+                                             governorConfig.getReduceToPercentage());
+    }
+
+    @Override
+    public String getGovernorName()
+    {
+        return NAME;
+    }
+}
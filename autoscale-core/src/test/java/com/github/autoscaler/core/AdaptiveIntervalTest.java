@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+
+public class AdaptiveIntervalTest
+{
+    @Test
+    public void testInitialIntervalWithinLimits()
+    {
+        assertEquals(5, new AdaptiveInterval(1, 5, 300).getInterval());
+        assertEquals(300, new AdaptiveInterval(600, 5, 300).getInterval());
+        assertEquals(10, new AdaptiveInterval(10, 5, 300).getInterval());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveInterval(10, 0, 300));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveInterval(10, 30, 20));
+    }
+
+
+    /**
+     * Ensure that the interval grows gradually towards the maximum while the workload is stable, and never exceeds it.
+     */
+    @Test
+    public void testIntervalGrowsWhileStable()
+    {
+        final AdaptiveInterval interval = new AdaptiveInterval(10, 5, 300);
+        int previous = interval.getInterval();
+        for (int i = 0; i < 5; i++) {
+            interval.update(0.0);
+            assertTrue(interval.getInterval() > previous);
+            assertTrue(interval.getInterval() < previous * 2);
+            previous = interval.getInterval();
+        }
+        for (int i = 0; i < 100; i++) {
+            interval.update(AdaptiveInterval.STABLE_VOLATILITY);
+        }
+        assertEquals(300, interval.getInterval());
+    }
+
+
+    /**
+     * Ensure that a burst brings the interval straight down to the minimum, and that smaller changes shrink it in proportion.
+     */
+    @Test
+    public void testIntervalShrinksWithVolatility()
+    {
+        final AdaptiveInterval interval = new AdaptiveInterval(300, 5, 300);
+        interval.update(0.5);
+        assertEquals(150, interval.getInterval());
+        interval.update(0.2);
+        assertEquals(120, interval.getInterval());
+        interval.update(1.0);
+        assertEquals(5, interval.getInterval());
+        interval.update(Double.NaN);
+        assertEquals(6, interval.getInterval());
+    }
+}
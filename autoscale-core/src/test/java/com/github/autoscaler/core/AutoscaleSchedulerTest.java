@@ -16,7 +16,12 @@
 package com.github.autoscaler.core;
 
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.autoscaler.api.AlertDispatcher;
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ResourceUtilisation;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
 import com.github.autoscaler.api.ScalingConfiguration;
 import com.github.autoscaler.api.ServiceScaler;
 import com.github.autoscaler.api.WorkloadAnalyser;
@@ -25,16 +30,23 @@ import com.hpe.caf.api.HealthResult;
 import com.hpe.caf.api.HealthStatus;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 
 public class AutoscaleSchedulerTest
@@ -66,7 +78,7 @@ public class AutoscaleSchedulerTest
         Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
         assertTrue(ret.containsKey(APP_ID_A));
         assertTrue(ret.containsKey(APP_ID_B));
-        Mockito.verify(scheduler, Mockito.times(2)).scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+        Mockito.verify(scheduler, Mockito.times(2)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
     }
 
 
@@ -96,12 +108,13 @@ public class AutoscaleSchedulerTest
         autoscale.updateServices(out2);
         assertTrue(ret.containsKey(APP_ID_A));
         assertFalse(ret.containsKey(APP_ID_B));
-        Mockito.verify(scheduler, Mockito.times(2)).scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+        Mockito.verify(scheduler, Mockito.times(2)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
     }
 
 
     /**
-     * Ensure that services with the same id but that are not a matching object get updated.
+     * Ensure that services with the same id but that are not a matching object get updated, keeping their ScalerThread and
+     * schedule when only their scaling parameters have changed.
      */
     @Test
     public void testUpdateServices()
@@ -122,6 +135,7 @@ public class AutoscaleSchedulerTest
         assertTrue(ret.containsKey(APP_ID_B));
         assertEquals(getConfigA(), ret.get(APP_ID_A).getConfig());
         assertEquals(getConfigB(), ret.get(APP_ID_B).getConfig());
+        ScalerThread scalerThreadB = ret.get(APP_ID_B).getScalerThread();
         Set<ScalingConfiguration> out2 = new HashSet<>();
         out2.add(getConfigA());
         out2.add(getConfigC());
@@ -131,7 +145,228 @@ public class AutoscaleSchedulerTest
         assertTrue(ret.containsKey(APP_ID_B));
         assertEquals(getConfigA(), ret.get(APP_ID_A).getConfig());
         assertEquals(getConfigC(), ret.get(APP_ID_B).getConfig());
-        Mockito.verify(scheduler, Mockito.times(3)).scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+        assertSame(scalerThreadB, ret.get(APP_ID_B).getScalerThread());
+        Mockito.verify(scheduler, Mockito.times(2)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
+    }
+
+
+    /**
+     * Ensure that a service whose scaling target changes gets a new ScalerThread.
+     */
+    @Test
+    public void testUpdateServicesWithNewScalingTarget()
+    {
+        Map<String, WorkloadAnalyserFactory> factories = getTestFactories();
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = getTestScheduler();
+        Set<ScalingConfiguration> out = new HashSet<>();
+        out.add(getConfigA());
+        out.add(getConfigB());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                          new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration());
+        autoscale.updateServices(out);
+        Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
+        ScalerThread scalerThreadB = ret.get(APP_ID_B).getScalerThread();
+        ScalingConfiguration configD = getConfigB();
+        configD.setScalingTarget("otherQueue");
+        Set<ScalingConfiguration> out2 = new HashSet<>();
+        out2.add(getConfigA());
+        out2.add(configD);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out2);
+        autoscale.updateServices(out2);
+        assertEquals(configD, ret.get(APP_ID_B).getConfig());
+        assertNotSame(scalerThreadB, ret.get(APP_ID_B).getScalerThread());
+        Mockito.verify(scheduler, Mockito.times(3)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
+    }
+
+
+    /**
+     * Ensure that a service whose interval changes is rescheduled without being staggered again, and that a change of scaling
+     * profile is passed to the WorkloadAnalyserFactory rather than creating a new analyser.
+     */
+    @Test
+    public void testUpdateServicesWithNewIntervalAndProfile()
+    {
+        Map<String, WorkloadAnalyserFactory> factories = getTestFactories();
+        WorkloadAnalyserFactory factory = factories.get(FACTORY_A);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = getTestScheduler();
+        Set<ScalingConfiguration> out = new HashSet<>();
+        out.add(getConfigA());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                          new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration());
+        autoscale.updateServices(out);
+        Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
+        ScheduledScalingService serviceA = ret.get(APP_ID_A);
+        WorkloadAnalyser analyser = serviceA.getScalerThread().getAnalyser();
+        Mockito.when(factory.reconfigureAnalyser(analyser, null, "profile")).thenReturn(analyser);
+        ScalingConfiguration configE = getConfigA();
+        configE.setInterval(30);
+        configE.setScalingProfile("profile");
+        Set<ScalingConfiguration> out2 = new HashSet<>();
+        out2.add(configE);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out2);
+        Mockito.clearInvocations(scheduler);
+        autoscale.updateServices(out2);
+        assertSame(serviceA.getScalerThread(), ret.get(APP_ID_A).getScalerThread());
+        Mockito.verify(factory, Mockito.times(1)).getAnalyser(Mockito.any(), Mockito.any());
+        Mockito.verify(factory).reconfigureAnalyser(analyser, null, "profile");
+        assertTrue(serviceA.getSchedule().isCancelled());
+        Mockito.verify(scheduler).schedule(Mockito.any(Runnable.class), Mockito.eq(30L), Mockito.eq(TimeUnit.SECONDS));
+    }
+
+
+    /**
+     * Ensure that in batched mode services sharing a workload metric and interval are scheduled together, that each run prepares
+     * the WorkloadAnalyserFactory before submitting every service to the executor, and that the batch is only cancelled with its
+     * last service.
+     */
+    @Test
+    public void testBatchedServices()
+        throws ScalerException
+    {
+        Map<String, WorkloadAnalyserFactory> factories = new HashMap<>();
+        WorkloadAnalyserFactory factory = Mockito.mock(WorkloadAnalyserFactory.class);
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(0.0, Optional.empty()));
+        Mockito.when(analyser.analyseWorkload(Mockito.any())).thenReturn(ScalingAction.NO_ACTION);
+        Mockito.when(factory.getAnalyser(Mockito.any(), Mockito.any())).thenReturn(analyser);
+        factories.put(FACTORY_A, factory);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        Mockito.when(scaler.getInstanceInfo(Mockito.anyString())).thenReturn(new InstanceInfo(1, 0, Collections.emptyList()));
+        ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+        ScheduledFuture future = Mockito.mock(ScheduledFuture.class);
+        ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.when(scheduler.scheduleWithFixedDelay(batch.capture(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any()))
+            .thenReturn(future);
+        Set<ScalingConfiguration> out = new HashSet<>();
+        out.add(getConfigA());
+        out.add(getConfigB());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                          new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration(), true);
+        autoscale.updateServices(out);
+        Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
+        assertTrue(ret.containsKey(APP_ID_A));
+        assertTrue(ret.containsKey(APP_ID_B));
+        Mockito.verify(scheduler, Mockito.times(1)).scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+
+        batch.getValue().run();
+        Mockito.verify(factory, Mockito.times(1)).prepareBatchAnalysis();
+        Mockito.verify(analyser, Mockito.never()).getCurrentResourceUtilisation();
+        ArgumentCaptor<Runnable> analyses = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler, Mockito.times(2)).execute(analyses.capture());
+        analyses.getAllValues().forEach(Runnable::run);
+        Mockito.verify(analyser, Mockito.times(2)).getCurrentResourceUtilisation();
+
+        Set<ScalingConfiguration> out2 = new HashSet<>();
+        out2.add(getConfigA());
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out2);
+        autoscale.updateServices(out2);
+        assertFalse(ret.containsKey(APP_ID_B));
+        Mockito.verify(future, Mockito.never()).cancel(Mockito.anyBoolean());
+
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(new HashSet<>());
+        autoscale.updateServices(new HashSet<>());
+        assertFalse(ret.containsKey(APP_ID_A));
+        Mockito.verify(future, Mockito.times(1)).cancel(true);
+    }
+
+
+    /**
+     * Ensure that a service whose batched analysis fails with an Error is not analysed again, and is reported by the health check.
+     */
+    @Test
+    public void testBatchedAnalysisFailure()
+        throws ScalerException
+    {
+        Map<String, WorkloadAnalyserFactory> factories = new HashMap<>();
+        WorkloadAnalyserFactory factory = Mockito.mock(WorkloadAnalyserFactory.class);
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenThrow(new AssertionError("analysis failure"));
+        Mockito.when(factory.getAnalyser(Mockito.any(), Mockito.any())).thenReturn(analyser);
+        factories.put(FACTORY_A, factory);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+        ScheduledFuture future = Mockito.mock(ScheduledFuture.class);
+        ArgumentCaptor<Runnable> batch = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.when(scheduler.scheduleWithFixedDelay(batch.capture(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any()))
+            .thenReturn(future);
+        Set<ScalingConfiguration> out = new HashSet<>();
+        out.add(getConfigA());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                          new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration(), true);
+        autoscale.updateServices(out);
+        assertEquals(HealthStatus.HEALTHY, autoscale.healthCheck().getStatus());
+
+        batch.getValue().run();
+        ArgumentCaptor<Runnable> analysis = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler, Mockito.times(1)).execute(analysis.capture());
+        analysis.getValue().run();
+        assertEquals(HealthStatus.UNHEALTHY, autoscale.healthCheck().getStatus());
+
+        batch.getValue().run();
+        Mockito.verify(scheduler, Mockito.times(1)).execute(Mockito.any());
+    }
+
+
+    /**
+     * Ensure that with the timing wheel scheduling mode services are run from the wheel, which ticks on its own timer, rather than
+     * each being scheduled with the executor.
+     */
+    @Test
+    public void testTimingWheelServices()
+    {
+        Map<String, WorkloadAnalyserFactory> factories = getTestFactories();
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = getTestScheduler();
+        Set<ScalingConfiguration> out = new HashSet<>();
+        out.add(getConfigA());
+        out.add(getConfigB());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                          new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration(), false,
+                                          SchedulingMode.TIMING_WHEEL, new MetricRegistry());
+        autoscale.updateServices(out);
+        Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
+        assertTrue(ret.containsKey(APP_ID_A));
+        assertTrue(ret.containsKey(APP_ID_B));
+        // The wheel ticks on the timer of the scheduler, so nothing is scheduled with the executor
+        Mockito.verify(scheduler, Mockito.never()).scheduleAtFixedRate(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+        Mockito.verify(scheduler, Mockito.never()).scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any());
+        assertEquals(HealthStatus.HEALTHY, autoscale.healthCheck().getStatus());
+        autoscale.shutdown();
+    }
+
+
+    @Test
+    public void testAdaptiveIntervalServices()
+    {
+        Map<String, WorkloadAnalyserFactory> factories = getTestFactories();
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = getTestScheduler();
+        Set<ScalingConfiguration> out = new HashSet<>();
+        ScalingConfiguration adaptive = getConfigA();
+        adaptive.setMinInterval(5);
+        adaptive.setMaxInterval(300);
+        out.add(adaptive);
+        out.add(getConfigB());
+        ServiceValidator validator = Mockito.mock(ServiceValidator.class);
+        Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(out);
+        AutoscaleScheduler autoscale = new AutoscaleScheduler(factories, scaler, scheduler, validator, dispatchers,
+                                                              new ResourceMonitoringConfiguration(), new AlertDispatchConfiguration());
+        autoscale.updateServices(out);
+        Map<String, ScheduledScalingService> ret = autoscale.getScheduledServices();
+        assertEquals(10, ret.get(APP_ID_A).getScalerThread().getNextDelay());
+        Mockito.verify(scheduler, Mockito.times(2)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
     }
 
 
@@ -183,11 +418,9 @@ public class AutoscaleSchedulerTest
         Mockito.when(validator.getValidatedServices(Mockito.any())).thenReturn(services);
 
         final ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
-        final ScheduledFuture schedulerFuture = Mockito.mock(ScheduledFuture.class);
-        Mockito.when(schedulerFuture.isDone()).thenReturn(true);
-        Mockito.when(scheduler.scheduleWithFixedDelay(
-            Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any()
-        )).thenReturn(schedulerFuture);
+        Mockito.when(scheduler.schedule(
+            Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any()
+        )).thenThrow(new RejectedExecutionException());
 
         final AutoscaleScheduler autoscaleScheduler = new AutoscaleScheduler(
             getTestFactories(),
@@ -220,6 +453,7 @@ public class AutoscaleSchedulerTest
         ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
         ScheduledFuture future = Mockito.mock(ScheduledFuture.class);
         Mockito.when(scheduler.scheduleWithFixedDelay(Mockito.any(), Mockito.anyLong(), Mockito.anyLong(), Mockito.any())).thenReturn(future);
+        Mockito.when(scheduler.schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any())).thenReturn(future);
         return scheduler;
     }
 
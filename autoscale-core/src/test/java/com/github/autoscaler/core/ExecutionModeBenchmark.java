@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ResourceUtilisation;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingConfiguration;
+import com.github.autoscaler.api.ServiceScaler;
+import com.github.autoscaler.api.WorkloadAnalyser;
+import com.hpe.caf.api.HealthResult;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the platform and virtual execution modes with thousands of services whose workload analyser and scaler are slow stubs.
+ * The benchmark is not run as part of the normal build; run it with:
+ * <pre>
+ * mvn -pl autoscale-core test -Dtest=ExecutionModeBenchmark -Dbenchmark.services=2000 -Dbenchmark.latency=100
+ * </pre>
+ * For each mode it reports how many of the analysis runs that were due in the measurement window actually completed.
+ */
+public class ExecutionModeBenchmark
+{
+    private static final int SERVICES = Integer.getInteger("benchmark.services", 2000);
+    private static final long BACKEND_LATENCY_MS = Long.getLong("benchmark.latency", 100);
+    private static final int DURATION_SECONDS = Integer.getInteger("benchmark.duration", 20);
+    private static final int INTERVAL_SECONDS = 1;
+    private static final int EXECUTOR_THREADS = 20;
+
+    @Test
+    public void platformMode()
+        throws Exception
+    {
+        runBenchmark(ExecutionMode.PLATFORM);
+    }
+
+    @Test
+    public void virtualMode()
+        throws Exception
+    {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21 or later");
+        runBenchmark(ExecutionMode.VIRTUAL);
+    }
+
+    private static void runBenchmark(final ExecutionMode mode)
+        throws Exception
+    {
+        final AtomicLong completedRuns = new AtomicLong();
+        final ScheduledExecutorService scheduler = AutoscaleApplication.getScheduledExecutorService(mode, EXECUTOR_THREADS);
+        final Governor governor = new PassThroughGovernor();
+        final ServiceScaler scaler = new SlowServiceScaler();
+        try {
+            for (int i = 0; i < SERVICES; i++) {
+                final ScalerThread thread = new ScalerThread(governor, scheduler, new SlowWorkloadAnalyser(completedRuns), scaler,
+                    "service-" + i, 0, 5, 0, new Alerter(new HashMap<>(), new AlertDispatchConfiguration()),
+                    new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
+                // Spread the first runs over the first interval
+                final long initialDelay = TimeUnit.SECONDS.toMillis(INTERVAL_SECONDS) * i / SERVICES;
+                scheduler.scheduleWithFixedDelay(thread, initialDelay, TimeUnit.SECONDS.toMillis(INTERVAL_SECONDS),
+                                                 TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+        final long expectedRuns = (long) SERVICES * DURATION_SECONDS / INTERVAL_SECONDS;
+        System.out.printf("%s mode: %d services, %dms back end latency, %d of %d due analysis runs completed in %ds (%.1f%%)%n",
+                          mode, SERVICES, BACKEND_LATENCY_MS, completedRuns.get(), expectedRuns, DURATION_SECONDS,
+                          100.0 * completedRuns.get() / expectedRuns);
+    }
+
+    private static void simulateLatency()
+    {
+        try {
+            Thread.sleep(BACKEND_LATENCY_MS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class SlowWorkloadAnalyser implements WorkloadAnalyser
+    {
+        private final AtomicLong completedRuns;
+
+        SlowWorkloadAnalyser(final AtomicLong completedRuns)
+        {
+            this.completedRuns = completedRuns;
+        }
+
+        @Override
+        public ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
+        {
+            simulateLatency();
+            completedRuns.incrementAndGet();
+            return ScalingAction.NO_ACTION;
+        }
+
+        @Override
+        public ResourceUtilisation getCurrentResourceUtilisation()
+        {
+            simulateLatency();
+            return new ResourceUtilisation(0.0, Optional.empty());
+        }
+
+        @Override
+        public String getMemoryOverloadWarning(final String percentageMem)
+        {
+            return "";
+        }
+
+        @Override
+        public String getDiskSpaceLowWarning(final String diskFreeMb)
+        {
+            return "";
+        }
+    }
+
+    private static final class SlowServiceScaler implements ServiceScaler
+    {
+        @Override
+        public void scaleUp(final String service, final int amount)
+        {
+            simulateLatency();
+        }
+
+        @Override
+        public void scaleDown(final String service, final int amount)
+        {
+            simulateLatency();
+        }
+
+        @Override
+        public InstanceInfo getInstanceInfo(final String service)
+        {
+            simulateLatency();
+            return new InstanceInfo(1, 0, Collections.emptyList());
+        }
+
+        @Override
+        public HealthResult healthCheck()
+        {
+            return HealthResult.RESULT_HEALTHY;
+        }
+    }
+
+    private static final class PassThroughGovernor implements Governor
+    {
+        @Override
+        public void recordInstances(final String serviceRef, final InstanceInfo instanceInfo)
+        {
+        }
+
+        @Override
+        public ScalingAction govern(final String serviceRef, final ScalingAction action,
+                                    final ResourceLimitStagesReached resourceLimitStagesReached)
+        {
+            return action;
+        }
+
+        @Override
+        public boolean freeUpResourcesForService(final String serviceRef, final int instancesRequired)
+        {
+            return false;
+        }
+
+        @Override
+        public void register(final ScalingConfiguration scalingConfiguration)
+        {
+        }
+
+        @Override
+        public void registerListener(final String serviceRef, final ScalerThread thread)
+        {
+        }
+
+        @Override
+        public void remove(final String serviceRef)
+        {
+        }
+    }
+}
@@ -23,7 +23,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class GovernorImplTest {
 
@@ -492,4 +502,143 @@ public class GovernorImplTest {
         assertEquals(2, governedAction.getAmount());
         assertEquals(SCALE_UP, governedAction.getOperation().toString());
     }
+
+    /**
+     * Test that the number of services below their minimum follows the recorded instances and configuration
+     */
+    @Test
+    public void testServicesBelowMinimum() {
+        final GovernorImpl governor = new GovernorImpl(1, 3, 5);
+        final ScalingConfiguration scalingConfiguration = new ScalingConfiguration();
+        scalingConfiguration.setId("service1");
+        scalingConfiguration.setMaxInstances(10);
+        scalingConfiguration.setMinInstances(3);
+        governor.register(scalingConfiguration);
+        assertEquals(0, governor.getServicesBelowMinimum());
+
+        governor.recordInstances("service1", new InstanceInfo(1, 0, Collections.emptyList()));
+        assertEquals(1, governor.getServicesBelowMinimum());
+
+        governor.recordInstances("service1", new InstanceInfo(2, 1, Collections.emptyList()));
+        assertEquals(0, governor.getServicesBelowMinimum());
+
+        governor.recordInstances("service1", new InstanceInfo(0, 0, Collections.emptyList()));
+        assertEquals(1, governor.getServicesBelowMinimum());
+        governor.remove("service1");
+        assertEquals(0, governor.getServicesBelowMinimum());
+    }
+
+    /**
+     * Test that the governor stays consistent when instances are recorded and actions governed for many services on many threads
+     */
+    @Test
+    public void testConcurrentRecordAndGovern() throws Exception {
+        final GovernorImpl governor = new GovernorImpl(1, 3, 5);
+        final int writers = 4;
+        final int servicesPerWriter = 25;
+        final int iterations = 2000;
+        final int minInstances = 3;
+        for (int i = 0; i < writers * servicesPerWriter; i++) {
+            final ScalingConfiguration scalingConfiguration = new ScalingConfiguration();
+            scalingConfiguration.setId("service" + i);
+            scalingConfiguration.setMaxInstances(10);
+            scalingConfiguration.setMinInstances(minInstances);
+            governor.register(scalingConfiguration);
+        }
+
+        // Each service is recorded by one writer, and every service is governed by every governing thread
+        final int[] lastRecorded = new int[writers * servicesPerWriter];
+        final ExecutorService executor = Executors.newFixedThreadPool(writers * 2);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            futures.add(executor.submit(() -> {
+                final Random random = new Random(writer);
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    final int service = writer * servicesPerWriter + random.nextInt(servicesPerWriter);
+                    final int instances = random.nextInt(2 * minInstances);
+                    governor.recordInstances("service" + service, new InstanceInfo(instances, 0, Collections.emptyList()));
+                    lastRecorded[service] = instances;
+                }
+                return null;
+            }));
+            futures.add(executor.submit(() -> {
+                final Random random = new Random(-writer);
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    final String service = "service" + random.nextInt(writers * servicesPerWriter);
+                    governor.govern(service, new ScalingAction(ScalingOperation.SCALE_UP, 1 + random.nextInt(3)),
+                                    new ResourceLimitStagesReached(ResourceLimitStage.NO_STAGE, ResourceLimitStage.NO_STAGE));
+                    governor.freeUpResourcesForService(service, 1 + random.nextInt(3));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (final Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // No recorded instances may have been overwritten by a concurrent govern, and the count must match them
+        int expectedBelowMinimum = 0;
+        for (int i = 0; i < lastRecorded.length; i++) {
+            if (lastRecorded[i] < minInstances) {
+                expectedBelowMinimum++;
+            }
+            final ScalingAction governedAction = governor.govern("service" + i, ScalingAction.NO_ACTION,
+                new ResourceLimitStagesReached(ResourceLimitStage.NO_STAGE, ResourceLimitStage.NO_STAGE));
+            assertEquals(Math.max(0, minInstances - lastRecorded[i]), governedAction.getAmount());
+        }
+        assertEquals(expectedBelowMinimum, governor.getServicesBelowMinimum());
+    }
+
+    /**
+     * Test that room is made for several instances at once by taking instances from the candidates with the lowest relative
+     * difference first, without scaling any candidate below its minimum instances
+     */
+    @Test
+    public void testPreemptionPlanSpansCandidates() {
+        final List<GovernorImpl.PreemptionCandidate> candidates = Arrays.asList(
+            new GovernorImpl.PreemptionCandidate("idle", 0, 3, 1),
+            new GovernorImpl.PreemptionCandidate("quiet", 2, 4, 0),
+            new GovernorImpl.PreemptionCandidate("busy", 8, 4, 0));
+
+        final Map<String, Integer> plan = GovernorImpl.planPreemption(candidates, 2.0, 5);
+
+        // idle can give up 2 before reaching its minimum, quiet can give up 3 before its relative difference reaches 2.0
+        assertEquals(Arrays.asList("idle", "quiet"), new ArrayList<>(plan.keySet()));
+        assertEquals(2, (int) plan.get("idle"));
+        assertEquals(3, (int) plan.get("quiet"));
+    }
+
+    /**
+     * Test that no more instances are taken than are required
+     */
+    @Test
+    public void testPreemptionPlanStopsWhenRoomIsMade() {
+        final List<GovernorImpl.PreemptionCandidate> candidates = Arrays.asList(
+            new GovernorImpl.PreemptionCandidate("service1", 1, 10, 0),
+            new GovernorImpl.PreemptionCandidate("service2", 1, 10, 0));
+
+        final Map<String, Integer> plan = GovernorImpl.planPreemption(candidates, 3.0, 3);
+
+        assertEquals(3, plan.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2, (int) plan.get("service1"));
+        assertEquals(1, (int) plan.get("service2"));
+    }
+
+    /**
+     * Test that nothing is taken from candidates at their minimum or with a relative difference at least that of the service
+     */
+    @Test
+    public void testPreemptionPlanWithoutCandidates() {
+        final List<GovernorImpl.PreemptionCandidate> candidates = Arrays.asList(
+            new GovernorImpl.PreemptionCandidate("atMinimum", 0, 2, 2),
+            new GovernorImpl.PreemptionCandidate("needy", 6, 3, 0));
+
+        assertTrue(GovernorImpl.planPreemption(candidates, 2.0, 4).isEmpty());
+    }
 }
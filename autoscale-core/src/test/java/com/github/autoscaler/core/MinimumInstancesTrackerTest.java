@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class MinimumInstancesTrackerTest
+{
+    @Test
+    public void testUnrecordedServiceHasNotMetMinimum()
+    {
+        final MinimumInstancesTracker tracker = new MinimumInstancesTracker(1, 3, 5);
+        tracker.update("service1", false, false, -1);
+        tracker.update("service2", true, false, -1);
+
+        assertFalse(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.NO_STAGE));
+        assertTrue(tracker.isMinimumMetByOthers("service1", ResourceLimitStage.NO_STAGE));
+        assertEquals(0, tracker.getBelowMinimumCount());
+
+        tracker.update("service1", true, false, -1);
+        assertTrue(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.NO_STAGE));
+    }
+
+    @Test
+    public void testBelowMinimumExemptAtStage()
+    {
+        final MinimumInstancesTracker tracker = new MinimumInstancesTracker(1, 3, 5);
+        tracker.update("service1", true, true, 2);
+        tracker.update("service2", true, false, -1);
+        assertEquals(1, tracker.getBelowMinimumCount());
+
+        // a service with shutdown priority 2 is only scaled down from stage 2 onwards
+        assertFalse(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.NO_STAGE));
+        assertFalse(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.STAGE_1));
+        assertTrue(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.STAGE_2));
+        assertTrue(tracker.isMinimumMetByOthers("service2", ResourceLimitStage.STAGE_3));
+        // the service itself is never counted
+        assertTrue(tracker.isMinimumMetByOthers("service1", ResourceLimitStage.NO_STAGE));
+    }
+
+    @Test
+    public void testUpdateAndRemove()
+    {
+        final MinimumInstancesTracker tracker = new MinimumInstancesTracker(1, 3, 5);
+        tracker.update("service1", true, true, -1);
+        tracker.update("service2", true, true, -1);
+        assertEquals(2, tracker.getBelowMinimumCount());
+        assertFalse(tracker.isMinimumMetByOthers("service3", ResourceLimitStage.STAGE_3));
+
+        tracker.update("service1", true, false, -1);
+        assertEquals(1, tracker.getBelowMinimumCount());
+        tracker.remove("service2");
+        assertEquals(0, tracker.getBelowMinimumCount());
+        assertTrue(tracker.isMinimumMetByOthers("service3", ResourceLimitStage.STAGE_3));
+        // removing an unknown service has no effect
+        tracker.remove("service2");
+        assertEquals(0, tracker.getBelowMinimumCount());
+    }
+}
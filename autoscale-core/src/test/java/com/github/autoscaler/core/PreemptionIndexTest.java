@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class PreemptionIndexTest
+{
+    @Test
+    public void testUpdateMovesService()
+    {
+        final PreemptionIndex index = new PreemptionIndex();
+        index.update("service1", 0.8, true);
+        index.update("service2", 0.5, true);
+
+        index.update("service2", 1.5, true);
+        assertEquals(Arrays.asList("service1", "service2"), index.getCandidates(3.0));
+        assertEquals(2, index.size());
+
+        // a service at its minimum instances is no longer a candidate
+        index.update("service1", 0.8, false);
+        assertEquals(Collections.singletonList("service2"), index.getCandidates(3.0));
+        assertEquals(1, index.size());
+
+        index.remove("service2");
+        assertTrue(index.getCandidates(3.0).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testServicesWithEqualRelativeDifference()
+    {
+        final PreemptionIndex index = new PreemptionIndex();
+        index.update("service2", 0.5, true);
+        index.update("service1", 0.5, true);
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("service1", "service2"), index.getCandidates(1.0));
+
+        index.remove("service1");
+        assertEquals(Collections.singletonList("service2"), index.getCandidates(1.0));
+    }
+
+    @Test
+    public void testCandidatesAreOrderedByRelativeDifference()
+    {
+        final PreemptionIndex index = new PreemptionIndex();
+        index.update("service1", 0.8, true);
+        index.update("service2", 0.5, true);
+        index.update("service3", 1.0, true);
+
+        assertEquals(Arrays.asList("service2", "service1"), index.getCandidates(1.0));
+        assertEquals(Arrays.asList("service2", "service1", "service3"), index.getCandidates(3.0));
+        assertEquals(Collections.singletonList("service2"), index.getCandidates(0.6));
+        // only a service with a strictly lower relative difference may be scaled down
+        assertTrue(index.getCandidates(0.5).isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.autoscaler.api.ComputeResources;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ReplicaAllocatorTest
+{
+    private static final ComputeResources INSTANCE = new ComputeResources(1000, 1024);
+
+    @Test
+    public void testAllRequestsFit()
+    {
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("service1", 1, 3).withInstanceResources(INSTANCE),
+            new ReplicaAllocator.Request("service2", 2, 4).withInstanceResources(INSTANCE)),
+            INSTANCE.times(10));
+
+        assertEquals(3, (int) allocation.get("service1"));
+        assertEquals(4, (int) allocation.get("service2"));
+    }
+
+    @Test
+    public void testCapacityIsSharedByShortfall()
+    {
+        // room for 6 instances, 2 of which are already running, with 10 requested between the services
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("service1", 1, 5).withInstanceResources(INSTANCE),
+            new ReplicaAllocator.Request("service2", 1, 5).withInstanceResources(INSTANCE)),
+            INSTANCE.times(6));
+
+        assertEquals(3, (int) allocation.get("service1"));
+        assertEquals(3, (int) allocation.get("service2"));
+    }
+
+    @Test
+    public void testLargerInstancesHaveLowerPriority()
+    {
+        final ComputeResources largeInstance = INSTANCE.times(2);
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("small", 0, 4).withInstanceResources(INSTANCE),
+            new ReplicaAllocator.Request("large", 0, 4).withInstanceResources(largeInstance)),
+            INSTANCE.times(6));
+
+        assertEquals(4, (int) allocation.get("small"));
+        assertEquals(1, (int) allocation.get("large"));
+    }
+
+    @Test
+    public void testScaleDownIsAlwaysAllowed()
+    {
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("service1", 4, 2).withInstanceResources(INSTANCE),
+            new ReplicaAllocator.Request("service2", 0, 3).withInstanceResources(INSTANCE)),
+            INSTANCE.times(4));
+
+        assertEquals(2, (int) allocation.get("service1"));
+        assertEquals(2, (int) allocation.get("service2"));
+    }
+
+    @Test
+    public void testInstancesAreNotTakenAwayWhenOverCapacity()
+    {
+        // the budget only covers part of the running instances, which are kept rather than removed
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("service1", 3, 5).withInstanceResources(INSTANCE)),
+            INSTANCE.times(2));
+
+        assertEquals(3, (int) allocation.get("service1"));
+    }
+
+    @Test
+    public void testServiceWithoutResourcesGetsDesiredInstances()
+    {
+        final Map<String, Integer> allocation = ReplicaAllocator.allocate(Arrays.asList(
+            new ReplicaAllocator.Request("unknown", 1, 8),
+            new ReplicaAllocator.Request("service1", 0, 4).withInstanceResources(INSTANCE)),
+            INSTANCE.times(2));
+
+        assertEquals(8, (int) allocation.get("unknown"));
+        assertEquals(2, (int) allocation.get("service1"));
+    }
+}
@@ -16,20 +16,29 @@
 package com.github.autoscaler.core;
 
 
+import com.codahale.metrics.MetricRegistry;
+import com.github.autoscaler.api.AnalysisDeadline;
 import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.QueueNotFoundException;
 import com.github.autoscaler.api.ResourceUtilisation;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingConfiguration;
 import com.github.autoscaler.api.ServiceScaler;
 import com.github.autoscaler.api.WorkloadAnalyser;
 import java.util.HashMap;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.AdditionalAnswers.returnsSecondArg;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -52,7 +61,8 @@ public class ScalerThreadTest
 
         int min = 0;
         int max = 5;
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0,
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0,
             new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
                 new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
         t.run();
@@ -63,6 +73,83 @@ public class ScalerThreadTest
     }
 
 
+    @Test
+    public void testScaleUpConfirmationIsScheduled()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>());
+        // Two instances are registered against the service, but only one is running or staging
+        InstanceInfo pendingInfo = new InstanceInfo(1, 0, new LinkedList<>(), -1, 2);
+        InstanceInfo confirmedInfo = new InstanceInfo(2, 0, new LinkedList<>());
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(info, pendingInfo, confirmedInfo);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(0.0, Optional.of(0)));
+        Mockito.when(analyser.analyseWorkload(info)).thenReturn(ScalingAction.SCALE_UP);
+        Governor governor = Mockito.mock(Governor.class);
+        Mockito.when(governor.govern(Mockito.anyString(), Mockito.any(), Mockito.any())).then(returnsSecondArg());
+
+        ScalerThread t = new ScalerThread(governor, scheduler, analyser, scaler, SERVICE_REF, 0, 5, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
+        t.run();
+        Mockito.verify(scaler, Mockito.times(1)).scaleUp(SERVICE_REF, 1);
+        ArgumentCaptor<Runnable> confirmation = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler, Mockito.times(1)).schedule(confirmation.capture(), Mockito.eq(10L), Mockito.eq(TimeUnit.SECONDS));
+
+        // Analysis is skipped while the scale up is awaiting confirmation
+        t.run();
+        Mockito.verify(analyser, Mockito.times(1)).analyseWorkload(Mockito.any());
+
+        // Once the instances have come up the scale up is confirmed and no further checks are scheduled
+        confirmation.getValue().run();
+        Mockito.verify(scheduler, Mockito.times(1)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
+        Mockito.verify(governor, Mockito.never()).freeUpResourcesForService(Mockito.anyString(), Mockito.anyInt());
+    }
+
+
+    @Test
+    public void testAbandonedScaleUpIsCounted()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        ScheduledExecutorService scheduler = Mockito.mock(ScheduledExecutorService.class);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>());
+        InstanceInfo pendingInfo = new InstanceInfo(1, 0, new LinkedList<>(), -1, 2);
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(info, pendingInfo);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(0.0, Optional.of(0)));
+        Mockito.when(analyser.analyseWorkload(info)).thenReturn(ScalingAction.SCALE_UP);
+        Governor governor = Mockito.mock(Governor.class);
+        Mockito.when(governor.govern(Mockito.anyString(), Mockito.any(), Mockito.any())).then(returnsSecondArg());
+        Mockito.when(governor.freeUpResourcesForService(SERVICE_REF, 1)).thenReturn(false);
+        MetricRegistry registry = new MetricRegistry();
+
+        ScalerThread t = new ScalerThread(governor, scheduler, analyser, scaler, SERVICE_REF,
+            0, 5, 0, 0, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration(), registry);
+        t.run();
+
+        // The instances never come up, so every check schedules another until the Governor is asked to make room
+        ArgumentCaptor<Runnable> confirmation = ArgumentCaptor.forClass(Runnable.class);
+        for (int attempt = 1; attempt <= 6; attempt++) {
+            Mockito.verify(scheduler, Mockito.times(attempt))
+                .schedule(confirmation.capture(), Mockito.anyLong(), Mockito.eq(TimeUnit.SECONDS));
+            confirmation.getValue().run();
+        }
+        Mockito.verify(governor, Mockito.times(1)).freeUpResourcesForService(SERVICE_REF, 1);
+        Mockito.verify(scheduler, Mockito.times(6)).schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any());
+        String prefix = MetricRegistry.name(ScalerThread.class, SERVICE_REF);
+        Assertions.assertEquals(1, registry.counter(prefix + ".scaleUpFailed").getCount());
+
+        // The service is analysed again once the scale up has been abandoned
+        t.run();
+        Mockito.verify(analyser, Mockito.times(2)).analyseWorkload(Mockito.any());
+    }
+
+
     @Test
     public void testScaleDown()
             throws ScalerException
@@ -76,7 +163,8 @@ public class ScalerThreadTest
 
         int min = 0;
         int max = 5;
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0, 
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0, 
             new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
                 new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
         t.run();
@@ -108,7 +196,8 @@ public class ScalerThreadTest
         int min = 0;
         int max = 5;
 
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0,
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0,
                 memoryOverloadAlerter, new Alerter(new HashMap<>(), new AlertDispatchConfiguration()),
                 mockResourceMonitoringConfiguration);
 
@@ -146,7 +235,8 @@ public class ScalerThreadTest
         int min = 0;
         int max = 5;
 
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0,
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0,
                 new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), diskSpaceLowAlerter, mockResourceMonitoringConfiguration);
 
         t.run();
@@ -166,7 +256,8 @@ public class ScalerThreadTest
 
         int min = 0;
         int max = 5;
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0, 
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0, 
             new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
                 new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
         t.run();
@@ -184,7 +275,8 @@ public class ScalerThreadTest
 
         int min = 0;
         int max = 5;
-        ScalerThread t = new ScalerThread(governor, analyser, scaler, SERVICE_REF, min, max, 0,
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            min, max, 0,
             new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
                 new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
         // should not throw
@@ -192,4 +284,246 @@ public class ScalerThreadTest
         Mockito.verify(scaler, Mockito.times(0)).scaleUp(Mockito.any(), Mockito.anyInt());
         Mockito.verify(scaler, Mockito.times(0)).scaleDown(Mockito.any(), Mockito.anyInt());
     }
+
+
+    @Test
+    public void testMetricsRecorded()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>());
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(info);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(0.0, Optional.of(0)));
+        Mockito.when(analyser.analyseWorkload(info)).thenReturn(ScalingAction.SCALE_DOWN);
+        Governor governor = Mockito.mock(Governor.class);
+        Mockito.when(governor.govern(Mockito.anyString(), Mockito.any(), Mockito.any())).then(returnsSecondArg());
+        MetricRegistry registry = new MetricRegistry();
+
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            0, 5, 0, 0, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration(), registry);
+        t.run();
+
+        String prefix = MetricRegistry.name(ScalerThread.class, SERVICE_REF);
+        Assertions.assertEquals(1, registry.timer(prefix + ".analyseWorkload").getCount());
+        Assertions.assertEquals(1, registry.timer(prefix + ".govern").getCount());
+        Assertions.assertEquals(1, registry.timer(prefix + ".scale").getCount());
+        Assertions.assertEquals(1, registry.histogram(prefix + ".tickLatency").getCount());
+        Assertions.assertEquals("SCALE_DOWN", registry.getGauges().get(prefix + ".lastAction.operation").getValue());
+        Assertions.assertEquals(1, registry.getGauges().get(prefix + ".lastAction.amount").getValue());
+
+        t.cancel();
+        Assertions.assertTrue(registry.getGauges().isEmpty());
+    }
+
+
+    @Test
+    public void testQueueNotFoundCounted()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenThrow(new QueueNotFoundException("missing"));
+        MetricRegistry registry = new MetricRegistry();
+
+        ScalerThread t = new ScalerThread(Mockito.mock(Governor.class), Mockito.mock(ScheduledExecutorService.class), analyser,
+            scaler, SERVICE_REF, 0, 5, 0, 0, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration(), registry);
+        t.run();
+
+        String prefix = MetricRegistry.name(ScalerThread.class, SERVICE_REF);
+        Assertions.assertEquals(1, registry.counter(prefix + ".queueNotFound").getCount());
+        Assertions.assertEquals(0, registry.counter(prefix + ".scalerException").getCount());
+        Assertions.assertEquals(1, registry.histogram(prefix + ".tickLatency").getCount());
+    }
+
+
+    @Test
+    public void testAnalysisDeadline()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        // A request that hangs until it is cancelled, after checking the deadline it could have limited its timeouts to
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenAnswer(invocation -> {
+            Assertions.assertTrue(AnalysisDeadline.getRemainingMillis().getAsLong() <= 1000);
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScalerException("Request cancelled", e);
+            }
+            return new ResourceUtilisation(0.0, Optional.of(0));
+        });
+        MetricRegistry registry = new MetricRegistry();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService deadlineTimer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScalerThread t = new ScalerThread(Mockito.mock(Governor.class), scheduler, analyser, scaler, SERVICE_REF, 0, 5, 0, 0, 0,
+                new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                    new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration(), registry);
+            t.setAnalysisDeadline(1, deadlineTimer);
+            long start = System.nanoTime();
+            t.run();
+
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+            Assertions.assertFalse(Thread.currentThread().isInterrupted());
+            String prefix = MetricRegistry.name(ScalerThread.class, SERVICE_REF);
+            Assertions.assertEquals(1, registry.counter(prefix + ".timedOut").getCount());
+            Assertions.assertEquals(0, registry.counter(prefix + ".scalerException").getCount());
+            Assertions.assertFalse(AnalysisDeadline.getRemainingMillis().isPresent());
+            Mockito.verify(scaler, Mockito.never()).getInstanceInfo(Mockito.any());
+        } finally {
+            scheduler.shutdownNow();
+            deadlineTimer.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testAnalysisDeadlineOnBusyExecutor()
+            throws Exception
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScalerException("Request cancelled", e);
+            }
+            return new ResourceUtilisation(0.0, Optional.of(0));
+        });
+        MetricRegistry registry = new MetricRegistry();
+        // The run occupies the only thread of the executor, so the deadline must not depend on it
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService deadlineTimer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScalerThread t = new ScalerThread(Mockito.mock(Governor.class), scheduler, analyser, scaler, SERVICE_REF, 0, 5, 0, 0, 0,
+                new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                    new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration(), registry);
+            t.setAnalysisDeadline(1, deadlineTimer);
+            scheduler.submit(t).get(30, TimeUnit.SECONDS);
+
+            String prefix = MetricRegistry.name(ScalerThread.class, SERVICE_REF);
+            Assertions.assertEquals(1, registry.counter(prefix + ".timedOut").getCount());
+            Mockito.verify(scaler, Mockito.never()).getInstanceInfo(Mockito.any());
+        } finally {
+            scheduler.shutdownNow();
+            deadlineTimer.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testBackoffDelaysNextRun()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        InstanceInfo info = new InstanceInfo(2, 0, new LinkedList<>());
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(info);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(0.0, Optional.of(0)));
+        Mockito.when(analyser.analyseWorkload(info)).thenReturn(ScalingAction.SCALE_DOWN);
+        Governor governor = Mockito.mock(Governor.class);
+        Mockito.when(governor.govern(Mockito.anyString(), Mockito.any(), Mockito.any())).then(returnsSecondArg());
+
+        // Scale downs back off for two intervals, scale ups for five
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            0, 5, 1, 5, 2,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
+        t.setInterval(10);
+        Assertions.assertEquals(10, t.getNextDelay());
+        Assertions.assertEquals(0, t.getBackoffDeferral());
+
+        t.run();
+        Mockito.verify(scaler, Mockito.times(1)).scaleDown(SERVICE_REF, 1);
+        // The next run is pushed back past the two skipped intervals
+        Assertions.assertEquals(30, t.getNextDelay());
+        long deferral = t.getBackoffDeferral();
+        Assertions.assertTrue(deferral > TimeUnit.SECONDS.toNanos(24) && deferral <= TimeUnit.SECONDS.toNanos(25));
+
+        // A run before the end of the backoff, such as from a batch, is skipped
+        t.run();
+        Mockito.verify(analyser, Mockito.times(1)).analyseWorkload(Mockito.any());
+    }
+
+
+    @Test
+    public void testDeferredDecisionStillGoverned()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>());
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(10.0, Optional.empty()));
+        Mockito.when(analyser.isDecisionDeferred()).thenReturn(true);
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(info);
+        Governor governor = Mockito.mock(Governor.class);
+        Mockito.when(governor.govern(Mockito.anyString(), Mockito.any(), Mockito.any())).then(returnsSecondArg());
+
+        final ResourceMonitoringConfiguration resourceConfig = Mockito.mock(ResourceMonitoringConfiguration.class);
+        Mockito.when(resourceConfig.getMemoryUsedPercentLimitStageOne()).thenReturn(80.0);
+        Mockito.when(resourceConfig.getMemoryUsedPercentLimitStageTwo()).thenReturn(85.0);
+        Mockito.when(resourceConfig.getMemoryUsedPercentLimitStageThree()).thenReturn(90.0);
+        Mockito.when(resourceConfig.getMemoryUsedPercentAlertDispatchThreshold()).thenReturn(70);
+
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            0, 5, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), resourceConfig);
+        // The first run fetches the instances so the Governor can keep the service within its minimum and maximum instances
+        t.run();
+        Mockito.verify(analyser, Mockito.times(1)).collectWorkload();
+        Mockito.verify(analyser, Mockito.times(0)).analyseWorkload(Mockito.any());
+        Mockito.verify(governor, Mockito.times(1)).recordInstances(SERVICE_REF, info);
+        Mockito.verify(governor, Mockito.times(1)).govern(Mockito.eq(SERVICE_REF), Mockito.eq(ScalingAction.NO_ACTION), Mockito.any());
+        Mockito.verify(scaler, Mockito.times(0)).scaleUp(Mockito.any(), Mockito.anyInt());
+        Mockito.verify(scaler, Mockito.times(0)).scaleDown(Mockito.any(), Mockito.anyInt());
+
+        // Later runs only collect the workload until the instances are due to be refreshed
+        t.run();
+        Mockito.verify(analyser, Mockito.times(2)).collectWorkload();
+        Mockito.verify(scaler, Mockito.times(1)).getInstanceInfo(SERVICE_REF);
+        Mockito.verify(governor, Mockito.times(1)).govern(Mockito.any(), Mockito.any(), Mockito.any());
+
+        // An alert threshold being reached needs the shutdown priority of the service, even if no scaling decision is due
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(75.0, Optional.empty()));
+        t.run();
+        Mockito.verify(analyser, Mockito.times(3)).collectWorkload();
+        Mockito.verify(scaler, Mockito.times(2)).getInstanceInfo(SERVICE_REF);
+        Mockito.verify(analyser, Mockito.times(0)).analyseWorkload(Mockito.any());
+    }
+
+
+    @Test
+    public void testDeferredDecisionRestoresMinimumInstances()
+            throws ScalerException
+    {
+        WorkloadAnalyser analyser = Mockito.mock(WorkloadAnalyser.class);
+        ServiceScaler scaler = Mockito.mock(ServiceScaler.class);
+        Mockito.when(analyser.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(10.0, Optional.empty()));
+        Mockito.when(analyser.isDecisionDeferred()).thenReturn(true);
+        // The service has been scaled to 0 by hand since the last scaling decision
+        Mockito.when(scaler.getInstanceInfo(SERVICE_REF)).thenReturn(new InstanceInfo(0, 0, new LinkedList<>()));
+        Governor governor = new GovernorImpl(1, 3, 5);
+        ScalingConfiguration config = new ScalingConfiguration();
+        config.setId(SERVICE_REF);
+        config.setMinInstances(2);
+        config.setMaxInstances(5);
+        governor.register(config);
+
+        ScalerThread t = new ScalerThread(governor, Mockito.mock(ScheduledExecutorService.class), analyser, scaler, SERVICE_REF,
+            2, 5, 0,
+            new Alerter(new HashMap<>(), new AlertDispatchConfiguration()), new Alerter(new HashMap<>(),
+                new AlertDispatchConfiguration()), new ResourceMonitoringConfiguration());
+        t.run();
+        Mockito.verify(analyser, Mockito.times(0)).analyseWorkload(Mockito.any());
+        Mockito.verify(scaler, Mockito.times(1)).scaleUp(SERVICE_REF, 2);
+    }
 }
@@ -113,4 +113,39 @@ public class ServiceValidatorTest
         assertFalse(out.contains(sc1));
         assertFalse(out.contains(sc2));
     }
+
+
+    @Test
+    public void testInvalidIntervalRange()
+    {
+        ServiceValidator validator = new ServiceValidator(METRIC_NAMES);
+        ScalingConfiguration adaptive = getIntervalConfiguration("adaptive", 5, 300);
+        ScalingConfiguration reversed = getIntervalConfiguration("reversed", 300, 5);
+        ScalingConfiguration equal = getIntervalConfiguration("equal", 60, 60);
+        ScalingConfiguration minOnly = getIntervalConfiguration("minOnly", 5, 0);
+        ScalingConfiguration maxOnly = getIntervalConfiguration("maxOnly", 0, 300);
+        Set<ScalingConfiguration> in = new HashSet<>();
+        in.add(adaptive);
+        in.add(reversed);
+        in.add(equal);
+        in.add(minOnly);
+        in.add(maxOnly);
+        Set<ScalingConfiguration> out = validator.getValidatedServices(in);
+        assertTrue(out.contains(adaptive));
+        assertFalse(out.contains(reversed));
+        assertFalse(out.contains(equal));
+        assertFalse(out.contains(minOnly));
+        assertFalse(out.contains(maxOnly));
+    }
+
+
+    private static ScalingConfiguration getIntervalConfiguration(final String id, final int minInterval, final int maxInterval)
+    {
+        ScalingConfiguration sc = new ScalingConfiguration();
+        sc.setId(id);
+        sc.setWorkloadMetric(VALID_METRIC);
+        sc.setMinInterval(minInterval);
+        sc.setMaxInterval(maxInterval);
+        return sc;
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+
+import com.codahale.metrics.MetricRegistry;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class TimingWheelTest
+{
+    /**
+     * Ensure that the phase of a service is the same every time, and that many services are spread evenly across an interval.
+     */
+    @Test
+    public void testPhasesAreDeterministicAndEvenlySpread()
+    {
+        final int intervalTicks = 100;
+        final int services = 10000;
+        final int[] slots = new int[intervalTicks];
+        for (int i = 0; i < services; i++) {
+            final long phase = TimingWheel.getPhase("service-" + i, intervalTicks);
+            assertEquals(phase, TimingWheel.getPhase("service-" + i, intervalTicks));
+            slots[(int) phase]++;
+        }
+        final int expectedPerSlot = services / intervalTicks;
+        for (final int slot : slots) {
+            assertTrue(slot > expectedPerSlot / 2 && slot < expectedPerSlot * 2, "Uneven spread of services: " + slot);
+        }
+    }
+
+
+    /**
+     * Ensure that a task first runs within one interval, keeps running periodically, and stops when cancelled.
+     */
+    @Test
+    public void testTaskRunsPeriodicallyUntilCancelled()
+        throws InterruptedException
+    {
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        try {
+            final MetricRegistry metrics = new MetricRegistry();
+            final TimingWheel wheel = new TimingWheel(executor, executor, metrics, 10, 64);
+            final AtomicInteger runs = new AtomicInteger();
+            final CountDownLatch firstRun = new CountDownLatch(1);
+            final CountDownLatch threeRuns = new CountDownLatch(3);
+            final ScheduledFuture<?> future = wheel.schedule("service", () -> {
+                runs.incrementAndGet();
+                firstRun.countDown();
+                threeRuns.countDown();
+            }, 200, TimeUnit.MILLISECONDS);
+
+            // Allow some leeway on top of the interval for slow build machines
+            assertTrue(firstRun.await(400, TimeUnit.MILLISECONDS), "Task did not run within its interval");
+            assertTrue(threeRuns.await(2, TimeUnit.SECONDS), "Task did not keep running");
+            assertTrue(metrics.histogram(MetricRegistry.name(TimingWheel.class, "tickSkew")).getCount() > 0);
+
+            future.cancel(false);
+            assertTrue(future.isDone());
+            final int runsWhenCancelled = runs.get();
+            Thread.sleep(500);
+            assertEquals(runsWhenCancelled, runs.get());
+            wheel.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Ensure that the wheel keeps ticking on its timer while every thread of the executor is busy.
+     */
+    @Test
+    public void testTicksWhileExecutorIsBusy()
+        throws InterruptedException
+    {
+        final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final MetricRegistry metrics = new MetricRegistry();
+            final TimingWheel wheel = new TimingWheel(timer, executor, metrics, 10, 64);
+            final CountDownLatch running = new CountDownLatch(1);
+            wheel.schedule("service", () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, 50, TimeUnit.MILLISECONDS);
+            assertTrue(running.await(1, TimeUnit.SECONDS), "Task did not run");
+
+            final long ticks = metrics.histogram(MetricRegistry.name(TimingWheel.class, "tickSkew")).getCount();
+            Thread.sleep(200);
+            assertTrue(metrics.histogram(MetricRegistry.name(TimingWheel.class, "tickSkew")).getCount() > ticks,
+                       "Wheel did not tick while the executor was busy");
+            wheel.stop();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Ensure that a task that throws is not run again, so that the health check can report it.
+     */
+    @Test
+    public void testFailedTaskCompletesItsFuture()
+        throws InterruptedException
+    {
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        try {
+            final TimingWheel wheel = new TimingWheel(executor, executor, new MetricRegistry(), 10, 64);
+            final ScheduledFuture<?> future = wheel.schedule("service", () -> {
+                throw new IllegalStateException("Failed");
+            }, 50, TimeUnit.MILLISECONDS);
+            final long deadline = System.currentTimeMillis() + 2000;
+            while (!future.isDone() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(future.isDone());
+            wheel.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Ensure that a task that asks for its next run to be deferred is not run again until the deferral has passed.
+     */
+    @Test
+    public void testDeferredTaskPassesOverSlots()
+        throws InterruptedException
+    {
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        try {
+            final TimingWheel wheel = new TimingWheel(executor, executor, new MetricRegistry(), 10, 64);
+            final long[] runTimes = new long[2];
+            final AtomicInteger runs = new AtomicInteger();
+            final CountDownLatch twoRuns = new CountDownLatch(2);
+            final ScheduledFuture<?> future = wheel.schedule("service", () -> {
+                final int run = runs.getAndIncrement();
+                if (run < runTimes.length) {
+                    runTimes[run] = System.nanoTime();
+                }
+                twoRuns.countDown();
+            }, 100, TimeUnit.MILLISECONDS, () -> runs.get() == 1 ? TimeUnit.MILLISECONDS.toNanos(500) : 0);
+
+            assertTrue(twoRuns.await(3, TimeUnit.SECONDS), "Task did not run again after its deferral");
+            assertTrue(runTimes[1] - runTimes[0] >= TimeUnit.MILLISECONDS.toNanos(500), "Task ran again within its deferral");
+            future.cancel(false);
+            wheel.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.core;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingConfiguration;
+import com.github.autoscaler.api.ScalingOperation;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class WeightedFairShareGovernorTest
+{
+    private static final ResourceLimitStagesReached NO_LIMITS
+        = new ResourceLimitStagesReached(ResourceLimitStage.NO_STAGE, ResourceLimitStage.NO_STAGE);
+
+    /**
+     * Test that instances are taken from the service with the lowest relative difference multiplied by its weight
+     */
+    @Test
+    public void testLowerWeightedServiceMakesRoom() throws Exception
+    {
+        final GovernorImpl governor = new WeightedFairShareGovernor(1, 3, 5, 0.9);
+        final ScalerThread goldThread = registerService(governor, "gold", 4, 4, 4);
+        final ScalerThread bronzeThread = registerService(governor, "bronze", 1, 4, 4);
+        registerService(governor, "stalled", 2, 2, 6);
+
+        assertTrue(governor.freeUpResourcesForService("stalled", 2));
+
+        Mockito.verify(bronzeThread, Mockito.times(1)).scaleDownNow(2);
+        Mockito.verify(goldThread, Mockito.never()).scaleDownNow(Mockito.anyInt());
+    }
+
+    /**
+     * Test that without weights the same services give up an instance each
+     */
+    @Test
+    public void testDefaultGovernorIgnoresWeight() throws Exception
+    {
+        final GovernorImpl governor = new GovernorImpl(1, 3, 5);
+        final ScalerThread goldThread = registerService(governor, "gold", 4, 4, 4);
+        final ScalerThread bronzeThread = registerService(governor, "bronze", 1, 4, 4);
+        registerService(governor, "stalled", 2, 2, 6);
+
+        assertTrue(governor.freeUpResourcesForService("stalled", 2));
+
+        Mockito.verify(bronzeThread, Mockito.times(1)).scaleDownNow(1);
+        Mockito.verify(goldThread, Mockito.times(1)).scaleDownNow(1);
+    }
+
+    /**
+     * Test that capacity is taken until the weighted relative differences are even, leaving each candidate instances in proportion to
+     * its weight times its desired instances
+     */
+    @Test
+    public void testPlanEvensOutWeightedShares()
+    {
+        final Map<String, Integer> plan = GovernorImpl.planPreemption(Arrays.asList(
+            new GovernorImpl.PreemptionCandidate("heavy", 6, 12, 0, 2.0),
+            new GovernorImpl.PreemptionCandidate("light", 6, 12, 0, 1.0)), 2.0, 20);
+
+        // heavy keeps 6 instances and light keeps 3 once both reach a weighted relative difference of 2.0
+        assertEquals(6, (int) plan.get("heavy"));
+        assertEquals(9, (int) plan.get("light"));
+    }
+
+    private static ScalerThread registerService(
+        final Governor governor,
+        final String serviceRef,
+        final int weight,
+        final int instances,
+        final int desiredInstances
+    )
+    {
+        final ScalingConfiguration scalingConfiguration = new ScalingConfiguration();
+        scalingConfiguration.setId(serviceRef);
+        scalingConfiguration.setMinInstances(0);
+        scalingConfiguration.setMaxInstances(10);
+        scalingConfiguration.setWeight(weight);
+        governor.register(scalingConfiguration);
+        final ScalerThread scalerThread = Mockito.mock(ScalerThread.class);
+        governor.registerListener(serviceRef, scalerThread);
+        governor.recordInstances(serviceRef, new InstanceInfo(instances, 0, Collections.emptyList()));
+        governor.govern(serviceRef, new ScalingAction(ScalingOperation.SCALE_UP, desiredInstances - instances), NO_LIMITS);
+        return scalerThread;
+    }
+}
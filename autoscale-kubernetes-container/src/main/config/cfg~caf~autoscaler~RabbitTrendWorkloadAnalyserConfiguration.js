@@ -0,0 +1,25 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+({
+    profiles: {
+        default: {
+            levelSmoothing: getenv("CAF_AUTOSCALER_TREND_LEVEL_SMOOTHING") || 0.5,
+            trendSmoothing: getenv("CAF_AUTOSCALER_TREND_TREND_SMOOTHING") || 0.3,
+            forecastHorizon: getenv("CAF_AUTOSCALER_TREND_FORECAST_HORIZON") || 60,
+            backlogGoal: getenv("CAF_AUTOSCALER_BACKLOG_GOAL") || 300
+        }
+    }
+});
@@ -22,8 +22,32 @@
     profiles: {
         default: {
             scalingDelay: getenv("CAF_AUTOSCALER_SCALING_DELAY") || 10,
-            backlogGoal: getenv("CAF_AUTOSCALER_BACKLOG_GOAL") || 300
+            backlogGoal: getenv("CAF_AUTOSCALER_BACKLOG_GOAL") || 300,
+            sampleWindow: getenv("CAF_AUTOSCALER_SAMPLE_WINDOW") || 0,
+            sampleIncrement: getenv("CAF_AUTOSCALER_SAMPLE_INCREMENT") || 0,
+            controller: getenv("CAF_AUTOSCALER_CONTROLLER") || "AVERAGE",
+            proportionalGain: getenv("CAF_AUTOSCALER_PID_PROPORTIONAL_GAIN") || 0.2,
+            integralGain: getenv("CAF_AUTOSCALER_PID_INTEGRAL_GAIN") || 0.002,
+            derivativeGain: getenv("CAF_AUTOSCALER_PID_DERIVATIVE_GAIN") || 0,
+            deadband: getenv("CAF_AUTOSCALER_PID_DEADBAND") || 0.2
+        },
+        waittime: {
+            scalingDelay: getenv("CAF_AUTOSCALER_SCALING_DELAY") || 10,
+            backlogGoal: getenv("CAF_AUTOSCALER_BACKLOG_GOAL") || 300,
+            controller: "WAIT_TIME",
+            waitTimeGoal: getenv("CAF_AUTOSCALER_WAIT_TIME_GOAL") || 0,
+            waitTimePercentile: getenv("CAF_AUTOSCALER_WAIT_TIME_PERCENTILE") || 95
         }
     },
-    stagingQueueIndicator: getenv("CAF_AUTOSCALER_STAGING_QUEUE_INDICATOR") || null
+    stagingQueueIndicator: getenv("CAF_AUTOSCALER_STAGING_QUEUE_INDICATOR") || null,
+    stagingQueueDiscoveryInterval: getenv("CAF_AUTOSCALER_STAGING_QUEUE_DISCOVERY_INTERVAL") || 0,
+    queueStatsCacheTtl: getenv("CAF_AUTOSCALER_RABBITMQ_QUEUE_STATS_CACHE_TTL") || 0,
+    rabbitAmqpUri: getenv("CAF_AUTOSCALER_RABBITMQ_AMQP_URI") || null,
+    rabbitAmqpUser: getenv("CAF_RABBITMQ_USERNAME") || null,
+    rabbitAmqpPassword: getenv("CAF_RABBITMQ_PASSWORD") || null,
+    queueRatesCacheTtl: getenv("CAF_AUTOSCALER_RABBITMQ_QUEUE_RATES_CACHE_TTL") || 30,
+    statsSource: getenv("CAF_AUTOSCALER_RABBITMQ_STATS_SOURCE") || "MANAGEMENT",
+    rabbitPrometheusEndpoint: getenv("CAF_AUTOSCALER_RABBITMQ_PROMETHEUS_URL")
+            || ("http://" + (getenv("CAF_RABBITMQ_HOST") || "rabbitmq") + ":" + (getenv("CAF_RABBITMQ_PROMETHEUS_PORT") || "15692")
+                + "/metrics/per-object")
 });
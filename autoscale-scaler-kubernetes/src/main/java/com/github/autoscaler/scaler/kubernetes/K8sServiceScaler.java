@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.autoscaler.api.ComputeResources;
 import com.github.autoscaler.api.InstanceInfo;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ServiceScaler;
@@ -38,9 +39,15 @@ import com.github.cafapi.kubernetes.client.client.ApiClient;
 import com.github.cafapi.kubernetes.client.client.ApiException;
 import com.github.cafapi.kubernetes.client.model.IoK8sApiAppsV1Deployment;
 import com.github.cafapi.kubernetes.client.model.IoK8sApiAppsV1DeploymentSpec;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1Container;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1Node;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1NodeSpec;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1NodeStatus;
 import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1Pod;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1PodSpec;
 import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1PodStatus;
 import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1PodTemplateSpec;
+import com.github.cafapi.kubernetes.client.model.IoK8sApiCoreV1ResourceRequirements;
 import com.github.cafapi.kubernetes.client.model.IoK8sApimachineryPkgApisMetaV1LabelSelector;
 import com.github.cafapi.kubernetes.client.model.IoK8sApimachineryPkgApisMetaV1ObjectMeta;
 import com.hpe.caf.api.HealthResult;
@@ -153,6 +160,94 @@ public class K8sServiceScaler implements ServiceScaler
         }
     }
 
+    @Override
+    public Optional<ComputeResources> getInstanceResources(final String resourceId) throws ScalerException
+    {
+        final DeploymentId deploymentId = new DeploymentId(resourceId);
+        try {
+            final IoK8sApiAppsV1DeploymentSpec spec = getDeployment(deploymentId).getSpec();
+            final IoK8sApiCoreV1PodTemplateSpec template = spec == null ? null : spec.getTemplate();
+            final ComputeResources requests = getPodRequests(template == null ? null : template.getSpec());
+            return requests.equals(ComputeResources.NONE) ? Optional.empty() : Optional.of(requests);
+        } catch (final ApiException | ArithmeticException | NumberFormatException e) {
+            LOG.error("Error loading resource requests for {}", deploymentId.id, e);
+            throw new ScalerException("Error loading resource requests for deployment " + deploymentId.id, e);
+        }
+    }
+
+    @Override
+    public Optional<ComputeResources> getAvailableCapacity() throws ScalerException
+    {
+        try {
+            ComputeResources available = ComputeResources.NONE;
+            for (final IoK8sApiCoreV1Node node : coreV1Api.listCoreV1Node().execute().getItems()) {
+                final IoK8sApiCoreV1NodeSpec nodeSpec = node.getSpec();
+                final IoK8sApiCoreV1NodeStatus nodeStatus = node.getStatus();
+                if (nodeStatus == null || (nodeSpec != null && Boolean.TRUE.equals(nodeSpec.getUnschedulable()))) {
+                    continue;
+                }
+                available = available.plus(parseResources(nodeStatus.getAllocatable()));
+            }
+            if (available.equals(ComputeResources.NONE)) {
+                return Optional.empty();
+            }
+            for (final IoK8sApiCoreV1Pod pod : coreV1Api.listCoreV1PodForAllNamespaces().execute().getItems()) {
+                if (isPodInPhase(pod, "running") || isPodInPhase(pod, "pending")) {
+                    available = available.minus(getPodRequests(pod.getSpec()));
+                }
+            }
+            LOG.debug("The cluster has {} available to be requested", available);
+            return Optional.of(available);
+        } catch (final ApiException | ArithmeticException | NumberFormatException e) {
+            LOG.error("Error loading the available capacity of the cluster", e);
+            throw new ScalerException("Error loading the available capacity of the cluster", e);
+        }
+    }
+
+    /**
+     * Kubernetes schedules a pod using the larger of the total requests of its containers and the largest request of any one of its
+     * init containers, as the init containers run one at a time before the containers start.
+     */
+    private static ComputeResources getPodRequests(final IoK8sApiCoreV1PodSpec podSpec)
+    {
+        if (podSpec == null) {
+            return ComputeResources.NONE;
+        }
+
+        long cpuMillis = 0;
+        long memoryBytes = 0;
+        for (final IoK8sApiCoreV1Container container : Optional.ofNullable(podSpec.getContainers()).orElse(Collections.emptyList())) {
+            final ComputeResources requests = getContainerRequests(container);
+            cpuMillis += requests.getCpuMillis();
+            memoryBytes += requests.getMemoryBytes();
+        }
+        for (final IoK8sApiCoreV1Container container
+                 : Optional.ofNullable(podSpec.getInitContainers()).orElse(Collections.emptyList())) {
+            final ComputeResources requests = getContainerRequests(container);
+            cpuMillis = Math.max(cpuMillis, requests.getCpuMillis());
+            memoryBytes = Math.max(memoryBytes, requests.getMemoryBytes());
+        }
+        return new ComputeResources(cpuMillis, memoryBytes);
+    }
+
+    private static ComputeResources getContainerRequests(final IoK8sApiCoreV1Container container)
+    {
+        final IoK8sApiCoreV1ResourceRequirements resources = container == null ? null : container.getResources();
+        return resources == null ? ComputeResources.NONE : parseResources(resources.getRequests());
+    }
+
+    private static ComputeResources parseResources(final Map<String, String> quantities)
+    {
+        if (quantities == null) {
+            return ComputeResources.NONE;
+        }
+        final String cpu = quantities.get("cpu");
+        final String memory = quantities.get("memory");
+        return new ComputeResources(
+            cpu == null ? 0 : ResourceQuantity.parseCpuMillis(cpu),
+            memory == null ? 0 : ResourceQuantity.parseBytes(memory));
+    }
+
     private static String getAppName(final IoK8sApiAppsV1Deployment v1Deployment) {
         if (v1Deployment == null) {
             return null;
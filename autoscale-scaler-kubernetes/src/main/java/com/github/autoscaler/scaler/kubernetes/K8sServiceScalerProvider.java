@@ -15,6 +15,7 @@
  */
 package com.github.autoscaler.scaler.kubernetes;
 
+import com.github.autoscaler.api.AnalysisDeadlineFilter;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.ServiceScaler;
 import com.github.autoscaler.api.ServiceScalerProvider;
@@ -33,6 +34,8 @@ public class K8sServiceScalerProvider implements ServiceScalerProvider
         try {
             final K8sAutoscaleConfiguration config = configurationSource.getConfiguration(K8sAutoscaleConfiguration.class);
             final ApiClient apiClient = KubernetesClientFactory.createClientWithCertAndToken();
+            // Requests made while getting instance info for an analysis run must not outlive the deadline of the run
+            apiClient.getHttpClient().register(AnalysisDeadlineFilter.class);
             return new K8sServiceScaler(config, apiClient);
         } catch (final ConfigurationException | FailedToCreateKubernetesClientException e) {
             throw new ScalerException("Failed to create service scaler", e);
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.scaler.kubernetes;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Parses Kubernetes resource quantities, such as "500m", "2", "512Mi" or "1e3", as they appear in container resource requests and
+ * node allocatable resources.
+ */
+final class ResourceQuantity
+{
+    private static final BigDecimal THOUSAND = BigDecimal.valueOf(1000);
+
+    private ResourceQuantity()
+    {
+    }
+
+    /**
+     * @param quantity a CPU quantity
+     * @return the quantity in thousandths of a CPU, rounded up
+     */
+    static long parseCpuMillis(final String quantity)
+    {
+        return parse(quantity).multiply(THOUSAND).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    /**
+     * @param quantity a memory quantity
+     * @return the quantity in bytes, rounded up
+     */
+    static long parseBytes(final String quantity)
+    {
+        return parse(quantity).setScale(0, RoundingMode.CEILING).longValueExact();
+    }
+
+    static BigDecimal parse(final String quantity)
+    {
+        if (quantity == null || quantity.isBlank()) {
+            throw new NumberFormatException("Empty resource quantity");
+        }
+        final String value = quantity.trim();
+        int end = value.length();
+        while (end > 0 && Character.isLetter(value.charAt(end - 1))) {
+            end--;
+        }
+        final String suffix = value.substring(end);
+        final String number = value.substring(0, end);
+        if (number.isEmpty()) {
+            throw new NumberFormatException("Invalid resource quantity: " + quantity);
+        }
+        // Exponent notation such as "1e3" ends in a digit, so the suffix scan leaves it for BigDecimal to parse
+        return new BigDecimal(number).multiply(getMultiplier(suffix, quantity));
+    }
+
+    private static BigDecimal getMultiplier(final String suffix, final String quantity)
+    {
+        switch (suffix) {
+            case "":
+                return BigDecimal.ONE;
+            case "n":
+                return BigDecimal.ONE.movePointLeft(9);
+            case "u":
+                return BigDecimal.ONE.movePointLeft(6);
+            case "m":
+                return BigDecimal.ONE.movePointLeft(3);
+            case "k":
+                return BigDecimal.ONE.movePointRight(3);
+            case "M":
+                return BigDecimal.ONE.movePointRight(6);
+            case "G":
+                return BigDecimal.ONE.movePointRight(9);
+            case "T":
+                return BigDecimal.ONE.movePointRight(12);
+            case "P":
+                return BigDecimal.ONE.movePointRight(15);
+            case "E":
+                return BigDecimal.ONE.movePointRight(18);
+            case "Ki":
+                return BigDecimal.valueOf(2).pow(10);
+            case "Mi":
+                return BigDecimal.valueOf(2).pow(20);
+            case "Gi":
+                return BigDecimal.valueOf(2).pow(30);
+            case "Ti":
+                return BigDecimal.valueOf(2).pow(40);
+            case "Pi":
+                return BigDecimal.valueOf(2).pow(50);
+            case "Ei":
+                return BigDecimal.valueOf(2).pow(60);
+            default:
+                throw new NumberFormatException("Invalid resource quantity suffix: " + quantity);
+        }
+    }
+}
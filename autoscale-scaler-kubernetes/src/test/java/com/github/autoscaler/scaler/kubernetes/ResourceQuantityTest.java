@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.scaler.kubernetes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class ResourceQuantityTest
+{
+    @Test
+    public void testParseCpu()
+    {
+        assertEquals(500, ResourceQuantity.parseCpuMillis("500m"));
+        assertEquals(2000, ResourceQuantity.parseCpuMillis("2"));
+        assertEquals(250, ResourceQuantity.parseCpuMillis("0.25"));
+        assertEquals(1, ResourceQuantity.parseCpuMillis("100u"));
+    }
+
+    @Test
+    public void testParseMemory()
+    {
+        assertEquals(512L * 1024 * 1024, ResourceQuantity.parseBytes("512Mi"));
+        assertEquals(2L * 1024 * 1024 * 1024, ResourceQuantity.parseBytes("2Gi"));
+        assertEquals(1_000_000_000L, ResourceQuantity.parseBytes("1G"));
+        assertEquals(128_000L, ResourceQuantity.parseBytes("128k"));
+        assertEquals(1000L, ResourceQuantity.parseBytes("1e3"));
+        assertEquals(1536L, ResourceQuantity.parseBytes("1.5Ki"));
+        assertEquals(4096L, ResourceQuantity.parseBytes("4096"));
+    }
+
+    @Test
+    public void testParseInvalid()
+    {
+        assertThrows(NumberFormatException.class, () -> ResourceQuantity.parseBytes("Mi"));
+        assertThrows(NumberFormatException.class, () -> ResourceQuantity.parseBytes("12Qi"));
+        assertThrows(NumberFormatException.class, () -> ResourceQuantity.parseBytes(""));
+    }
+}
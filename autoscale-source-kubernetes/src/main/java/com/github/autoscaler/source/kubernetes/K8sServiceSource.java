@@ -103,6 +103,12 @@ public class K8sServiceSource implements ServiceSource
         if (labels.containsKey(ScalingConfiguration.KEY_INTERVAL)) {
             cfg.setInterval(Integer.parseInt(labels.get(ScalingConfiguration.KEY_INTERVAL)));
         }
+        if (labels.containsKey(ScalingConfiguration.KEY_MIN_INTERVAL)) {
+            cfg.setMinInterval(Integer.parseInt(labels.get(ScalingConfiguration.KEY_MIN_INTERVAL)));
+        }
+        if (labels.containsKey(ScalingConfiguration.KEY_MAX_INTERVAL)) {
+            cfg.setMaxInterval(Integer.parseInt(labels.get(ScalingConfiguration.KEY_MAX_INTERVAL)));
+        }
         if (labels.containsKey(ScalingConfiguration.KEY_MAX_INSTANCES)) {
             cfg.setMaxInstances(Integer.parseInt(labels.get(ScalingConfiguration.KEY_MAX_INSTANCES)));
         }
@@ -115,6 +121,12 @@ public class K8sServiceSource implements ServiceSource
         if (labels.containsKey(ScalingConfiguration.KEY_SCALE_UP_BACKOFF_AMOUNT)) {
             cfg.setScaleUpBackoffAmount(Integer.parseInt(labels.get(ScalingConfiguration.KEY_SCALE_UP_BACKOFF_AMOUNT)));
         }
+        if (labels.containsKey(ScalingConfiguration.KEY_ANALYSIS_DEADLINE)) {
+            cfg.setAnalysisDeadline(Integer.parseInt(labels.get(ScalingConfiguration.KEY_ANALYSIS_DEADLINE)));
+        }
+        if (labels.containsKey(ScalingConfiguration.KEY_WEIGHT)) {
+            cfg.setWeight(Integer.parseInt(labels.get(ScalingConfiguration.KEY_WEIGHT)));
+        }
         if (labels.containsKey(ScalingConfiguration.KEY_SCALING_PROFILE)) {
             cfg.setScalingProfile(labels.get(ScalingConfiguration.KEY_SCALING_PROFILE));
         }
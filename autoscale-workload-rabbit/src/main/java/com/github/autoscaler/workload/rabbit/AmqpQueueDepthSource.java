@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads the depth of queues with passive queue declarations over one long-lived AMQP connection. The broker answers these from the
+ * queue itself, so they reflect the queue as it is rather than as it was when the management plugin last collected its statistics,
+ * and they cost the broker far less than rendering the statistics of the queue.
+ *
+ * The connection is opened on first use, and opened again on the next use after it is lost, but no more often than every
+ * {@link #RECONNECT_DELAY_SECONDS} seconds, so that a broker that cannot be reached does not hold up every read. The channels are
+ * pooled and reused. A channel the broker closes, as it does when a queue that does not exist is declared passively, is dropped.
+ */
+final class AmqpQueueDepthSource implements QueueDepthSource
+{
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpQueueDepthSource.class);
+    private static final int MAX_IDLE_CHANNELS = 4;
+    private static final int CONNECTION_TIMEOUT_MILLIS = 5000;
+    static final int RECONNECT_DELAY_SECONDS = 30;
+
+    private final ConnectionFactory connectionFactory;
+    private final LongSupplier nanoClock;
+    private final BlockingQueue<Channel> idleChannels = new ArrayBlockingQueue<>(MAX_IDLE_CHANNELS);
+    /**
+     * The connection, or null if it has not been opened yet. Guarded by this.
+     */
+    private Connection connection;
+    /**
+     * When the connection was last attempted, if that attempt failed. Guarded by this.
+     */
+    private long lastFailedAttempt;
+    private boolean hasFailedAttempt;
+
+    /**
+     * @param uri the AMQP URI of the broker, such as amqp://rabbitmq:5672
+     * @param user the user name to connect with
+     * @param password the password to connect with
+     * @param vhost the vhost that contains the queues
+     */
+    AmqpQueueDepthSource(final String uri, final String user, final String password, final String vhost)
+    {
+        this(createConnectionFactory(uri, user, password, vhost), System::nanoTime);
+    }
+
+    AmqpQueueDepthSource(final ConnectionFactory connectionFactory, final LongSupplier nanoClock)
+    {
+        this.connectionFactory = Objects.requireNonNull(connectionFactory);
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+    }
+
+    private static ConnectionFactory createConnectionFactory(
+        final String uri,
+        final String user,
+        final String password,
+        final String vhost
+    )
+    {
+        final ConnectionFactory connectionFactory = new ConnectionFactory();
+        try {
+            connectionFactory.setUri(uri);
+        } catch (final URISyntaxException | GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid RabbitMQ AMQP URI: " + uri, e);
+        }
+        connectionFactory.setUsername(user);
+        connectionFactory.setPassword(password);
+        connectionFactory.setVirtualHost(vhost);
+        connectionFactory.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
+        // The connection is opened again on demand, rather than recovered in the background
+        connectionFactory.setAutomaticRecoveryEnabled(false);
+        // Do not keep the process alive just for the connection
+        connectionFactory.setThreadFactory(runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        return connectionFactory;
+    }
+
+    @Override
+    public QueueDepth getQueueDepth(final String queue) throws IOException
+    {
+        final Channel channel = borrowChannel();
+        final AMQP.Queue.DeclareOk declareOk;
+        try {
+            declareOk = channel.queueDeclarePassive(queue);
+        } catch (final IOException | ShutdownSignalException e) {
+            // The broker closes the channel when the declaration fails, so it cannot be used again
+            close(channel);
+            throw e instanceof IOException ? (IOException) e : new IOException("Channel closed while declaring queue " + queue, e);
+        }
+        if (!idleChannels.offer(channel)) {
+            close(channel);
+        }
+        return new QueueDepth(declareOk.getMessageCount(), declareOk.getConsumerCount());
+    }
+
+    private Channel borrowChannel() throws IOException
+    {
+        Channel channel;
+        while ((channel = idleChannels.poll()) != null) {
+            if (channel.isOpen()) {
+                return channel;
+            }
+        }
+        try {
+            channel = getConnection().createChannel();
+        } catch (final ShutdownSignalException e) {
+            throw new IOException("Connection closed while creating a channel", e);
+        }
+        if (channel == null) {
+            throw new IOException("No channel is available on the connection");
+        }
+        return channel;
+    }
+
+    private synchronized Connection getConnection() throws IOException
+    {
+        if (connection != null && connection.isOpen()) {
+            return connection;
+        }
+        final long now = nanoClock.getAsLong();
+        if (hasFailedAttempt && now - lastFailedAttempt < TimeUnit.SECONDS.toNanos(RECONNECT_DELAY_SECONDS)) {
+            throw new IOException("Not connected to RabbitMQ over AMQP");
+        }
+        try {
+            connection = connectionFactory.newConnection("autoscaler-queue-depth");
+            hasFailedAttempt = false;
+            LOG.info("Connected to RabbitMQ over AMQP to read queue depths");
+            return connection;
+        } catch (final IOException | TimeoutException e) {
+            hasFailedAttempt = true;
+            lastFailedAttempt = now;
+            LOG.warn("Failed to connect to RabbitMQ over AMQP, reading queue depths from the management API for {} seconds",
+                     RECONNECT_DELAY_SECONDS, e);
+            throw e instanceof IOException ? (IOException) e : new IOException("Timed out connecting to RabbitMQ over AMQP", e);
+        }
+    }
+
+    private static void close(final Channel channel)
+    {
+        if (channel.isOpen()) {
+            try {
+                channel.close();
+            } catch (final IOException | TimeoutException | ShutdownSignalException e) {
+                LOG.debug("Failed to close channel", e);
+            }
+        }
+    }
+}
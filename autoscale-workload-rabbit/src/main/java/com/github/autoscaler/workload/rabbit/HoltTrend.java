@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+/**
+ * Holt's double exponential smoothing of a series whose observations may be irregularly spaced in time. The level is smoothed
+ * towards each observation and the trend, in units per second, towards the change in level since the last one.
+ */
+final class HoltTrend
+{
+    private double levelSmoothing;
+    private double trendSmoothing;
+    private double level;
+    private double trend;
+    private double lastTimeSeconds;
+    private int observations;
+
+    /**
+     * @param levelSmoothing the weight of each observation in the level, from 0 to 1
+     * @param trendSmoothing the weight of each change in level in the trend, from 0 to 1
+     */
+    HoltTrend(final double levelSmoothing, final double trendSmoothing)
+    {
+        setSmoothing(levelSmoothing, trendSmoothing);
+    }
+
+    void setSmoothing(final double levelSmoothing, final double trendSmoothing)
+    {
+        if (levelSmoothing < 0 || levelSmoothing > 1 || trendSmoothing < 0 || trendSmoothing > 1) {
+            throw new IllegalArgumentException("Smoothing factors must be between 0 and 1");
+        }
+        this.levelSmoothing = levelSmoothing;
+        this.trendSmoothing = trendSmoothing;
+    }
+
+    /**
+     * Add an observation to the series.
+     * @param timeSeconds the time of the observation, in seconds from any fixed point
+     * @param value the observed value
+     */
+    void observe(final double timeSeconds, final double value)
+    {
+        final double elapsed = timeSeconds - lastTimeSeconds;
+        if (observations == 0) {
+            level = value;
+            trend = 0;
+        } else if (elapsed <= 0) {
+            // Nothing can be said about the trend from observations at the same time
+            level = levelSmoothing * value + (1 - levelSmoothing) * level;
+        } else if (observations == 1) {
+            trend = (value - level) / elapsed;
+            level = value;
+        } else {
+            final double previousLevel = level;
+            level = levelSmoothing * value + (1 - levelSmoothing) * (level + trend * elapsed);
+            trend = trendSmoothing * (level - previousLevel) / elapsed + (1 - trendSmoothing) * trend;
+        }
+        lastTimeSeconds = timeSeconds;
+        observations++;
+    }
+
+    /**
+     * @param aheadSeconds how far beyond the last observation to forecast
+     * @return the forecast value, or 0 if there have been no observations
+     */
+    double forecast(final double aheadSeconds)
+    {
+        return observations == 0 ? 0.0 : level + trend * aheadSeconds;
+    }
+
+    double getLevel()
+    {
+        return level;
+    }
+
+    double getTrend()
+    {
+        return trend;
+    }
+
+    int getObservations()
+    {
+        return observations;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Reads the RabbitMQ management API responses that are polled on every analysis run. The responses are read token by token straight
+ * into the values that are needed, and any other field is skipped, so that no intermediate tree is built for them.
+ */
+final class ManagementResponseParser
+{
+    /**
+     * The fields of a single queue that {@link #parseQueueStats} reads. Sent as the {@code columns} query parameter so that the broker
+     * leaves everything else out of the response.
+     */
+    static final String QUEUE_COLUMNS
+        = "messages_ready,message_stats.publish_details.rate,message_stats.deliver_get_details.rate,head_message_timestamp";
+
+    /**
+     * The fields of each queue that {@link #parseSampledQueueStats} and {@link #parseSampledQueuePage} read. The details objects
+     * hold the samples requested with the {@code msg_rates_age} and {@code lengths_age} query parameters.
+     */
+    static final String SAMPLED_QUEUE_COLUMNS
+        = "name,messages_ready,messages_ready_details,message_stats.publish_details,message_stats.deliver_get_details";
+
+    /**
+     * The fields of each node that {@link #parseNodeStats} reads.
+     */
+    static final String NODE_COLUMNS = "name,running,mem_used,mem_limit,disk_free";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private ManagementResponseParser()
+    {
+    }
+
+    /**
+     * Reads the statistics of a single queue, as returned by {@code /api/queues/{vhost}/{name}}.
+     * @param in the response body, which is closed before returning
+     * @return the statistics of the queue; the rates are zero if the queue has not had any messages yet, and the head message
+     * timestamp is empty if the queue is empty or its messages were published without a timestamp
+     * @throws IOException if the response cannot be read or is not a JSON object
+     */
+    static QueueStats parseQueueStats(final InputStream in) throws IOException
+    {
+        try (final JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            int messages = 0;
+            double publishRate = 0.0;
+            double consumeRate = 0.0;
+            OptionalLong headMessageTimestamp = OptionalLong.empty();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("messages_ready".equals(field) && value.isNumeric()) {
+                    messages = parser.getIntValue();
+                } else if ("head_message_timestamp".equals(field) && value.isNumeric()) {
+                    headMessageTimestamp = OptionalLong.of(parser.getLongValue());
+                } else if ("message_stats".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String statsField = parser.currentName();
+                        parser.nextToken();
+                        if ("publish_details".equals(statsField)) {
+                            publishRate = readRate(parser);
+                        } else if ("deliver_get_details".equals(statsField)) {
+                            consumeRate = readRate(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return new QueueStats(messages, publishRate, consumeRate, headMessageTimestamp);
+        }
+    }
+
+    /**
+     * Reads the state of the cluster nodes, as returned by {@code /api/nodes}.
+     * @param in the response body, which is closed before returning
+     * @return the node statistics aggregated across the cluster
+     * @throws IOException if the response cannot be read or is not a JSON array
+     */
+    static NodeStats parseNodeStats(final InputStream in) throws IOException
+    {
+        try (final JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            final NodeStats nodeStats = new NodeStats();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                long memLimit = -1;
+                long memUsed = -1;
+                long diskFree = -1;
+                boolean running = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String field = parser.currentName();
+                    final JsonToken value = parser.nextToken();
+                    if ("mem_limit".equals(field) && value.isNumeric()) {
+                        memLimit = parser.getLongValue();
+                    } else if ("mem_used".equals(field) && value.isNumeric()) {
+                        memUsed = parser.getLongValue();
+                    } else if ("disk_free".equals(field) && value.isNumeric()) {
+                        diskFree = parser.getLongValue();
+                    } else if ("running".equals(field)) {
+                        running = value == JsonToken.VALUE_TRUE;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                nodeStats.addNode(running, memUsed, memLimit, diskFree);
+            }
+            return nodeStats;
+        }
+    }
+
+    /**
+     * Reads the statistics of a single queue along with the samples of its rates and length, as returned by
+     * {@code /api/queues/{vhost}/{name}} with a sample window requested.
+     * @param in the response body, which is closed before returning
+     * @return the statistics of the queue over the window
+     * @throws IOException if the response cannot be read or is not a JSON object
+     */
+    static SampledQueueStats parseSampledQueueStats(final InputStream in) throws IOException
+    {
+        try (final JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readSampledQueue(parser);
+        }
+    }
+
+    /**
+     * Reads a page of queues along with the samples of their rates and lengths, as returned by {@code /api/queues/{vhost}} with
+     * pagination and a sample window requested.
+     * @param in the response body, which is closed before returning
+     * @param queues the list the statistics of each queue on the page are added to
+     * @return the number of pages
+     * @throws IOException if the response cannot be read or is not a JSON object
+     */
+    static int parseSampledQueuePage(final InputStream in, final List<SampledQueueStats> queues) throws IOException
+    {
+        try (final JsonParser parser = JSON_FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            int pageCount = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("page_count".equals(field) && value.isNumeric()) {
+                    pageCount = parser.getIntValue();
+                } else if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    JsonToken item;
+                    while ((item = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (item == JsonToken.START_OBJECT) {
+                            queues.add(readSampledQueue(parser));
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return pageCount;
+        }
+    }
+
+    private static SampledQueueStats readSampledQueue(final JsonParser parser) throws IOException
+    {
+        String name = null;
+        int messages = 0;
+        final Samples lengths = new Samples();
+        final Samples published = new Samples();
+        final Samples delivered = new Samples();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                name = parser.getText();
+            } else if ("messages_ready".equals(field) && value.isNumeric()) {
+                messages = parser.getIntValue();
+            } else if ("messages_ready_details".equals(field)) {
+                readSamples(parser, lengths);
+            } else if ("message_stats".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String statsField = parser.currentName();
+                    parser.nextToken();
+                    if ("publish_details".equals(statsField)) {
+                        readSamples(parser, published);
+                    } else if ("deliver_get_details".equals(statsField)) {
+                        readSamples(parser, delivered);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new SampledQueueStats(
+            name, messages, lengths.getMean(messages), lengths.getSlope(), published.getRate(), delivered.getRate());
+    }
+
+    private static void readSamples(final JsonParser parser, final Samples samples) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if ("rate".equals(field) && value.isNumeric()) {
+                samples.currentRate = parser.getDoubleValue();
+            } else if ("samples".equals(field) && value == JsonToken.START_ARRAY) {
+                JsonToken sample;
+                while ((sample = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (sample != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    double sampleValue = Double.NaN;
+                    long timestamp = -1;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String sampleField = parser.currentName();
+                        final JsonToken sampleFieldValue = parser.nextToken();
+                        if ("sample".equals(sampleField) && sampleFieldValue.isNumeric()) {
+                            sampleValue = parser.getDoubleValue();
+                        } else if ("timestamp".equals(sampleField) && sampleFieldValue.isNumeric()) {
+                            timestamp = parser.getLongValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (timestamp >= 0 && !Double.isNaN(sampleValue)) {
+                        samples.add(timestamp, sampleValue);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static double readRate(final JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return 0.0;
+        }
+        double rate = 0.0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if ("rate".equals(field) && value.isNumeric()) {
+                rate = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return rate;
+    }
+
+    private static void expect(final JsonParser parser, final JsonToken actual, final JsonToken expected) throws IOException
+    {
+        if (actual != expected) {
+            throw new IOException("Unexpected RabbitMQ management API response: expected " + expected + " but found " + actual
+                + " at " + parser.currentLocation());
+        }
+    }
+
+    /**
+     * The state of the cluster nodes, aggregated as they are read.
+     */
+    static final class NodeStats
+    {
+        private int runningNodes;
+        private double highestMemUsedPercent;
+        private long lowestDiskFreeBytes = -1;
+
+        private void addNode(final boolean running, final long memUsed, final long memLimit, final long diskFree)
+        {
+            if (running) {
+                runningNodes++;
+            }
+            // The memory and disk figures are left out for nodes that are down
+            if (memUsed >= 0 && memLimit > 0) {
+                highestMemUsedPercent = Math.max(highestMemUsedPercent, ((double) memUsed / memLimit) * 100);
+            }
+            if (diskFree >= 0 && (lowestDiskFreeBytes < 0 || diskFree < lowestDiskFreeBytes)) {
+                lowestDiskFreeBytes = diskFree;
+            }
+        }
+
+        int getRunningNodes()
+        {
+            return runningNodes;
+        }
+
+        double getHighestMemUsedPercent()
+        {
+            return highestMemUsedPercent;
+        }
+
+        /**
+         * @return the lowest free disk space reported by any node, or -1 if no node reported it
+         */
+        long getLowestDiskFreeBytes()
+        {
+            return lowestDiskFreeBytes;
+        }
+    }
+
+    /**
+     * Running sums over the samples of one statistic, from which its average, its rate of change and its least-squares slope are
+     * worked out without holding the samples themselves. The samples may arrive in any order.
+     */
+    private static final class Samples
+    {
+        private double currentRate;
+        private int count;
+        private long firstTimestamp;
+        private double sumT;
+        private double sumY;
+        private double sumTT;
+        private double sumTY;
+        private long oldestTimestamp = Long.MAX_VALUE;
+        private double oldestValue;
+        private long newestTimestamp = Long.MIN_VALUE;
+        private double newestValue;
+
+        private void add(final long timestamp, final double value)
+        {
+            if (count == 0) {
+                firstTimestamp = timestamp;
+            }
+            count++;
+            final double t = (timestamp - firstTimestamp) / 1000.0;
+            sumT += t;
+            sumY += value;
+            sumTT += t * t;
+            sumTY += t * value;
+            if (timestamp < oldestTimestamp) {
+                oldestTimestamp = timestamp;
+                oldestValue = value;
+            }
+            if (timestamp > newestTimestamp) {
+                newestTimestamp = timestamp;
+                newestValue = value;
+            }
+        }
+
+        /**
+         * The average rate over the window of a statistic whose samples are cumulative counts, falling back to the current rate
+         * reported by the broker if there are too few samples or the count went backwards, as it does when a queue is recreated.
+         */
+        private double getRate()
+        {
+            if (count < 2 || newestTimestamp == oldestTimestamp || newestValue < oldestValue) {
+                return currentRate;
+            }
+            return (newestValue - oldestValue) / ((newestTimestamp - oldestTimestamp) / 1000.0);
+        }
+
+        private double getMean(final double fallback)
+        {
+            return count == 0 ? fallback : sumY / count;
+        }
+
+        /**
+         * The least-squares slope, per second, of the samples, or 0 if there are too few samples.
+         */
+        private double getSlope()
+        {
+            final double denominator = count * sumTT - sumT * sumT;
+            if (count < 2 || denominator == 0) {
+                return 0.0;
+            }
+            return (count * sumTY - sumT * sumY) / denominator;
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class PagedQueues
     {
         private String name;
         private int messages_ready;
+        private Long head_message_timestamp;
         private MessageStats message_stats;
 
         public String getName()
@@ -64,6 +65,15 @@ public class PagedQueues
             return messages_ready;
         }
 
+        /**
+         * @return the timestamp (in seconds since the epoch) of the message at the head of the queue, or null if the broker did not
+         * report one
+         */
+        public Long getHeadMessageTimestamp()
+        {
+            return head_message_timestamp;
+        }
+
         public MessageStats getMessageStats()
         {
             return message_stats;
@@ -75,6 +85,7 @@ public class PagedQueues
             return MoreObjects.toStringHelper(this)
                     .add("name", name)
                     .add("messages_ready", messages_ready)
+                    .add("head_message_timestamp", head_message_timestamp)
                     .add("message_stats", message_stats)
                     .toString();
         }
@@ -83,17 +94,24 @@ public class PagedQueues
     public static class MessageStats
     {
         private Rate publish_details;
+        private Rate deliver_get_details;
 
         public Rate getPublishDetails()
         {
             return publish_details;
         }
 
+        public Rate getDeliverGetDetails()
+        {
+            return deliver_get_details;
+        }
+
         @Override
         public String toString()
         {
             return MoreObjects.toStringHelper(this)
                     .add("publish_details", publish_details)
+                    .add("deliver_get_details", deliver_get_details)
                     .toString();
         }
     }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+/**
+ * A proportional-integral-derivative controller, in position form, with a deadband around the setpoint and anti-windup.
+ *
+ * Errors within the deadband are treated as zero, so that the output settles rather than chasing noise. The integral is clamped and
+ * is only accumulated while doing so would not push the output further beyond its limits, so that it does not wind up while the
+ * output is saturated and then overshoot once it is not. The derivative is taken of the error, and is left out of the first update.
+ */
+final class PidController
+{
+    private final double integralLimit;
+    private double proportionalGain;
+    private double integralGain;
+    private double derivativeGain;
+    private double deadband;
+    private double integral;
+    private double previousError;
+    private boolean hasPrevious;
+
+    /**
+     * @param integralLimit the largest magnitude the integral term may reach
+     */
+    PidController(final double integralLimit)
+    {
+        this.integralLimit = integralLimit;
+    }
+
+    void setTuning(final double proportionalGain, final double integralGain, final double derivativeGain, final double deadband)
+    {
+        this.proportionalGain = proportionalGain;
+        this.integralGain = integralGain;
+        this.derivativeGain = derivativeGain;
+        this.deadband = deadband;
+    }
+
+    /**
+     * Update the controller with the latest error.
+     * @param error the difference between the measured value and the setpoint
+     * @param elapsedSeconds the time since the last update, or 0 if this is the first
+     * @param lowerLimit the lowest output that can be acted upon
+     * @param upperLimit the highest output that can be acted upon
+     * @return the output, within the limits
+     */
+    double update(final double error, final double elapsedSeconds, final double lowerLimit, final double upperLimit)
+    {
+        final double e = Math.abs(error) <= deadband ? 0.0 : error;
+        final double proportional = proportionalGain * e;
+        final double derivative = hasPrevious && elapsedSeconds > 0
+            ? derivativeGain * (e - previousError) / elapsedSeconds
+            : 0.0;
+        final double candidateIntegral = clamp(integral + integralGain * e * elapsedSeconds, -integralLimit, integralLimit);
+        final double output = proportional + candidateIntegral + derivative;
+
+        // Conditional integration: only integrate if the output is within its limits, or the error would bring it back within them
+        if ((output <= upperLimit || e < 0) && (output >= lowerLimit || e > 0)) {
+            integral = candidateIntegral;
+        }
+        previousError = e;
+        hasPrevious = true;
+        return clamp(proportional + integral + derivative, lowerLimit, upperLimit);
+    }
+
+    /**
+     * Forget the integral and the last error, as when there is no workload to control.
+     */
+    void reset()
+    {
+        integral = 0.0;
+        previousError = 0.0;
+        hasPrevious = false;
+    }
+
+    double getIntegral()
+    {
+        return integral;
+    }
+
+    private static double clamp(final double value, final double lower, final double upper)
+    {
+        return Math.max(lower, Math.min(upper, value));
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the statistics of the queues in a vhost from the Prometheus text exposition format served by the rabbitmq_prometheus plugin,
+ * on its /metrics/per-object or /metrics/detailed endpoint.
+ *
+ * The exposition is read a line at a time into a reused buffer. Most of its lines are for metrics other than those of queues, and
+ * these are recognised from the start of their names and skipped without allocating anything. Only the queue name of each line that
+ * is used is copied out.
+ */
+final class PrometheusMetricsParser
+{
+    private static final String METRIC_PREFIX = "rabbitmq_";
+    /**
+     * The prefix of the metric names on the /metrics/detailed endpoint, in place of {@link #METRIC_PREFIX}.
+     */
+    private static final String DETAILED_METRIC_PREFIX = "rabbitmq_detailed_";
+
+    private enum Metric
+    {
+        MESSAGES_READY("queue_messages_ready"),
+        PUBLISHED("queue_messages_published_total"),
+        DELIVERED("channel_messages_delivered_total"),
+        DELIVERED_ACK("channel_messages_delivered_ack_total"),
+        GET("channel_get_total"),
+        GET_ACK("channel_get_ack_total");
+
+        private static final Metric[] METRICS = values();
+
+        private final String name;
+
+        Metric(final String name)
+        {
+            this.name = name;
+        }
+    }
+
+    private final String vhost;
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int bufferPosition;
+    private int bufferLimit;
+    private char[] line = new char[256];
+    private int lineLength;
+    private final StringBuilder labelValue = new StringBuilder();
+    /**
+     * The name of the queue of the series on the current line, or null if it has no queue label or is in another vhost.
+     */
+    private String queueName;
+
+    private PrometheusMetricsParser(final Reader reader, final String vhost)
+    {
+        this.reader = reader;
+        this.vhost = vhost;
+    }
+
+    /**
+     * Reads the statistics of the queues in a vhost from an exposition. The counters of a queue are summed over the channels that
+     * published to or consumed from it, and the series of queues in other vhosts are ignored.
+     * @param reader the exposition
+     * @param vhost the vhost of the queues
+     * @return the metrics of each queue that appears in the exposition, keyed by queue name
+     * @throws IOException if the exposition cannot be read
+     */
+    static Map<String, QueueMetrics> parse(final Reader reader, final String vhost) throws IOException
+    {
+        return new PrometheusMetricsParser(reader, vhost).parse();
+    }
+
+    private Map<String, QueueMetrics> parse() throws IOException
+    {
+        final Map<String, QueueMetrics> queueMetrics = new HashMap<>();
+        while (readLine()) {
+            final int nameLength = getNameLength();
+            final Metric metric = getMetric(nameLength);
+            if (metric == null) {
+                continue;
+            }
+            final int valueStart = readLabels(nameLength);
+            if (valueStart < 0 || queueName == null) {
+                continue;
+            }
+            final double value = parseValue(valueStart);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            queueMetrics.computeIfAbsent(queueName, name -> new QueueMetrics()).add(metric, value);
+        }
+        return queueMetrics;
+    }
+
+    private boolean readLine() throws IOException
+    {
+        lineLength = 0;
+        while (true) {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = reader.read(buffer);
+                bufferPosition = 0;
+                if (bufferLimit < 0) {
+                    bufferLimit = 0;
+                    return lineLength > 0;
+                }
+            }
+            while (bufferPosition < bufferLimit) {
+                final char c = buffer[bufferPosition++];
+                if (c == '\n') {
+                    return true;
+                }
+                if (lineLength == line.length) {
+                    final char[] longerLine = new char[line.length * 2];
+                    System.arraycopy(line, 0, longerLine, 0, lineLength);
+                    line = longerLine;
+                }
+                line[lineLength++] = c;
+            }
+        }
+    }
+
+    private int getNameLength()
+    {
+        int i = 0;
+        while (i < lineLength && line[i] != '{' && line[i] != ' ' && line[i] != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the metric named at the start of the current line, or null if it is a comment or a metric that is not used
+     */
+    private Metric getMetric(final int nameLength)
+    {
+        final int prefixLength;
+        if (startsWith(DETAILED_METRIC_PREFIX, 0, nameLength)) {
+            prefixLength = DETAILED_METRIC_PREFIX.length();
+        } else if (startsWith(METRIC_PREFIX, 0, nameLength)) {
+            prefixLength = METRIC_PREFIX.length();
+        } else {
+            return null;
+        }
+        for (final Metric metric : Metric.METRICS) {
+            if (metric.name.length() == nameLength - prefixLength && startsWith(metric.name, prefixLength, nameLength)) {
+                return metric;
+            }
+        }
+        return null;
+    }
+
+    private boolean startsWith(final String prefix, final int start, final int end)
+    {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the labels of the series on the current line, setting the {@link #queueName} if it has a queue label and is in the vhost.
+     * @return the position of the value on the line, or -1 if the line is malformed
+     */
+    private int readLabels(final int nameLength)
+    {
+        queueName = null;
+        int i = nameLength;
+        if (i == lineLength || line[i] != '{') {
+            return i;
+        }
+        i++;
+        boolean inVhost = true;
+        String queue = null;
+        while (true) {
+            while (i < lineLength && (line[i] == ' ' || line[i] == ',')) {
+                i++;
+            }
+            if (i == lineLength) {
+                return -1;
+            }
+            if (line[i] == '}') {
+                i++;
+                break;
+            }
+            final int labelNameStart = i;
+            while (i < lineLength && line[i] != '=') {
+                i++;
+            }
+            final int labelNameEnd = i;
+            i++;
+            if (i >= lineLength || line[i] != '"') {
+                return -1;
+            }
+            i = readLabelValue(i + 1);
+            if (i < 0) {
+                return -1;
+            }
+            if (isLabel("queue", labelNameStart, labelNameEnd)) {
+                queue = labelValue.toString();
+            } else if (isLabel("vhost", labelNameStart, labelNameEnd) || isLabel("queue_vhost", labelNameStart, labelNameEnd)) {
+                inVhost = vhost.contentEquals(labelValue);
+            }
+        }
+        if (inVhost) {
+            queueName = queue;
+        }
+        return i;
+    }
+
+    private boolean isLabel(final String name, final int start, final int end)
+    {
+        return name.length() == end - start && startsWith(name, start, end);
+    }
+
+    /**
+     * Reads a quoted label value, undoing its escapes, into the {@link #labelValue}.
+     * @return the position after the closing quote, or -1 if there is none
+     */
+    private int readLabelValue(final int start)
+    {
+        labelValue.setLength(0);
+        int i = start;
+        while (i < lineLength) {
+            final char c = line[i++];
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\' && i < lineLength) {
+                final char escaped = line[i++];
+                labelValue.append(escaped == 'n' ? '\n' : escaped);
+            } else {
+                labelValue.append(c);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the value of the series on the current line. Whole numbers, which is how the broker writes its counters and gauges, are
+     * parsed in place; anything else is handed to {@link Double#parseDouble}.
+     * @return the value, or NaN if it is not a number
+     */
+    private double parseValue(final int valueStart)
+    {
+        int start = valueStart;
+        while (start < lineLength && (line[start] == ' ' || line[start] == '\t')) {
+            start++;
+        }
+        int end = start;
+        while (end < lineLength && line[end] != ' ' && line[end] != '\t' && line[end] != '\r') {
+            end++;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+        if (end - start < 19) {
+            long value = 0;
+            int i = start;
+            while (i < end && line[i] >= '0' && line[i] <= '9') {
+                value = value * 10 + (line[i++] - '0');
+            }
+            if (i == end) {
+                return value;
+            }
+        }
+        try {
+            return Double.parseDouble(new String(line, start, end - start));
+        } catch (final NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * The metrics of a queue from one exposition.
+     */
+    static final class QueueMetrics
+    {
+        private long messagesReady;
+        private double publishedTotal;
+        private double consumedTotal;
+
+        private void add(final Metric metric, final double value)
+        {
+            switch (metric) {
+                case MESSAGES_READY:
+                    messagesReady += (long) value;
+                    break;
+                case PUBLISHED:
+                    publishedTotal += value;
+                    break;
+                default:
+                    consumedTotal += value;
+                    break;
+            }
+        }
+
+        /**
+         * @return the number of messages ready to be delivered from the queue
+         */
+        long getMessagesReady()
+        {
+            return messagesReady;
+        }
+
+        /**
+         * @return the number of messages published to the queue, over the channels that are open
+         */
+        double getPublishedTotal()
+        {
+            return publishedTotal;
+        }
+
+        /**
+         * @return the number of messages delivered or got from the queue, with or without acknowledgement, over the channels that are
+         * open
+         */
+        double getConsumedTotal()
+        {
+            return consumedTotal;
+        }
+    }
+}
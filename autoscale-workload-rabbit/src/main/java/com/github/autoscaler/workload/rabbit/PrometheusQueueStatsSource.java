@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import com.github.autoscaler.api.ScalerException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Acquires the statistics of every queue in a vhost by scraping the endpoint of the rabbitmq_prometheus plugin that exposes metrics
+ * per queue, such as http://rabbitmq:15692/metrics/per-object, which costs the broker far less than the management API.
+ *
+ * The endpoint only exposes how many messages have been published to and consumed from each queue, so the rates are worked out from
+ * the differences between these counters over successive scrapes. The rates of a queue are 0 on the first scrape that includes it.
+ * The counters are kept per channel by the broker, and drop when a channel closes; the rates of a queue whose counters have dropped
+ * are kept from the previous scrape, as how many messages were handled in between cannot be known.
+ */
+final class PrometheusQueueStatsSource
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PrometheusQueueStatsSource.class);
+    /**
+     * The shortest time between scrapes. The broker only updates the metrics it exposes at its statistics collection interval, which
+     * is 5 seconds by default, so scraping more often would only give rates that alternate between 0 and double their real values.
+     */
+    static final int MIN_SCRAPE_INTERVAL_SECONDS = 5;
+
+    private final Client client;
+    private final String endpoint;
+    private final String vhost;
+    private final LongSupplier nanoClock;
+    /**
+     * The counters and rates of each queue from the last scrape. Guarded by this.
+     */
+    private Map<String, QueueCounters> lastCounters = Collections.emptyMap();
+    /**
+     * When the last scrape was made. Guarded by this.
+     */
+    private long lastScrapeTime;
+
+    /**
+     * @param endpoint the URL of the endpoint that exposes metrics per queue
+     * @param vhost the vhost that contains the queues
+     */
+    PrometheusQueueStatsSource(final String endpoint, final String vhost)
+    {
+        this(RabbitManagementApiFactory.createClient(), endpoint, vhost, System::nanoTime);
+    }
+
+    PrometheusQueueStatsSource(final Client client, final String endpoint, final String vhost, final LongSupplier nanoClock)
+    {
+        this.client = Objects.requireNonNull(client);
+        this.endpoint = Objects.requireNonNull(endpoint);
+        this.vhost = Objects.requireNonNull(vhost);
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+    }
+
+    /**
+     * Scrapes the endpoint for the statistics of every queue in the vhost.
+     * @return the statistics of each queue in the vhost, keyed by queue name
+     * @throws ScalerException if the endpoint cannot be scraped
+     */
+    synchronized Map<String, QueueStats> getQueueStats() throws ScalerException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics;
+        final long scrapeTime = nanoClock.getAsLong();
+        final Response response = get();
+        try {
+            final int status = response.getStatus();
+            if (status != 200) {
+                throw new ScalerException("Failed to scrape RabbitMQ metrics using url " + endpoint + ", status " + status);
+            }
+            try (final Reader reader
+                    = new InputStreamReader(response.readEntity(InputStream.class), StandardCharsets.UTF_8)) {
+                queueMetrics = PrometheusMetricsParser.parse(reader, vhost);
+            }
+        } catch (final IOException | ProcessingException e) {
+            throw new ScalerException("Failed to read RabbitMQ metrics from url " + endpoint, e);
+        } finally {
+            response.close();
+        }
+
+        final double elapsedSeconds = (double) (scrapeTime - lastScrapeTime) / TimeUnit.SECONDS.toNanos(1);
+        final Map<String, QueueCounters> counters = new HashMap<>();
+        final Map<String, QueueStats> queueStats = new HashMap<>();
+        for (final Map.Entry<String, PrometheusMetricsParser.QueueMetrics> entry : queueMetrics.entrySet()) {
+            final PrometheusMetricsParser.QueueMetrics metrics = entry.getValue();
+            final QueueCounters last = lastCounters.get(entry.getKey());
+            final QueueCounters current = last == null
+                ? new QueueCounters(metrics.getPublishedTotal(), metrics.getConsumedTotal(), 0.0, 0.0)
+                : new QueueCounters(
+                    metrics.getPublishedTotal(),
+                    metrics.getConsumedTotal(),
+                    getRate(last.publishedTotal, metrics.getPublishedTotal(), elapsedSeconds, last.publishRate),
+                    getRate(last.consumedTotal, metrics.getConsumedTotal(), elapsedSeconds, last.consumeRate));
+            counters.put(entry.getKey(), current);
+            queueStats.put(entry.getKey(), new QueueStats(
+                (int) Math.min(metrics.getMessagesReady(), Integer.MAX_VALUE),
+                current.publishRate,
+                current.consumeRate,
+                OptionalLong.empty()));
+        }
+        lastCounters = counters;
+        lastScrapeTime = scrapeTime;
+
+        LOG.debug("Scraped statistics for {} queues in vhost {}", queueStats.size(), vhost);
+
+        return Collections.unmodifiableMap(queueStats);
+    }
+
+    private static double getRate(final double lastTotal, final double total, final double elapsedSeconds, final double lastRate)
+    {
+        if (total < lastTotal || elapsedSeconds <= 0) {
+            return lastRate;
+        }
+        return (total - lastTotal) / elapsedSeconds;
+    }
+
+    /**
+     * The timeouts of the request are limited by the deadline of the current analysis run, as the requests to the management API are.
+     */
+    private Response get() throws ScalerException
+    {
+        try {
+            return client.target(endpoint).request(MediaType.TEXT_PLAIN).get();
+        } catch (final ProcessingException e) {
+            throw new ScalerException("Failed to scrape RabbitMQ metrics using url " + endpoint, e);
+        }
+    }
+
+    private static final class QueueCounters
+    {
+        private final double publishedTotal;
+        private final double consumedTotal;
+        private final double publishRate;
+        private final double consumeRate;
+
+        private QueueCounters(
+            final double publishedTotal,
+            final double consumedTotal,
+            final double publishRate,
+            final double consumeRate
+        )
+        {
+            this.publishedTotal = publishedTotal;
+            this.consumedTotal = consumedTotal;
+            this.publishRate = publishRate;
+            this.consumeRate = consumeRate;
+        }
+    }
+}
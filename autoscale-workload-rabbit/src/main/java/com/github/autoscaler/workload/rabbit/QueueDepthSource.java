@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import java.io.IOException;
+
+/**
+ * A source of the current depth of queues that is cheaper to ask than the RabbitMQ management API.
+ */
+@FunctionalInterface
+interface QueueDepthSource
+{
+    /**
+     * @param queue the name of the queue
+     * @return the number of messages ready to be delivered from the queue, and the number of consumers it has
+     * @throws IOException if the depth cannot be read, such as when the queue does not exist or the broker cannot be reached
+     */
+    QueueDepth getQueueDepth(String queue) throws IOException;
+
+    final class QueueDepth
+    {
+        private final int messageCount;
+        private final int consumerCount;
+
+        QueueDepth(final int messageCount, final int consumerCount)
+        {
+            this.messageCount = messageCount;
+            this.consumerCount = consumerCount;
+        }
+
+        int getMessageCount()
+        {
+            return messageCount;
+        }
+
+        int getConsumerCount()
+        {
+            return consumerCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "QueueDepth{" +
+                   "messageCount=" + messageCount +
+                   ", consumerCount=" + consumerCount +
+                   '}';
+        }
+    }
+}
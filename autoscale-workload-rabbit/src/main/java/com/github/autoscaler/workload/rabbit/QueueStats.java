@@ -15,6 +15,8 @@
  */
 package com.github.autoscaler.workload.rabbit;
 
+import java.util.OptionalLong;
+
 
 /**
  * Class that holds information on the statistics of a queue from rabbit.
@@ -24,13 +26,21 @@ public class QueueStats
     private final int messages;
     private final double publishRate;
     private final double consumeRate;
+    private final OptionalLong headMessageTimestamp;
 
 
     public QueueStats(final int messages, final double publishRate, final double consumeRate)
+    {
+        this(messages, publishRate, consumeRate, OptionalLong.empty());
+    }
+
+
+    public QueueStats(final int messages, final double publishRate, final double consumeRate, final OptionalLong headMessageTimestamp)
     {
         this.messages = messages;
         this.publishRate = publishRate;
         this.consumeRate = consumeRate;
+        this.headMessageTimestamp = headMessageTimestamp;
     }
 
 
@@ -52,6 +62,16 @@ public class QueueStats
     }
 
 
+    /**
+     * @return the timestamp (in seconds since the epoch) of the message at the head of the queue, if the broker reports it, which
+     * it does when the messages were published with a timestamp property
+     */
+    public OptionalLong getHeadMessageTimestamp()
+    {
+        return headMessageTimestamp;
+    }
+
+
     @Override
     public String toString()
     {
@@ -59,6 +79,7 @@ public class QueueStats
                "messages=" + messages +
                ", publishRate=" + publishRate +
                ", consumeRate=" + consumeRate +
+               ", headMessageTimestamp=" + headMessageTimestamp +
                '}';
     }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import com.github.autoscaler.api.ScalerException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the statistics of every queue in a vhost, as acquired by a single sweep of the RabbitMQ management API, so that they can be
+ * shared between all of the analysers of the queues in the vhost.
+ *
+ * Only one sweep runs at a time. A caller that needs the statistics while a sweep is running waits for that sweep and is given its
+ * result, or its failure, rather than starting another.
+ */
+final class QueueStatsCache
+{
+    @FunctionalInterface
+    interface Loader
+    {
+        Map<String, QueueStats> load() throws ScalerException;
+    }
+
+    private final Loader loader;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    /**
+     * The statistics from the last successful sweep, or null if there are none or the last sweep failed.
+     */
+    private volatile Snapshot snapshot;
+    /**
+     * The sweep that is running, or null if there is none. Guarded by this.
+     */
+    private CompletableFuture<Map<String, QueueStats>> sweep;
+
+    /**
+     * @param loader performs a sweep of the queues in the vhost
+     * @param ttlSeconds the number of seconds the statistics from a sweep may be used for by getFresh
+     * @param nanoClock the source of the current time, in nanoseconds
+     */
+    QueueStatsCache(final Loader loader, final int ttlSeconds, final LongSupplier nanoClock)
+    {
+        this.loader = Objects.requireNonNull(loader);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+    }
+
+    /**
+     * @return the statistics from the last sweep if it started less than the time to live ago, otherwise the statistics from a new
+     * sweep
+     * @throws ScalerException if the new sweep fails
+     */
+    Map<String, QueueStats> getFresh() throws ScalerException
+    {
+        final Snapshot current = snapshot;
+        if (isFresh(current)) {
+            return current.queueStats;
+        }
+        return load(false);
+    }
+
+    /**
+     * @return the statistics from the last sweep however old they are, or null if there are none
+     */
+    Map<String, QueueStats> getLatest()
+    {
+        final Snapshot current = snapshot;
+        return current == null ? null : current.queueStats;
+    }
+
+    /**
+     * Sweep the queues of the vhost, even if the statistics from the last sweep are fresh. If a sweep is already running, its result
+     * is used instead.
+     * @return the statistics from the sweep
+     * @throws ScalerException if the sweep fails, in which case the statistics from the last sweep are discarded
+     */
+    Map<String, QueueStats> refresh() throws ScalerException
+    {
+        return load(true);
+    }
+
+    private Map<String, QueueStats> load(final boolean force) throws ScalerException
+    {
+        final CompletableFuture<Map<String, QueueStats>> future;
+        final boolean owner;
+        synchronized (this) {
+            final Snapshot current = snapshot;
+            if (sweep != null) {
+                future = sweep;
+                owner = false;
+            } else if (!force && isFresh(current)) {
+                return current.queueStats;
+            } else {
+                future = new CompletableFuture<>();
+                sweep = future;
+                owner = true;
+            }
+        }
+        if (!owner) {
+            return await(future);
+        }
+        final long startTime = nanoClock.getAsLong();
+        try {
+            final Map<String, QueueStats> queueStats = loader.load();
+            snapshot = new Snapshot(queueStats, startTime);
+            future.complete(queueStats);
+            return queueStats;
+        } catch (final ScalerException | RuntimeException e) {
+            snapshot = null;
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                sweep = null;
+            }
+        }
+    }
+
+    private boolean isFresh(final Snapshot current)
+    {
+        return current != null && nanoClock.getAsLong() - current.startTime < ttlNanos;
+    }
+
+    private static Map<String, QueueStats> await(final CompletableFuture<Map<String, QueueStats>> future) throws ScalerException
+    {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScalerException("Interrupted while waiting for the statistics of the queues in the vhost", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof ScalerException) {
+                throw (ScalerException) e.getCause();
+            }
+            throw new ScalerException("Failed to get the statistics of the queues in the vhost", e.getCause());
+        }
+    }
+
+    private static final class Snapshot
+    {
+        private final Map<String, QueueStats> queueStats;
+        private final long startTime;
+
+        private Snapshot(final Map<String, QueueStats> queueStats, final long startTime)
+        {
+            this.queueStats = queueStats;
+            this.startTime = startTime;
+        }
+    }
+}
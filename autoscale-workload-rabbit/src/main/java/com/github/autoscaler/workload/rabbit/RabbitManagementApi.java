@@ -22,6 +22,7 @@ import java.nio.charset.StandardCharsets;
 import jakarta.ws.rs.ProcessingException;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -30,6 +31,11 @@ import com.github.autoscaler.api.QueueNotFoundException;
 import com.github.autoscaler.api.ScalerException;
 import com.google.common.net.UrlEscapers;
 
+/**
+ * The timeouts of requests made during an analysis run with a deadline are limited to the time remaining until the deadline by the
+ * {@link com.github.autoscaler.api.AnalysisDeadlineFilter} registered on the client, so that a request that hangs does not outlive
+ * the run that made it.
+ */
 final class RabbitManagementApi
 {
     private final Client client;
@@ -45,8 +51,10 @@ final class RabbitManagementApi
 
     public Response getNodeStatus() throws ScalerException
     {
+        final String url = endpoint + "/api/nodes/";
         try {
-            final Invocation.Builder builder = client.target(endpoint + "/api/nodes/")
+            final Invocation.Builder builder = client.target(url)
+                    .queryParam("columns", ManagementResponseParser.NODE_COLUMNS)
                     .request(MediaType.APPLICATION_JSON)
                     .header(HttpHeaders.AUTHORIZATION, authorizationHeaderValue);
             return builder.get();
@@ -58,15 +66,45 @@ final class RabbitManagementApi
     public Response getQueueStatus(final String vhost, final String queueName)
         throws ScalerException
     {
-        final String url
-            = endpoint
-                + "/api/queues/"
-                + UrlEscapers.urlPathSegmentEscaper().escape(vhost) + "/"
-                + UrlEscapers.urlPathSegmentEscaper().escape(queueName);
+        final String url = getQueueUrl(vhost, queueName);
+        return getQueueStatus(url, client.target(url).queryParam("columns", ManagementResponseParser.QUEUE_COLUMNS));
+    }
+
+    /**
+     * Gets the statistics of a queue along with the samples the broker holds of its rates and length over a recent window.
+     * @param vhost the vhost of the queue
+     * @param queueName the name of the queue
+     * @param windowSeconds how far back the samples should go
+     * @param incrementSeconds the time between samples
+     * @return the response, to be read with {@link ManagementResponseParser#parseSampledQueueStats}
+     * @throws ScalerException if the request fails or the queue does not exist
+     */
+    public Response getSampledQueueStatus(
+            final String vhost,
+            final String queueName,
+            final int windowSeconds,
+            final int incrementSeconds)
+        throws ScalerException
+    {
+        final String url = getQueueUrl(vhost, queueName);
+        return getQueueStatus(url, withSampleWindow(client.target(url), windowSeconds, incrementSeconds)
+            .queryParam("columns", ManagementResponseParser.SAMPLED_QUEUE_COLUMNS));
+    }
+
+    private String getQueueUrl(final String vhost, final String queueName)
+    {
+        return endpoint
+            + "/api/queues/"
+            + UrlEscapers.urlPathSegmentEscaper().escape(vhost) + "/"
+            + UrlEscapers.urlPathSegmentEscaper().escape(queueName);
+    }
+
+    private Response getQueueStatus(final String url, final WebTarget target)
+        throws ScalerException
+    {
         try {
             final Invocation.Builder builder
-                = client
-                    .target(url)
+                = target
                     .request(MediaType.APPLICATION_JSON)
                     .header(HttpHeaders.AUTHORIZATION, authorizationHeaderValue);
 
@@ -101,8 +139,73 @@ final class RabbitManagementApi
             = endpoint + "/api/queues/" + UrlEscapers.urlPathSegmentEscaper().escape(vhost) + "?use_regex=true";
 
         try {
-            final Invocation.Builder builder = client.target(url)
+            return getPagedQueues(url, client.target(url)
+                    .queryParam("name", URLEncoder.encode(nameRegex, StandardCharsets.UTF_8.name())),
+                    page, pageSize, columnsCsvString);
+        } catch (final UnsupportedEncodingException e) {
+            throw new ScalerException("Failed to contact RabbitMQ management API using url " + url
+                    + ". RabbitMQ could be unavailable, will retry.", e);
+        }
+    }
+
+    public PagedQueues getPagedQueues(
+            final String vhost,
+            final int page,
+            final int pageSize,
+            final String columnsCsvString)
+            throws ScalerException
+    {
+        final String url = endpoint + "/api/queues/" + UrlEscapers.urlPathSegmentEscaper().escape(vhost);
+
+        return getPagedQueues(url, client.target(url), page, pageSize, columnsCsvString);
+    }
+
+    /**
+     * Gets a page of the queues in a vhost whose names match a regular expression, along with the samples the broker holds of their
+     * rates and lengths over a recent window.
+     * @return the response, to be read with {@link ManagementResponseParser#parseSampledQueuePage}
+     */
+    public Response getPagedSampledQueues(
+            final String vhost,
+            final String nameRegex,
+            final int page,
+            final int pageSize,
+            final int windowSeconds,
+            final int incrementSeconds)
+            throws ScalerException
+    {
+        final String url
+            = endpoint + "/api/queues/" + UrlEscapers.urlPathSegmentEscaper().escape(vhost) + "?use_regex=true";
+
+        try {
+            final WebTarget target = withSampleWindow(client.target(url), windowSeconds, incrementSeconds)
                     .queryParam("name", URLEncoder.encode(nameRegex, StandardCharsets.UTF_8.name()))
+                    .queryParam("page", page).queryParam("page_size", pageSize)
+                    .queryParam("columns", ManagementResponseParser.SAMPLED_QUEUE_COLUMNS);
+            return getQueueStatus(url, target);
+        } catch (final UnsupportedEncodingException e) {
+            throw new ScalerException("Failed to contact RabbitMQ management API using url " + url
+                    + ". RabbitMQ could be unavailable, will retry.", e);
+        }
+    }
+
+    private static WebTarget withSampleWindow(final WebTarget target, final int windowSeconds, final int incrementSeconds)
+    {
+        return target
+            .queryParam("msg_rates_age", windowSeconds).queryParam("msg_rates_incr", incrementSeconds)
+            .queryParam("lengths_age", windowSeconds).queryParam("lengths_incr", incrementSeconds);
+    }
+
+    private PagedQueues getPagedQueues(
+            final String url,
+            final WebTarget target,
+            final int page,
+            final int pageSize,
+            final String columnsCsvString)
+            throws ScalerException
+    {
+        try {
+            final Invocation.Builder builder = target
                     .queryParam("page", page).queryParam("page_size", pageSize)
                     .queryParam("columns", URLEncoder.encode(columnsCsvString, StandardCharsets.UTF_8.name()))
                     .request(MediaType.APPLICATION_JSON).header(HttpHeaders.AUTHORIZATION, authorizationHeaderValue);
@@ -21,6 +21,8 @@ import java.util.Base64;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 
+import com.github.autoscaler.api.AnalysisDeadlineFilter;
+
 import org.glassfish.jersey.client.ClientProperties;
 
 final class RabbitManagementApiFactory
@@ -31,16 +33,27 @@ final class RabbitManagementApiFactory
     public static RabbitManagementApi create(final String endpoint, final String user, final String password)
     {
 
-        final Client client = ClientBuilder.newClient();
-        client.register(JacksonConfigurator.class);
-        client.property(ClientProperties.CONNECT_TIMEOUT, CONNECT_TIMEOUT_MILLISECONDS);
-        client.property(ClientProperties.READ_TIMEOUT, READ_TIMEOUT_MILLISECONDS);
+        final Client client = createClient();
         final String credentials = user + ":" + password;
         final String authorizationHeaderValue
             = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
         return new RabbitManagementApi(client, endpoint, authorizationHeaderValue);
     }
 
+    /**
+     * @return a client with the timeouts used for all requests to RabbitMQ over HTTP, which are shortened for requests made during an
+     * analysis run so that they do not outlive its deadline
+     */
+    static Client createClient()
+    {
+        final Client client = ClientBuilder.newClient();
+        client.register(JacksonConfigurator.class);
+        client.register(AnalysisDeadlineFilter.class);
+        client.property(ClientProperties.CONNECT_TIMEOUT, CONNECT_TIMEOUT_MILLISECONDS);
+        client.property(ClientProperties.READ_TIMEOUT, READ_TIMEOUT_MILLISECONDS);
+        return client;
+    }
+
     private RabbitManagementApiFactory()
     {
     }
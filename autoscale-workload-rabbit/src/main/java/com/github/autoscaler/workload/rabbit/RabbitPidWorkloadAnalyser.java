@@ -0,0 +1,306 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ResourceUtilisation;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+import com.github.autoscaler.api.WorkloadAnalyser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Makes scaling recommendations with a PID controller whose setpoint is the backlogGoal of the profile, and whose measured value is
+ * the time the backlog of messages in the target and staging queues would take to finish at the rate at which the running instances
+ * consume messages.
+ *
+ * The number of instances recommended is the number needed to keep up with the publish rate of the target queue, corrected by the
+ * output of the controller, which is relative to that number. As the controller holds its integral between runs, the recommendation
+ * changes gradually rather than being worked out afresh each time. The deadband of the profile keeps it steady while the backlog is
+ * close enough to the goal, and the number of instances is only changed once a whole instance more or fewer is needed.
+ */
+public class RabbitPidWorkloadAnalyser implements WorkloadAnalyser
+{
+    private static final int MAX_SCALE = 5;
+    /**
+     * The largest relative error acted upon, so that a backlog that builds up while the consumption rate is tiny does not swamp the
+     * controller.
+     */
+    private static final double MAX_ERROR = 4.0;
+    /**
+     * The weight given to the latest measurement when smoothing the publish rate and the rate at which each instance consumes
+     * messages.
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+    private static final Logger LOG = LoggerFactory.getLogger(RabbitPidWorkloadAnalyser.class);
+
+    private RabbitWorkloadProfile profile;
+    private final String scalingTarget;
+    private final RabbitStatsReporter rabbitStats;
+    private final RabbitSystemResourceMonitor rabbitResourceMonitor;
+    private final String stagingQueueNameRegex;
+    private final LongSupplier nanoClock;
+    private final PidController controller = new PidController(MAX_ERROR);
+    private double perInstanceConsumeRate;
+    private double smoothedPublishRate;
+    private long counter;
+    private long lastRunNanos;
+    private boolean hasLastRun;
+    /**
+     * The number of instances last recommended, or -1 if none has been recommended since the controller was reset.
+     */
+    private int lastRecommendation = -1;
+    private boolean hasPrevious;
+    private long previousMessages;
+    private double previousPublishRate;
+    private volatile OptionalDouble workloadVolatility = OptionalDouble.empty();
+
+    public RabbitPidWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator
+    )
+    {
+        this(scalingTarget, reporter, profile, rabbitResourceMonitor, stagingQueueIndicator, System::nanoTime);
+    }
+
+    RabbitPidWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator,
+        final LongSupplier nanoClock
+    )
+    {
+        this.scalingTarget = Objects.requireNonNull(scalingTarget);
+        this.rabbitStats = Objects.requireNonNull(reporter);
+        this.rabbitResourceMonitor = rabbitResourceMonitor;
+        this.stagingQueueNameRegex = stagingQueueIndicator != null
+                ? String.format("^%s%s.+$", scalingTarget, stagingQueueIndicator)
+                : null;
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+        setProfile(profile);
+    }
+
+    /**
+     * Switch to a different profile, keeping the state of the controller.
+     * @param profile the profile to use from now on
+     */
+    public synchronized void setProfile(final RabbitWorkloadProfile profile)
+    {
+        this.profile = Objects.requireNonNull(profile);
+        controller.setTuning(profile.getProportionalGain(), profile.getIntegralGain(), profile.getDerivativeGain(),
+                             profile.getDeadband());
+    }
+
+    @Override
+    public ResourceUtilisation getCurrentResourceUtilisation() throws ScalerException
+    {
+        return rabbitResourceMonitor.getCurrentResourceUtilisation();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If there are messages and no instances, scale up by 1 immediately. While instances are staging no recommendation is made and the
+     * controller is not updated, as the instances starting up would not yet be reflected in the consumption rate. If there are no
+     * messages and nothing is being published, the controller is reset and the service is scaled down towards zero. If the rate at
+     * which each instance consumes messages is not known yet, stay the same. Otherwise the controller is updated with the relative
+     * difference between the time the backlog would take to finish and the backlogGoal, and its output is used to correct the number
+     * of instances needed for the publish rate. The instances the recommendation was not acted upon for, such as when the maximum
+     * number of instances has been reached, are taken as the limits of the controller so that it does not wind up. No more than
+     * MAX_SCALE instances are added or removed by one recommendation.
+     */
+    @Override
+    public synchronized ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
+            throws ScalerException
+    {
+        final QueueStats targetQueueStats = rabbitStats.getQueueStats(scalingTarget);
+        LOG.debug("Stats for target queue {}: {}", scalingTarget, targetQueueStats);
+
+        final List<StagingQueueStats> stagingQueuesStats = rabbitStats.getStagingQueueStats(stagingQueueNameRegex);
+        LOG.debug("Stats for staging queues: {}", stagingQueuesStats);
+
+        final long messages = targetQueueStats.getMessages()
+            + stagingQueuesStats.stream().mapToInt(StagingQueueStats::getMessages).sum();
+        final double publishRate = targetQueueStats.getPublishRate();
+        final double stagingQueuesPublishRate = stagingQueuesStats.stream().mapToDouble(StagingQueueStats::getPublishRate).sum();
+        updateVolatility(messages, publishRate);
+
+        final long now = nanoClock.getAsLong();
+        final double elapsedSeconds = hasLastRun ? (now - lastRunNanos) / 1_000_000_000.0 : 0.0;
+        lastRunNanos = now;
+        hasLastRun = true;
+
+        final int instancesRunning = instanceInfo.getInstancesRunning();
+        final int instances = instanceInfo.getTotalRunningAndStageInstances();
+        if ( instanceInfo.getInstancesStaging() == 0 && instancesRunning > 0 && targetQueueStats.getConsumeRate() > 0 ) {
+            final double consumeRate = targetQueueStats.getConsumeRate() / instancesRunning;
+            perInstanceConsumeRate = perInstanceConsumeRate == 0
+                ? consumeRate
+                : RATE_SMOOTHING * consumeRate + (1 - RATE_SMOOTHING) * perInstanceConsumeRate;
+        }
+        smoothedPublishRate = RATE_SMOOTHING * publishRate + (1 - RATE_SMOOTHING) * smoothedPublishRate;
+
+        if ( messages > 0 && instances == 0 ) {
+            return ScalingAction.SCALE_UP;
+        }
+        if ( instanceInfo.getInstancesStaging() > 0 ) {
+            return ScalingAction.NO_ACTION;
+        }
+        if ( messages == 0 && Double.compare(publishRate, 0.0) == 0 && Double.compare(stagingQueuesPublishRate, 0.0) == 0 ) {
+            // nothing to do and nothing arriving, so no workers are needed
+            controller.reset();
+            lastRecommendation = -1;
+            smoothedPublishRate = 0;
+            counter = 0;
+            return getScalingAction(limitScaling(0, instances), instances);
+        }
+        if ( perInstanceConsumeRate == 0 ) {
+            // there is something to do but no idea about rate yet, so stay the same
+            return ScalingAction.NO_ACTION;
+        }
+
+        final int backlogGoal = profile.getBacklogGoal();
+        final double feedForward = smoothedPublishRate / perInstanceConsumeRate;
+        final double reference = Math.max(1.0, feedForward);
+        final double drainTime = messages / (instancesRunning * perInstanceConsumeRate);
+        final double error = Math.min(MAX_ERROR, (drainTime - backlogGoal) / backlogGoal);
+
+        // The output is limited to what can be acted upon, which is no fewer instances than the orchestrator kept when fewer were
+        // last recommended and no more than it allowed when more were last recommended
+        final double lowestInstances = lastRecommendation >= 0 && lastRecommendation < instances ? instances : 0;
+        final double highestInstances = lastRecommendation > instances ? instances : instances + MAX_SCALE;
+        final double output = controller.update(
+            error, elapsedSeconds, (lowestInstances - feedForward) / reference, (highestInstances - feedForward) / reference);
+        final int workersNeeded = (int) Math.max(lowestInstances, getWorkersNeeded(feedForward + output * reference, instances));
+
+        LOG.debug("Target queue: {}. " +
+                        "Current number of messages in target queue and staging queues: {}. " +
+                        "Publish rate: {}. " +
+                        "Consumption rate per instance: {}. " +
+                        "Instances needed for publish rate: {}. " +
+                        "Time to finish backlog: {}s. " +
+                        "Backlog goal: {}s. " +
+                        "Controller error {}, integral {}, output {}. " +
+                        "Workers needed: {}.",
+                scalingTarget,
+                messages,
+                publishRate,
+                perInstanceConsumeRate,
+                feedForward,
+                drainTime,
+                backlogGoal,
+                error, controller.getIntegral(), output,
+                workersNeeded);
+
+        // The controller is updated on every run, but only acted upon every scalingDelay runs
+        if ( counter++ % profile.getScalingDelay() != 0 ) {
+            return ScalingAction.NO_ACTION;
+        }
+        lastRecommendation = limitScaling(workersNeeded, instances);
+        return getScalingAction(lastRecommendation, instances);
+    }
+
+    /**
+     * Limit the change in instances made by one recommendation to MAX_SCALE in either direction, so that a sudden drop in the workload
+     * removes instances gradually rather than all of those that would have to be started again if it picks up.
+     */
+    private static int limitScaling(final int workersNeeded, final int instances)
+    {
+        return Math.max(instances - MAX_SCALE, Math.min(instances + MAX_SCALE, workersNeeded));
+    }
+
+    /**
+     * Round the number of instances the controller asks for, with hysteresis: more instances are only needed once it asks for a
+     * whole instance more, and fewer once a whole instance would be spare.
+     */
+    private static long getWorkersNeeded(final double target, final int instances)
+    {
+        final long roundedUp = (long) Math.ceil(target);
+        if ( roundedUp < instances ) {
+            return roundedUp;
+        }
+        return Math.max(instances, (long) Math.floor(target));
+    }
+
+    private ScalingAction getScalingAction(final int workersNeeded, final int instances)
+    {
+        if ( workersNeeded > instances ) {
+            return getScalingAction(ScalingOperation.SCALE_UP, workersNeeded - instances);
+        } else if ( workersNeeded < instances ) {
+            return getScalingAction(ScalingOperation.SCALE_DOWN, instances - workersNeeded);
+        }
+        return ScalingAction.NO_ACTION;
+    }
+
+    private void updateVolatility(final long messages, final double publishRate)
+    {
+        if ( hasPrevious ) {
+            workloadVolatility = OptionalDouble.of(
+                RabbitWorkloadAnalyser.getVolatility(previousMessages, previousPublishRate, messages, publishRate));
+        }
+        hasPrevious = true;
+        previousMessages = messages;
+        previousPublishRate = publishRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The volatility is the larger of the relative changes in the number of messages in the target and staging queues, and in the
+     * publish rate of the target queue, between the last two analysis runs.
+     */
+    @Override
+    public OptionalDouble getWorkloadVolatility()
+    {
+        return workloadVolatility;
+    }
+
+    private ScalingAction getScalingAction(final ScalingOperation op, final int amount)
+    {
+        if ( amount > 0 ) {
+            LOG.debug("Scale with operation {} by {} instances", op, amount);
+            return new ScalingAction(op, amount);
+        } else {
+            return ScalingAction.NO_ACTION;
+        }
+    }
+
+    @Override
+    public String getMemoryOverloadWarning(final String percentageMem)
+    {
+        return RabbitWorkloadAnalyser.memoryOverloadWarning(percentageMem);
+    }
+
+    @Override
+    public String getDiskSpaceLowWarning(final String diskFreeMb)
+    {
+        return RabbitWorkloadAnalyser.diskSpaceLowWarning(diskFreeMb);
+    }
+}
@@ -16,16 +16,28 @@
 package com.github.autoscaler.workload.rabbit;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.autoscaler.api.AnalysisDeadline;
 import com.github.autoscaler.api.ScalerException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
 
 import jakarta.ws.rs.core.Response;
 
@@ -36,25 +48,134 @@ import org.slf4j.LoggerFactory;
 /**
  * A RabbitStatsReporter is an object that actually makes HTTP calls to a RabbitMQ management server,
  * and interprets the results to return QueueStats objects which are used by the RabbitWorkloadAnalyser.
+ *
+ * Statistics for every queue in the vhost can be acquired at once with refreshVhostQueueStats, after which requests for the
+ * statistics of those queues are answered from the results rather than with further HTTP calls. When a time to live is set for the
+ * queue statistics, the statistics of every queue in the vhost are acquired this way whenever those held are older than that, so
+ * that the analysers of all of the services sharing a reporter cause one sweep of the vhost per time to live between them.
+ *
+ * When a queue depth source is given, the number of messages in each queue is read from it whenever statistics are requested, and
+ * only the rates are taken from the management API. If the depth of a queue cannot be read from the source, the number of messages
+ * reported by the management API is used instead.
+ *
+ * The statistics of every queue in the vhost can be acquired from another source, such as the Prometheus endpoint of the broker, in
+ * place of a sweep of the management API. The management API is then only used for queues that the source has no statistics for.
+ *
+ * Otherwise, the staging queues whose names match a pattern are requested with a paged request of the management API, and the pages
+ * after the first are requested concurrently. When a discovery interval is set, the number of pages is remembered for that long, and
+ * until then all of the pages are requested concurrently, without waiting for the first to find out how many there are.
  */
 public class RabbitStatsReporter
 {
     private final RabbitManagementApi rabbitApi;
-    private final ObjectMapper mapper = new ObjectMapper();
     private final String vhost;
-    private static final String RMQ_MESSAGES_READY = "messages_ready";
-    private static final String RMQ_MESSAGE_STATS = "message_stats";
-    private static final String RMQ_DELIVER_DETAILS = "deliver_get_details";
-    private static final String RMQ_PUBLISH_DETAILS = "publish_details";
-    private static final String RMQ_RATE = "rate";
     private static final int PAGE_SIZE = 100;
+    /**
+     * The largest page size allowed by the management API, used for sweeps of the whole vhost so that they take as few requests as
+     * possible. Only the columns that are needed are requested, which keeps the pages small.
+     */
+    private static final int VHOST_PAGE_SIZE = 500;
+    private static final String QUEUE_COLUMNS = "name," + ManagementResponseParser.QUEUE_COLUMNS;
+    /**
+     * The statistics of staging queues that are used.
+     */
+    private static final String STAGING_QUEUE_COLUMNS = "name,messages_ready,message_stats.publish_details.rate";
+    /**
+     * The largest number of requests for the statistics of staging queues that are made at once, between all of the analysers.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
     private static final Logger LOG = LoggerFactory.getLogger(RabbitStatsReporter.class);
+    /**
+     * The statistics of every queue in the vhost from the last sweep.
+     */
+    private final QueueStatsCache vhostQueueStats;
+    /**
+     * Whether the statistics of every queue in the vhost are swept whenever those held are older than their time to live, rather
+     * than only by refreshVhostQueueStats.
+     */
+    private final boolean cachingQueueStats;
+    /**
+     * The source of the current number of messages in each queue, or null if it is taken from the management API.
+     */
+    private final QueueDepthSource queueDepthSource;
+    private final LongSupplier nanoClock;
+    /**
+     * How long the number of pages of staging queues is remembered for, or 0 if it is discovered on every request.
+     */
+    private final long stagingQueueDiscoveryIntervalNanos;
+    /**
+     * The number of pages of staging queues last discovered, keyed by the pattern their names were matched against.
+     */
+    private final Map<String, StagingQueuePages> stagingQueuePages = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor requestExecutor;
 
     public RabbitStatsReporter(final String endpoint, final String user, final String pass, final String vhost)
     {
-        this.vhost = Objects.requireNonNull(vhost);
+        this(endpoint, user, pass, vhost, 0);
+    }
+
+    /**
+     * @param queueStatsCacheTtl the number of seconds the statistics of the queues in the vhost are used for before they are
+     * acquired again, or 0 if they are only acquired by refreshVhostQueueStats
+     */
+    public RabbitStatsReporter(final String endpoint, final String user, final String pass, final String vhost,
+                               final int queueStatsCacheTtl)
+    {
+        this(RabbitManagementApiFactory.create(endpoint, user, pass), vhost, queueStatsCacheTtl, System::nanoTime, null);
+    }
+
+    /**
+     * @param queueStatsCacheTtl the number of seconds the statistics of the queues in the vhost are used for before they are
+     * acquired again, or 0 if they are only acquired by refreshVhostQueueStats
+     * @param queueDepthSource the source of the current number of messages in each queue, or null to take it from the statistics
+     * @param vhostQueueStatsLoader acquires the statistics of every queue in the vhost, or null to sweep the management API
+     * @param stagingQueueDiscoveryInterval the number of seconds the number of pages of staging queues is remembered for, or 0 if it
+     * is discovered every time their statistics are requested
+     */
+    RabbitStatsReporter(final String endpoint, final String user, final String pass, final String vhost,
+                        final int queueStatsCacheTtl, final QueueDepthSource queueDepthSource,
+                        final QueueStatsCache.Loader vhostQueueStatsLoader, final int stagingQueueDiscoveryInterval)
+    {
+        this(RabbitManagementApiFactory.create(endpoint, user, pass), vhost, queueStatsCacheTtl, System::nanoTime,
+             queueDepthSource, vhostQueueStatsLoader, stagingQueueDiscoveryInterval);
+    }
+
+    RabbitStatsReporter(final RabbitManagementApi rabbitApi, final String vhost)
+    {
+        this(rabbitApi, vhost, 0, System::nanoTime, null);
+    }
+
+    RabbitStatsReporter(final RabbitManagementApi rabbitApi, final String vhost, final int queueStatsCacheTtl,
+                        final LongSupplier nanoClock)
+    {
+        this(rabbitApi, vhost, queueStatsCacheTtl, nanoClock, null);
+    }
+
+    RabbitStatsReporter(final RabbitManagementApi rabbitApi, final String vhost, final int queueStatsCacheTtl,
+                        final LongSupplier nanoClock, final QueueDepthSource queueDepthSource)
+    {
+        this(rabbitApi, vhost, queueStatsCacheTtl, nanoClock, queueDepthSource, null, 0);
+    }
 
-        rabbitApi = RabbitManagementApiFactory.create(endpoint, user, pass);
+    RabbitStatsReporter(final RabbitManagementApi rabbitApi, final String vhost, final int queueStatsCacheTtl,
+                        final LongSupplier nanoClock, final QueueDepthSource queueDepthSource,
+                        final QueueStatsCache.Loader vhostQueueStatsLoader, final int stagingQueueDiscoveryInterval)
+    {
+        this.vhost = Objects.requireNonNull(vhost);
+        this.rabbitApi = Objects.requireNonNull(rabbitApi);
+        this.vhostQueueStats = new QueueStatsCache(
+            vhostQueueStatsLoader != null ? vhostQueueStatsLoader : this::getVhostQueueStats, queueStatsCacheTtl, nanoClock);
+        this.cachingQueueStats = queueStatsCacheTtl > 0;
+        this.queueDepthSource = queueDepthSource;
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+        this.stagingQueueDiscoveryIntervalNanos = TimeUnit.SECONDS.toNanos(stagingQueueDiscoveryInterval);
+        this.requestExecutor = new ThreadPoolExecutor(
+            MAX_CONCURRENT_REQUESTS, MAX_CONCURRENT_REQUESTS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.requestExecutor.allowCoreThreadTimeOut(true);
     }
 
 
@@ -67,31 +188,63 @@ public class RabbitStatsReporter
     public QueueStats getQueueStats(final String queueReference)
             throws ScalerException
     {
+        final QueueStats queueStats = getManagementQueueStats(queueReference);
+        final QueueDepthSource.QueueDepth queueDepth = getQueueDepth(queueReference);
+        if (queueDepth == null) {
+            return queueStats;
+        }
+        return new QueueStats(
+            queueDepth.getMessageCount(),
+            queueStats.getPublishRate(),
+            queueStats.getConsumeRate(),
+            queueDepth.getMessageCount() > 0 ? queueStats.getHeadMessageTimestamp() : OptionalLong.empty());
+    }
+
+    private QueueStats getManagementQueueStats(final String queueReference)
+            throws ScalerException
+    {
+        final Map<String, QueueStats> allQueueStats = getAllQueueStats();
+        if (allQueueStats != null && allQueueStats.containsKey(queueReference)) {
+            return allQueueStats.get(queueReference);
+        }
         try {
             Response res = rabbitApi.getQueueStatus(vhost, queueReference);
-            JsonNode root = mapper.readTree(res.readEntity(InputStream.class));
-            int msgs = root.get(RMQ_MESSAGES_READY).asInt();
-            JsonNode stats = root.get(RMQ_MESSAGE_STATS);
-            double pubrate;
-            double conrate;
-            if ( stats != null ) {
-                JsonNode ack = stats.get(RMQ_DELIVER_DETAILS);
-                JsonNode pub = stats.get(RMQ_PUBLISH_DETAILS);
-                pubrate = pub == null ? 0.0 : pub.get(RMQ_RATE).asDouble();
-                conrate = ack == null ? 0.0 : ack.get(RMQ_RATE).asDouble();
-            } else {
-                // this queue hasn't had any messages yet
-                pubrate = 0.0;
-                conrate = 0.0;
-            }
-            return new QueueStats(msgs, pubrate, conrate);
+            return ManagementResponseParser.parseQueueStats(res.readEntity(InputStream.class));
         } catch (IOException e) {
             throw new ScalerException("Failed to get queue size", e);
         }
     }
 
     /**
-     * Get statistics for all RabbitMQ staging queues whose names match the supplied stagingQueueNameRegex regular expression.
+     * @return the current depth of the queue from the queue depth source, or null if there is no source or it cannot be read
+     */
+    private QueueDepthSource.QueueDepth getQueueDepth(final String queueReference)
+    {
+        if (queueDepthSource == null) {
+            return null;
+        }
+        try {
+            final QueueDepthSource.QueueDepth queueDepth = queueDepthSource.getQueueDepth(queueReference);
+            LOG.debug("Depth of queue {}: {}", queueReference, queueDepth);
+            return queueDepth;
+        } catch (final IOException e) {
+            LOG.debug("Failed to read the depth of queue {}, using the management API", queueReference, e);
+            return null;
+        }
+    }
+
+    private StagingQueueStats withCurrentDepth(final StagingQueueStats stagingQueueStats)
+    {
+        final QueueDepthSource.QueueDepth queueDepth = getQueueDepth(stagingQueueStats.getName());
+        return queueDepth == null
+            ? stagingQueueStats
+            : new StagingQueueStats(stagingQueueStats.getName(), queueDepth.getMessageCount(), stagingQueueStats.getPublishRate());
+    }
+
+    /**
+     * Get statistics for all RabbitMQ staging queues whose names match the supplied stagingQueueNameRegex regular expression. Unless
+     * they are answered from the statistics of every queue in the vhost, the pages of staging queues are requested concurrently, all
+     * at once if the number of pages is known from a discovery within the discovery interval.
      * @param stagingQueueNameRegex A regular expression describing the pattern of staging queue names to match
      * @return a list of statistics for the requested staging queues
      * @throws ScalerException if the statistics cannot be acquired
@@ -103,20 +256,113 @@ public class RabbitStatsReporter
             return Collections.emptyList();
         }
 
-        final List<StagingQueueStats> stagingQueueStatsList = new ArrayList<>();
+        final Map<String, QueueStats> allQueueStats = getAllQueueStats();
+        if (allQueueStats != null) {
+            final Pattern stagingQueueNamePattern = Pattern.compile(stagingQueueNameRegex);
+            final List<StagingQueueStats> stagingQueueStatsList = new ArrayList<>();
+            for (final Map.Entry<String, QueueStats> entry : allQueueStats.entrySet()) {
+                if (stagingQueueNamePattern.matcher(entry.getKey()).matches()) {
+                    stagingQueueStatsList.add(withCurrentDepth(new StagingQueueStats(
+                            entry.getKey(), entry.getValue().getMessages(), entry.getValue().getPublishRate())));
+                }
+            }
+            return stagingQueueStatsList;
+        }
 
-        int currentPage = 1;
+        final StagingQueuePages knownPages = stagingQueuePages.get(stagingQueueNameRegex);
+        if (knownPages != null && nanoClock.getAsLong() - knownPages.discoveryTime < stagingQueueDiscoveryIntervalNanos) {
+            final List<StagingQueueStats> stagingQueueStatsList = getKnownStagingQueueStats(stagingQueueNameRegex, knownPages);
+            if (stagingQueueStatsList != null) {
+                return stagingQueueStatsList;
+            }
+        }
+        return discoverStagingQueueStats(stagingQueueNameRegex);
+    }
 
-        while (true) {
+    /**
+     * Get statistics for all RabbitMQ staging queues whose names match the regular expression, requesting the first page of them to
+     * find out how many pages there are, and then the rest of the pages concurrently.
+     */
+    private List<StagingQueueStats> discoverStagingQueueStats(final String stagingQueueNameRegex)
+            throws ScalerException
+    {
+        final long discoveryTime = nanoClock.getAsLong();
+
+        final PagedQueues firstPage = getStagingQueuePage(stagingQueueNameRegex, 1);
+        final List<PagedQueues> pages = new ArrayList<>();
+        pages.add(firstPage);
+        // Using the page count rather than the page because if there are no queues (items) in the response, page_count = 0
+        pages.addAll(getStagingQueuePages(stagingQueueNameRegex, 2, firstPage.getPageCount()));
+
+        if (stagingQueueDiscoveryIntervalNanos > 0 && firstPage.getPageCount() > 0) {
+            stagingQueuePages.put(stagingQueueNameRegex, new StagingQueuePages(firstPage.getPageCount(), discoveryTime));
+        }
+        return getStagingQueueStats(pages);
+    }
 
-            LOG.debug("Getting page {} of queues matching regex {}", currentPage, stagingQueueNameRegex);
+    /**
+     * Get statistics for all RabbitMQ staging queues whose names match the regular expression, requesting every page that there was
+     * when they were last discovered at once, followed by any pages that have been added since.
+     * @return the statistics, or null if the pages could not be requested, such as because there are fewer of them now, in which case
+     * the staging queues should be discovered again
+     */
+    private List<StagingQueueStats> getKnownStagingQueueStats(
+            final String stagingQueueNameRegex,
+            final StagingQueuePages knownPages)
+            throws ScalerException
+    {
+        final List<PagedQueues> pages;
+        try {
+            pages = new ArrayList<>(getStagingQueuePages(stagingQueueNameRegex, 1, knownPages.pageCount));
+        } catch (final ScalerException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            LOG.debug("Failed to get the {} pages of queues matching regex {}, discovering them again",
+                      knownPages.pageCount, stagingQueueNameRegex, e);
+            stagingQueuePages.remove(stagingQueueNameRegex, knownPages);
+            return null;
+        }
+        final int pageCount = pages.get(0).getPageCount();
+        if (pageCount > knownPages.pageCount) {
+            pages.addAll(getStagingQueuePages(stagingQueueNameRegex, knownPages.pageCount + 1, pageCount));
+            stagingQueuePages.replace(stagingQueueNameRegex, knownPages, new StagingQueuePages(pageCount, knownPages.discoveryTime));
+        }
+        return getStagingQueueStats(pages);
+    }
 
-            // Get next page of queues
-            final PagedQueues pagedQueues = rabbitApi.getPagedQueues(
-                    vhost, stagingQueueNameRegex, currentPage, PAGE_SIZE, "name,messages_ready,message_stats");
+    /**
+     * Requests the pages of staging queues concurrently.
+     * @return the pages from the first to the last given, in order
+     */
+    private List<PagedQueues> getStagingQueuePages(final String stagingQueueNameRegex, final int firstPage, final int lastPage)
+            throws ScalerException
+    {
+        final List<Callable<PagedQueues>> pageRequests = new ArrayList<>();
+        for (int page = firstPage; page <= lastPage; page++) {
+            final int currentPage = page;
+            pageRequests.add(() -> getStagingQueuePage(stagingQueueNameRegex, currentPage));
+        }
+        return invokeAll(pageRequests);
+    }
 
-            LOG.debug("Got page {} of queues matching regex {}: {}", currentPage, stagingQueueNameRegex, pagedQueues);
+    private PagedQueues getStagingQueuePage(final String stagingQueueNameRegex, final int page)
+            throws ScalerException
+    {
+        LOG.debug("Getting page {} of queues matching regex {}", page, stagingQueueNameRegex);
 
+        final PagedQueues pagedQueues = rabbitApi.getPagedQueues(
+                vhost, stagingQueueNameRegex, page, PAGE_SIZE, STAGING_QUEUE_COLUMNS);
+
+        LOG.debug("Got page {} of queues matching regex {}: {}", page, stagingQueueNameRegex, pagedQueues);
+
+        return pagedQueues;
+    }
+
+    private List<StagingQueueStats> getStagingQueueStats(final List<PagedQueues> pages)
+    {
+        final List<StagingQueueStats> stagingQueueStatsList = new ArrayList<>();
+        for (final PagedQueues pagedQueues : pages) {
             // Read the queue stats for each queue in this page of queues
             for (final PagedQueues.Item item : pagedQueues.getItems()) {
 
@@ -131,20 +377,202 @@ public class RabbitStatsReporter
 
                 // Add the stats for this queue to the list
                 final StagingQueueStats stagingQueueStats = new StagingQueueStats(item.getName(), item.getMessagesReady(), publishRate);
-                stagingQueueStatsList.add(stagingQueueStats);
+                stagingQueueStatsList.add(withCurrentDepth(stagingQueueStats));
+            }
+        }
+        return stagingQueueStatsList;
+    }
+
+    /**
+     * Makes the requests concurrently, no more than {@link #MAX_CONCURRENT_REQUESTS} at a time between all of the analysers, and
+     * waits for all of them. If any fails, or the calling thread is interrupted, the rest are cancelled. The requests are made with
+     * the analysis deadline of the calling thread, so their timeouts are limited by it.
+     * @return the results of the requests, in the order they were given
+     */
+    private <T> List<T> invokeAll(final List<Callable<T>> requests)
+            throws ScalerException
+    {
+        final List<Future<T>> futures = new ArrayList<>(requests.size());
+        try {
+            for (final Callable<T> request : requests) {
+                futures.add(requestExecutor.submit(AnalysisDeadline.propagate(request)));
+            }
+            final List<T> results = new ArrayList<>(futures.size());
+            for (final Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScalerException("Interrupted while getting the statistics of staging queues", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ScalerException) {
+                throw (ScalerException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ScalerException("Failed to get the statistics of staging queues", cause);
+        } finally {
+            for (final Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Get statistics for a particular RabbitMQ queue over a recent window, worked out from the samples of its rates and length held by
+     * the broker. These are always requested from the management API, as the samples are not part of the statistics shared between
+     * analysers.
+     * @param queueReference the named queue
+     * @param windowSeconds how far back the samples should go
+     * @param incrementSeconds the time between samples
+     * @return statistics for the requested queue over the window
+     * @throws ScalerException if the statistics cannot be acquired
+     */
+    public SampledQueueStats getSampledQueueStats(final String queueReference, final int windowSeconds, final int incrementSeconds)
+            throws ScalerException
+    {
+        try {
+            final Response res = rabbitApi.getSampledQueueStatus(vhost, queueReference, windowSeconds, incrementSeconds);
+            return ManagementResponseParser.parseSampledQueueStats(res.readEntity(InputStream.class));
+        } catch (final IOException e) {
+            throw new ScalerException("Failed to get sampled queue statistics", e);
+        }
+    }
+
+    /**
+     * Get statistics over a recent window for all RabbitMQ staging queues whose names match the supplied stagingQueueNameRegex
+     * regular expression, worked out from the samples of their rates and lengths held by the broker.
+     * @param stagingQueueNameRegex A regular expression describing the pattern of staging queue names to match
+     * @param windowSeconds how far back the samples should go
+     * @param incrementSeconds the time between samples
+     * @return a list of statistics for the requested staging queues over the window
+     * @throws ScalerException if the statistics cannot be acquired
+     */
+    public List<SampledQueueStats> getSampledStagingQueueStats(
+            final String stagingQueueNameRegex,
+            final int windowSeconds,
+            final int incrementSeconds)
+            throws ScalerException
+    {
+        if (stagingQueueNameRegex == null) {
+            return Collections.emptyList();
+        }
+
+        final List<SampledQueueStats> stagingQueueStatsList = new ArrayList<>();
+        int currentPage = 1;
+        try {
+            while (true) {
+                LOG.debug("Getting page {} of sampled queues matching regex {}", currentPage, stagingQueueNameRegex);
+                final Response res = rabbitApi.getPagedSampledQueues(
+                        vhost, stagingQueueNameRegex, currentPage, PAGE_SIZE, windowSeconds, incrementSeconds);
+                final int pageCount = ManagementResponseParser.parseSampledQueuePage(
+                        res.readEntity(InputStream.class), stagingQueueStatsList);
+
+                // Using >= rather than == because if there are no queues (items) in the response, page_count = 0
+                if (currentPage >= pageCount) {
+                    break;
+                }
+                currentPage++;
+            }
+        } catch (final IOException e) {
+            throw new ScalerException("Failed to get sampled staging queue statistics", e);
+        }
+        return stagingQueueStatsList;
+    }
+
+    /**
+     * Get statistics for every queue in the vhost using a paged sweep of the RabbitMQ management API, or the source given for
+     * them, and use them to answer subsequent calls to getQueueStats and getStagingQueueStats until the next refresh. Queues that did not exist at the time
+     * of the sweep are still requested individually. When a time to live is set for the queue statistics, the sweep is skipped if
+     * those held are younger than that.
+     * @throws ScalerException if the statistics cannot be acquired, in which case all queues are requested individually
+     */
+    public void refreshVhostQueueStats()
+            throws ScalerException
+    {
+        if (cachingQueueStats) {
+            vhostQueueStats.getFresh();
+        } else {
+            vhostQueueStats.refresh();
+        }
+    }
+
+    /**
+     * @return the statistics of every queue in the vhost to answer requests from, or null if individual queues should be requested
+     */
+    private Map<String, QueueStats> getAllQueueStats()
+    {
+        if (!cachingQueueStats) {
+            return vhostQueueStats.getLatest();
+        }
+        try {
+            return vhostQueueStats.getFresh();
+        } catch (final ScalerException e) {
+            LOG.warn("Failed to get statistics for the queues in vhost {}, requesting queues individually", vhost, e);
+            return null;
+        }
+    }
+
+    private Map<String, QueueStats> getVhostQueueStats()
+            throws ScalerException
+    {
+        final Map<String, QueueStats> allQueueStats = new HashMap<>();
+
+        int currentPage = 1;
+
+        while (true) {
+
+            LOG.debug("Getting page {} of queues in vhost {}", currentPage, vhost);
+
+            final PagedQueues pagedQueues = rabbitApi.getPagedQueues(vhost, currentPage, VHOST_PAGE_SIZE, QUEUE_COLUMNS);
+
+            for (final PagedQueues.Item item : pagedQueues.getItems()) {
+
+                final double publishRate;
+                final double consumeRate;
+                final PagedQueues.MessageStats messageStats = item.getMessageStats();
+                if (messageStats != null) {
+                    final PagedQueues.Rate publishDetails = messageStats.getPublishDetails();
+                    final PagedQueues.Rate deliverGetDetails = messageStats.getDeliverGetDetails();
+                    publishRate = publishDetails != null ? publishDetails.getRate() : 0.0;
+                    consumeRate = deliverGetDetails != null ? deliverGetDetails.getRate() : 0.0;
+                } else {
+                    // this queue hasn't had any messages yet
+                    publishRate = 0.0;
+                    consumeRate = 0.0;
+                }
+
+                final Long headMessageTimestamp = item.getHeadMessageTimestamp();
+                allQueueStats.put(item.getName(), new QueueStats(
+                    item.getMessagesReady(), publishRate, consumeRate,
+                    headMessageTimestamp != null ? OptionalLong.of(headMessageTimestamp) : OptionalLong.empty()));
             }
 
-            // If we've reached the last page of queues, stop
             // Using >= rather than == because if there are no queues (items) in the response, page = 1 and page_count = 0
             if (pagedQueues.getPage() >= pagedQueues.getPageCount()) {
                 break;
             } else {
-                // Else get the next page of queues
                 currentPage++;
             }
         }
 
-        return stagingQueueStatsList;
+        LOG.debug("Got statistics for {} queues in vhost {}", allQueueStats.size(), vhost);
+
+        return Collections.unmodifiableMap(allQueueStats);
     }
 
+    private static final class StagingQueuePages
+    {
+        private final int pageCount;
+        private final long discoveryTime;
+
+        private StagingQueuePages(final int pageCount, final long discoveryTime)
+        {
+            this.pageCount = pageCount;
+            this.discoveryTime = discoveryTime;
+        }
+    }
 }
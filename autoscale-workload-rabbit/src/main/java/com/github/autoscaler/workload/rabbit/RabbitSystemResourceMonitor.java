@@ -15,14 +15,11 @@
  */
 package com.github.autoscaler.workload.rabbit;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.autoscaler.api.ResourceUtilisation;
 import com.github.autoscaler.api.ScalerException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
 import java.util.Optional;
 
 import jakarta.ws.rs.core.Response;
@@ -33,7 +30,6 @@ public final class RabbitSystemResourceMonitor
     private volatile Optional<Integer> diskFreeMbOpt = Optional.empty();
 
     private final RabbitManagementApi rabbitManagementApi;
-    private final ObjectMapper mapper = new ObjectMapper();
     private volatile long lastTime;
     private final int resourceQueryRequestFrequency;
 
@@ -50,36 +46,13 @@ public final class RabbitSystemResourceMonitor
         if (shouldIssueRequest()) {
             try {
                 final Response response = rabbitManagementApi.getNodeStatus();
-                final JsonNode nodeArray = mapper.readTree(response.readEntity(InputStream.class));
-                final Iterator<JsonNode> iterator = nodeArray.elements();
-                double highestMemUsedInCluster = 0;
-                Optional<Integer> lowestDiskFreeMbInClusterOpt = Optional.empty();
-                while (iterator.hasNext()) {
-                    final JsonNode node = iterator.next();
-
-                    final JsonNode memLimitNode = node.get("mem_limit");
-                    final JsonNode memUsedNode = node.get("mem_used");
-                    if (memLimitNode != null && memUsedNode != null) { // These will be null if this node is down
-                        final long memory_limit = memLimitNode.asLong();
-                        final long memory_used = memUsedNode.asLong();
-                        final double memPercentage = ((double) memory_used / memory_limit) * 100;
-                        highestMemUsedInCluster = memPercentage > highestMemUsedInCluster ? memPercentage : highestMemUsedInCluster;
-                    }
-
-                    final JsonNode diskFreeNode = node.get("disk_free");
-                    if (diskFreeNode != null) {
-                        final long diskFreeBytes = diskFreeNode.asLong();
-                        final int diskFreeMb = (int)(diskFreeBytes / 1024 / 1024);
-                        if (lowestDiskFreeMbInClusterOpt.isPresent()) {
-                            lowestDiskFreeMbInClusterOpt = Optional.of(
-                                    diskFreeMb < lowestDiskFreeMbInClusterOpt.get() ? diskFreeMb : lowestDiskFreeMbInClusterOpt.get());
-                        } else {
-                            lowestDiskFreeMbInClusterOpt = Optional.of(diskFreeMb);
-                        }
-                    }
-                }
-                memoryAllocated =  highestMemUsedInCluster;
-                diskFreeMbOpt = lowestDiskFreeMbInClusterOpt;
+                final ManagementResponseParser.NodeStats nodeStats
+                    = ManagementResponseParser.parseNodeStats(response.readEntity(InputStream.class));
+                final long lowestDiskFreeBytes = nodeStats.getLowestDiskFreeBytes();
+                memoryAllocated = nodeStats.getHighestMemUsedPercent();
+                diskFreeMbOpt = lowestDiskFreeBytes < 0
+                    ? Optional.empty()
+                    : Optional.of((int) (lowestDiskFreeBytes / 1024 / 1024));
                 lastTime = System.currentTimeMillis();
             } catch (final IOException ex) {
                 throw new ScalerException("Unable to map response to status request.", ex);
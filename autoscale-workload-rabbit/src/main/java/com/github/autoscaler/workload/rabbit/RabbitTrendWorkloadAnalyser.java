@@ -0,0 +1,270 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ResourceUtilisation;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+import com.github.autoscaler.api.WorkloadAnalyser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Forecasts the workload of a service from results returned from a RabbitStatsReporter and makes scaling recommendations for the
+ * forecast, rather than the current, workload.
+ *
+ * The publish rate of the target queue, and the number of messages in the target and staging queues, are each smoothed with Holt's
+ * double exponential smoothing, which tracks both their level and their trend. On each analysis they are forecast the
+ * forecastHorizon of the profile ahead, which should be about the time a new instance takes to start, and enough instances are
+ * recommended to keep up with the forecast publish rate and finish the forecast backlog within the backlogGoal of the profile. The
+ * rate at which each instance consumes messages is smoothed in the same way as the level, from the runs in which there was a backlog,
+ * as without one the instances only consume what is published. The trends are updated on every run, but a recommendation is only
+ * made every scalingDelay runs.
+ */
+public class RabbitTrendWorkloadAnalyser implements WorkloadAnalyser
+{
+    private static final int MAX_SCALE = 5;
+    private static final Logger LOG = LoggerFactory.getLogger(RabbitTrendWorkloadAnalyser.class);
+
+    private RabbitTrendWorkloadProfile profile;
+    private final String scalingTarget;
+    private final RabbitStatsReporter rabbitStats;
+    private final RabbitSystemResourceMonitor rabbitResourceMonitor;
+    private final String stagingQueueNameRegex;
+    private final LongSupplier nanoClock;
+    private final HoltTrend publishRateTrend;
+    private final HoltTrend messagesTrend;
+    /**
+     * The smoothed rate at which each running instance consumes messages, or 0 if it is not known yet.
+     */
+    private double perInstanceConsumeRate;
+    private long counter;
+    private boolean hasPrevious;
+    private long previousMessages;
+    private double previousPublishRate;
+    private volatile OptionalDouble workloadVolatility = OptionalDouble.empty();
+
+    public RabbitTrendWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitTrendWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator
+    )
+    {
+        this(scalingTarget, reporter, profile, rabbitResourceMonitor, stagingQueueIndicator, System::nanoTime);
+    }
+
+    RabbitTrendWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitTrendWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator,
+        final LongSupplier nanoClock
+    )
+    {
+        this.scalingTarget = Objects.requireNonNull(scalingTarget);
+        this.rabbitStats = Objects.requireNonNull(reporter);
+        this.profile = Objects.requireNonNull(profile);
+        this.rabbitResourceMonitor = rabbitResourceMonitor;
+        this.stagingQueueNameRegex = stagingQueueIndicator != null
+                ? String.format("^%s%s.+$", scalingTarget, stagingQueueIndicator)
+                : null;
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+        this.publishRateTrend = new HoltTrend(profile.getLevelSmoothing(), profile.getTrendSmoothing());
+        this.messagesTrend = new HoltTrend(profile.getLevelSmoothing(), profile.getTrendSmoothing());
+    }
+
+    /**
+     * Switch to a different profile, keeping the trends gathered so far.
+     * @param profile the profile to use from now on
+     */
+    public synchronized void setProfile(final RabbitTrendWorkloadProfile profile)
+    {
+        Objects.requireNonNull(profile);
+        publishRateTrend.setSmoothing(profile.getLevelSmoothing(), profile.getTrendSmoothing());
+        messagesTrend.setSmoothing(profile.getLevelSmoothing(), profile.getTrendSmoothing());
+        this.profile = profile;
+    }
+
+    @Override
+    public ResourceUtilisation getCurrentResourceUtilisation() throws ScalerException
+    {
+        return rabbitResourceMonitor.getCurrentResourceUtilisation();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The trends are updated on every analysis. If there are messages and no instances, scale up by 1 immediately. While instances are
+     * staging no recommendation is made, and the rate at which each instance consumes messages is not updated, as it would be
+     * inaccurate; it is also only updated while there is a backlog of messages. Otherwise, every scalingDelay runs, the publish rate and
+     * number of messages are forecast and the number of instances needed for them is recommended. If nothing is forecast to be
+     * published and there are no messages, scale all the way down; if the rate at which each instance consumes messages is not known
+     * yet, stay the same.
+     */
+    @Override
+    public synchronized ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
+            throws ScalerException
+    {
+        final QueueStats targetQueueStats = rabbitStats.getQueueStats(scalingTarget);
+        LOG.debug("Stats for target queue {}: {}", scalingTarget, targetQueueStats);
+
+        final List<StagingQueueStats> stagingQueuesStats = rabbitStats.getStagingQueueStats(stagingQueueNameRegex);
+        LOG.debug("Stats for staging queues: {}", stagingQueuesStats);
+
+        final long messages = targetQueueStats.getMessages()
+            + stagingQueuesStats.stream().mapToInt(StagingQueueStats::getMessages).sum();
+        final double publishRate = targetQueueStats.getPublishRate();
+        final double now = nanoClock.getAsLong() / 1_000_000_000.0;
+        publishRateTrend.observe(now, publishRate);
+        messagesTrend.observe(now, messages);
+        updateVolatility(messages, publishRate);
+
+        final int instancesRunning = instanceInfo.getInstancesRunning();
+        // Without a backlog the instances only consume what is published, which says nothing about how fast they could consume
+        if ( instanceInfo.getInstancesStaging() == 0 && instancesRunning > 0 && messages > 0 && targetQueueStats.getConsumeRate() > 0 ) {
+            final double consumeRate = targetQueueStats.getConsumeRate() / instancesRunning;
+            perInstanceConsumeRate = perInstanceConsumeRate == 0
+                ? consumeRate
+                : profile.getLevelSmoothing() * consumeRate + (1 - profile.getLevelSmoothing()) * perInstanceConsumeRate;
+        }
+
+        final int instances = instanceInfo.getTotalRunningAndStageInstances();
+        if ( messages > 0 && instances == 0 ) {
+            return ScalingAction.SCALE_UP;
+        }
+        if ( instanceInfo.getInstancesStaging() > 0 ) {
+            return ScalingAction.NO_ACTION;
+        }
+
+        final int workersNeeded = getWorkersNeeded(messages, instances);
+        LOG.debug("Workers needed for forecast workload: {}", workersNeeded);
+
+        // The trends are updated on every run, but only acted upon every scalingDelay runs
+        if ( counter++ % profile.getScalingDelay() != 0 ) {
+            return ScalingAction.NO_ACTION;
+        }
+        if ( workersNeeded > instances ) {
+            return getScalingAction(ScalingOperation.SCALE_UP, Math.min(MAX_SCALE, workersNeeded - instances));
+        } else if ( workersNeeded < instances ) {
+            return getScalingAction(ScalingOperation.SCALE_DOWN, instances - workersNeeded);
+        }
+        return ScalingAction.NO_ACTION;
+    }
+
+    private int getWorkersNeeded(final long messages, final int instances)
+    {
+        final int forecastHorizon = profile.getForecastHorizon();
+        final int backlogGoal = profile.getBacklogGoal();
+        final double forecastPublishRate = Math.max(0.0, publishRateTrend.forecast(forecastHorizon));
+        final double forecastMessages = Math.max(0.0, messagesTrend.forecast(forecastHorizon));
+
+        LOG.debug("Target queue: {}. " +
+                        "Current number of messages in target queue and staging queues: {}. " +
+                        "Smoothed number of messages: {}, trend {}/s. " +
+                        "Smoothed publish rate: {}, trend {}/s. " +
+                        "Forecast in {}s: {} messages, publish rate {}. " +
+                        "Consumption rate per instance: {}. " +
+                        "Backlog goal: {}. ",
+                scalingTarget,
+                messages,
+                messagesTrend.getLevel(), messagesTrend.getTrend(),
+                publishRateTrend.getLevel(), publishRateTrend.getTrend(),
+                forecastHorizon, forecastMessages, forecastPublishRate,
+                perInstanceConsumeRate,
+                backlogGoal);
+
+        // The smoothed values only approach zero, so fewer than one message expected counts as none
+        if ( messages == 0 && forecastMessages < 1 && forecastPublishRate * backlogGoal < 1 ) {
+            return 0;
+        }
+        if ( perInstanceConsumeRate == 0 ) {
+            // there is something to do but no idea about rate yet, so stay the same
+            return Math.max(1, instances);
+        }
+        final double requiredConsumeRate = forecastPublishRate + forecastMessages / backlogGoal;
+        return (int) Math.max(1, roundWorkersNeeded(requiredConsumeRate / perInstanceConsumeRate, instances));
+    }
+
+    /**
+     * Round the number of instances the forecast needs, with hysteresis: more instances are only needed once a whole instance more is
+     * needed, and fewer once a whole instance would be spare.
+     */
+    private static long roundWorkersNeeded(final double target, final int instances)
+    {
+        final long roundedUp = (long) Math.ceil(target);
+        if ( roundedUp < instances ) {
+            return roundedUp;
+        }
+        return Math.max(instances, (long) Math.floor(target));
+    }
+
+    private void updateVolatility(final long messages, final double publishRate)
+    {
+        if ( hasPrevious ) {
+            workloadVolatility = OptionalDouble.of(
+                RabbitWorkloadAnalyser.getVolatility(previousMessages, previousPublishRate, messages, publishRate));
+        }
+        hasPrevious = true;
+        previousMessages = messages;
+        previousPublishRate = publishRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The volatility is the larger of the relative changes in the number of messages in the target and staging queues, and in the
+     * publish rate of the target queue, between the last two analysis runs.
+     */
+    @Override
+    public OptionalDouble getWorkloadVolatility()
+    {
+        return workloadVolatility;
+    }
+
+    private ScalingAction getScalingAction(final ScalingOperation op, final int amount)
+    {
+        if ( amount > 0 ) {
+            LOG.debug("Scale with operation {} by {} instances", op, amount);
+            return new ScalingAction(op, amount);
+        } else {
+            return ScalingAction.NO_ACTION;
+        }
+    }
+
+    @Override
+    public String getMemoryOverloadWarning(final String percentageMem)
+    {
+        return RabbitWorkloadAnalyser.memoryOverloadWarning(percentageMem);
+    }
+
+    @Override
+    public String getDiskSpaceLowWarning(final String diskFreeMb)
+    {
+        return RabbitWorkloadAnalyser.diskSpaceLowWarning(diskFreeMb);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+
+import com.hpe.caf.api.Configuration;
+import com.hpe.caf.api.ContainsStringKeys;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Configuration for a RabbitTrendWorkloadAnalyser. The connection to RabbitMQ is taken from the RabbitWorkloadAnalyserConfiguration.
+ */
+@Configuration
+public class RabbitTrendWorkloadAnalyserConfiguration
+{
+    public static final String DEFAULT_PROFILE_NAME = "default";
+
+    /**
+     * The profiles for the analyser. There must be at least one, and
+     * there must be a default.
+     */
+    @NotNull
+    @Size(min = 1)
+    @ContainsStringKeys(keys = {DEFAULT_PROFILE_NAME})
+    @Valid
+    private Map<String, RabbitTrendWorkloadProfile> profiles;
+
+    public RabbitTrendWorkloadAnalyserConfiguration() { }
+
+
+    public Map<String, RabbitTrendWorkloadProfile> getProfiles()
+    {
+        return Collections.unmodifiableMap(profiles);
+    }
+
+
+    public void setProfiles(final Map<String, RabbitTrendWorkloadProfile> profiles)
+    {
+        this.profiles = profiles;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RabbitTrendWorkloadAnalyserConfiguration{" +
+                "profiles=" + profiles +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.WorkloadAnalyser;
+import com.github.autoscaler.api.WorkloadAnalyserFactory;
+import com.hpe.caf.api.HealthResult;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Creates RabbitTrendWorkloadAnalysers. The connection to RabbitMQ, the statistics and the health check are those of the
+ * RabbitWorkloadAnalyserFactory shared with the other rabbit analysers, so the trend analysers use the same statistics rather than
+ * requesting their own.
+ */
+public class RabbitTrendWorkloadAnalyserFactory implements WorkloadAnalyserFactory
+{
+    private final RabbitWorkloadAnalyserFactory rabbitFactory;
+    private final Map<String, RabbitTrendWorkloadProfile> profiles;
+    private final RabbitTrendWorkloadProfile defaultProfile;
+
+    public RabbitTrendWorkloadAnalyserFactory(
+        final RabbitWorkloadAnalyserFactory rabbitFactory,
+        final RabbitTrendWorkloadAnalyserConfiguration config
+    )
+    {
+        this.rabbitFactory = Objects.requireNonNull(rabbitFactory);
+        this.profiles = config.getProfiles();
+        this.defaultProfile = profiles.get(RabbitTrendWorkloadAnalyserConfiguration.DEFAULT_PROFILE_NAME);
+    }
+
+    @Override
+    public WorkloadAnalyser getAnalyser(final String scalingTarget, final String scalingProfile)
+    {
+        return new RabbitTrendWorkloadAnalyser(scalingTarget, rabbitFactory.getStatsReporter(), getProfile(scalingProfile),
+                                               rabbitFactory.getResourceMonitor(), rabbitFactory.getStagingQueueIndicator());
+    }
+
+    /**
+     * Switch an existing RabbitTrendWorkloadAnalyser to the new profile, so that the trends it has gathered are kept.
+     */
+    @Override
+    public WorkloadAnalyser reconfigureAnalyser(final WorkloadAnalyser analyser, final String scalingTarget, final String scalingProfile)
+    {
+        if (analyser instanceof RabbitTrendWorkloadAnalyser) {
+            ((RabbitTrendWorkloadAnalyser) analyser).setProfile(getProfile(scalingProfile));
+            return analyser;
+        }
+        return getAnalyser(scalingTarget, scalingProfile);
+    }
+
+    private RabbitTrendWorkloadProfile getProfile(final String scalingProfile)
+    {
+        if ( scalingProfile == null || !profiles.containsKey(scalingProfile) ) {
+            return defaultProfile;
+        } else {
+            return profiles.get(scalingProfile);
+        }
+    }
+
+    RabbitWorkloadAnalyserFactory getRabbitFactory()
+    {
+        return rabbitFactory;
+    }
+
+    @Override
+    public void prepareBatchAnalysis()
+        throws ScalerException
+    {
+        rabbitFactory.prepareBatchAnalysis();
+    }
+
+    @Override
+    public HealthResult healthCheck()
+    {
+        return rabbitFactory.healthCheck();
+    }
+}
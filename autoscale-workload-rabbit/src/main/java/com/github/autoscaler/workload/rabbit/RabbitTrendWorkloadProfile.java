@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+
+
+/**
+ * A scaling profile for a RabbitTrendWorkloadAnalyser.
+ */
+public class RabbitTrendWorkloadProfile
+{
+    /**
+     * The weight, from 0 to 1, given to the latest statistics when smoothing the publish rate and number of messages. Higher values
+     * follow changes more quickly but are thrown more by noise.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double levelSmoothing = 0.5;
+    /**
+     * The weight, from 0 to 1, given to the latest change when smoothing the trend of the publish rate and number of messages.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double trendSmoothing = 0.3;
+    /**
+     * How far ahead (in seconds) to forecast the workload, which should be about the time it takes a new instance to start consuming
+     * messages.
+     */
+    @Min(0)
+    private int forecastHorizon = 60;
+    /**
+     * The time (in seconds) that the forecast backlog of messages should be finished in.
+     */
+    @Min(1)
+    private int backlogGoal = 300;
+    /**
+     * The number of analysis runs between scaling recommendations. The trends are updated on every run, but a recommendation is only
+     * made every scalingDelay runs.
+     */
+    @Min(1)
+    private int scalingDelay = 3;
+
+
+    public RabbitTrendWorkloadProfile() { }
+
+
+    public RabbitTrendWorkloadProfile(
+        final double levelSmoothing,
+        final double trendSmoothing,
+        final int forecastHorizon,
+        final int backlogGoal,
+        final int scalingDelay
+    )
+    {
+        this.levelSmoothing = levelSmoothing;
+        this.trendSmoothing = trendSmoothing;
+        this.forecastHorizon = forecastHorizon;
+        this.backlogGoal = backlogGoal;
+        this.scalingDelay = scalingDelay;
+    }
+
+
+    public double getLevelSmoothing()
+    {
+        return levelSmoothing;
+    }
+
+
+    public void setLevelSmoothing(final double levelSmoothing)
+    {
+        this.levelSmoothing = levelSmoothing;
+    }
+
+
+    public double getTrendSmoothing()
+    {
+        return trendSmoothing;
+    }
+
+
+    public void setTrendSmoothing(final double trendSmoothing)
+    {
+        this.trendSmoothing = trendSmoothing;
+    }
+
+
+    public int getForecastHorizon()
+    {
+        return forecastHorizon;
+    }
+
+
+    public void setForecastHorizon(final int forecastHorizon)
+    {
+        this.forecastHorizon = forecastHorizon;
+    }
+
+
+    public int getBacklogGoal()
+    {
+        return backlogGoal;
+    }
+
+
+    public void setBacklogGoal(final int backlogGoal)
+    {
+        this.backlogGoal = backlogGoal;
+    }
+
+
+    public int getScalingDelay()
+    {
+        return scalingDelay;
+    }
+
+
+    public void setScalingDelay(final int scalingDelay)
+    {
+        this.scalingDelay = scalingDelay;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RabbitTrendWorkloadProfile{" +
+                "levelSmoothing=" + levelSmoothing +
+                ", trendSmoothing=" + trendSmoothing +
+                ", forecastHorizon=" + forecastHorizon +
+                ", backlogGoal=" + backlogGoal +
+                ", scalingDelay=" + scalingDelay +
+                '}';
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ResourceUtilisation;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+import com.github.autoscaler.api.WorkloadAnalyser;
+import com.google.common.collect.EvictingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
+
+
+/**
+ * Makes scaling recommendations that keep a percentile of the time messages wait in the target and staging queues within the
+ * waitTimeGoal of the profile.
+ *
+ * On each run the time a message would wait is estimated. If the broker reports the timestamp of the message at the head of the
+ * target queue, the estimate is the age of that message. Otherwise it is the number of messages in the target and staging queues
+ * divided by the rate at which they are being consumed, which is how long the last message would take to reach the head of the queue.
+ * Every scalingDelay runs, the waitTimePercentile of the estimates since the last recommendation is compared with the goal.
+ */
+public class RabbitWaitTimeWorkloadAnalyser implements WorkloadAnalyser
+{
+    private static final int MAX_SCALE = 5;
+    private static final Logger LOG = LoggerFactory.getLogger(RabbitWaitTimeWorkloadAnalyser.class);
+
+    private RabbitWorkloadProfile profile;
+    private final String scalingTarget;
+    private final RabbitStatsReporter rabbitStats;
+    private final RabbitSystemResourceMonitor rabbitResourceMonitor;
+    private final String stagingQueueNameRegex;
+    private final LongSupplier wallClock;
+    private EvictingQueue<Double> waitTimes;
+    private EvictingQueue<Double> publishRates;
+    /**
+     * The rates at which each instance consumed messages on the runs on which more than a second's worth of messages was waiting for
+     * them, so that the rate is that of busy instances rather than one limited by the publish rate.
+     */
+    private EvictingQueue<Double> busyConsumeRates;
+    /**
+     * The rates at which each instance consumed messages on every run on which messages were consumed, used in place of
+     * busyConsumeRates while no instance has been busy and the queues are backing up, as a floor on the rate an instance can manage.
+     */
+    private EvictingQueue<Double> observedConsumeRates;
+    /**
+     * The average of the last busyConsumeRates, kept for when there has been no backlog since.
+     */
+    private double perInstanceConsumeRate;
+    private long counter;
+    private boolean hasPrevious;
+    private long previousMessages;
+    private double previousPublishRate;
+    private volatile OptionalDouble workloadVolatility = OptionalDouble.empty();
+
+    public RabbitWaitTimeWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator
+    )
+    {
+        this(scalingTarget, reporter, profile, rabbitResourceMonitor, stagingQueueIndicator, System::currentTimeMillis);
+    }
+
+    RabbitWaitTimeWorkloadAnalyser(
+        final String scalingTarget,
+        final RabbitStatsReporter reporter,
+        final RabbitWorkloadProfile profile,
+        final RabbitSystemResourceMonitor rabbitResourceMonitor,
+        final String stagingQueueIndicator,
+        final LongSupplier wallClock
+    )
+    {
+        this.scalingTarget = Objects.requireNonNull(scalingTarget);
+        this.rabbitStats = Objects.requireNonNull(reporter);
+        this.profile = Objects.requireNonNull(profile);
+        this.rabbitResourceMonitor = rabbitResourceMonitor;
+        this.stagingQueueNameRegex = stagingQueueIndicator != null
+                ? String.format("^%s%s.+$", scalingTarget, stagingQueueIndicator)
+                : null;
+        this.wallClock = Objects.requireNonNull(wallClock);
+        this.waitTimes = EvictingQueue.create(profile.getScalingDelay());
+        this.publishRates = EvictingQueue.create(profile.getScalingDelay());
+        this.busyConsumeRates = EvictingQueue.create(profile.getScalingDelay());
+        this.observedConsumeRates = EvictingQueue.create(profile.getScalingDelay());
+    }
+
+    /**
+     * Switch to a different profile, keeping the estimates gathered so far. If the scaling delay of the new profile is shorter, only
+     * the most recent estimates are kept.
+     * @param profile the profile to use from now on
+     */
+    public synchronized void setProfile(final RabbitWorkloadProfile profile)
+    {
+        Objects.requireNonNull(profile);
+        if (profile.getScalingDelay() != this.profile.getScalingDelay()) {
+            waitTimes = resize(waitTimes, profile.getScalingDelay());
+            publishRates = resize(publishRates, profile.getScalingDelay());
+            busyConsumeRates = resize(busyConsumeRates, profile.getScalingDelay());
+            observedConsumeRates = resize(observedConsumeRates, profile.getScalingDelay());
+        }
+        this.profile = profile;
+    }
+
+    private static EvictingQueue<Double> resize(final EvictingQueue<Double> queue, final int size)
+    {
+        final EvictingQueue<Double> resized = EvictingQueue.create(size);
+        resized.addAll(queue);
+        return resized;
+    }
+
+    @Override
+    public ResourceUtilisation getCurrentResourceUtilisation() throws ScalerException
+    {
+        return rabbitResourceMonitor.getCurrentResourceUtilisation();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * While instances are staging nothing is done, as the statistics would not reflect them yet. If there are messages and no
+     * instances, scale up by 1 immediately. Otherwise the wait time is estimated on every run, and every scalingDelay runs enough
+     * instances are recommended both to bring the waitTimePercentile of the estimates within the waitTimeGoal, as the wait shortens
+     * in proportion to the number of instances consuming the backlog, and to keep up with the average publish rate of the target
+     * queue. Keeping up is judged by the rate of an instance while it had a backlog. If no instance has had one and the queues are
+     * backing up, the rate the instances have been consuming at is used as a floor on that rate; if they are keeping up, one instance
+     * fewer is tried, so that an over-provisioned service is scaled down until its instances are busy enough to measure their rate.
+     * If there are no messages and nothing is being published, no instances are needed.
+     */
+    @Override
+    public synchronized ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
+            throws ScalerException
+    {
+        if ( instanceInfo.getInstancesStaging() > 0 ) {
+            return ScalingAction.NO_ACTION;
+        }
+        final QueueStats targetQueueStats = rabbitStats.getQueueStats(scalingTarget);
+        LOG.debug("Stats for target queue {}: {}", scalingTarget, targetQueueStats);
+
+        final List<StagingQueueStats> stagingQueuesStats = rabbitStats.getStagingQueueStats(stagingQueueNameRegex);
+        LOG.debug("Stats for staging queues: {}", stagingQueuesStats);
+
+        final long messages = targetQueueStats.getMessages()
+            + stagingQueuesStats.stream().mapToInt(StagingQueueStats::getMessages).sum();
+        final double publishRate = targetQueueStats.getPublishRate()
+            + stagingQueuesStats.stream().mapToDouble(StagingQueueStats::getPublishRate).sum();
+        updateVolatility(messages, targetQueueStats.getPublishRate());
+
+        final int instances = instanceInfo.getTotalRunningAndStageInstances();
+        if ( messages > 0 && instances == 0 ) {
+            return ScalingAction.SCALE_UP;
+        }
+
+        final int instancesRunning = instanceInfo.getInstancesRunning();
+        final double consumeRate = targetQueueStats.getConsumeRate();
+        if ( instancesRunning > 0 && consumeRate > 0 ) {
+            observedConsumeRates.add(consumeRate / instancesRunning);
+            if ( messages > consumeRate ) {
+                busyConsumeRates.add(consumeRate / instancesRunning);
+            }
+        }
+        publishRates.add(publishRate);
+        final OptionalDouble waitTime = estimateWaitTime(targetQueueStats, messages);
+        if ( waitTime.isPresent() ) {
+            waitTimes.add(waitTime.getAsDouble());
+        }
+
+        counter++;
+        // don't scale every time to avoid erratic behaviour, analyse over a period defined by the ScalingDelay
+        if ( counter < profile.getScalingDelay() ) {
+            return ScalingAction.NO_ACTION;
+        }
+        counter = 0;
+        final int workersNeeded = getWorkersNeeded(messages, instances, instancesRunning);
+        waitTimes.clear();
+        publishRates.clear();
+        busyConsumeRates.clear();
+        observedConsumeRates.clear();
+        return getScalingAction(workersNeeded, instances);
+    }
+
+    /**
+     * @return the time (in seconds) a message would wait, or empty if it cannot be estimated because messages are not being consumed
+     */
+    private OptionalDouble estimateWaitTime(final QueueStats targetQueueStats, final long messages)
+    {
+        final OptionalLong headMessageTimestamp = targetQueueStats.getHeadMessageTimestamp();
+        if ( headMessageTimestamp.isPresent() && targetQueueStats.getMessages() > 0 ) {
+            return OptionalDouble.of(Math.max(0.0, wallClock.getAsLong() / 1000.0 - headMessageTimestamp.getAsLong()));
+        }
+        if ( messages == 0 ) {
+            return OptionalDouble.of(0.0);
+        }
+        if ( targetQueueStats.getConsumeRate() > 0 ) {
+            return OptionalDouble.of(messages / targetQueueStats.getConsumeRate());
+        }
+        return OptionalDouble.empty();
+    }
+
+    private int getWorkersNeeded(final long messages, final int instances, final int instancesRunning)
+    {
+        if ( !busyConsumeRates.isEmpty() ) {
+            perInstanceConsumeRate = busyConsumeRates.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+        }
+        final double observedConsumeRate = observedConsumeRates.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        final double consumeRatePerInstance = perInstanceConsumeRate > 0 ? perInstanceConsumeRate : observedConsumeRate;
+        final double averagePublishRate = publishRates.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        final int waitTimeGoal = profile.getEffectiveWaitTimeGoal();
+        final OptionalDouble waitTime = getPercentile(waitTimes, profile.getWaitTimePercentile());
+
+        LOG.debug("Target queue: {}. " +
+                        "Current number of messages in target queue and staging queues: {}. " +
+                        "Average publish rate: {}. " +
+                        "Consumption rate per instance: {}. " +
+                        "Wait time percentile {}: {}s. " +
+                        "Wait time goal: {}s. " +
+                        "Number of instances currently running: {}.",
+                scalingTarget,
+                messages,
+                averagePublishRate,
+                consumeRatePerInstance,
+                profile.getWaitTimePercentile(), waitTime,
+                waitTimeGoal,
+                instancesRunning);
+
+        if ( !waitTime.isPresent() ) {
+            // there is something to do but nothing is being consumed, so stay the same
+            return Math.max(1, instances);
+        }
+        if ( Double.compare(waitTime.getAsDouble(), 0.0) == 0 && Double.compare(averagePublishRate, 0.0) == 0 ) {
+            // no messages have been waiting and nothing is arriving, so no workers are needed
+            return 0;
+        }
+        final double forWaitTime = instancesRunning * waitTime.getAsDouble() / waitTimeGoal;
+        final double forPublishRate;
+        if ( perInstanceConsumeRate > 0 ) {
+            forPublishRate = averagePublishRate / perInstanceConsumeRate;
+        } else if ( observedConsumeRate > 0 && averagePublishRate > observedConsumeRate * instancesRunning ) {
+            // The queues are backing up, and the instances can do at least what they have been doing, so at least this many are needed
+            forPublishRate = averagePublishRate / observedConsumeRate;
+        } else {
+            // The instances are keeping up, but at the rate they are asked for rather than the rate they can manage, so try one fewer
+            forPublishRate = instancesRunning - 1;
+        }
+        return (int) Math.max(1, Math.ceil(Math.max(forWaitTime, forPublishRate)));
+    }
+
+    /**
+     * @return the nearest-rank percentile of the values, or empty if there are none
+     */
+    static OptionalDouble getPercentile(final Collection<Double> values, final int percentile)
+    {
+        if ( values.isEmpty() ) {
+            return OptionalDouble.empty();
+        }
+        final double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return OptionalDouble.of(sorted[Math.max(0, rank - 1)]);
+    }
+
+    private ScalingAction getScalingAction(final int workersNeeded, final int instances)
+    {
+        LOG.debug("Workers needed to meet wait time goal: {}", workersNeeded);
+        if ( workersNeeded > instances ) {
+            return getScalingAction(ScalingOperation.SCALE_UP, Math.min(MAX_SCALE, workersNeeded - instances));
+        } else if ( workersNeeded < instances ) {
+            return getScalingAction(ScalingOperation.SCALE_DOWN, instances - workersNeeded);
+        }
+        return ScalingAction.NO_ACTION;
+    }
+
+    private void updateVolatility(final long messages, final double publishRate)
+    {
+        if ( hasPrevious ) {
+            workloadVolatility = OptionalDouble.of(
+                RabbitWorkloadAnalyser.getVolatility(previousMessages, previousPublishRate, messages, publishRate));
+        }
+        hasPrevious = true;
+        previousMessages = messages;
+        previousPublishRate = publishRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The volatility is the larger of the relative changes in the number of messages in the target and staging queues, and in the
+     * publish rate of the target queue, between the last two analysis runs.
+     */
+    @Override
+    public OptionalDouble getWorkloadVolatility()
+    {
+        return workloadVolatility;
+    }
+
+    private ScalingAction getScalingAction(final ScalingOperation op, final int amount)
+    {
+        if ( amount > 0 ) {
+            LOG.debug("Scale with operation {} by {} instances", op, amount);
+            return new ScalingAction(op, amount);
+        } else {
+            return ScalingAction.NO_ACTION;
+        }
+    }
+
+    @Override
+    public String getMemoryOverloadWarning(final String percentageMem)
+    {
+        return RabbitWorkloadAnalyser.memoryOverloadWarning(percentageMem);
+    }
+
+    @Override
+    public String getDiskSpaceLowWarning(final String diskFreeMb)
+    {
+        return RabbitWorkloadAnalyser.diskSpaceLowWarning(diskFreeMb);
+    }
+}
@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.OptionalDouble;
 
 
 /**
@@ -39,14 +40,26 @@ import java.util.Objects;
 public class RabbitWorkloadAnalyser implements WorkloadAnalyser
 {
     private long counter = 0;
-    private final RabbitWorkloadProfile profile;
+    private RabbitWorkloadProfile profile;
     private final String scalingTarget;
     private final RabbitStatsReporter rabbitStats;
     private final RabbitSystemResourceMonitor rabbitResourceMonitor;
-    private final EvictingQueue<QueueStats> targetQueueStatsQueue;
-    private final EvictingQueue<List<StagingQueueStats>> stagingQueuesStatsQueue;
+    private EvictingQueue<QueueStats> targetQueueStatsQueue;
+    private EvictingQueue<List<StagingQueueStats>> stagingQueuesStatsQueue;
     private final String stagingQueueNameRegex;
     private static final int MAX_SCALE = 5;
+    /**
+     * Changes in the number of messages smaller than this are not treated as significant when measuring volatility, so that a queue
+     * that is almost empty is not polled as though it were busy.
+     */
+    private static final int MIN_SIGNIFICANT_MESSAGES = 10;
+    private QueueStats previousTargetQueueStats;
+    private long previousMessages;
+    private volatile OptionalDouble workloadVolatility = OptionalDouble.empty();
+    /**
+     * The instance information given to the last analysis, or null if there has not been one yet.
+     */
+    private InstanceInfo lastInstanceInfo;
     private static final Logger LOG = LoggerFactory.getLogger(RabbitWorkloadAnalyser.class);
 
 
@@ -64,6 +77,31 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
                 : null;
     }
 
+    /**
+     * Switch to a different profile, keeping the statistics gathered so far. If the scaling delay of the new profile is shorter,
+     * only the most recent statistics are kept. If the new profile switches to or from taking the statistics from the samples held
+     * by the broker, the statistics gathered so far are dropped and the next analysis makes a decision as soon as it can.
+     * @param profile the profile to use from now on
+     */
+    public synchronized void setProfile(final RabbitWorkloadProfile profile)
+    {
+        Objects.requireNonNull(profile);
+        if (profile.getScalingDelay() != this.profile.getScalingDelay()) {
+            final EvictingQueue<QueueStats> newTargetQueueStatsQueue = EvictingQueue.create(profile.getScalingDelay());
+            newTargetQueueStatsQueue.addAll(targetQueueStatsQueue);
+            final EvictingQueue<List<StagingQueueStats>> newStagingQueuesStatsQueue = EvictingQueue.create(profile.getScalingDelay());
+            newStagingQueuesStatsQueue.addAll(stagingQueuesStatsQueue);
+            targetQueueStatsQueue = newTargetQueueStatsQueue;
+            stagingQueuesStatsQueue = newStagingQueuesStatsQueue;
+        }
+        if (profile.isSampled() != this.profile.isSampled()) {
+            targetQueueStatsQueue.clear();
+            stagingQueuesStatsQueue.clear();
+            counter = 0;
+        }
+        this.profile = profile;
+    }
+
     /**
      * This method will determine and return the current resource utilisation of RabbitMQ
      *
@@ -91,12 +129,19 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
      * attempt to finish the current backlog of messages, determine how many workers are
      * required and scale up or down as appropriate. The average of messages over time
      * must be zero for the number of workers to scale all the way down to zero.
+     *
+     * If the profile has a sample window, the averages are instead worked out from the samples of the rates and lengths of the
+     * queues over that window held by the broker, so a decision is made on the first run and every scalingDelay runs after that,
+     * and no statistics are kept between runs.
      */
     @Override
-    public ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
+    public synchronized ScalingAction analyseWorkload(final InstanceInfo instanceInfo)
             throws ScalerException
     {
-
+        lastInstanceInfo = instanceInfo;
+        if ( instanceInfo.getInstancesStaging() == 0 && profile.isSampled() ) {
+            return analyseSampledWorkload(instanceInfo);
+        }
         if ( instanceInfo.getInstancesStaging() == 0 ) {
             final QueueStats targetQueueStats = rabbitStats.getQueueStats(scalingTarget);
             LOG.debug("Stats for target queue {}: {}", scalingTarget, targetQueueStats);
@@ -109,6 +154,8 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
             final int messagesInStagingQueues = stagingQueuesStats.stream().mapToInt(StagingQueueStats::getMessages).sum();
             final long messagesInTargetQueueAndStagingQueues = messagesInTargetQueue + messagesInStagingQueues;
 
+            updateVolatility(targetQueueStats, messagesInTargetQueueAndStagingQueues);
+
             // if we have any messages and no instances, immediately trigger scale up
             if ( messagesInTargetQueueAndStagingQueues > 0 && instanceInfo.getTotalRunningAndStageInstances() == 0 ) {
                 return ScalingAction.SCALE_UP;
@@ -122,18 +169,154 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
                 int workersNeeded = getWorkersNeeded(
                         messagesInTargetQueue, messagesInStagingQueues, messagesInTargetQueueAndStagingQueues, profile.getBacklogGoal(),
                         instanceInfo, stagingQueueNames);
-                LOG.debug("Workers needed to meet backlog goal: {}", workersNeeded);
-                if ( workersNeeded > instanceInfo.getTotalRunningAndStageInstances() ) {
-                    int scale = Math.min(MAX_SCALE, workersNeeded - instanceInfo.getTotalRunningAndStageInstances());
-                    return getScalingAction(ScalingOperation.SCALE_UP, scale);
-                } else if ( workersNeeded < instanceInfo.getTotalRunningAndStageInstances() ) {
-                    return getScalingAction(ScalingOperation.SCALE_DOWN, instanceInfo.getTotalRunningAndStageInstances() - workersNeeded);
-                }
+                return getScalingAction(workersNeeded, instanceInfo);
             }
         }
         return ScalingAction.NO_ACTION;
     }
 
+    private ScalingAction analyseSampledWorkload(final InstanceInfo instanceInfo)
+            throws ScalerException
+    {
+        final int sampleWindow = profile.getSampleWindow();
+        final int sampleIncrement = profile.getEffectiveSampleIncrement();
+        final SampledQueueStats targetQueueStats = rabbitStats.getSampledQueueStats(scalingTarget, sampleWindow, sampleIncrement);
+        LOG.debug("Sampled stats for target queue {}: {}", scalingTarget, targetQueueStats);
+
+        final List<SampledQueueStats> stagingQueuesStats
+            = rabbitStats.getSampledStagingQueueStats(stagingQueueNameRegex, sampleWindow, sampleIncrement);
+        LOG.debug("Sampled stats for staging queues: {}", stagingQueuesStats);
+
+        final int messagesInTargetQueue = targetQueueStats.getMessages();
+        final int messagesInStagingQueues = stagingQueuesStats.stream().mapToInt(SampledQueueStats::getMessages).sum();
+        final long messagesInTargetQueueAndStagingQueues = messagesInTargetQueue + messagesInStagingQueues;
+
+        // The number of messages at the start of the window is estimated from how fast it has been changing over the window
+        final long messagesAtStartOfWindow = Math.max(0, Math.round(
+            messagesInTargetQueueAndStagingQueues
+                - (targetQueueStats.getMessagesSlope()
+                   + stagingQueuesStats.stream().mapToDouble(SampledQueueStats::getMessagesSlope).sum()) * sampleWindow));
+        workloadVolatility = OptionalDouble.of(getVolatility(
+            messagesAtStartOfWindow, targetQueueStats.getPublishRate(),
+            messagesInTargetQueueAndStagingQueues, targetQueueStats.getPublishRate()));
+
+        if ( messagesInTargetQueueAndStagingQueues > 0 && instanceInfo.getTotalRunningAndStageInstances() == 0 ) {
+            return ScalingAction.SCALE_UP;
+        }
+        final boolean decide = counter == 0;
+        counter = (counter + 1) % profile.getScalingDelay();
+        if ( !decide ) {
+            return ScalingAction.NO_ACTION;
+        }
+        final int workersNeeded = getWorkersNeeded(
+            messagesInTargetQueue,
+            messagesInStagingQueues,
+            messagesInTargetQueueAndStagingQueues,
+            profile.getBacklogGoal(),
+            instanceInfo,
+            stagingQueuesStats.stream().map(SampledQueueStats::getName).collect(toList()),
+            targetQueueStats.getConsumeRate(),
+            stagingQueuesStats.stream().mapToDouble(SampledQueueStats::getPublishRate).average().orElse(0.0),
+            targetQueueStats.getAverageMessages(),
+            stagingQueuesStats.stream().mapToDouble(SampledQueueStats::getAverageMessages).average().orElse(0.0));
+        return getScalingAction(workersNeeded, instanceInfo);
+    }
+
+    private ScalingAction getScalingAction(final int workersNeeded, final InstanceInfo instanceInfo)
+    {
+        LOG.debug("Workers needed to meet backlog goal: {}", workersNeeded);
+        if ( workersNeeded > instanceInfo.getTotalRunningAndStageInstances() ) {
+            int scale = Math.min(MAX_SCALE, workersNeeded - instanceInfo.getTotalRunningAndStageInstances());
+            return getScalingAction(ScalingOperation.SCALE_UP, scale);
+        } else if ( workersNeeded < instanceInfo.getTotalRunningAndStageInstances() ) {
+            return getScalingAction(ScalingOperation.SCALE_DOWN, instanceInfo.getTotalRunningAndStageInstances() - workersNeeded);
+        }
+        return ScalingAction.NO_ACTION;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A decision is deferred while the next run would only add to the statistics being averaged over the scaling delay. It is not
+     * deferred if there has been no analysis yet, or if at the last analysis the service had instances staging, whose statistics would
+     * be ignored, or had no instances, as it is scaled up as soon as messages arrive. If the statistics are taken from the samples
+     * held by the broker, the decision is deferred until scalingDelay runs have passed since the last one.
+     */
+    @Override
+    public synchronized boolean isDecisionDeferred()
+    {
+        return lastInstanceInfo != null
+            && lastInstanceInfo.getInstancesStaging() == 0
+            && lastInstanceInfo.getTotalRunningAndStageInstances() > 0
+            && (profile.isSampled() ? counter != 0 : counter + 1 < profile.getScalingDelay());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The statistics of the target and staging queues are added to those being averaged over the scaling delay, as they would be by
+     * analyseWorkload. If the statistics are taken from the samples held by the broker, there is nothing to gather and only the
+     * number of runs since the last decision is counted.
+     */
+    @Override
+    public synchronized void collectWorkload()
+            throws ScalerException
+    {
+        if ( profile.isSampled() ) {
+            counter = (counter + 1) % profile.getScalingDelay();
+            return;
+        }
+        final QueueStats targetQueueStats = rabbitStats.getQueueStats(scalingTarget);
+        LOG.debug("Stats for target queue {}: {}", scalingTarget, targetQueueStats);
+
+        final List<StagingQueueStats> stagingQueuesStats = rabbitStats.getStagingQueueStats(stagingQueueNameRegex);
+        LOG.debug("Stats for staging queues: {}", stagingQueuesStats);
+
+        final long messagesInTargetQueueAndStagingQueues = targetQueueStats.getMessages()
+            + stagingQueuesStats.stream().mapToInt(StagingQueueStats::getMessages).sum();
+        updateVolatility(targetQueueStats, messagesInTargetQueueAndStagingQueues);
+
+        targetQueueStatsQueue.add(targetQueueStats);
+        stagingQueuesStatsQueue.add(stagingQueuesStats);
+        counter++;
+    }
+
+    private void updateVolatility(final QueueStats targetQueueStats, final long messagesInTargetQueueAndStagingQueues)
+    {
+        if ( previousTargetQueueStats != null ) {
+            workloadVolatility = OptionalDouble.of(getVolatility(
+                previousMessages, previousTargetQueueStats.getPublishRate(),
+                messagesInTargetQueueAndStagingQueues, targetQueueStats.getPublishRate()));
+        }
+        previousTargetQueueStats = targetQueueStats;
+        previousMessages = messagesInTargetQueueAndStagingQueues;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The volatility is the larger of the relative changes in the number of messages in the target and staging queues, and in the
+     * publish rate of the target queue, between the last two analysis runs.
+     */
+    @Override
+    public OptionalDouble getWorkloadVolatility()
+    {
+        return workloadVolatility;
+    }
+
+    static double getVolatility(
+            final long previousMessages,
+            final double previousPublishRate,
+            final long messages,
+            final double publishRate)
+    {
+        final double messagesChange = (double) Math.abs(messages - previousMessages)
+                / Math.max(MIN_SIGNIFICANT_MESSAGES, Math.max(messages, previousMessages));
+        final double publishRateChange = Math.abs(publishRate - previousPublishRate)
+                / Math.max(1.0, Math.max(publishRate, previousPublishRate));
+        return Math.min(1.0, Math.max(messagesChange, publishRateChange));
+    }
+
     private int getWorkersNeeded(
             final int messagesInTargetQueue,
             final int messagesInStagingQueues,
@@ -156,6 +339,23 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
                 .mapToDouble(StagingQueueStats::getMessages)
                 .average()
                 .orElse(0.0);
+        return getWorkersNeeded(
+            messagesInTargetQueue, messagesInStagingQueues, messagesInTargetQueueAndStagingQueues, backlogGoal, instanceInfo,
+            stagingQueueNames, targetQueueAvgConsumeRate, stagingQueuesAvgPublishRate, targetQueueAvgMsgs, stagingQueuesAvgMsgs);
+    }
+
+    private int getWorkersNeeded(
+            final int messagesInTargetQueue,
+            final int messagesInStagingQueues,
+            final long messagesInTargetQueueAndStagingQueues,
+            final int backlogGoal,
+            final InstanceInfo instanceInfo,
+            final List<String> stagingQueueNames,
+            final double targetQueueAvgConsumeRate,
+            final double stagingQueuesAvgPublishRate,
+            final double targetQueueAvgMsgs,
+            final double stagingQueuesAvgMsgs)
+    {
         double targetQueueAndStagingQueuesAvgMsgs = targetQueueAvgMsgs + stagingQueuesAvgMsgs;
         final int instancesRunning = instanceInfo.getInstancesRunning();
 
@@ -215,14 +415,24 @@ public class RabbitWorkloadAnalyser implements WorkloadAnalyser
 
     @Override
     public String getMemoryOverloadWarning(final String percentageMem)
+    {
+        return memoryOverloadWarning(percentageMem);
+    }
+
+    @Override
+    public String getDiskSpaceLowWarning(final String diskFreeMb)
+    {
+        return diskSpaceLowWarning(diskFreeMb);
+    }
+
+    static String memoryOverloadWarning(final String percentageMem)
     {
         return "To whom it may concern, \n"
             + "The RabbitMQ instance running on system " + System.getenv("CAF_RABBITMQ_MGMT_URL") + " is experiencing issues.\n"
             + "RabbitMQ has used " + percentageMem + "% of its high watermark memory allowance.\n";
     }
 
-    @Override
-    public String getDiskSpaceLowWarning(final String diskFreeMb)
+    static String diskSpaceLowWarning(final String diskFreeMb)
     {
         return "To whom it may concern, \n"
                 + "The RabbitMQ instance running on system " + System.getenv("CAF_RABBITMQ_MGMT_URL") + " is experiencing issues.\n"
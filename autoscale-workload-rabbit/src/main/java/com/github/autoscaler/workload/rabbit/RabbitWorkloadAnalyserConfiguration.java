@@ -21,6 +21,7 @@ import com.hpe.caf.api.ContainsStringKeys;
 import com.hpe.caf.api.Encrypted;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.util.Collections;
@@ -75,6 +76,76 @@ public class RabbitWorkloadAnalyserConfiguration
 
     private String stagingQueueIndicator;
 
+    /**
+     * The number of seconds the statistics of every queue in the vhost, acquired in one sweep, are used to answer the requests of
+     * all analysers before they are acquired again, or 0 if each analyser requests the statistics of its own queues.
+     */
+    @Min(0)
+    private int queueStatsCacheTtl;
+
+    /**
+     * The AMQP URI of the RabbitMQ host, such as amqp://rabbitmq:5672, over which the number of messages in the queues is read, or
+     * null to take it from the management API along with the rest of the statistics.
+     */
+    private String rabbitAmqpUri;
+
+    /**
+     * The user name for the AMQP connection, or null to use the rabbitManagementUser.
+     */
+    private String rabbitAmqpUser;
+
+    /**
+     * The password for the AMQP connection, or null to use the rabbitManagementPassword.
+     */
+    @Encrypted
+    private String rabbitAmqpPassword;
+
+    /**
+     * The number of seconds the rates of the queues in the vhost, acquired in one sweep of the management API, are used for when the
+     * number of messages in the queues is read over AMQP. The queueStatsCacheTtl is used instead if it is longer.
+     */
+    @Min(1)
+    private int queueRatesCacheTtl = DEFAULT_QUEUE_RATES_CACHE_TTL;
+
+    /**
+     * Where the statistics of the queues are acquired from.
+     */
+    @NotNull
+    private StatsSource statsSource = StatsSource.MANAGEMENT;
+
+    /**
+     * The URL of the endpoint of the rabbitmq_prometheus plugin that exposes metrics per queue, such as
+     * http://rabbitmq:15692/metrics/per-object, which must be set when the statsSource is PROMETHEUS.
+     */
+    private String rabbitPrometheusEndpoint;
+
+    /**
+     * The number of seconds the number of pages of staging queues of a service is remembered for, during which all of the pages are
+     * requested at once, or 0 to discover it every time. It is not used when the statistics of every queue in the vhost are shared.
+     */
+    @Min(0)
+    private int stagingQueueDiscoveryInterval = DEFAULT_STAGING_QUEUE_DISCOVERY_INTERVAL;
+
+    static final int DEFAULT_QUEUE_RATES_CACHE_TTL = 30;
+    static final int DEFAULT_STAGING_QUEUE_DISCOVERY_INTERVAL = 0;
+
+    /**
+     * The sources that the statistics of the queues can be acquired from.
+     */
+    public enum StatsSource
+    {
+        /**
+         * The statistics are requested from the management API.
+         */
+        MANAGEMENT,
+        /**
+         * The statistics of every queue in the vhost are scraped from the rabbitPrometheusEndpoint, at most once per
+         * queueStatsCacheTtl, and the rates are worked out from the differences between successive scrapes. The management API is
+         * only used for queues that are not in the scrape, and to monitor the resources of the broker.
+         */
+        PROMETHEUS
+    }
+
     public RabbitWorkloadAnalyserConfiguration() { }
 
 
@@ -157,6 +228,100 @@ public class RabbitWorkloadAnalyserConfiguration
         this.stagingQueueIndicator = stagingQueueIndicator;
     }
 
+    public int getQueueStatsCacheTtl()
+    {
+        return queueStatsCacheTtl;
+    }
+
+    public void setQueueStatsCacheTtl(final int queueStatsCacheTtl)
+    {
+        this.queueStatsCacheTtl = queueStatsCacheTtl;
+    }
+
+    public String getRabbitAmqpUri()
+    {
+        return rabbitAmqpUri;
+    }
+
+
+    public void setRabbitAmqpUri(final String rabbitAmqpUri)
+    {
+        this.rabbitAmqpUri = rabbitAmqpUri;
+    }
+
+
+    public String getRabbitAmqpUser()
+    {
+        return rabbitAmqpUser;
+    }
+
+
+    public void setRabbitAmqpUser(final String rabbitAmqpUser)
+    {
+        this.rabbitAmqpUser = rabbitAmqpUser;
+    }
+
+
+    public String getRabbitAmqpPassword()
+    {
+        return rabbitAmqpPassword;
+    }
+
+
+    public void setRabbitAmqpPassword(final String rabbitAmqpPassword)
+    {
+        this.rabbitAmqpPassword = rabbitAmqpPassword;
+    }
+
+
+    public int getQueueRatesCacheTtl()
+    {
+        return queueRatesCacheTtl;
+    }
+
+
+    public void setQueueRatesCacheTtl(final int queueRatesCacheTtl)
+    {
+        this.queueRatesCacheTtl = queueRatesCacheTtl;
+    }
+
+
+    public StatsSource getStatsSource()
+    {
+        return statsSource;
+    }
+
+
+    public void setStatsSource(final StatsSource statsSource)
+    {
+        this.statsSource = statsSource;
+    }
+
+
+    public String getRabbitPrometheusEndpoint()
+    {
+        return rabbitPrometheusEndpoint;
+    }
+
+
+    public void setRabbitPrometheusEndpoint(final String rabbitPrometheusEndpoint)
+    {
+        this.rabbitPrometheusEndpoint = rabbitPrometheusEndpoint;
+    }
+
+
+    public int getStagingQueueDiscoveryInterval()
+    {
+        return stagingQueueDiscoveryInterval;
+    }
+
+
+    public void setStagingQueueDiscoveryInterval(final int stagingQueueDiscoveryInterval)
+    {
+        this.stagingQueueDiscoveryInterval = stagingQueueDiscoveryInterval;
+    }
+
+
     @Override
     public String toString()
     {
@@ -168,6 +333,14 @@ public class RabbitWorkloadAnalyserConfiguration
                 ", profiles=" + profiles +
                 ", resourceQueryRequestFrequency=" + resourceQueryRequestFrequency +
                 ", stagingQueueIndicator=" + stagingQueueIndicator +
+                ", queueStatsCacheTtl=" + queueStatsCacheTtl +
+                ", rabbitAmqpUri=" + rabbitAmqpUri +
+                ", rabbitAmqpUser=" + rabbitAmqpUser +
+                ", rabbitAmqpPassword=<HIDDEN>" +
+                ", queueRatesCacheTtl=" + queueRatesCacheTtl +
+                ", statsSource=" + statsSource +
+                ", rabbitPrometheusEndpoint=" + rabbitPrometheusEndpoint +
+                ", stagingQueueDiscoveryInterval=" + stagingQueueDiscoveryInterval +
                 '}';
     }
 }
@@ -16,8 +16,6 @@
 package com.github.autoscaler.workload.rabbit;
 
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.autoscaler.api.ScalerException;
 import com.github.autoscaler.api.WorkloadAnalyser;
 import com.github.autoscaler.api.WorkloadAnalyserFactory;
@@ -28,7 +26,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
 import java.util.Objects;
 
 import jakarta.ws.rs.core.Response;
@@ -40,7 +37,6 @@ public class RabbitWorkloadAnalyserFactory implements WorkloadAnalyserFactory
     private final RabbitManagementApi rabbitManagementApi;
     private final RabbitSystemResourceMonitor rabbitResourceMonitor;
     private final RabbitWorkloadProfile defaultProfile;
-    private final ObjectMapper objectMapper;
     private final String nodeStatusEndpoint;
     private final String stagingQueueIndicator;
     private static final Logger LOG = LoggerFactory.getLogger(RabbitWorkloadAnalyserFactory.class);
@@ -48,18 +44,13 @@ public class RabbitWorkloadAnalyserFactory implements WorkloadAnalyserFactory
     public RabbitWorkloadAnalyserFactory(final RabbitWorkloadAnalyserConfiguration config)
     {
         this.config = Objects.requireNonNull(config);
-        this.provider = new RabbitStatsReporter(
-            config.getRabbitManagementEndpoint(),
-            config.getRabbitManagementUser(),
-            config.getRabbitManagementPassword(),
-            config.getVhost());
+        this.provider = createStatsReporter(config);
         this.rabbitManagementApi = RabbitManagementApiFactory.create(
             config.getRabbitManagementEndpoint(),
             config.getRabbitManagementUser(),
             config.getRabbitManagementPassword());
         this.rabbitResourceMonitor = new RabbitSystemResourceMonitor(rabbitManagementApi, config.getResourceQueryRequestFrequency());
         this.defaultProfile = config.getProfiles().get(RabbitWorkloadAnalyserConfiguration.DEFAULT_PROFILE_NAME);
-        this.objectMapper = new ObjectMapper();
         this.nodeStatusEndpoint = config.getRabbitManagementEndpoint() + "/api/nodes/";
         final String stagingQueueIndicatorFromConfig = config.getStagingQueueIndicator();
         if (stagingQueueIndicatorFromConfig != null && stagingQueueIndicatorFromConfig.isEmpty()) {
@@ -68,16 +59,131 @@ public class RabbitWorkloadAnalyserFactory implements WorkloadAnalyserFactory
         this.stagingQueueIndicator = stagingQueueIndicatorFromConfig;
     }
 
+    /**
+     * If an AMQP URI is configured, the number of messages in the queues is read over AMQP, and the rates of the queues are only
+     * acquired once per queueRatesCacheTtl. If the stats source is PROMETHEUS, the statistics of every queue in the vhost are scraped
+     * from the Prometheus endpoint, no more often than the broker updates them, rather than requested from the management API.
+     */
+    private static RabbitStatsReporter createStatsReporter(final RabbitWorkloadAnalyserConfiguration config)
+    {
+        int queueStatsCacheTtl = config.getQueueStatsCacheTtl();
+
+        final String amqpUri = config.getRabbitAmqpUri();
+        final QueueDepthSource queueDepthSource;
+        if (amqpUri == null || amqpUri.isEmpty()) {
+            queueDepthSource = null;
+        } else {
+            queueDepthSource = new AmqpQueueDepthSource(
+                amqpUri,
+                config.getRabbitAmqpUser() != null ? config.getRabbitAmqpUser() : config.getRabbitManagementUser(),
+                config.getRabbitAmqpPassword() != null ? config.getRabbitAmqpPassword() : config.getRabbitManagementPassword(),
+                config.getVhost());
+            queueStatsCacheTtl = Math.max(queueStatsCacheTtl, config.getQueueRatesCacheTtl());
+        }
+
+        final QueueStatsCache.Loader vhostQueueStatsLoader;
+        if (config.getStatsSource() == RabbitWorkloadAnalyserConfiguration.StatsSource.PROMETHEUS) {
+            final String prometheusEndpoint = config.getRabbitPrometheusEndpoint();
+            if (prometheusEndpoint == null || prometheusEndpoint.isEmpty()) {
+                throw new RuntimeException("A Prometheus endpoint must be provided when the stats source is PROMETHEUS");
+            }
+            vhostQueueStatsLoader = new PrometheusQueueStatsSource(prometheusEndpoint, config.getVhost())::getQueueStats;
+            queueStatsCacheTtl = Math.max(queueStatsCacheTtl, PrometheusQueueStatsSource.MIN_SCRAPE_INTERVAL_SECONDS);
+        } else {
+            vhostQueueStatsLoader = null;
+        }
+
+        return new RabbitStatsReporter(
+            config.getRabbitManagementEndpoint(),
+            config.getRabbitManagementUser(),
+            config.getRabbitManagementPassword(),
+            config.getVhost(),
+            queueStatsCacheTtl,
+            queueDepthSource,
+            vhostQueueStatsLoader,
+            config.getStagingQueueDiscoveryInterval());
+    }
+
     @Override
     public WorkloadAnalyser getAnalyser(final String scalingTarget, final String scalingProfile)
     {
-        RabbitWorkloadProfile profile;
+        final RabbitWorkloadProfile profile = getProfile(scalingProfile);
+        switch (profile.getController()) {
+            case PID:
+                return new RabbitPidWorkloadAnalyser(scalingTarget, provider, profile, rabbitResourceMonitor, stagingQueueIndicator);
+            case WAIT_TIME:
+                return new RabbitWaitTimeWorkloadAnalyser(scalingTarget, provider, profile, rabbitResourceMonitor,
+                                                          stagingQueueIndicator);
+            default:
+                return new RabbitWorkloadAnalyser(scalingTarget, provider, profile, rabbitResourceMonitor,
+                                                  stagingQueueIndicator);
+        }
+    }
+
+    /**
+     * Switch an existing analyser to the new profile, so that the queue statistics or estimates it has gathered, or the state of its
+     * controller, are kept. A new analyser is created if the new profile uses a different controller.
+     */
+    @Override
+    public WorkloadAnalyser reconfigureAnalyser(final WorkloadAnalyser analyser, final String scalingTarget, final String scalingProfile)
+    {
+        final RabbitWorkloadProfile profile = getProfile(scalingProfile);
+        switch (profile.getController()) {
+            case PID:
+                if (analyser instanceof RabbitPidWorkloadAnalyser) {
+                    ((RabbitPidWorkloadAnalyser) analyser).setProfile(profile);
+                    return analyser;
+                }
+                break;
+            case WAIT_TIME:
+                if (analyser instanceof RabbitWaitTimeWorkloadAnalyser) {
+                    ((RabbitWaitTimeWorkloadAnalyser) analyser).setProfile(profile);
+                    return analyser;
+                }
+                break;
+            default:
+                if (analyser instanceof RabbitWorkloadAnalyser) {
+                    ((RabbitWorkloadAnalyser) analyser).setProfile(profile);
+                    return analyser;
+                }
+                break;
+        }
+        return getAnalyser(scalingTarget, scalingProfile);
+    }
+
+    private RabbitWorkloadProfile getProfile(final String scalingProfile)
+    {
         if ( scalingProfile == null || !config.getProfiles().containsKey(scalingProfile) ) {
-            profile = defaultProfile;
+            return defaultProfile;
         } else {
-            profile = config.getProfiles().get(scalingProfile);
+            return config.getProfiles().get(scalingProfile);
         }
-        return new RabbitWorkloadAnalyser(scalingTarget, provider, profile, rabbitResourceMonitor, stagingQueueIndicator);
+    }
+
+    RabbitStatsReporter getStatsReporter()
+    {
+        return provider;
+    }
+
+    RabbitSystemResourceMonitor getResourceMonitor()
+    {
+        return rabbitResourceMonitor;
+    }
+
+    String getStagingQueueIndicator()
+    {
+        return stagingQueueIndicator;
+    }
+
+    /**
+     * Acquire the statistics of every queue in the vhost in one go, so that the analysers do not each have to request the
+     * statistics of their own target and staging queues.
+     */
+    @Override
+    public void prepareBatchAnalysis()
+        throws ScalerException
+    {
+        provider.refreshVhostQueueStats();
     }
 
     @Override
@@ -101,15 +207,6 @@ public class RabbitWorkloadAnalyserFactory implements WorkloadAnalyserFactory
     private boolean atLeastOneNodeRunning() throws ScalerException, IOException
     {
         final Response nodeStatusResponse = rabbitManagementApi.getNodeStatus();
-        final JsonNode nodeArray = objectMapper.readTree(nodeStatusResponse.readEntity(InputStream.class));
-        final Iterator<JsonNode> iterator = nodeArray.elements();
-        while (iterator.hasNext()) {
-            final JsonNode jsonNode = iterator.next();
-            final JsonNode runningJsonNode = jsonNode.get("running");
-            if (runningJsonNode != null && runningJsonNode.asBoolean()) {
-                return true;
-            }
-        }
-        return false;
+        return ManagementResponseParser.parseNodeStats(nodeStatusResponse.readEntity(InputStream.class)).getRunningNodes() > 0;
     }
 }
@@ -16,6 +16,10 @@
 package com.github.autoscaler.workload.rabbit;
 
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,13 +29,37 @@ import com.github.autoscaler.api.WorkloadAnalyserFactoryProvider;
 import com.hpe.caf.api.ConfigurationException;
 import com.hpe.caf.api.ConfigurationSource;
 
+/**
+ * Provides the rabbit workload analysers, and the rabbit trend workload analysers under the name "rabbitmq-trend". Both are created
+ * from one RabbitWorkloadAnalyserFactory, so that they share the connections to RabbitMQ, the queue statistics and the resource
+ * monitor.
+ */
 public class RabbitWorkloadAnalyserFactoryProvider implements WorkloadAnalyserFactoryProvider
 {
+    private static final String TREND_WORKLOAD_ANALYSER_NAME = "rabbitmq-trend";
     private static final Logger LOG = LoggerFactory.getLogger(RabbitWorkloadAnalyserFactoryProvider.class);
 
     @Override
     public WorkloadAnalyserFactory getWorkloadAnalyserFactory(final ConfigurationSource configurationSource)
             throws ScalerException
+    {
+        return createRabbitFactory(configurationSource);
+    }
+
+    @Override
+    public Map<String, WorkloadAnalyserFactory> getWorkloadAnalyserFactories(final ConfigurationSource configurationSource)
+            throws ScalerException
+    {
+        final RabbitWorkloadAnalyserFactory rabbitFactory = createRabbitFactory(configurationSource);
+        final Map<String, WorkloadAnalyserFactory> factories = new HashMap<>();
+        factories.put(getWorkloadAnalyserName(), rabbitFactory);
+        factories.put(TREND_WORKLOAD_ANALYSER_NAME,
+                      new RabbitTrendWorkloadAnalyserFactory(rabbitFactory, getTrendConfiguration(configurationSource)));
+        return factories;
+    }
+
+    private static RabbitWorkloadAnalyserFactory createRabbitFactory(final ConfigurationSource configurationSource)
+            throws ScalerException
     {
         try {
             final RabbitWorkloadAnalyserConfiguration configuration =
@@ -43,6 +71,25 @@ public class RabbitWorkloadAnalyserFactoryProvider implements WorkloadAnalyserFa
         }
     }
 
+    /**
+     * The trend configuration is optional, as its factory is created whether or not any service uses it.
+     */
+    private static RabbitTrendWorkloadAnalyserConfiguration getTrendConfiguration(final ConfigurationSource configurationSource)
+    {
+        try {
+            final RabbitTrendWorkloadAnalyserConfiguration configuration =
+                    configurationSource.getConfiguration(RabbitTrendWorkloadAnalyserConfiguration.class);
+            LOG.info("Loaded configuration: {}", configuration);
+            return configuration;
+        } catch (final ConfigurationException ex) {
+            LOG.info("No rabbit trend workload analyser configuration loaded, using the defaults", ex);
+            final RabbitTrendWorkloadAnalyserConfiguration configuration = new RabbitTrendWorkloadAnalyserConfiguration();
+            configuration.setProfiles(Collections.singletonMap(
+                RabbitTrendWorkloadAnalyserConfiguration.DEFAULT_PROFILE_NAME, new RabbitTrendWorkloadProfile()));
+            return configuration;
+        }
+    }
+
     @Override
     public String getWorkloadAnalyserName()
     {
@@ -16,7 +16,10 @@
 package com.github.autoscaler.workload.rabbit;
 
 
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
 
 
 /**
@@ -36,6 +39,90 @@ public class RabbitWorkloadProfile
      */
     @Min(1)
     private int backlogGoal;
+    /**
+     * The window (in seconds) over which the rates and lengths of the queues are taken from the samples held by the broker, or 0 to
+     * average the statistics gathered over the scaling delay instead.
+     */
+    @Min(0)
+    private int sampleWindow;
+    /**
+     * The time (in seconds) between the samples requested from the broker, or 0 to use a tenth of the sample window, but no less than
+     * the {@link #DEFAULT_MIN_SAMPLE_INCREMENT} at which the broker keeps its most recent samples by default.
+     */
+    @Min(0)
+    private int sampleIncrement;
+
+    /**
+     * How the number of instances needed is worked out from the statistics.
+     */
+    @NotNull
+    private Controller controller = Controller.AVERAGE;
+    /**
+     * The gain applied to the relative difference between the time the backlog would take to finish and the backlogGoal, when the
+     * controller is PID.
+     */
+    @DecimalMin("0.0")
+    private double proportionalGain = DEFAULT_PROPORTIONAL_GAIN;
+    /**
+     * The gain applied to the relative difference between the time the backlog would take to finish and the backlogGoal, accumulated
+     * per second, when the controller is PID.
+     */
+    @DecimalMin("0.0")
+    private double integralGain = DEFAULT_INTEGRAL_GAIN;
+    /**
+     * The gain applied to the rate of change, per second, of the relative difference between the time the backlog would take to
+     * finish and the backlogGoal, when the controller is PID.
+     */
+    @DecimalMin("0.0")
+    private double derivativeGain = DEFAULT_DERIVATIVE_GAIN;
+    /**
+     * Relative differences between the time the backlog would take to finish and the backlogGoal up to this size are ignored when
+     * the controller is PID.
+     */
+    @DecimalMin("0.0")
+    private double deadband = DEFAULT_DEADBAND;
+    /**
+     * The time (in seconds) that messages should wait in the queues for, when the controller is WAIT_TIME, or 0 to use the
+     * backlogGoal.
+     */
+    @Min(0)
+    private int waitTimeGoal;
+    /**
+     * The percentile of the wait times estimated over the scaling delay that is kept within the waitTimeGoal, when the controller is
+     * WAIT_TIME.
+     */
+    @Min(1)
+    @Max(100)
+    private int waitTimePercentile = DEFAULT_WAIT_TIME_PERCENTILE;
+
+    static final int DEFAULT_MIN_SAMPLE_INCREMENT = 5;
+    static final double DEFAULT_PROPORTIONAL_GAIN = 0.2;
+    static final double DEFAULT_INTEGRAL_GAIN = 0.002;
+    static final double DEFAULT_DERIVATIVE_GAIN = 0.0;
+    static final double DEFAULT_DEADBAND = 0.2;
+    static final int DEFAULT_WAIT_TIME_PERCENTILE = 95;
+
+    /**
+     * The ways in which the number of instances needed can be worked out.
+     */
+    public enum Controller
+    {
+        /**
+         * The statistics are averaged over the scaling delay, and enough instances are recommended to finish the current backlog
+         * within the backlogGoal at the average rate at which each instance consumed messages.
+         */
+        AVERAGE,
+        /**
+         * A PID controller holds the time the backlog would take to finish at the backlogGoal, on top of the instances needed to keep
+         * up with the publish rate.
+         */
+        PID,
+        /**
+         * Enough instances are recommended to keep a percentile of the time messages wait in the queues, estimated on each run over the
+         * scaling delay, within the waitTimeGoal.
+         */
+        WAIT_TIME
+    }
 
 
     public RabbitWorkloadProfile() { }
@@ -71,12 +158,155 @@ public class RabbitWorkloadProfile
         this.backlogGoal = backlogGoal;
     }
 
+    public int getSampleWindow()
+    {
+        return sampleWindow;
+    }
+
+
+    public void setSampleWindow(final int sampleWindow)
+    {
+        this.sampleWindow = sampleWindow;
+    }
+
+
+    public int getSampleIncrement()
+    {
+        return sampleIncrement;
+    }
+
+
+    public void setSampleIncrement(final int sampleIncrement)
+    {
+        this.sampleIncrement = sampleIncrement;
+    }
+
+
+    public Controller getController()
+    {
+        return controller;
+    }
+
+
+    public void setController(final Controller controller)
+    {
+        this.controller = controller;
+    }
+
+
+    public double getProportionalGain()
+    {
+        return proportionalGain;
+    }
+
+
+    public void setProportionalGain(final double proportionalGain)
+    {
+        this.proportionalGain = proportionalGain;
+    }
+
+
+    public double getIntegralGain()
+    {
+        return integralGain;
+    }
+
+
+    public void setIntegralGain(final double integralGain)
+    {
+        this.integralGain = integralGain;
+    }
+
+
+    public double getDerivativeGain()
+    {
+        return derivativeGain;
+    }
+
+
+    public void setDerivativeGain(final double derivativeGain)
+    {
+        this.derivativeGain = derivativeGain;
+    }
+
+
+    public double getDeadband()
+    {
+        return deadband;
+    }
+
+
+    public void setDeadband(final double deadband)
+    {
+        this.deadband = deadband;
+    }
+
+
+    public int getWaitTimeGoal()
+    {
+        return waitTimeGoal;
+    }
+
+
+    public void setWaitTimeGoal(final int waitTimeGoal)
+    {
+        this.waitTimeGoal = waitTimeGoal;
+    }
+
+
+    public int getWaitTimePercentile()
+    {
+        return waitTimePercentile;
+    }
+
+
+    public void setWaitTimePercentile(final int waitTimePercentile)
+    {
+        this.waitTimePercentile = waitTimePercentile;
+    }
+
+
+    /**
+     * @return whether the statistics are taken from the samples held by the broker
+     */
+    public boolean isSampled()
+    {
+        return sampleWindow > 0;
+    }
+
+
+    /**
+     * @return the time (in seconds) between the samples to request from the broker
+     */
+    public int getEffectiveSampleIncrement()
+    {
+        return sampleIncrement > 0 ? sampleIncrement : Math.max(DEFAULT_MIN_SAMPLE_INCREMENT, sampleWindow / 10);
+    }
+
+
+    /**
+     * @return the time (in seconds) that messages should wait in the queues for
+     */
+    public int getEffectiveWaitTimeGoal()
+    {
+        return waitTimeGoal > 0 ? waitTimeGoal : backlogGoal;
+    }
+
     @Override
     public String toString()
     {
         return "RabbitWorkloadProfile{" +
                 "scalingDelay=" + scalingDelay +
                 ", backlogGoal=" + backlogGoal +
+                ", sampleWindow=" + sampleWindow +
+                ", sampleIncrement=" + sampleIncrement +
+                ", controller=" + controller +
+                ", proportionalGain=" + proportionalGain +
+                ", integralGain=" + integralGain +
+                ", derivativeGain=" + derivativeGain +
+                ", deadband=" + deadband +
+                ", waitTimeGoal=" + waitTimeGoal +
+                ", waitTimePercentile=" + waitTimePercentile +
                 '}';
     }
 }
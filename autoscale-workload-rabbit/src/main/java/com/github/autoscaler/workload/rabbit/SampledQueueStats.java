@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+/**
+ * The statistics of a queue over a recent window, worked out from the samples of its rates and length held by the broker.
+ */
+public final class SampledQueueStats
+{
+    private final String name;
+    private final int messages;
+    private final double averageMessages;
+    private final double messagesSlope;
+    private final double publishRate;
+    private final double consumeRate;
+
+    public SampledQueueStats(
+        final String name,
+        final int messages,
+        final double averageMessages,
+        final double messagesSlope,
+        final double publishRate,
+        final double consumeRate
+    )
+    {
+        this.name = name;
+        this.messages = messages;
+        this.averageMessages = averageMessages;
+        this.messagesSlope = messagesSlope;
+        this.publishRate = publishRate;
+        this.consumeRate = consumeRate;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of messages ready in the queue now
+     */
+    public int getMessages()
+    {
+        return messages;
+    }
+
+    /**
+     * @return the average number of messages ready in the queue over the window
+     */
+    public double getAverageMessages()
+    {
+        return averageMessages;
+    }
+
+    /**
+     * @return the rate, in messages per second, at which the number of messages ready in the queue changed over the window
+     */
+    public double getMessagesSlope()
+    {
+        return messagesSlope;
+    }
+
+    /**
+     * @return the average publish rate over the window
+     */
+    public double getPublishRate()
+    {
+        return publishRate;
+    }
+
+    /**
+     * @return the average rate at which messages were delivered over the window
+     */
+    public double getConsumeRate()
+    {
+        return consumeRate;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SampledQueueStats{" +
+               "name=" + name +
+               ", messages=" + messages +
+               ", averageMessages=" + averageMessages +
+               ", messagesSlope=" + messagesSlope +
+               ", publishRate=" + publishRate +
+               ", consumeRate=" + consumeRate +
+               '}';
+    }
+}
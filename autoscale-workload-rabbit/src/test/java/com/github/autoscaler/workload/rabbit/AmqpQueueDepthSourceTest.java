@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+public class AmqpQueueDepthSourceTest
+{
+    @Test
+    public void testReadsDepthOnReusedChannel() throws Exception
+    {
+        final Channel channel = getChannel();
+        final AMQP.Queue.DeclareOk declareOk = Mockito.mock(AMQP.Queue.DeclareOk.class);
+        Mockito.when(declareOk.getMessageCount()).thenReturn(12);
+        Mockito.when(declareOk.getConsumerCount()).thenReturn(3);
+        Mockito.when(channel.queueDeclarePassive("queue")).thenReturn(declareOk);
+        final Connection connection = getConnection(channel);
+        final ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(connectionFactory.newConnection(anyString())).thenReturn(connection);
+
+        final AmqpQueueDepthSource source = new AmqpQueueDepthSource(connectionFactory, new AtomicLong()::get);
+        assertEquals(12, source.getQueueDepth("queue").getMessageCount());
+        assertEquals(3, source.getQueueDepth("queue").getConsumerCount());
+
+        Mockito.verify(connectionFactory, Mockito.times(1)).newConnection(anyString());
+        Mockito.verify(connection, Mockito.times(1)).createChannel();
+    }
+
+    @Test
+    public void testDropsChannelWhenQueueDoesNotExist() throws Exception
+    {
+        final Channel channel = getChannel();
+        Mockito.when(channel.queueDeclarePassive("missing")).thenThrow(new IOException("NOT_FOUND"));
+        final Connection connection = getConnection(channel);
+        final ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(connectionFactory.newConnection(anyString())).thenReturn(connection);
+
+        final AmqpQueueDepthSource source = new AmqpQueueDepthSource(connectionFactory, new AtomicLong()::get);
+        assertThrows(IOException.class, () -> source.getQueueDepth("missing"));
+        assertThrows(IOException.class, () -> source.getQueueDepth("missing"));
+
+        Mockito.verify(channel, Mockito.times(2)).close();
+        Mockito.verify(connection, Mockito.times(2)).createChannel();
+    }
+
+    @Test
+    public void testWaitsBeforeConnectingAgainAfterFailure() throws Exception
+    {
+        final ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Mockito.when(connectionFactory.newConnection(anyString())).thenThrow(new IOException("Connection refused"));
+        final AtomicLong clock = new AtomicLong();
+
+        final AmqpQueueDepthSource source = new AmqpQueueDepthSource(connectionFactory, clock::get);
+        assertThrows(IOException.class, () -> source.getQueueDepth("queue"));
+        assertThrows(IOException.class, () -> source.getQueueDepth("queue"));
+        Mockito.verify(connectionFactory, Mockito.times(1)).newConnection(anyString());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(AmqpQueueDepthSource.RECONNECT_DELAY_SECONDS));
+        assertThrows(IOException.class, () -> source.getQueueDepth("queue"));
+        Mockito.verify(connectionFactory, Mockito.times(2)).newConnection(anyString());
+    }
+
+    private static Channel getChannel()
+    {
+        final Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.isOpen()).thenReturn(true);
+        return channel;
+    }
+
+    private static Connection getConnection(final Channel channel) throws IOException
+    {
+        final Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.isOpen()).thenReturn(true);
+        Mockito.when(connection.createChannel()).thenReturn(channel);
+        return connection;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class HoltTrendTest
+{
+    @Test
+    public void testFollowsLinearSeriesExactly()
+    {
+        final HoltTrend trend = new HoltTrend(0.5, 0.3);
+        for (int t = 0; t <= 100; t += 10) {
+            trend.observe(t, 5 + 2.0 * t);
+        }
+        assertEquals(2.0, trend.getTrend(), 1e-9);
+        assertEquals(205.0, trend.getLevel(), 1e-9);
+        assertEquals(325.0, trend.forecast(60), 1e-9);
+    }
+
+    @Test
+    public void testHandlesIrregularSpacing()
+    {
+        final HoltTrend trend = new HoltTrend(0.5, 0.3);
+        final double[] times = {0, 3, 10, 11, 25, 40};
+        for (final double t : times) {
+            trend.observe(t, 100 - 4 * t);
+        }
+        assertEquals(-4.0, trend.getTrend(), 1e-9);
+        assertEquals(-140.0, trend.forecast(20), 1e-9);
+    }
+
+    @Test
+    public void testTrendDecaysWhenSeriesLevelsOff()
+    {
+        final HoltTrend trend = new HoltTrend(0.5, 0.3);
+        trend.observe(0, 0);
+        trend.observe(10, 100);
+        assertEquals(10.0, trend.getTrend(), 1e-9);
+        for (int t = 20; t <= 400; t += 10) {
+            trend.observe(t, 100);
+        }
+        assertEquals(100.0, trend.forecast(60), 1.0);
+    }
+
+    @Test
+    public void testForecastIsZeroWithoutObservations()
+    {
+        assertEquals(0.0, new HoltTrend(0.5, 0.3).forecast(60), 0.0);
+    }
+
+    @Test
+    public void testRejectsSmoothingOutsideRange()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new HoltTrend(1.5, 0.3));
+        assertThrows(IllegalArgumentException.class, () -> new HoltTrend(0.5, -0.1));
+    }
+}
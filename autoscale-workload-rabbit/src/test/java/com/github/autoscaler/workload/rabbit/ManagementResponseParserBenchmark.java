@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares reading the queue and node responses of the RabbitMQ management API into a tree, as was done before the responses were
+ * column-projected and streamed, with the streaming parser, for both full and column-projected responses. The benchmark is not run as
+ * part of the normal build; run it with:
+ * <pre>
+ * mvn -pl autoscale-workload-rabbit test -Dtest=ManagementResponseParserBenchmark -Dbenchmark.iterations=200000
+ * </pre>
+ * For each combination it reports the bytes on the wire, the bytes allocated and the time taken per call.
+ */
+public class ManagementResponseParserBenchmark
+{
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200000);
+    private static final int CONSUMERS = Integer.getInteger("benchmark.consumers", 10);
+    private static final int NODES = Integer.getInteger("benchmark.nodes", 3);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void queueStats() throws Exception
+    {
+        final byte[] full = fullQueueResponse().getBytes(StandardCharsets.UTF_8);
+        final byte[] projected = ("{\"messages_ready\":1234,\"message_stats\":{\"publish_details\":{\"rate\":12.4},"
+            + "\"deliver_get_details\":{\"rate\":11.9}}}").getBytes(StandardCharsets.UTF_8);
+
+        run("queue, full, tree", full, body -> MAPPER.readTree(new ByteArrayInputStream(body)).get("messages_ready").asInt());
+        run("queue, full, streaming", full,
+            body -> ManagementResponseParser.parseQueueStats(new ByteArrayInputStream(body)).getMessages());
+        run("queue, projected, tree", projected,
+            body -> MAPPER.readTree(new ByteArrayInputStream(body)).get("messages_ready").asInt());
+        run("queue, projected, streaming", projected,
+            body -> ManagementResponseParser.parseQueueStats(new ByteArrayInputStream(body)).getMessages());
+    }
+
+    @Test
+    public void nodeStats() throws Exception
+    {
+        final byte[] full = fullNodesResponse().getBytes(StandardCharsets.UTF_8);
+        final StringBuilder projectedBody = new StringBuilder("[");
+        for (int i = 0; i < NODES; i++) {
+            projectedBody.append(i == 0 ? "" : ",").append("{\"name\":\"rabbit@node-").append(i)
+                .append("\",\"running\":true,\"mem_used\":157286400,\"mem_limit\":1717986918,\"disk_free\":53687091200}");
+        }
+        final byte[] projected = projectedBody.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        run("nodes, full, tree", full, body -> MAPPER.readTree(new ByteArrayInputStream(body)).size());
+        run("nodes, full, streaming", full,
+            body -> ManagementResponseParser.parseNodeStats(new ByteArrayInputStream(body)).getRunningNodes());
+        run("nodes, projected, tree", projected, body -> MAPPER.readTree(new ByteArrayInputStream(body)).size());
+        run("nodes, projected, streaming", projected,
+            body -> ManagementResponseParser.parseNodeStats(new ByteArrayInputStream(body)).getRunningNodes());
+    }
+
+    private static void run(final String name, final byte[] body, final Parse parse) throws IOException
+    {
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean,
+                               "Allocation measurement requires com.sun.management.ThreadMXBean");
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        final long threadId = Thread.currentThread().getId();
+
+        // Warm up so that the measurement is of compiled code
+        long sink = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parse.parse(body);
+        }
+
+        final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parse.parse(body);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-28s %7d bytes/call %9d allocated bytes/call %9d ns/call (%d)%n",
+                          name, body.length, allocated / ITERATIONS, elapsed / ITERATIONS, sink);
+    }
+
+    private static String fullQueueResponse()
+    {
+        final StringBuilder sb = new StringBuilder("{\"arguments\":{\"x-queue-type\":\"classic\",\"x-max-priority\":5},"
+            + "\"auto_delete\":false,\"backing_queue_status\":{\"avg_ack_egress_rate\":11.2,\"avg_ack_ingress_rate\":11.9,"
+            + "\"avg_egress_rate\":11.9,\"avg_ingress_rate\":12.4,\"delta\":[\"delta\",\"undefined\",0,0,\"undefined\"],"
+            + "\"len\":1234,\"mode\":\"default\",\"next_seq_id\":987654,\"q1\":0,\"q2\":0,\"q3\":0,\"q4\":1234,"
+            + "\"target_ram_count\":\"infinity\"},\"consumer_capacity\":1.0,\"consumer_utilisation\":1.0,\"consumers\":")
+            .append(CONSUMERS).append(",\"consumer_details\":[");
+        for (int i = 0; i < CONSUMERS; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"arguments\":{},\"channel_details\":{\"connection_name\":\"10.0.0.")
+                .append(i).append(":5672 -> 10.0.1.1:5672\",\"name\":\"10.0.0.").append(i)
+                .append(":5672 -> 10.0.1.1:5672 (1)\",\"node\":\"rabbit@node-0\",\"number\":1,\"peer_host\":\"10.0.0.").append(i)
+                .append("\",\"peer_port\":5672,\"user\":\"worker\"},\"ack_required\":true,\"active\":true,\"activity_status\":\"up\","
+                    + "\"consumer_tag\":\"amq.ctag-").append(i).append("\",\"exclusive\":false,\"prefetch_count\":1,"
+                    + "\"queue\":{\"name\":\"dataprocessing-worker-in\",\"vhost\":\"/\"}}");
+        }
+        sb.append("],\"durable\":true,\"effective_policy_definition\":{},\"exclusive\":false,\"garbage_collection\":{"
+            + "\"fullsweep_after\":65535,\"max_heap_size\":0,\"min_bin_vheap_size\":46422,\"min_heap_size\":233,"
+            + "\"minor_gcs\":17},\"head_message_timestamp\":null,\"idle_since\":\"2024-01-01 00:00:00\",\"memory\":143288,"
+            + "\"message_bytes\":2468000,\"message_bytes_paged_out\":0,\"message_bytes_persistent\":2468000,"
+            + "\"message_bytes_ram\":2468000,\"message_bytes_ready\":2468000,\"message_bytes_unacknowledged\":0,"
+            + "\"message_stats\":{");
+        final String[] stats = {"ack", "deliver", "deliver_get", "deliver_no_ack", "get", "get_empty", "get_no_ack", "publish",
+                                "redeliver"};
+        for (int i = 0; i < stats.length; i++) {
+            sb.append(i == 0 ? "" : ",").append('"').append(stats[i]).append("\":").append(100000 + i).append(",\"")
+                .append(stats[i]).append("_details\":{\"rate\":").append(10.0 + i).append('}');
+        }
+        sb.append("},\"messages\":1234,\"messages_details\":{\"rate\":0.5},\"messages_paged_out\":0,\"messages_persistent\":1234,"
+            + "\"messages_ram\":1234,\"messages_ready\":1234,\"messages_ready_details\":{\"rate\":0.5},\"messages_ready_ram\":1234,"
+            + "\"messages_unacknowledged\":0,\"messages_unacknowledged_details\":{\"rate\":0.0},"
+            + "\"messages_unacknowledged_ram\":0,\"name\":\"dataprocessing-worker-in\",\"node\":\"rabbit@node-0\","
+            + "\"operator_policy\":null,\"policy\":null,\"recoverable_slaves\":null,\"reductions\":123456789,"
+            + "\"reductions_details\":{\"rate\":1234.5},\"single_active_consumer_tag\":null,\"state\":\"running\","
+            + "\"type\":\"classic\",\"vhost\":\"/\"}");
+        return sb.toString();
+    }
+
+    private static String fullNodesResponse()
+    {
+        final String[] applications = {"amqp_client", "aten", "compiler", "cowboy", "cowlib", "credentials_obfuscation", "crypto",
+                                       "cuttlefish", "gen_batch_server", "goldrush", "inets", "jsx", "kernel", "lager", "mnesia",
+                                       "observer_cli", "os_mon", "public_key", "ra", "rabbit", "rabbit_common",
+                                       "rabbitmq_management", "rabbitmq_management_agent", "rabbitmq_prelaunch", "rabbitmq_web_dispatch",
+                                       "ranch", "recon", "sasl", "ssl", "stdlib", "stdout_formatter", "syntax_tools", "sysmon_handler",
+                                       "systemd", "tools", "xmerl"};
+        final String[] counters = {"context_switches", "fd_used", "gc_bytes_reclaimed", "gc_num", "io_file_handle_open_attempt_count",
+                                   "io_read_bytes", "io_read_count", "io_reopen_count", "io_seek_count", "io_sync_count",
+                                   "io_write_bytes", "io_write_count", "mem_used", "mnesia_disk_tx_count", "mnesia_ram_tx_count",
+                                   "proc_used", "queue_created", "queue_declared", "queue_deleted", "run_queue", "sockets_used"};
+        final StringBuilder sb = new StringBuilder("[");
+        for (int n = 0; n < NODES; n++) {
+            sb.append(n == 0 ? "" : ",").append("{\"applications\":[");
+            for (int i = 0; i < applications.length; i++) {
+                sb.append(i == 0 ? "" : ",").append("{\"name\":\"").append(applications[i]).append("\",\"description\":\"")
+                    .append(applications[i]).append(" application\",\"version\":\"3.12.").append(i).append("\"}");
+            }
+            sb.append("],\"auth_mechanisms\":[{\"name\":\"PLAIN\",\"description\":\"SASL PLAIN authentication mechanism\","
+                + "\"enabled\":true},{\"name\":\"AMQPLAIN\",\"description\":\"QPid AMQPLAIN mechanism\",\"enabled\":true}],"
+                + "\"cluster_links\":[],\"config_files\":[\"/etc/rabbitmq/rabbitmq.conf\"],\"contexts\":[{\"description\":"
+                + "\"RabbitMQ Management\",\"path\":\"/\",\"cowboy_opts\":\"[{sendfile,false}]\",\"port\":\"15672\"}],"
+                + "\"disk_free\":53687091200,\"disk_free_alarm\":false,\"disk_free_limit\":50000000,"
+                + "\"enabled_plugins\":[\"rabbitmq_management\"],\"exchange_types\":[{\"name\":\"direct\",\"description\":"
+                + "\"AMQP direct exchange\",\"enabled\":true},{\"name\":\"topic\",\"description\":\"AMQP topic exchange\","
+                + "\"enabled\":true}],\"fd_total\":1048576,\"mem_alarm\":false,\"mem_calculation_strategy\":\"rss\","
+                + "\"mem_limit\":1717986918,\"name\":\"rabbit@node-").append(n)
+                .append("\",\"net_ticktime\":60,\"os_pid\":\"123\",\"partitions\":[],\"proc_total\":1048576,\"processors\":4,"
+                    + "\"rates_mode\":\"basic\",\"running\":true,\"sockets_total\":943626,\"type\":\"disc\",\"uptime\":123456789");
+            for (final String counter : counters) {
+                sb.append(",\"").append(counter).append("\":157286400,\"").append(counter).append("_details\":{\"rate\":0.0}");
+            }
+            sb.append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    @FunctionalInterface
+    private interface Parse
+    {
+        long parse(byte[] body) throws IOException;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+import org.junit.jupiter.api.Test;
+
+public class ManagementResponseParserTest
+{
+    @Test
+    public void testParsesQueueStatsAndSkipsOtherFields() throws Exception
+    {
+        final QueueStats stats = ManagementResponseParser.parseQueueStats(stream("{"
+            + "\"arguments\": {\"x-queue-type\": \"quorum\"},"
+            + "\"messages_ready\": 42,"
+            + "\"consumer_details\": [{\"channel_details\": {\"name\": \"c\"}}],"
+            + "\"message_stats\": {"
+            + "  \"ack_details\": {\"rate\": 9.0},"
+            + "  \"deliver_get\": 100,"
+            + "  \"deliver_get_details\": {\"rate\": 2.5, \"samples\": [{\"sample\": 1, \"timestamp\": 2}]},"
+            + "  \"publish_details\": {\"avg\": 7.0, \"rate\": 1.5}"
+            + "},"
+            + "\"name\": \"q\""
+            + "}"));
+
+        assertEquals(42, stats.getMessages());
+        assertEquals(1.5, stats.getPublishRate(), 0.0);
+        assertEquals(2.5, stats.getConsumeRate(), 0.0);
+    }
+
+    @Test
+    public void testQueueWithoutMessageStatsHasZeroRates() throws Exception
+    {
+        final QueueStats stats = ManagementResponseParser.parseQueueStats(stream("{\"messages_ready\": 3}"));
+
+        assertEquals(3, stats.getMessages());
+        assertEquals(0.0, stats.getPublishRate(), 0.0);
+        assertEquals(0.0, stats.getConsumeRate(), 0.0);
+        assertFalse(stats.getHeadMessageTimestamp().isPresent());
+    }
+
+    @Test
+    public void testReadsHeadMessageTimestampWhenReported() throws Exception
+    {
+        assertEquals(OptionalLong.of(1700000000L), ManagementResponseParser.parseQueueStats(stream(
+            "{\"messages_ready\": 3, \"head_message_timestamp\": 1700000000}")).getHeadMessageTimestamp());
+        // The broker reports an empty string for an empty queue
+        assertFalse(ManagementResponseParser.parseQueueStats(stream(
+            "{\"messages_ready\": 0, \"head_message_timestamp\": \"\"}")).getHeadMessageTimestamp().isPresent());
+    }
+
+    @Test
+    public void testRejectsQueueResponseThatIsNotAnObject()
+    {
+        assertThrows(IOException.class, () -> ManagementResponseParser.parseQueueStats(stream("[]")));
+    }
+
+    @Test
+    public void testAggregatesNodeStats() throws Exception
+    {
+        final ManagementResponseParser.NodeStats stats = ManagementResponseParser.parseNodeStats(stream("["
+            + "{\"name\": \"a\", \"running\": true, \"mem_limit\": 100000000, \"mem_used\": 50000000, \"disk_free\": 107374182400,"
+            + " \"partitions\": [], \"applications\": [{\"name\": \"rabbit\"}]},"
+            + "{\"name\": \"b\", \"running\": true, \"mem_limit\": 200000000, \"mem_used\": 0, \"disk_free\": 104857600},"
+            + "{\"name\": \"c\", \"running\": false}"
+            + "]"));
+
+        assertEquals(2, stats.getRunningNodes());
+        assertEquals(50.0, stats.getHighestMemUsedPercent(), 0.01);
+        assertEquals(104857600L, stats.getLowestDiskFreeBytes());
+    }
+
+    @Test
+    public void testNodesWithoutFiguresLeaveDefaults() throws Exception
+    {
+        final ManagementResponseParser.NodeStats stats = ManagementResponseParser.parseNodeStats(stream("[{}]"));
+
+        assertEquals(0, stats.getRunningNodes());
+        assertEquals(0.0, stats.getHighestMemUsedPercent(), 0.0);
+        assertEquals(-1L, stats.getLowestDiskFreeBytes());
+    }
+
+    @Test
+    public void testWorksOutSampledQueueStatsFromSamples() throws Exception
+    {
+        // Samples are listed newest first, as the broker does
+        final SampledQueueStats stats = ManagementResponseParser.parseSampledQueueStats(stream("{"
+            + "\"name\": \"q\","
+            + "\"messages_ready\": 40,"
+            + "\"messages_ready_details\": {\"rate\": 5.0, \"samples\": ["
+            + "  {\"sample\": 40, \"timestamp\": 20000}, {\"sample\": 20, \"timestamp\": 10000}, {\"sample\": 0, \"timestamp\": 0}"
+            + "]},"
+            + "\"message_stats\": {"
+            + "  \"publish_details\": {\"rate\": 9.0, \"samples\": ["
+            + "    {\"sample\": 1100, \"timestamp\": 20000}, {\"sample\": 1000, \"timestamp\": 0}"
+            + "  ]},"
+            + "  \"deliver_get_details\": {\"rate\": 1.0, \"samples\": ["
+            + "    {\"sample\": 30, \"timestamp\": 20000}, {\"sample\": 50, \"timestamp\": 0}"
+            + "  ]}"
+            + "}"
+            + "}"));
+
+        assertEquals("q", stats.getName());
+        assertEquals(40, stats.getMessages());
+        assertEquals(20.0, stats.getAverageMessages(), 1e-9);
+        assertEquals(2.0, stats.getMessagesSlope(), 1e-9);
+        assertEquals(5.0, stats.getPublishRate(), 1e-9);
+        // The count went backwards, as it does when a queue is recreated, so the current rate is used instead
+        assertEquals(1.0, stats.getConsumeRate(), 1e-9);
+    }
+
+    @Test
+    public void testSampledQueueWithoutSamplesUsesCurrentValues() throws Exception
+    {
+        final SampledQueueStats stats = ManagementResponseParser.parseSampledQueueStats(stream(
+            "{\"name\": \"q\", \"messages_ready\": 7, \"message_stats\": {\"publish_details\": {\"rate\": 3.0}}}"));
+
+        assertEquals(7.0, stats.getAverageMessages(), 0.0);
+        assertEquals(0.0, stats.getMessagesSlope(), 0.0);
+        assertEquals(3.0, stats.getPublishRate(), 0.0);
+        assertEquals(0.0, stats.getConsumeRate(), 0.0);
+    }
+
+    @Test
+    public void testParsesSampledQueuePage() throws Exception
+    {
+        final List<SampledQueueStats> queues = new ArrayList<>();
+        final int pageCount = ManagementResponseParser.parseSampledQueuePage(stream("{"
+            + "\"filtered_count\": 2, \"item_count\": 2,"
+            + "\"items\": [{\"name\": \"a\", \"messages_ready\": 1}, {\"name\": \"b\", \"messages_ready\": 2}],"
+            + "\"page\": 1, \"page_count\": 3, \"page_size\": 100, \"total_count\": 2"
+            + "}"), queues);
+
+        assertEquals(3, pageCount);
+        assertEquals(2, queues.size());
+        assertEquals("a", queues.get(0).getName());
+        assertEquals(2, queues.get(1).getMessages());
+    }
+
+    private static InputStream stream(final String body)
+    {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
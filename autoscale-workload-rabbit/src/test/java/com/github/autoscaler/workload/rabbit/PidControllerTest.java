@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class PidControllerTest
+{
+    @Test
+    public void testCombinesTerms()
+    {
+        final PidController controller = new PidController(10);
+        controller.setTuning(0.5, 0.1, 2.0, 0.0);
+        assertEquals(0.5, controller.update(1.0, 0, -10, 10), 1e-9);
+        // proportional 1.5, integral 0.1 * 3 * 10, derivative 2 * (3 - 1) / 10
+        assertEquals(4.9, controller.update(3.0, 10, -10, 10), 1e-9);
+        assertEquals(3.0, controller.getIntegral(), 1e-9);
+    }
+
+    @Test
+    public void testIgnoresErrorWithinDeadband()
+    {
+        final PidController controller = new PidController(10);
+        controller.setTuning(1.0, 0.1, 0.0, 0.2);
+        assertEquals(0.0, controller.update(0.15, 10, -10, 10), 0.0);
+        assertEquals(0.0, controller.update(-0.2, 10, -10, 10), 0.0);
+        assertEquals(0.0, controller.getIntegral(), 0.0);
+        assertEquals(0.25, controller.update(0.25, 0, -10, 10), 1e-9);
+    }
+
+    @Test
+    public void testDoesNotWindUpWhileSaturated()
+    {
+        final PidController controller = new PidController(10);
+        controller.setTuning(0.0, 0.1, 0.0, 0.0);
+        assertEquals(1.0, controller.update(1.0, 10, -1, 1), 1e-9);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(1.0, controller.update(1.0, 10, -1, 1), 1e-9);
+        }
+        assertEquals(1.0, controller.getIntegral(), 1e-9);
+        // Once the error changes sign the output comes straight back rather than unwinding a large integral first
+        assertEquals(0.0, controller.update(-1.0, 10, -1, 1), 1e-9);
+    }
+
+    @Test
+    public void testClampsIntegral()
+    {
+        final PidController controller = new PidController(2);
+        controller.setTuning(0.0, 1.0, 0.0, 0.0);
+        controller.update(1.0, 10, -100, 100);
+        assertEquals(2.0, controller.getIntegral(), 0.0);
+        controller.update(-1.0, 10, -100, 100);
+        assertEquals(-2.0, controller.getIntegral(), 0.0);
+    }
+
+    @Test
+    public void testResetForgetsIntegralAndLastError()
+    {
+        final PidController controller = new PidController(10);
+        controller.setTuning(0.0, 0.1, 5.0, 0.0);
+        controller.update(2.0, 10, -10, 10);
+        controller.reset();
+        assertEquals(0.0, controller.getIntegral(), 0.0);
+        // No derivative kick from the error before the reset
+        assertEquals(0.0, controller.update(0.0, 10, -10, 10), 0.0);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class PrometheusMetricsParserTest
+{
+    @Test
+    public void testParsesQueuesInVhostFromPerObjectExposition() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics;
+        try (final Reader reader = new InputStreamReader(
+                PrometheusMetricsParserTest.class.getResourceAsStream("/prometheus/per-object-1.txt"), StandardCharsets.UTF_8)) {
+            queueMetrics = PrometheusMetricsParser.parse(reader, "/");
+        }
+
+        assertEquals(3, queueMetrics.size());
+
+        final PrometheusMetricsParser.QueueMetrics targetQueue = queueMetrics.get("dataprocessing-worker-in");
+        assertEquals(42, targetQueue.getMessagesReady());
+        assertEquals(1520.0, targetQueue.getPublishedTotal(), 0.0);
+        assertEquals(1520.0, targetQueue.getConsumedTotal(), 0.0);
+
+        final PrometheusMetricsParser.QueueMetrics stagingQueue = queueMetrics.get("dataprocessing-worker-in»tenant-a");
+        assertEquals(5, stagingQueue.getMessagesReady());
+        assertEquals(50.0, stagingQueue.getPublishedTotal(), 0.0);
+        assertEquals(0.0, stagingQueue.getConsumedTotal(), 0.0);
+
+        assertEquals(0, queueMetrics.get("idle-worker-in").getMessagesReady());
+    }
+
+    @Test
+    public void testParsesOnlyQueuesInGivenVhost() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics;
+        try (final Reader reader = new InputStreamReader(
+                PrometheusMetricsParserTest.class.getResourceAsStream("/prometheus/per-object-1.txt"), StandardCharsets.UTF_8)) {
+            queueMetrics = PrometheusMetricsParser.parse(reader, "other");
+        }
+
+        assertEquals(1, queueMetrics.size());
+        final PrometheusMetricsParser.QueueMetrics queue = queueMetrics.get("dataprocessing-worker-in");
+        assertEquals(999, queue.getMessagesReady());
+        assertEquals(91000.0, queue.getPublishedTotal(), 0.0);
+        assertEquals(90500.0, queue.getConsumedTotal(), 0.0);
+    }
+
+    @Test
+    public void testParsesDetailedMetricNames() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics = parse(
+            "# TYPE rabbitmq_detailed_queue_messages_ready gauge\n"
+            + "rabbitmq_detailed_queue_messages_ready{vhost=\"/\",queue=\"q\"} 7\n"
+            + "rabbitmq_detailed_queue_messages_published_total{channel=\"<0.1.0>\",queue_vhost=\"/\",queue=\"q\","
+            + "exchange_vhost=\"/\",exchange=\"\"} 11\n"
+            + "rabbitmq_detailed_channel_get_ack_total{channel=\"<0.1.0>\",vhost=\"/\",queue=\"q\"} 4\n");
+
+        assertEquals(7, queueMetrics.get("q").getMessagesReady());
+        assertEquals(11.0, queueMetrics.get("q").getPublishedTotal(), 0.0);
+        assertEquals(4.0, queueMetrics.get("q").getConsumedTotal(), 0.0);
+    }
+
+    @Test
+    public void testUndoesEscapesInLabelValues() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics = parse(
+            "rabbitmq_queue_messages_ready{vhost=\"/\",queue=\"a \\\"quoted\\\" \\\\ queue\"} 3\n");
+
+        assertEquals(3, queueMetrics.get("a \"quoted\" \\ queue").getMessagesReady());
+    }
+
+    @Test
+    public void testParsesValuesThatAreNotWholeNumbers() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics = parse(
+            "rabbitmq_queue_messages_published_total{queue_vhost=\"/\",queue=\"q\"} 1.5e3 1700000000000\r\n"
+            + "rabbitmq_channel_messages_delivered_total{vhost=\"/\",queue=\"q\"} 12.5\r\n"
+            + "rabbitmq_channel_messages_delivered_ack_total{vhost=\"/\",queue=\"q\"} NaN\r\n"
+            + "rabbitmq_queue_messages_ready{vhost=\"/\",queue=\"q\"} 2");
+
+        assertEquals(2, queueMetrics.get("q").getMessagesReady());
+        assertEquals(1500.0, queueMetrics.get("q").getPublishedTotal(), 0.0);
+        assertEquals(12.5, queueMetrics.get("q").getConsumedTotal(), 0.0);
+    }
+
+    @Test
+    public void testSkipsOtherMetricsAndMalformedLines() throws IOException
+    {
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics = parse(
+            "rabbitmq_queue_messages{vhost=\"/\",queue=\"q\"} 9\n"
+            + "rabbitmq_queue_messages_ready_total{vhost=\"/\",queue=\"q\"} 9\n"
+            + "rabbitmq_queue_messages_ready{vhost=\"/\",queue=\"unterminated} 9\n"
+            + "rabbitmq_queue_messages_ready{vhost=\"/\"} 9\n"
+            + "\n"
+            + "rabbitmq_queue_messages_ready 9\n");
+
+        assertTrue(queueMetrics.isEmpty());
+    }
+
+    @Test
+    public void testReadsLinesLongerThanBuffer() throws IOException
+    {
+        final StringBuilder queueName = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            queueName.append('q');
+        }
+        final Map<String, PrometheusMetricsParser.QueueMetrics> queueMetrics = parse(
+            "rabbitmq_queue_messages_ready{vhost=\"/\",queue=\"" + queueName + "\"} 5\n");
+
+        assertEquals(5, queueMetrics.get(queueName.toString()).getMessagesReady());
+    }
+
+    private static Map<String, PrometheusMetricsParser.QueueMetrics> parse(final String exposition) throws IOException
+    {
+        return PrometheusMetricsParser.parse(new StringReader(exposition), "/");
+    }
+}
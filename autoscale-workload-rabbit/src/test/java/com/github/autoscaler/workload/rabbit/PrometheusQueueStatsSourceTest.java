@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.autoscaler.api.AnalysisDeadline;
+import com.github.autoscaler.api.ScalerException;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PrometheusQueueStatsSourceTest
+{
+    private static final String TARGET_QUEUE = "dataprocessing-worker-in";
+    private static final String STAGING_QUEUE = "dataprocessing-worker-in»tenant-a";
+
+    private HttpServer server;
+    private final AtomicReference<String> exposition = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicLong clock = new AtomicLong();
+    private final CountDownLatch hangingRequests = new CountDownLatch(1);
+    private PrometheusQueueStatsSource source;
+
+    @BeforeEach
+    public void startServer() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/metrics/hanging", exchange -> {
+            try {
+                hangingRequests.await(30, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/metrics/per-object", exchange -> {
+            final byte[] body;
+            try (final InputStream resource = PrometheusQueueStatsSourceTest.class.getResourceAsStream(exposition.get())) {
+                body = resource.readAllBytes();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(status.get(), body.length);
+            try (final OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        server.start();
+        final String endpoint = "http://localhost:" + server.getAddress().getPort() + "/metrics/per-object";
+        source = new PrometheusQueueStatsSource(RabbitManagementApiFactory.createClient(), endpoint, "/", clock::get);
+    }
+
+    @AfterEach
+    public void stopServer()
+    {
+        hangingRequests.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRatesAreZeroOnFirstScrape() throws ScalerException
+    {
+        exposition.set("/prometheus/per-object-1.txt");
+
+        final Map<String, QueueStats> queueStats = source.getQueueStats();
+
+        assertEquals(3, queueStats.size());
+        assertEquals(42, queueStats.get(TARGET_QUEUE).getMessages());
+        assertEquals(0.0, queueStats.get(TARGET_QUEUE).getPublishRate(), 0.0);
+        assertEquals(0.0, queueStats.get(TARGET_QUEUE).getConsumeRate(), 0.0);
+        assertEquals(5, queueStats.get(STAGING_QUEUE).getMessages());
+    }
+
+    @Test
+    public void testRatesAreWorkedOutFromCountersOfSuccessiveScrapes() throws ScalerException
+    {
+        exposition.set("/prometheus/per-object-1.txt");
+        source.getQueueStats();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        exposition.set("/prometheus/per-object-2.txt");
+        final Map<String, QueueStats> queueStats = source.getQueueStats();
+
+        assertEquals(60, queueStats.get(TARGET_QUEUE).getMessages());
+        assertEquals(20.0, queueStats.get(TARGET_QUEUE).getPublishRate(), 0.0);
+        assertEquals(15.0, queueStats.get(TARGET_QUEUE).getConsumeRate(), 0.0);
+        assertEquals(8, queueStats.get(STAGING_QUEUE).getMessages());
+        assertEquals(3.0, queueStats.get(STAGING_QUEUE).getPublishRate(), 0.0);
+        assertEquals(0.0, queueStats.get(STAGING_QUEUE).getConsumeRate(), 0.0);
+        assertEquals(0.0, queueStats.get("idle-worker-in").getPublishRate(), 0.0);
+    }
+
+    @Test
+    public void testRatesAreKeptWhenCountersDrop() throws ScalerException
+    {
+        exposition.set("/prometheus/per-object-1.txt");
+        source.getQueueStats();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        exposition.set("/prometheus/per-object-2.txt");
+        source.getQueueStats();
+
+        // The counters go back to those of the first scrape, as they would if channels were closed
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        exposition.set("/prometheus/per-object-1.txt");
+        final Map<String, QueueStats> queueStats = source.getQueueStats();
+
+        assertEquals(42, queueStats.get(TARGET_QUEUE).getMessages());
+        assertEquals(20.0, queueStats.get(TARGET_QUEUE).getPublishRate(), 0.0);
+        assertEquals(15.0, queueStats.get(TARGET_QUEUE).getConsumeRate(), 0.0);
+    }
+
+    @Test
+    public void testFailedScrapeThrows()
+    {
+        exposition.set("/prometheus/per-object-1.txt");
+        status.set(503);
+
+        assertThrows(ScalerException.class, () -> source.getQueueStats());
+    }
+
+    @Test
+    public void testScrapeIsLimitedByAnalysisDeadline()
+    {
+        final String endpoint = "http://localhost:" + server.getAddress().getPort() + "/metrics/hanging";
+        final PrometheusQueueStatsSource hangingSource
+            = new PrometheusQueueStatsSource(RabbitManagementApiFactory.createClient(), endpoint, "/", clock::get);
+
+        final long start = System.nanoTime();
+        AnalysisDeadline.set(start + TimeUnit.MILLISECONDS.toNanos(500));
+        try {
+            assertThrows(ScalerException.class, hangingSource::getQueueStats);
+        } finally {
+            AnalysisDeadline.clear();
+        }
+        // The client would otherwise wait for its read timeout of 10 seconds
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+}
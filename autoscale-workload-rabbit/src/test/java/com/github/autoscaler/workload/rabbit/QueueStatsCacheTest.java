@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.github.autoscaler.api.ScalerException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class QueueStatsCacheTest
+{
+    @Test
+    public void testStatsAreReusedUntilTheyExpire() throws ScalerException
+    {
+        final AtomicInteger sweeps = new AtomicInteger();
+        final AtomicLong clock = new AtomicLong();
+        final QueueStatsCache cache = new QueueStatsCache(() -> {
+            sweeps.incrementAndGet();
+            return Collections.singletonMap("queue", new QueueStats(sweeps.get(), 0.0, 0.0));
+        }, 10, clock::get);
+
+        assertNull(cache.getLatest());
+        assertEquals(1, cache.getFresh().get("queue").getMessages());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertEquals(1, cache.getFresh().get("queue").getMessages());
+        assertEquals(1, sweeps.get());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(2, cache.getFresh().get("queue").getMessages());
+        assertEquals(2, sweeps.get());
+
+        // a refresh always sweeps
+        assertEquals(3, cache.refresh().get("queue").getMessages());
+        assertEquals(3, cache.getLatest().get("queue").getMessages());
+    }
+
+    @Test
+    public void testFailedSweepDiscardsStats() throws ScalerException
+    {
+        final AtomicInteger sweeps = new AtomicInteger();
+        final QueueStatsCache cache = new QueueStatsCache(() -> {
+            if (sweeps.incrementAndGet() > 1) {
+                throw new ScalerException("RabbitMQ unavailable");
+            }
+            return Collections.emptyMap();
+        }, 10, () -> 0L);
+
+        cache.refresh();
+        assertThrows(ScalerException.class, cache::refresh);
+        assertNull(cache.getLatest());
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneSweep() throws Exception
+    {
+        final int callers = 8;
+        final AtomicInteger sweeps = new AtomicInteger();
+        final CountDownLatch sweepStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSweep = new CountDownLatch(1);
+        final Map<String, QueueStats> stats = Collections.singletonMap("queue", new QueueStats(5, 1.0, 1.0));
+        final QueueStatsCache cache = new QueueStatsCache(() -> {
+            sweeps.incrementAndGet();
+            sweepStarted.countDown();
+            try {
+                releaseSweep.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return stats;
+        }, 10, () -> 0L);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<Map<String, QueueStats>>> results = new ArrayList<>();
+            results.add(executor.submit(cache::getFresh));
+            assertTrue(sweepStarted.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(cache::getFresh));
+            }
+            // give the other callers time to find the running sweep; any that are later find its result still fresh
+            Thread.sleep(100);
+            releaseSweep.countDown();
+            for (final Future<Map<String, QueueStats>> result : results) {
+                assertSame(stats, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, sweeps.get());
+    }
+
+    @Test
+    public void testConcurrentCallersShareFailure() throws Exception
+    {
+        final CountDownLatch sweepStarted = new CountDownLatch(1);
+        final CountDownLatch releaseSweep = new CountDownLatch(1);
+        final QueueStatsCache cache = new QueueStatsCache(() -> {
+            sweepStarted.countDown();
+            try {
+                releaseSweep.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ScalerException("RabbitMQ unavailable");
+        }, 10, () -> 0L);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Map<String, QueueStats>> first = executor.submit(cache::getFresh);
+            assertTrue(sweepStarted.await(10, TimeUnit.SECONDS));
+            final Future<Map<String, QueueStats>> second = executor.submit(cache::getFresh);
+            Thread.sleep(100);
+            releaseSweep.countDown();
+            // the second caller fails with the first caller's sweep, or with its own if it was too late to find it
+            for (final Future<Map<String, QueueStats>> result : List.of(first, second)) {
+                final Exception e = assertThrows(Exception.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof ScalerException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNull(cache.getLatest());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+
+import org.mockito.Mockito;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class RabbitPidWorkloadAnalyserTest
+{
+    private static final String SCALING_TARGET = "testTarget";
+
+    @Test
+    public void testInitialScaleup()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 0.0, 0.0));
+        RabbitPidWorkloadAnalyser analyser = getAnalyser(stats, new AtomicLong());
+        assertEquals(ScalingOperation.SCALE_UP,
+                     analyser.analyseWorkload(new InstanceInfo(0, 0, new LinkedList<>(), 1, 0)).getOperation());
+    }
+
+    @Test
+    public void testScaleDownIsLimitedWhenIdle()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 0.0, 0.0));
+        RabbitPidWorkloadAnalyser analyser = getAnalyser(stats, new AtomicLong());
+
+        ScalingAction action = analyser.analyseWorkload(new InstanceInfo(12, 0, new LinkedList<>(), 1, 12));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(5, action.getAmount());
+
+        action = analyser.analyseWorkload(new InstanceInfo(3, 0, new LinkedList<>(), 1, 3));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(3, action.getAmount());
+    }
+
+    @Test
+    public void testScaleDownIsLimitedWhenWorkloadDrops()
+            throws ScalerException
+    {
+        final AtomicLong clock = new AtomicLong();
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitPidWorkloadAnalyser analyser = getAnalyser(stats, clock);
+
+        // far more instances than are needed to keep up with the little that is published
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 1.0, 1.0));
+        ScalingAction action = analyser.analyseWorkload(new InstanceInfo(20, 0, new LinkedList<>(), 1, 20));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(5, action.getAmount());
+
+        // the next recommendation carries on from the instances that were kept
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        action = analyser.analyseWorkload(new InstanceInfo(15, 0, new LinkedList<>(), 1, 15));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(5, action.getAmount());
+    }
+
+    private static RabbitPidWorkloadAnalyser getAnalyser(final RabbitStatsReporter stats, final AtomicLong clock)
+    {
+        final RabbitWorkloadProfile profile = new RabbitWorkloadProfile(1, 60);
+        profile.setController(RabbitWorkloadProfile.Controller.PID);
+        return new RabbitPidWorkloadAnalyser(SCALING_TARGET, stats, profile, Mockito.mock(RabbitSystemResourceMonitor.class), null,
+                                             clock::get);
+    }
+}
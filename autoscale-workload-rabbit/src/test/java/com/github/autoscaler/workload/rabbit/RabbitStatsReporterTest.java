@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import org.mockito.Mockito;
+
+import com.github.autoscaler.api.ScalerException;
+
+public class RabbitStatsReporterTest
+{
+    private static final String VHOST = "/";
+    private static final String SCALING_TARGET = "testTarget";
+    private static final String STAGING_QUEUE_NAME_REGEX = "^testTarget».+$";
+
+    @Test
+    public void testRefreshedVhostStatsAreUsedForTargetAndStagingQueues() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues page1 = getPagedQueues(1, 2,
+                getItem(SCALING_TARGET, 10, 2.0, 3.0),
+                getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        final PagedQueues page2 = getPagedQueues(2, 2,
+                getItem("otherTarget", 7, 0.0, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(Mockito.eq(VHOST), Mockito.eq(1), anyInt(), anyString())).thenReturn(page1);
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(Mockito.eq(VHOST), Mockito.eq(2), anyInt(), anyString())).thenReturn(page2);
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST);
+        reporter.refreshVhostQueueStats();
+
+        final QueueStats targetQueueStats = reporter.getQueueStats(SCALING_TARGET);
+        assertEquals(10, targetQueueStats.getMessages());
+        assertEquals(2.0, targetQueueStats.getPublishRate(), 0.0);
+        assertEquals(3.0, targetQueueStats.getConsumeRate(), 0.0);
+
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(1, stagingQueueStats.size());
+        assertEquals(SCALING_TARGET + "»staging-queue-1", stagingQueueStats.get(0).getName());
+        assertEquals(5, stagingQueueStats.get(0).getMessages());
+        assertEquals(1.5, stagingQueueStats.get(0).getPublishRate(), 0.0);
+
+        // Everything was answered from the two pages of the vhost sweep
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(2)).getPagedQueues(anyString(), anyInt(), anyInt(), anyString());
+        Mockito.verify(mockRabbitManagementApi, Mockito.never()).getQueueStatus(anyString(), anyString());
+        Mockito.verify(mockRabbitManagementApi, Mockito.never())
+                .getPagedQueues(anyString(), anyString(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testCachedVhostStatsAreSharedUntilTheyExpire() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues page = getPagedQueues(1, 1,
+                getItem(SCALING_TARGET, 10, 2.0, 3.0),
+                getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0),
+                getItem("otherTarget", 7, 0.0, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(Mockito.eq(VHOST), Mockito.eq(1), anyInt(), anyString())).thenReturn(page);
+
+        final AtomicLong clock = new AtomicLong();
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST, 30, clock::get);
+
+        // The analysers of several services are answered from one sweep of the vhost, without refreshVhostQueueStats being called
+        assertEquals(10, reporter.getQueueStats(SCALING_TARGET).getMessages());
+        assertEquals(1, reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX).size());
+        assertEquals(7, reporter.getQueueStats("otherTarget").getMessages());
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(1)).getPagedQueues(anyString(), anyInt(), anyInt(), anyString());
+
+        // A batch refresh within the time to live does not sweep again
+        reporter.refreshVhostQueueStats();
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(1)).getPagedQueues(anyString(), anyInt(), anyInt(), anyString());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(10, reporter.getQueueStats(SCALING_TARGET).getMessages());
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(2)).getPagedQueues(anyString(), anyInt(), anyInt(), anyString());
+        Mockito.verify(mockRabbitManagementApi, Mockito.never()).getQueueStatus(anyString(), anyString());
+        Mockito.verify(mockRabbitManagementApi, Mockito.never())
+                .getPagedQueues(anyString(), anyString(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testDepthsAreReadFromQueueDepthSourceAndRatesFromSweep() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues page = getPagedQueues(1, 1,
+                getItem(SCALING_TARGET, 10, 2.0, 3.0),
+                getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(Mockito.eq(VHOST), Mockito.eq(1), anyInt(), anyString())).thenReturn(page);
+
+        final Map<String, Integer> depths = new HashMap<>();
+        depths.put(SCALING_TARGET, 40);
+        depths.put(SCALING_TARGET + "»staging-queue-1", 6);
+        final AtomicLong clock = new AtomicLong();
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST, 30, clock::get,
+                                                                     queue -> new QueueDepthSource.QueueDepth(depths.get(queue), 2));
+
+        final QueueStats targetQueueStats = reporter.getQueueStats(SCALING_TARGET);
+        assertEquals(40, targetQueueStats.getMessages());
+        assertEquals(2.0, targetQueueStats.getPublishRate(), 0.0);
+        assertEquals(3.0, targetQueueStats.getConsumeRate(), 0.0);
+
+        // The depths change between sweeps of the management API
+        depths.put(SCALING_TARGET, 45);
+        assertEquals(45, reporter.getQueueStats(SCALING_TARGET).getMessages());
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(1, stagingQueueStats.size());
+        assertEquals(6, stagingQueueStats.get(0).getMessages());
+        assertEquals(1.5, stagingQueueStats.get(0).getPublishRate(), 0.0);
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(1)).getPagedQueues(anyString(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testManagementDepthIsUsedWhenQueueDepthSourceFails() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues page = getPagedQueues(1, 1, getItem(SCALING_TARGET, 10, 2.0, 3.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(Mockito.eq(VHOST), Mockito.eq(1), anyInt(), anyString())).thenReturn(page);
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST, 30, new AtomicLong()::get,
+                                                                     queue -> {
+                                                                         throw new IOException("Not connected");
+                                                                     });
+
+        assertEquals(10, reporter.getQueueStats(SCALING_TARGET).getMessages());
+    }
+
+    @Test
+    public void testVhostQueueStatsAreAcquiredFromGivenLoader() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final Map<String, QueueStats> scrapedQueueStats = new HashMap<>();
+        scrapedQueueStats.put(SCALING_TARGET, new QueueStats(12, 2.0, 3.0));
+        scrapedQueueStats.put(SCALING_TARGET + "»staging-queue-1", new QueueStats(4, 1.0, 0.0));
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST, 30, new AtomicLong()::get,
+                                                                     null, () -> scrapedQueueStats, 0);
+
+        assertEquals(12, reporter.getQueueStats(SCALING_TARGET).getMessages());
+        assertEquals(3.0, reporter.getQueueStats(SCALING_TARGET).getConsumeRate(), 0.0);
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(1, stagingQueueStats.size());
+        assertEquals(4, stagingQueueStats.get(0).getMessages());
+        Mockito.verifyNoInteractions(mockRabbitManagementApi);
+    }
+
+    @Test
+    public void testAllPagesOfStagingQueuesAreCombinedInOrder() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        for (int page = 1; page <= 3; page++) {
+            final PagedQueues pagedQueues = getPagedQueues(page, 3,
+                    getItem(SCALING_TARGET + "»staging-queue-" + page, page, 0.5, 0.0));
+            Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                    Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(page), anyInt(), anyString()))
+                .thenReturn(pagedQueues);
+        }
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(mockRabbitManagementApi, VHOST);
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+
+        assertEquals(3, stagingQueueStats.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SCALING_TARGET + "»staging-queue-" + (i + 1), stagingQueueStats.get(i).getName());
+            assertEquals(i + 1, stagingQueueStats.get(i).getMessages());
+        }
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(3))
+            .getPagedQueues(anyString(), anyString(), anyInt(), anyInt(), anyString());
+
+        // Without a discovery interval the first page is requested again to find out how many pages there are
+        assertEquals(3, reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX).size());
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(6))
+            .getPagedQueues(anyString(), anyString(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testKnownPagesOfStagingQueuesAreRequestedAtOnceUntilDiscoveredAgain() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final AtomicBoolean pagesKnown = new AtomicBoolean();
+        final CountDownLatch secondPageRequested = new CountDownLatch(1);
+        final PagedQueues page1 = getPagedQueues(1, 2, getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(1), anyInt(), anyString()))
+            .thenAnswer(invocation -> {
+                // Once the number of pages is known, the second page is requested without waiting for the first
+                if (pagesKnown.get()) {
+                    assertTrue(secondPageRequested.await(30, TimeUnit.SECONDS));
+                }
+                return page1;
+            });
+        final PagedQueues page2 = getPagedQueues(2, 2, getItem(SCALING_TARGET + "»staging-queue-2", 3, 0.0, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(2), anyInt(), anyString()))
+            .thenAnswer(invocation -> {
+                if (pagesKnown.get()) {
+                    secondPageRequested.countDown();
+                }
+                return page2;
+            });
+
+        final AtomicLong clock = new AtomicLong();
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(
+            mockRabbitManagementApi, VHOST, 0, clock::get, null, null, 60);
+        assertEquals(2, reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX).size());
+
+        pagesKnown.set(true);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(2, stagingQueueStats.size());
+        assertEquals(SCALING_TARGET + "»staging-queue-1", stagingQueueStats.get(0).getName());
+        assertEquals(SCALING_TARGET + "»staging-queue-2", stagingQueueStats.get(1).getName());
+        Mockito.verify(mockRabbitManagementApi, Mockito.times(4))
+            .getPagedQueues(anyString(), anyString(), anyInt(), anyInt(), anyString());
+        Mockito.verify(mockRabbitManagementApi, Mockito.never()).getQueueStatus(anyString(), anyString());
+    }
+
+    @Test
+    public void testPagesOfStagingQueuesAddedSinceDiscoveryAreRequested() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues onePage = getPagedQueues(1, 1, getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        final PagedQueues firstOfTwoPages = getPagedQueues(1, 2, getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(1), anyInt(), anyString()))
+            .thenReturn(onePage, firstOfTwoPages);
+        final PagedQueues secondPage = getPagedQueues(2, 2, getItem(SCALING_TARGET + "»staging-queue-2", 3, 0.0, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(2), anyInt(), anyString()))
+            .thenReturn(secondPage);
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(
+            mockRabbitManagementApi, VHOST, 0, new AtomicLong()::get, null, null, 60);
+        assertEquals(1, reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX).size());
+
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(2, stagingQueueStats.size());
+        assertEquals(3, stagingQueueStats.get(1).getMessages());
+    }
+
+    @Test
+    public void testStagingQueuesAreDiscoveredAgainWhenKnownPagesFail() throws ScalerException
+    {
+        final RabbitManagementApi mockRabbitManagementApi = Mockito.mock(RabbitManagementApi.class);
+        final PagedQueues firstOfTwoPages = getPagedQueues(1, 2, getItem(SCALING_TARGET + "»staging-queue-1", 5, 1.5, 0.0));
+        final PagedQueues onePage = getPagedQueues(1, 1, getItem(SCALING_TARGET + "»staging-queue-1", 4, 1.5, 0.0));
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(1), anyInt(), anyString()))
+            .thenReturn(firstOfTwoPages, onePage);
+        final PagedQueues secondPage = getPagedQueues(2, 2, getItem(SCALING_TARGET + "»staging-queue-2", 3, 0.0, 0.0));
+        // The second page no longer exists once the queues on it have been deleted
+        Mockito.when(mockRabbitManagementApi.getPagedQueues(
+                Mockito.eq(VHOST), Mockito.eq(STAGING_QUEUE_NAME_REGEX), Mockito.eq(2), anyInt(), anyString()))
+            .thenReturn(secondPage)
+            .thenThrow(new ScalerException("Page out of range"));
+
+        final RabbitStatsReporter reporter = new RabbitStatsReporter(
+            mockRabbitManagementApi, VHOST, 0, new AtomicLong()::get, null, null, 60);
+        assertEquals(2, reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX).size());
+
+        final List<StagingQueueStats> stagingQueueStats = reporter.getStagingQueueStats(STAGING_QUEUE_NAME_REGEX);
+        assertEquals(1, stagingQueueStats.size());
+        assertEquals(4, stagingQueueStats.get(0).getMessages());
+    }
+
+    private static PagedQueues getPagedQueues(final int page, final int pageCount, final PagedQueues.Item... items)
+    {
+        final PagedQueues pagedQueues = Mockito.mock(PagedQueues.class);
+        Mockito.when(pagedQueues.getPage()).thenReturn(page);
+        Mockito.when(pagedQueues.getPageCount()).thenReturn(pageCount);
+        Mockito.when(pagedQueues.getItems()).thenReturn(items);
+        return pagedQueues;
+    }
+
+    private static PagedQueues.Item getItem(
+            final String name, final int messagesReady, final double publishRate, final double deliverGetRate)
+    {
+        final PagedQueues.Rate publishDetails = Mockito.mock(PagedQueues.Rate.class);
+        Mockito.when(publishDetails.getRate()).thenReturn(publishRate);
+        final PagedQueues.Rate deliverGetDetails = Mockito.mock(PagedQueues.Rate.class);
+        Mockito.when(deliverGetDetails.getRate()).thenReturn(deliverGetRate);
+        final PagedQueues.MessageStats messageStats = Mockito.mock(PagedQueues.MessageStats.class);
+        Mockito.when(messageStats.getPublishDetails()).thenReturn(publishDetails);
+        Mockito.when(messageStats.getDeliverGetDetails()).thenReturn(deliverGetDetails);
+        final PagedQueues.Item item = Mockito.mock(PagedQueues.Item.class);
+        Mockito.when(item.getName()).thenReturn(name);
+        Mockito.when(item.getMessagesReady()).thenReturn(messagesReady);
+        Mockito.when(item.getMessageStats()).thenReturn(messageStats);
+        return item;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+import com.github.autoscaler.api.WorkloadAnalyserFactory;
+import com.hpe.caf.api.ConfigurationException;
+import com.hpe.caf.api.ConfigurationSource;
+
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class RabbitTrendWorkloadAnalyserTest
+{
+    private static final String SCALING_TARGET = "testTarget";
+
+    @Test
+    public void testSharesFactoryWithRabbitAnalysers()
+            throws ScalerException, ConfigurationException
+    {
+        final ConfigurationSource configurationSource = Mockito.mock(ConfigurationSource.class);
+        Mockito.when(configurationSource.getConfiguration(RabbitWorkloadAnalyserConfiguration.class)).thenReturn(getRabbitConfiguration());
+        Mockito.when(configurationSource.getConfiguration(RabbitTrendWorkloadAnalyserConfiguration.class))
+            .thenThrow(new ConfigurationException("No trend configuration"));
+
+        final Map<String, WorkloadAnalyserFactory> factories = new RabbitWorkloadAnalyserFactoryProvider().getWorkloadAnalyserFactories(
+            configurationSource);
+
+        assertEquals(2, factories.size());
+        final RabbitWorkloadAnalyserFactory rabbitFactory = (RabbitWorkloadAnalyserFactory) factories.get("rabbitmq");
+        final RabbitTrendWorkloadAnalyserFactory trendFactory = (RabbitTrendWorkloadAnalyserFactory) factories.get("rabbitmq-trend");
+        assertSame(rabbitFactory, trendFactory.getRabbitFactory());
+        assertTrue(trendFactory.getAnalyser(SCALING_TARGET, null) instanceof RabbitTrendWorkloadAnalyser);
+        // The rabbit configuration is only read once, for the one factory the analysers share
+        Mockito.verify(configurationSource, Mockito.times(1)).getConfiguration(RabbitWorkloadAnalyserConfiguration.class);
+    }
+
+    private static RabbitWorkloadAnalyserConfiguration getRabbitConfiguration()
+    {
+        final RabbitWorkloadAnalyserConfiguration config = new RabbitWorkloadAnalyserConfiguration();
+        config.setRabbitManagementEndpoint("http://localhost:15672");
+        config.setRabbitManagementUser("guest");
+        config.setRabbitManagementPassword("guest");
+        config.setProfiles(Collections.singletonMap(RabbitWorkloadAnalyserConfiguration.DEFAULT_PROFILE_NAME,
+                                                    new RabbitWorkloadProfile()));
+        return config;
+    }
+
+    @Test
+    public void testInitialScaleup()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 0.0, 0.0));
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(), Mockito.mock(RabbitSystemResourceMonitor.class), null);
+        assertEquals(ScalingOperation.SCALE_UP,
+                     analyser.analyseWorkload(new InstanceInfo(0, 0, new LinkedList<>(), 1, 0)).getOperation());
+    }
+
+    @Test
+    public void testScalesUpAheadOfRisingPublishRate()
+            throws ScalerException
+    {
+        final AtomicLong clock = new AtomicLong();
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(0.5, 0.3, 60, 300, 1),
+            Mockito.mock(RabbitSystemResourceMonitor.class), null, clock::get);
+        InstanceInfo info = new InstanceInfo(2, 0, new LinkedList<>(), 1, 20);
+
+        // the two instances keep up with the publish rate and the small backlog
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(100, 10.0, 10.0));
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+
+        // the publish rate doubles, which forecast a minute ahead needs far more than two instances
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(100, 20.0, 20.0));
+        final ScalingAction action = analyser.analyseWorkload(info);
+        assertEquals(ScalingOperation.SCALE_UP, action.getOperation());
+        assertEquals(5, action.getAmount());
+        assertTrue(analyser.getWorkloadVolatility().isPresent());
+    }
+
+    @Test
+    public void testRoundsWithHysteresis()
+            throws ScalerException
+    {
+        final AtomicLong clock = new AtomicLong();
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(0.5, 0.3, 60, 300, 1),
+            Mockito.mock(RabbitSystemResourceMonitor.class), null, clock::get);
+        InstanceInfo info = new InstanceInfo(2, 0, new LinkedList<>(), 1, 20);
+
+        // a steady workload needing about 2.5 instances is not worth a third instance
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(60, 12.5, 10.0));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        }
+    }
+
+    @Test
+    public void testConsumeRateOnlySampledWithBacklog()
+            throws ScalerException
+    {
+        final AtomicLong clock = new AtomicLong();
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(0.5, 0.3, 60, 300, 1),
+            Mockito.mock(RabbitSystemResourceMonitor.class), null, clock::get);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 20);
+
+        // without a backlog the instance only consumes what is published, which is far less than it could
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 2.0, 2.0));
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+
+        // once a backlog builds up the instance consumes it fast enough on its own
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(600, 2.0, 10.0));
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+    }
+
+    @Test
+    public void testRecommendsEveryScalingDelayRuns()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 0.0, 0.0));
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(0.5, 0.3, 60, 300, 3),
+            Mockito.mock(RabbitSystemResourceMonitor.class), null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 0, 5);
+
+        assertEquals(ScalingOperation.SCALE_DOWN, analyser.analyseWorkload(info).getOperation());
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        assertEquals(ScalingOperation.SCALE_DOWN, analyser.analyseWorkload(info).getOperation());
+    }
+
+    @Test
+    public void testScalesDownToZeroWhenIdle()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 0.0, 0.0));
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(), Mockito.mock(RabbitSystemResourceMonitor.class), null);
+        final ScalingAction action = analyser.analyseWorkload(new InstanceInfo(1, 0, new LinkedList<>(), 0, 5));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(1, action.getAmount());
+    }
+
+    @Test
+    public void testNoActionWhileInstancesStaging()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1000, 50.0, 1.0));
+        RabbitTrendWorkloadAnalyser analyser = new RabbitTrendWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitTrendWorkloadProfile(), Mockito.mock(RabbitSystemResourceMonitor.class), null);
+        assertEquals(ScalingOperation.NONE,
+                     analyser.analyseWorkload(new InstanceInfo(1, 1, new LinkedList<>(), 1, 5)).getOperation());
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.Test;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+
+public class RabbitWaitTimeWorkloadAnalyserTest
+{
+    private static final String SCALING_TARGET = "testTarget";
+    private static final long NOW_SECONDS = 1_700_000_000L;
+
+    @Test
+    public void testInitialScaleup()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 0.0, 0.0));
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        assertEquals(ScalingOperation.SCALE_UP,
+                     analyser.analyseWorkload(new InstanceInfo(0, 0, new LinkedList<>(), 1, 0)).getOperation());
+    }
+
+    @Test
+    public void testScalesForPercentileOfWaitEstimatedFromDepth()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(2, 60));
+        InstanceInfo info = new InstanceInfo(2, 0, new LinkedList<>(), 1, 2);
+
+        // messages would wait 60 seconds
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(600, 10.0, 10.0));
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+
+        // messages would wait 120 seconds, which twice as many instances would bring within the goal
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1200, 10.0, 10.0));
+        final ScalingAction action = analyser.analyseWorkload(info);
+        assertEquals(ScalingOperation.SCALE_UP, action.getOperation());
+        assertEquals(2, action.getAmount());
+    }
+
+    @Test
+    public void testUsesAgeOfHeadMessageWhenReported()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+
+        // the depth would only be 10 seconds of work, but the message at the head has waited 5 minutes
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(
+            new QueueStats(100, 10.0, 10.0, OptionalLong.of(NOW_SECONDS - 300)));
+        final ScalingAction action = analyser.analyseWorkload(new InstanceInfo(2, 0, new LinkedList<>(), 1, 2));
+        assertEquals(ScalingOperation.SCALE_UP, action.getOperation());
+        assertEquals(5, action.getAmount());
+    }
+
+    @Test
+    public void testKeepsUpWithPublishRateWhenWaitIsShort()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        InstanceInfo info = new InstanceInfo(4, 0, new LinkedList<>(), 1, 4);
+
+        // each of the 4 busy instances consumes 5 messages a second, and 20 a second are published
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(100, 20.0, 20.0));
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+    }
+
+    @Test
+    public void testScalesDownOverProvisionedSteadyService()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(2, 60));
+
+        // the 10 instances keep up with the 20 messages a second published, so no instance is ever busy
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(5, 20.0, 20.0));
+        InstanceInfo info = new InstanceInfo(10, 0, new LinkedList<>(), 1, 10);
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        ScalingAction action = analyser.analyseWorkload(info);
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(1, action.getAmount());
+
+        // one instance at a time, rather than all the way down, until the instances are busy enough to measure their rate
+        info = new InstanceInfo(9, 0, new LinkedList<>(), 1, 9);
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        action = analyser.analyseWorkload(info);
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(1, action.getAmount());
+    }
+
+    @Test
+    public void testObservedRateIsFloorWhileBackingUp()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        InstanceInfo info = new InstanceInfo(4, 0, new LinkedList<>(), 1, 4);
+
+        // the 4 instances consume 20 messages a second, which is less than the 30 a second published
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(10, 30.0, 20.0));
+        final ScalingAction action = analyser.analyseWorkload(info);
+        assertEquals(ScalingOperation.SCALE_UP, action.getOperation());
+        assertEquals(2, action.getAmount());
+    }
+
+    @Test
+    public void testScalesDownToZeroWhenIdle()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 0.0, 0.0));
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        final ScalingAction action = analyser.analyseWorkload(new InstanceInfo(3, 0, new LinkedList<>(), 1, 3));
+        assertEquals(ScalingOperation.SCALE_DOWN, action.getOperation());
+        assertEquals(3, action.getAmount());
+    }
+
+    @Test
+    public void testStaysTheSameWhenNothingIsConsumed()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(100, 1.0, 0.0));
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        assertEquals(ScalingOperation.NONE,
+                     analyser.analyseWorkload(new InstanceInfo(2, 0, new LinkedList<>(), 1, 2)).getOperation());
+    }
+
+    @Test
+    public void testNoActionWhileInstancesStaging()
+            throws ScalerException
+    {
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1000, 50.0, 1.0));
+        RabbitWaitTimeWorkloadAnalyser analyser = getAnalyser(stats, getProfile(1, 60));
+        assertEquals(ScalingOperation.NONE,
+                     analyser.analyseWorkload(new InstanceInfo(1, 1, new LinkedList<>(), 1, 5)).getOperation());
+    }
+
+    @Test
+    public void testPercentileIsNearestRank()
+    {
+        final List<Double> values = Arrays.asList(5.0, 1.0, 4.0, 2.0, 3.0, 6.0, 7.0, 8.0, 9.0, 10.0,
+                                                            11.0, 12.0, 13.0, 14.0, 15.0, 16.0, 17.0, 18.0, 19.0, 20.0);
+        assertEquals(OptionalDouble.of(19.0), RabbitWaitTimeWorkloadAnalyser.getPercentile(values, 95));
+        assertEquals(OptionalDouble.of(20.0), RabbitWaitTimeWorkloadAnalyser.getPercentile(values, 100));
+        assertEquals(OptionalDouble.of(10.0), RabbitWaitTimeWorkloadAnalyser.getPercentile(values, 50));
+        assertEquals(OptionalDouble.of(1.0), RabbitWaitTimeWorkloadAnalyser.getPercentile(values, 1));
+        assertFalse(RabbitWaitTimeWorkloadAnalyser.getPercentile(Collections.emptyList(), 95).isPresent());
+    }
+
+    private static RabbitWorkloadProfile getProfile(final int scalingDelay, final int waitTimeGoal)
+    {
+        final RabbitWorkloadProfile profile = new RabbitWorkloadProfile(scalingDelay, 300);
+        profile.setController(RabbitWorkloadProfile.Controller.WAIT_TIME);
+        profile.setWaitTimeGoal(waitTimeGoal);
+        return profile;
+    }
+
+    private static RabbitWaitTimeWorkloadAnalyser getAnalyser(final RabbitStatsReporter stats, final RabbitWorkloadProfile profile)
+    {
+        return new RabbitWaitTimeWorkloadAnalyser(SCALING_TARGET, stats, profile, Mockito.mock(RabbitSystemResourceMonitor.class),
+                                                  null, () -> TimeUnit.SECONDS.toMillis(NOW_SECONDS));
+    }
+}
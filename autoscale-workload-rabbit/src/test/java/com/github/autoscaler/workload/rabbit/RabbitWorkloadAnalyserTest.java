@@ -16,7 +16,10 @@
 package com.github.autoscaler.workload.rabbit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 
 import com.github.autoscaler.api.InstanceInfo;
@@ -438,4 +441,133 @@ public class RabbitWorkloadAnalyserTest
         Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 1.0, 1.0));
         assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
     }
+
+    @Test
+    public void testProfileChangeKeepsStatistics()
+            throws ScalerException
+    {
+        RabbitWorkloadProfile profile = new RabbitWorkloadProfile(3, BACKLOG_GOAL);
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 4.0, 0.1));
+        RabbitSystemResourceMonitor monitor = Mockito.mock(RabbitSystemResourceMonitor.class);
+        Mockito.when(monitor.getCurrentResourceUtilisation()).thenReturn(new ResourceUtilisation(15.00, Optional.of(0)));
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(SCALING_TARGET, stats, profile, monitor, null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 1);
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+
+        // The statistics from the first two runs count towards the scaling delay of the new profile
+        analyser.setProfile(new RabbitWorkloadProfile(3, BACKLOG_GOAL * 2));
+        assertEquals(ScalingOperation.SCALE_UP, analyser.analyseWorkload(info).getOperation());
+    }
+
+    @Test
+    public void testWorkloadVolatility()
+            throws ScalerException
+    {
+        // an idle queue, or one whose backlog is too small to matter, is stable
+        assertEquals(0.0, RabbitWorkloadAnalyser.getVolatility(0, 0.0, 0, 0.0), 0.0);
+        assertEquals(0.1, RabbitWorkloadAnalyser.getVolatility(0, 0.0, 1, 0.0), 0.001);
+        // a steady backlog and publish rate is stable
+        assertEquals(0.01, RabbitWorkloadAnalyser.getVolatility(1000, 50.0, 1010, 50.0), 0.001);
+        // a burst of messages or a jump in the publish rate is volatile
+        assertEquals(0.9, RabbitWorkloadAnalyser.getVolatility(100, 0.0, 1000, 0.0), 0.001);
+        assertEquals(0.5, RabbitWorkloadAnalyser.getVolatility(1000, 50.0, 1000, 100.0), 0.001);
+
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(100, 0.0, 0.0), new QueueStats(1000, 0.0, 0.0));
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(
+            SCALING_TARGET, stats, new RabbitWorkloadProfile(3, BACKLOG_GOAL), Mockito.mock(RabbitSystemResourceMonitor.class), null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 1);
+        analyser.analyseWorkload(info);
+        assertFalse(analyser.getWorkloadVolatility().isPresent());
+        analyser.analyseWorkload(info);
+        assertEquals(0.9, analyser.getWorkloadVolatility().getAsDouble(), 0.001);
+    }
+
+    @Test
+    public void testDecisionDeferredUntilScalingDelay()
+            throws ScalerException
+    {
+        RabbitWorkloadProfile profile = new RabbitWorkloadProfile(3, BACKLOG_GOAL);
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(1, 4.0, 0.1));
+        RabbitSystemResourceMonitor monitor = Mockito.mock(RabbitSystemResourceMonitor.class);
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(SCALING_TARGET, stats, profile, monitor, null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 1);
+
+        // nothing is known about the instances until the first analysis
+        assertFalse(analyser.isDecisionDeferred());
+        assertEquals(ScalingOperation.NONE, analyser.analyseWorkload(info).getOperation());
+        assertTrue(analyser.isDecisionDeferred());
+        analyser.collectWorkload();
+
+        // the samples collected without instance information count towards the scaling delay
+        assertFalse(analyser.isDecisionDeferred());
+        assertEquals(ScalingOperation.SCALE_UP, analyser.analyseWorkload(info).getOperation());
+        Mockito.verify(stats, Mockito.times(3)).getQueueStats(SCALING_TARGET);
+    }
+
+    @Test
+    public void testDecisionNotDeferredWithoutRunningInstances()
+            throws ScalerException
+    {
+        RabbitWorkloadProfile profile = new RabbitWorkloadProfile(3, BACKLOG_GOAL);
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getQueueStats(SCALING_TARGET)).thenReturn(new QueueStats(0, 0.0, 0.0));
+        RabbitSystemResourceMonitor monitor = Mockito.mock(RabbitSystemResourceMonitor.class);
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(SCALING_TARGET, stats, profile, monitor, null);
+
+        // a service with no instances must be scaled up as soon as messages arrive
+        analyser.analyseWorkload(new InstanceInfo(0, 0, new LinkedList<>(), 1, 0));
+        assertFalse(analyser.isDecisionDeferred());
+
+        // statistics are not gathered while instances are staging, so the staging instances must be checked on every run
+        analyser.analyseWorkload(new InstanceInfo(0, 1, new LinkedList<>(), 1, 1));
+        assertFalse(analyser.isDecisionDeferred());
+    }
+
+    @Test
+    public void testSampledScaleUpOnFirstRun()
+            throws ScalerException
+    {
+        RabbitWorkloadProfile profile = new RabbitWorkloadProfile(3, BACKLOG_GOAL);
+        profile.setSampleWindow(60);
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getSampledQueueStats(SCALING_TARGET, 60, 6))
+            .thenReturn(new SampledQueueStats(SCALING_TARGET, 10, 8.0, 0.1, 4.0, 1.0));
+        RabbitSystemResourceMonitor monitor = Mockito.mock(RabbitSystemResourceMonitor.class);
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(SCALING_TARGET, stats, profile, monitor, null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 5);
+
+        // the broker holds the samples for the whole window, so there is no need to wait for the scaling delay
+        assertEquals(ScalingOperation.SCALE_UP, analyser.analyseWorkload(info).getOperation());
+        Mockito.verify(stats, Mockito.never()).getQueueStats(anyString());
+    }
+
+    @Test
+    public void testSampledDecisionDeferredUntilScalingDelay()
+            throws ScalerException
+    {
+        RabbitWorkloadProfile profile = new RabbitWorkloadProfile(3, BACKLOG_GOAL);
+        profile.setSampleWindow(60);
+        RabbitStatsReporter stats = Mockito.mock(RabbitStatsReporter.class);
+        Mockito.when(stats.getSampledQueueStats(anyString(), anyInt(), anyInt()))
+            .thenReturn(new SampledQueueStats(SCALING_TARGET, 10, 8.0, 0.1, 4.0, 1.0));
+        RabbitSystemResourceMonitor monitor = Mockito.mock(RabbitSystemResourceMonitor.class);
+        RabbitWorkloadAnalyser analyser = new RabbitWorkloadAnalyser(SCALING_TARGET, stats, profile, monitor, null);
+        InstanceInfo info = new InstanceInfo(1, 0, new LinkedList<>(), 1, 5);
+
+        assertFalse(analyser.isDecisionDeferred());
+        assertEquals(ScalingOperation.SCALE_UP, analyser.analyseWorkload(info).getOperation());
+
+        // nothing is gathered between decisions, the runs are only counted
+        assertTrue(analyser.isDecisionDeferred());
+        analyser.collectWorkload();
+        assertTrue(analyser.isDecisionDeferred());
+        analyser.collectWorkload();
+        assertFalse(analyser.isDecisionDeferred());
+        assertEquals(ScalingOperation.SCALE_UP, analyser.analyseWorkload(info).getOperation());
+        Mockito.verify(stats, Mockito.times(2)).getSampledQueueStats(anyString(), anyInt(), anyInt());
+    }
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2015-2024 Open Text.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.autoscaler.workload.rabbit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.autoscaler.api.InstanceInfo;
+import com.github.autoscaler.api.ScalerException;
+import com.github.autoscaler.api.ScalingAction;
+import com.github.autoscaler.api.ScalingOperation;
+import com.github.autoscaler.api.WorkloadAnalyser;
+
+/**
+ * Replays recorded publish rates against a simulated service, whose instances each consume a fixed number of messages per second and
+ * take a minute to start, and compares the PID analyser with the averaging analyser.
+ */
+public class ScalingControllerSimulationTest
+{
+    private static final int INTERVAL_SECONDS = 10;
+    private static final double MESSAGES_PER_INSTANCE_PER_SECOND = 5.0;
+    private static final int STARTUP_SECONDS = 60;
+    private static final int MIN_INSTANCES = 1;
+    private static final int MAX_INSTANCES = 30;
+    private static final int SCALING_DELAY = 3;
+    private static final int BACKLOG_GOAL = 60;
+
+    /**
+     * Messages published per second, every 10 seconds, by an ingestion pipeline that publishes in bursts.
+     */
+    private static final int[] BURSTS = {
+        19, 22, 19, 19, 16, 19, 24, 22, 24, 21, 22, 21, 13, 23, 22, 22, 13, 13,
+        16, 18, 81, 80, 82, 77, 81, 82, 77, 87, 82, 85, 78, 77, 79, 80, 83, 81,
+        78, 76, 18, 25, 17, 21, 22, 14, 20, 25, 12, 19, 20, 17, 22, 20, 14, 23,
+        23, 24, 26, 21, 20, 15, 22, 18, 18, 15, 16, 18, 25, 12, 14, 21, 26, 22,
+        12, 10, 21, 17, 16, 24, 24, 21, 81, 82, 86, 82, 82, 82, 74, 85, 84, 82,
+        72, 77, 83, 73, 79, 84, 75, 86, 22, 19, 21, 23, 20, 25, 17, 18, 24, 20,
+        16, 24, 26, 18, 14, 19, 19, 19, 26, 16, 25, 15, 17, 23, 25, 23, 21, 21,
+        21, 22, 19, 21, 22, 20, 23, 22, 28, 21, 18, 19, 20, 24, 79, 82, 87, 70,
+        76, 81, 82, 81, 78, 83, 81, 78, 90, 81, 78, 80, 79, 80, 9, 18, 24, 15,
+        20, 24, 23, 26, 13, 19, 19, 22, 24, 9, 24, 14, 23, 14, 21, 25, 19, 21,
+    };
+
+    /**
+     * Messages published per second, every 10 seconds, rising and falling over half an hour.
+     */
+    private static final int[] RAMP = {
+        14, 12, 12, 21, 19, 14, 30, 12, 23, 18, 21, 25, 24, 27, 17, 18, 30, 23,
+        23, 22, 37, 35, 40, 29, 34, 30, 40, 45, 34, 47, 45, 40, 32, 50, 43, 41,
+        47, 48, 54, 43, 54, 57, 57, 50, 48, 58, 54, 55, 62, 54, 44, 55, 48, 62,
+        60, 56, 60, 64, 61, 68, 62, 68, 70, 72, 61, 69, 55, 60, 56, 71, 60, 67,
+        66, 67, 65, 69, 77, 69, 71, 74, 68, 63, 67, 75, 61, 67, 75, 74, 70, 74,
+        71, 64, 62, 67, 74, 67, 65, 66, 62, 69, 63, 71, 57, 70, 65, 58, 71, 66,
+        56, 62, 68, 64, 70, 69, 68, 66, 71, 67, 65, 52, 66, 68, 59, 58, 69, 50,
+        61, 70, 53, 60, 65, 55, 57, 58, 49, 52, 53, 55, 50, 48, 43, 46, 51, 47,
+        41, 40, 57, 48, 45, 28, 43, 41, 47, 39, 36, 38, 25, 39, 34, 28, 37, 39,
+        22, 24, 28, 26, 23, 19, 33, 27, 14, 13, 27, 22, 25, 19, 10, 14, 1, 7,
+    };
+
+    /**
+     * Messages published per second, every 10 seconds, at a noisy but steady rate.
+     */
+    private static final int[] NOISY = {
+        39, 45, 33, 39, 45, 44, 46, 42, 37, 48, 40, 32, 34, 40, 39, 42, 40, 42,
+        39, 27, 44, 51, 44, 38, 44, 30, 21, 41, 31, 47, 29, 14, 30, 56, 36, 26,
+        32, 45, 45, 42, 55, 47, 40, 46, 57, 50, 50, 29, 39, 47, 37, 51, 46, 49,
+        38, 65, 52, 38, 41, 66, 37, 49, 50, 40, 28, 42, 44, 51, 48, 40, 49, 45,
+        42, 41, 38, 47, 29, 34, 40, 25, 36, 20, 33, 46, 46, 39, 38, 26, 58, 45,
+        51, 31, 38, 22, 48, 49, 21, 39, 46, 22, 22, 29, 34, 26, 40, 42, 46, 47,
+        55, 52, 27, 35, 29, 29, 39, 40, 45, 24, 28, 40, 38, 37, 39, 32, 47, 44,
+        39, 33, 38, 13, 30, 40, 25, 42, 41, 26, 37, 37, 45, 46, 40, 31, 39, 39,
+        47, 43, 33, 26, 36, 33, 29, 39, 35, 41, 45, 36, 63, 37, 51, 41, 51, 16,
+        32, 42, 46, 63, 43, 53, 48, 49, 45, 38, 45, 29, 52, 30, 42, 61, 38, 40,
+    };
+
+    @Test
+    public void testPidOvershootsLessAndScalesNoMoreOftenOnBursts() throws ScalerException
+    {
+        compare("bursts", BURSTS);
+    }
+
+    @Test
+    public void testPidOvershootsLessAndScalesNoMoreOftenOnRamp() throws ScalerException
+    {
+        compare("ramp", RAMP);
+    }
+
+    @Test
+    public void testPidOvershootsLessAndScalesNoMoreOftenOnNoisyRate() throws ScalerException
+    {
+        compare("noisy", NOISY);
+    }
+
+    private static void compare(final String name, final int[] trace) throws ScalerException
+    {
+        final RabbitWorkloadProfile averageProfile = new RabbitWorkloadProfile(SCALING_DELAY, BACKLOG_GOAL);
+        final RabbitWorkloadProfile pidProfile = new RabbitWorkloadProfile(SCALING_DELAY, BACKLOG_GOAL);
+        pidProfile.setController(RabbitWorkloadProfile.Controller.PID);
+
+        final Result average = simulate(trace, (stats, clock) -> new RabbitWorkloadAnalyser(
+            "target", stats, averageProfile, null, null));
+        final Result pid = simulate(trace, (stats, clock) -> new RabbitPidWorkloadAnalyser(
+            "target", stats, pidProfile, null, null, clock::get));
+
+        final String results = " on the " + name + " trace, average: " + average + ", pid: " + pid;
+        assertTrue(pid.scaleEvents <= average.scaleEvents, "PID should scale no more often" + results);
+        assertTrue(pid.overshoot <= average.overshoot, "PID should overshoot less" + results);
+        assertTrue(pid.maxMessages <= average.maxMessages * 1.1, "PID should keep up with the workload" + results);
+    }
+
+    private static Result simulate(final int[] trace, final AnalyserFactory analyserFactory) throws ScalerException
+    {
+        final AtomicLong clock = new AtomicLong();
+        final SimulatedStatsReporter stats = new SimulatedStatsReporter();
+        final WorkloadAnalyser analyser = analyserFactory.create(stats, clock);
+        // The times at which each instance started, or will start, consuming messages
+        final Deque<Long> instances = new ArrayDeque<>();
+        instances.add(0L);
+        double messages = 0;
+        final Result result = new Result();
+        for (final int publishRate : trace) {
+            final long now = TimeUnit.NANOSECONDS.toSeconds(clock.get());
+            final int running = (int) instances.stream().filter(readyAt -> readyAt <= now).count();
+            final double published = publishRate * INTERVAL_SECONDS;
+            final double consumed = Math.min(messages + published, running * MESSAGES_PER_INSTANCE_PER_SECOND * INTERVAL_SECONDS);
+            messages += published - consumed;
+            stats.current = new QueueStats((int) messages, publishRate, consumed / INTERVAL_SECONDS);
+
+            final ScalingAction action = analyser.analyseWorkload(
+                new InstanceInfo(running, instances.size() - running, new LinkedList<>(), 1, instances.size()));
+            if (action.getOperation() == ScalingOperation.SCALE_UP) {
+                final int add = Math.min(action.getAmount(), MAX_INSTANCES - instances.size());
+                for (int i = 0; i < add; i++) {
+                    instances.addLast(now + STARTUP_SECONDS);
+                }
+                result.scaleEvents += add > 0 ? 1 : 0;
+            } else if (action.getOperation() == ScalingOperation.SCALE_DOWN) {
+                final int remove = Math.min(action.getAmount(), instances.size() - MIN_INSTANCES);
+                for (int i = 0; i < remove; i++) {
+                    instances.removeLast();
+                }
+                result.scaleEvents += remove > 0 ? 1 : 0;
+            }
+            final int needed = (int) Math.ceil(publishRate / MESSAGES_PER_INSTANCE_PER_SECOND);
+            result.overshoot = Math.max(result.overshoot, instances.size() - needed);
+            result.maxMessages = Math.max(result.maxMessages, messages);
+            result.instanceSeconds += instances.size() * INTERVAL_SECONDS;
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(INTERVAL_SECONDS));
+        }
+        result.finalMessages = messages;
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface AnalyserFactory
+    {
+        WorkloadAnalyser create(RabbitStatsReporter stats, AtomicLong clock);
+    }
+
+    private static final class Result
+    {
+        private int scaleEvents;
+        private int overshoot;
+        private double maxMessages;
+        private double finalMessages;
+        private long instanceSeconds;
+
+        @Override
+        public String toString()
+        {
+            return String.format("scale events %3d, overshoot %2d instances, max backlog %6.0f, final backlog %6.0f, instance-seconds %d",
+                                 scaleEvents, overshoot, maxMessages, finalMessages, instanceSeconds);
+        }
+    }
+
+    private static final class SimulatedStatsReporter extends RabbitStatsReporter
+    {
+        private QueueStats current;
+
+        SimulatedStatsReporter()
+        {
+            super(new RabbitManagementApi(null, "http://localhost:15672", null), "/");
+        }
+
+        @Override
+        public QueueStats getQueueStats(final String queueReference)
+        {
+            return current;
+        }
+
+        @Override
+        public List<StagingQueueStats> getStagingQueueStats(final String stagingQueueNameRegex)
+        {
+            return Collections.emptyList();
+        }
+    }
+}